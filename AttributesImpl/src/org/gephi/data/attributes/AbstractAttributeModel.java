@@ -70,6 +70,8 @@ public abstract class AbstractAttributeModel implements AttributeModel {
     private final AttributeFactoryImpl factory;
     //Events
     protected AttributeEventManager eventManager;
+    //Rows version, incremented when any row value is set
+    private volatile int rowsVersion;
 
     //Data API
     public AbstractAttributeModel() {
@@ -112,6 +114,14 @@ public abstract class AbstractAttributeModel implements AttributeModel {
     public void clear() {
     }
 
+    public int getRowsVersion() {
+        return rowsVersion;
+    }
+
+    void incRowsVersion() {
+        rowsVersion++;
+    }
+
     public AttributeTableImpl getNodeTable() {
         return nodeTable;
     }
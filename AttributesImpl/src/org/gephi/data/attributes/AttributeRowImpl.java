@@ -75,6 +75,7 @@ public class AttributeRowImpl implements AttributeRow {
             newValues[i] = attributeTable.getColumn(i).defaultValue;
         }
         this.values = newValues;
+        attributeTable.model.incRowsVersion();
     }
     
     public void setValues(AttributeRow attributeRow) {
@@ -83,8 +84,26 @@ public class AttributeRowImpl implements AttributeRow {
         }
         AttributeValue[] attValues = attributeRow.getValues();
         for (int i = 0; i < attValues.length; i++) {
-            setValue(attValues[i]);
+            AttributeValue attValue = attValues[i];
+            AttributeColumn column = attValue.getColumn();
+            if (attributeTable.getColumn(column.getIndex()) != column) {
+                column = attributeTable.getColumn(column);
+            }
+            if (column != null && isValue(column.getIndex(), attValue.getValue())) {
+                //Unchanged cells keep their value, which may be the shared default
+                continue;
+            }
+            setValue(attValue);
+        }
+    }
+
+    private boolean isValue(int index, Object value) {
+        updateColumns();
+        if (checkIndexRange(index)) {
+            Object current = values[index].getValue();
+            return current == null ? value == null : current.equals(value);
         }
+        return false;
     }
     
     public void setValue(int index, Object value) {
@@ -142,6 +161,7 @@ public class AttributeRowImpl implements AttributeRow {
         AttributeValueImpl oldValue = this.values[index];
         
         this.values[index] = value;
+        attributeTable.model.incRowsVersion();
         
         if (!((oldValue == null && value == null) || (oldValue != null && oldValue.equals(value)))
                 && index > 0 && !value.getColumn().getOrigin().equals(AttributeOrigin.COMPUTED)) {    //0 is the index of node id and edge id cols, not useful to send these events
@@ -249,5 +269,6 @@ public class AttributeRowImpl implements AttributeRow {
     
     public void setValues(AttributeValueImpl[] values) {
         this.values = values;
+        attributeTable.model.incRowsVersion();
     }
 }
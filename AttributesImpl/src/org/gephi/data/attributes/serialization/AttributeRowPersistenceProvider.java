@@ -41,13 +41,19 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.data.attributes.serialization;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 import org.gephi.data.attributes.AbstractAttributeModel;
 import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.project.api.Workspace;
+import org.gephi.project.spi.WorkspaceBytesPersistenceProvider;
+import org.gephi.project.spi.WorkspaceConcurrentPersistenceProvider;
 import org.gephi.project.spi.WorkspacePersistenceProvider;
 import org.openide.util.lookup.ServiceProvider;
 
@@ -56,17 +62,21 @@ import org.openide.util.lookup.ServiceProvider;
  * @author Mathieu Bastian
  */
 @ServiceProvider(service = WorkspacePersistenceProvider.class, position = 15000)
-public class AttributeRowPersistenceProvider implements WorkspacePersistenceProvider {
+public class AttributeRowPersistenceProvider implements WorkspaceBytesPersistenceProvider, WorkspaceConcurrentPersistenceProvider {
 
     public void writeXML(XMLStreamWriter writer, Workspace workspace) {
         AttributeModel model = workspace.getLookup().lookup(AttributeModel.class);
         GraphModel graphModel = workspace.getLookup().lookup(GraphModel.class);
         AttributeRowSerializer serializer = new AttributeRowSerializer();
         if (model != null && graphModel != null && model instanceof AbstractAttributeModel) {
+            Graph graph = graphModel.getHierarchicalGraph();
+            graph.readLock();
             try {
                 serializer.writeRows(writer, graphModel);
             } catch (XMLStreamException ex) {
                 throw new RuntimeException(ex);
+            } finally {
+                graph.readUnlock();
             }
         }
     }
@@ -84,6 +94,42 @@ public class AttributeRowPersistenceProvider implements WorkspacePersistenceProv
         }
     }
 
+    public void writeBytes(DataOutputStream stream, Workspace workspace) throws IOException {
+        AttributeModel model = workspace.getLookup().lookup(AttributeModel.class);
+        GraphModel graphModel = workspace.getLookup().lookup(GraphModel.class);
+        AttributeRowSerializer serializer = new AttributeRowSerializer();
+        if (model != null && graphModel != null && model instanceof AbstractAttributeModel) {
+            Graph graph = graphModel.getHierarchicalGraph();
+            graph.readLock();
+            try {
+                serializer.writeRows(stream, graphModel, (AbstractAttributeModel) model);
+            } finally {
+                graph.readUnlock();
+            }
+        }
+    }
+
+    public void readBytes(DataInputStream stream, Workspace workspace) throws IOException {
+        AttributeModel model = workspace.getLookup().lookup(AttributeModel.class);
+        GraphModel graphModel = workspace.getLookup().lookup(GraphModel.class);
+        AttributeRowSerializer serializer = new AttributeRowSerializer();
+        if (model != null && graphModel != null && model instanceof AbstractAttributeModel) {
+            serializer.readRows(stream, graphModel, (AbstractAttributeModel) model);
+        }
+    }
+
+    public String getStamp(Workspace workspace) {
+        AttributeModel model = workspace.getLookup().lookup(AttributeModel.class);
+        GraphModel graphModel = workspace.getLookup().lookup(GraphModel.class);
+        if (model != null && graphModel != null && model instanceof AbstractAttributeModel) {
+            AbstractAttributeModel attributeModel = (AbstractAttributeModel) model;
+            Graph graph = graphModel.getHierarchicalGraph();
+            return graph.getNodeVersion() + ":" + graph.getEdgeVersion() + ":" + attributeModel.getRowsVersion()
+                    + ":" + attributeModel.getNodeTable().getVersion() + ":" + attributeModel.getEdgeTable().getVersion();
+        }
+        return null;
+    }
+
     public String getIdentifier() {
         return "attributerows";
     }
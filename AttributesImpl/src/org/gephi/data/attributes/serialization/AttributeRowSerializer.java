@@ -41,6 +41,11 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.data.attributes.serialization;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
@@ -54,6 +59,7 @@ import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
+import static org.gephi.project.spi.BinaryPersistenceUtils.*;
 
 /**
  *
@@ -65,6 +71,11 @@ public class AttributeRowSerializer {
     private static final String ELEMENT_NODE_ROW = "noderow";
     private static final String ELEMENT_EDGE_ROW = "edgerow";
     private static final String ELEMENT_VALUE = "attvalue";
+    //Binary
+    private static final int BINARY_VERSION = 1;
+    private static final byte BINARY_VALUE_NULL = 0;
+    private static final byte BINARY_VALUE_NATIVE = 1;
+    private static final byte BINARY_VALUE_STRING = 2;
 
     public void writeRows(XMLStreamWriter writer, GraphModel graphModel) throws XMLStreamException {
         writer.writeStartElement(ELEMENT_ROWS);
@@ -132,6 +143,207 @@ public class AttributeRowSerializer {
         }
     }
 
+    /**
+     * Writes node and edge rows as a binary section. Each table is written as
+     * the list of row owners followed by one block per column, so values of
+     * the same type are contiguous. Primitive and string values are written
+     * natively, other types use their string form like the XML format.
+     */
+    public void writeRows(DataOutputStream stream, GraphModel graphModel, AbstractAttributeModel attributeModel) throws IOException {
+        stream.writeInt(BINARY_VERSION);
+        HierarchicalGraph hierarchicalGraph = graphModel.getHierarchicalGraph();
+
+        List<AttributeRowImpl> nodeRows = new ArrayList<AttributeRowImpl>();
+        List<Integer> nodeIds = new ArrayList<Integer>();
+        for (Node node : hierarchicalGraph.getNodesTree()) {
+            if (node.getNodeData().getAttributes() != null && node.getNodeData().getAttributes() instanceof AttributeRowImpl) {
+                nodeRows.add((AttributeRowImpl) node.getNodeData().getAttributes());
+                nodeIds.add(node.getId());
+            }
+        }
+        writeTable(stream, attributeModel.getNodeTable(), nodeIds, nodeRows);
+
+        List<AttributeRowImpl> edgeRows = new ArrayList<AttributeRowImpl>();
+        List<Integer> edgeIds = new ArrayList<Integer>();
+        for (Edge edge : hierarchicalGraph.getEdgesTree()) {
+            if (edge.getEdgeData().getAttributes() != null && edge.getEdgeData().getAttributes() instanceof AttributeRowImpl) {
+                edgeRows.add((AttributeRowImpl) edge.getEdgeData().getAttributes());
+                edgeIds.add(edge.getId());
+            }
+        }
+        writeTable(stream, attributeModel.getEdgeTable(), edgeIds, edgeRows);
+    }
+
+    public void readRows(DataInputStream stream, GraphModel graphModel, AbstractAttributeModel attributeModel) throws IOException {
+        readVersion(stream, BINARY_VERSION, ELEMENT_ROWS);
+        HierarchicalGraph hierarchicalGraph = graphModel.getHierarchicalGraph();
+
+        int nodesCount = readVarInt(stream);
+        AttributeRowImpl[] nodeRows = new AttributeRowImpl[nodesCount];
+        for (int i = 0; i < nodesCount; i++) {
+            Node node = hierarchicalGraph.getNode(readVarInt(stream));
+            if (node != null && node.getNodeData().getAttributes() instanceof AttributeRowImpl) {
+                nodeRows[i] = (AttributeRowImpl) node.getNodeData().getAttributes();
+            }
+        }
+        readTable(stream, attributeModel, attributeModel.getNodeTable(), nodeRows);
+
+        int edgesCount = readVarInt(stream);
+        AttributeRowImpl[] edgeRows = new AttributeRowImpl[edgesCount];
+        for (int i = 0; i < edgesCount; i++) {
+            Edge edge = hierarchicalGraph.getEdge(readVarInt(stream));
+            if (edge != null && edge.getEdgeData().getAttributes() instanceof AttributeRowImpl) {
+                edgeRows[i] = (AttributeRowImpl) edge.getEdgeData().getAttributes();
+            }
+        }
+        readTable(stream, attributeModel, attributeModel.getEdgeTable(), edgeRows);
+    }
+
+    private void writeTable(DataOutputStream stream, AttributeTableImpl table, List<Integer> ids, List<AttributeRowImpl> rows) throws IOException {
+        int rowsCount = rows.size();
+        writeVarInt(stream, rowsCount);
+        for (int i = 0; i < rowsCount; i++) {
+            writeVarInt(stream, ids.get(i));
+        }
+        for (int i = 0; i < rowsCount; i++) {
+            writeVarInt(stream, rows.get(i).getRowVersion());
+        }
+
+        AttributeColumnImpl[] columns = table.getColumns();
+        writeVarInt(stream, columns.length);
+        for (AttributeColumnImpl column : columns) {
+            int index = column.getIndex();
+            AttributeType type = column.getType();
+            writeVarInt(stream, index);
+            writeString(stream, type.name());
+            for (int i = 0; i < rowsCount; i++) {
+                writeValue(stream, type, getRowValue(rows.get(i), index));
+            }
+        }
+    }
+
+    private void readTable(DataInputStream stream, AbstractAttributeModel model, AttributeTableImpl table, AttributeRowImpl[] rows) throws IOException {
+        for (int i = 0; i < rows.length; i++) {
+            int rowVersion = readVarInt(stream);
+            if (rows[i] != null) {
+                rows[i].setRowVersion(rowVersion);
+            }
+        }
+
+        int columnsCount = readVarInt(stream);
+        for (int c = 0; c < columnsCount; c++) {
+            int index = readVarInt(stream);
+            AttributeType writtenType = AttributeType.valueOf(readString(stream));
+            AttributeColumnImpl column = table.getColumn(index);
+            for (int i = 0; i < rows.length; i++) {
+                Object value = readValue(stream, writtenType);
+                if (value != null && column != null && rows[i] != null) {
+                    AttributeType type = column.getType();
+                    if (type != writtenType) {
+                        value = type.parse(value.toString());
+                    }
+                    rows[i].setValue(index, model.getManagedValue(value, type));
+                }
+            }
+        }
+    }
+
+    private Object getRowValue(AttributeRowImpl row, int index) {
+        AttributeValue[] values = row.getValues();
+        if (index < values.length && values[index] != null && values[index].getColumn().getIndex() == index) {
+            return values[index].getValue();
+        }
+        for (AttributeValue value : values) {
+            if (value != null && value.getColumn().getIndex() == index) {
+                return value.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void writeValue(DataOutputStream stream, AttributeType type, Object obj) throws IOException {
+        if (obj == null) {
+            stream.writeByte(BINARY_VALUE_NULL);
+            return;
+        } else if (!type.getType().isInstance(obj)) {
+            stream.writeByte(BINARY_VALUE_STRING);
+            writeString(stream, obj.toString());
+            return;
+        }
+        switch (type) {
+            case BYTE:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeByte((Byte) obj);
+                break;
+            case SHORT:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeShort((Short) obj);
+                break;
+            case INT:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeInt((Integer) obj);
+                break;
+            case LONG:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeLong((Long) obj);
+                break;
+            case FLOAT:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeFloat((Float) obj);
+                break;
+            case DOUBLE:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeDouble((Double) obj);
+                break;
+            case BOOLEAN:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeBoolean((Boolean) obj);
+                break;
+            case CHAR:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                stream.writeChar((Character) obj);
+                break;
+            case STRING:
+                stream.writeByte(BINARY_VALUE_NATIVE);
+                writeString(stream, (String) obj);
+                break;
+            default:
+                stream.writeByte(BINARY_VALUE_STRING);
+                writeString(stream, obj.toString());
+        }
+    }
+
+    private Object readValue(DataInputStream stream, AttributeType type) throws IOException {
+        byte tag = stream.readByte();
+        if (tag == BINARY_VALUE_NULL) {
+            return null;
+        } else if (tag == BINARY_VALUE_STRING) {
+            return type.parse(readString(stream));
+        }
+        switch (type) {
+            case BYTE:
+                return stream.readByte();
+            case SHORT:
+                return stream.readShort();
+            case INT:
+                return stream.readInt();
+            case LONG:
+                return stream.readLong();
+            case FLOAT:
+                return stream.readFloat();
+            case DOUBLE:
+                return stream.readDouble();
+            case BOOLEAN:
+                return stream.readBoolean();
+            case CHAR:
+                return stream.readChar();
+            case STRING:
+                return readString(stream);
+            default:
+                throw new IOException("Unexpected native value for type " + type);
+        }
+    }
+
     public boolean writeRow(XMLStreamWriter writer, AttributeRowImpl row) throws XMLStreamException {
         writer.writeAttribute("version", String.valueOf(row.getRowVersion()));
         int writtenRows = 0;
@@ -646,6 +646,27 @@ public class ParamAVLTree<Item> implements Iterable<Item> {
         return new ParamAVLIterator(this);
     }
 
+    /**
+     * Replaces the structure of this tree by a copy of the structure of
+     * <code>tree</code>. Only tree nodes are duplicated, items are shared.
+     * @param tree the tree to copy, can be <code>this</code>
+     */
+    protected void copyFrom(ParamAVLTree<Item> tree) {
+        this.root = copyNode(tree.root, null);
+        this.count = tree.count;
+    }
+
+    private static <T> ParamAVLNode<T> copyNode(ParamAVLNode<T> node, ParamAVLNode parent) {
+        if (node == null) {
+            return null;
+        }
+        ParamAVLNode<T> copy = new ParamAVLNode<T>(node.item, parent);
+        copy.balance = node.balance;
+        copy.left = copyNode((ParamAVLNode<?>) node.left, copy);
+        copy.right = copyNode((ParamAVLNode<?>) node.right, copy);
+        return copy;
+    }
+
     public int getCount() {
         return count;
     }
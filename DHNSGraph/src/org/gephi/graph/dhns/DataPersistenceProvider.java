@@ -41,12 +41,17 @@ Portions Copyrighted 2011 Gephi Consortium.
 */
 package org.gephi.graph.dhns;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 import org.gephi.graph.dhns.core.Dhns;
 import org.gephi.graph.dhns.utils.DataSerializer;
 import org.gephi.project.api.Workspace;
+import org.gephi.project.spi.WorkspaceBytesPersistenceProvider;
+import org.gephi.project.spi.WorkspaceConcurrentPersistenceProvider;
 import org.gephi.project.spi.WorkspacePersistenceProvider;
 import org.openide.util.lookup.ServiceProvider;
 
@@ -55,15 +60,18 @@ import org.openide.util.lookup.ServiceProvider;
  * @author Mathieu Bastian
  */
 @ServiceProvider(service = WorkspacePersistenceProvider.class, position = 12000)
-public class DataPersistenceProvider implements WorkspacePersistenceProvider {
+public class DataPersistenceProvider implements WorkspaceBytesPersistenceProvider, WorkspaceConcurrentPersistenceProvider {
 
     public void writeXML(XMLStreamWriter writer, Workspace workspace) {
         Dhns dhns = workspace.getLookup().lookup(Dhns.class);
         DataSerializer serializer = new DataSerializer();
+        dhns.readLock();
         try {
             serializer.writeData(writer, dhns);
         } catch (XMLStreamException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            dhns.readUnlock();
         }
     }
 
@@ -77,6 +85,28 @@ public class DataPersistenceProvider implements WorkspacePersistenceProvider {
         }
     }
 
+    public void writeBytes(DataOutputStream stream, Workspace workspace) throws IOException {
+        Dhns dhns = workspace.getLookup().lookup(Dhns.class);
+        DataSerializer serializer = new DataSerializer();
+        dhns.readLock();
+        try {
+            serializer.writeData(stream, dhns);
+        } finally {
+            dhns.readUnlock();
+        }
+    }
+
+    public void readBytes(DataInputStream stream, Workspace workspace) throws IOException {
+        Dhns dhns = workspace.getLookup().lookup(Dhns.class);
+        DataSerializer serializer = new DataSerializer();
+        serializer.readData(stream, dhns);
+    }
+
+    public String getStamp(Workspace workspace) {
+        //Node and edge data aren't versioned
+        return null;
+    }
+
     public String getIdentifier() {
         return "Data";
     }
@@ -41,13 +41,23 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.dhns;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.TreeStructure;
+import org.gephi.graph.dhns.edge.AbstractEdge;
+import org.gephi.graph.dhns.node.AbstractNode;
+import org.gephi.graph.dhns.node.iterators.TreeListIterator;
 import org.gephi.graph.dhns.utils.DHNSSerializer;
 import org.gephi.project.api.Workspace;
+import org.gephi.project.spi.WorkspaceBytesPersistenceProvider;
+import org.gephi.project.spi.WorkspaceConcurrentPersistenceProvider;
 import org.gephi.project.spi.WorkspacePersistenceProvider;
+import org.gephi.utils.collection.avl.ParamAVLIterator;
 import org.openide.util.Lookup;
 import org.openide.util.lookup.ServiceProvider;
 
@@ -56,16 +66,19 @@ import org.openide.util.lookup.ServiceProvider;
  * @author Mathieu Bastian
  */
 @ServiceProvider(service = WorkspacePersistenceProvider.class, position = 10000)
-public class DhnsPersistenceProvider implements WorkspacePersistenceProvider {
+public class DhnsPersistenceProvider implements WorkspaceBytesPersistenceProvider, WorkspaceConcurrentPersistenceProvider {
 
     public void writeXML(XMLStreamWriter writer, Workspace workspace) {
         DhnsGraphController graphController = Lookup.getDefault().lookup(DhnsGraphController.class);
         Dhns dhns = (Dhns) graphController.getModel(workspace);
         DHNSSerializer serializer = new DHNSSerializer();
+        dhns.readLock();
         try {
             serializer.writeDhns(writer, dhns);
         } catch (XMLStreamException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            dhns.readUnlock();
         }
     }
 
@@ -80,6 +93,57 @@ public class DhnsPersistenceProvider implements WorkspacePersistenceProvider {
         }
     }
 
+    public void writeBytes(DataOutputStream stream, Workspace workspace) throws IOException {
+        Dhns dhns = workspace.getLookup().lookup(Dhns.class);
+        DHNSSerializer serializer = new DHNSSerializer();
+        dhns.readLock();
+        try {
+            serializer.writeDhns(stream, dhns);
+        } finally {
+            dhns.readUnlock();
+        }
+    }
+
+    public void readBytes(DataInputStream stream, Workspace workspace) throws IOException {
+        Dhns dhns = workspace.getLookup().lookup(Dhns.class);
+        DHNSSerializer serializer = new DHNSSerializer();
+        serializer.readDhns(stream, dhns);
+    }
+
+    public String getStamp(Workspace workspace) {
+        DhnsGraphController graphController = Lookup.getDefault().lookup(DhnsGraphController.class);
+        Dhns dhns = (Dhns) graphController.getModel(workspace);
+        dhns.readLock();
+        try {
+            return dhns.getGraphVersion().getNodeVersion() + ":" + dhns.getGraphVersion().getEdgeVersion()
+                    + ":" + dhns.getIdGen().getNodeGen() + ":" + dhns.getIdGen().getEdgeGen()
+                    + ":" + dhns.isDirected() + ":" + dhns.isUndirected() + ":" + dhns.isMixed()
+                    + ":" + dhns.getSettingsManager().getClientProperties().hashCode()
+                    + ":" + getWeightsHash(dhns);
+        } finally {
+            dhns.readUnlock();
+        }
+    }
+
+    /**
+     * Edge weights are stored in attribute rows and don't bump the graph version,
+     * so they are hashed in the same order the serializer writes them.
+     */
+    private int getWeightsHash(Dhns dhns) {
+        int hash = 1;
+        TreeStructure treeStructure = dhns.getGraphStructure().getMainView().getStructure();
+        ParamAVLIterator<AbstractEdge> edgeIterator = new ParamAVLIterator<AbstractEdge>();
+        for (TreeListIterator itr = new TreeListIterator(treeStructure.getTree(), 1); itr.hasNext();) {
+            AbstractNode node = itr.next();
+            for (edgeIterator.setNode(node.getEdgesOutTree()); edgeIterator.hasNext();) {
+                AbstractEdge edge = edgeIterator.next();
+                hash = 31 * hash + edge.getId();
+                hash = 31 * hash + Float.floatToIntBits(edge.getWeight());
+            }
+        }
+        return hash;
+    }
+
     public String getIdentifier() {
         return "Dhns";
     }
@@ -0,0 +1,334 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import gnu.trove.TIntIntHashMap;
+import org.gephi.graph.api.AdjacencySnapshot;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.edge.AbstractEdge;
+import org.gephi.graph.dhns.edge.iterators.AbstractEdgeIterator;
+import org.gephi.graph.dhns.edge.iterators.BiEdgeIterator;
+import org.gephi.graph.dhns.edge.iterators.EdgeNodeIterator;
+import org.gephi.graph.dhns.edge.iterators.MetaEdgeNodeIterator;
+import org.gephi.graph.dhns.node.AbstractNode;
+import org.gephi.graph.dhns.node.iterators.TreeIterator;
+import org.gephi.graph.dhns.predicate.Predicate;
+
+/**
+ * Immutable CSR adjacency of a view, built from the AVL edge trees in a single
+ * pass. Instances are cached by {@link GraphViewImpl} and shared by all graphs
+ * of the same type on the view until the graph version changes.
+ */
+public class AdjacencySnapshotImpl implements AdjacencySnapshot {
+
+    public enum Type {
+
+        DIRECTED, UNDIRECTED, MIXED
+    };
+    private static final Predicate<AbstractNode> ALL_NODES = new Predicate<AbstractNode>() {
+
+        public boolean evaluate(AbstractNode element) {
+            return true;
+        }
+    };
+    private static final Predicate<AbstractEdge> ALL_EDGES = new Predicate<AbstractEdge>() {
+
+        public boolean evaluate(AbstractEdge element) {
+            return true;
+        }
+    };
+    //Nodes
+    private final AbstractNode[] nodes;
+    private final TIntIntHashMap indices;
+    //Adjacency
+    private final int[] outOffsets;
+    private final int[] outNeighbors;
+    private final float[] outWeights;
+    private final int[] inOffsets;
+    private final int[] inNeighbors;
+    private final float[] inWeights;
+    //Version
+    private final int nodeVersion;
+    private final int edgeVersion;
+
+    private AdjacencySnapshotImpl(AbstractNode[] nodes, TIntIntHashMap indices, Adjacency out, Adjacency in, int nodeVersion, int edgeVersion) {
+        this.nodes = nodes;
+        this.indices = indices;
+        this.outOffsets = out.offsets;
+        this.outNeighbors = out.trimNeighbors();
+        this.outWeights = out.trimWeights();
+        if (in != null) {
+            this.inOffsets = in.offsets;
+            this.inNeighbors = in.trimNeighbors();
+            this.inWeights = in.trimWeights();
+        } else {
+            this.inOffsets = outOffsets;
+            this.inNeighbors = outNeighbors;
+            this.inWeights = outWeights;
+        }
+        this.nodeVersion = nodeVersion;
+        this.edgeVersion = edgeVersion;
+    }
+
+    /**
+     * Wraps existing CSR arrays, which must not be modified afterwards.
+     * <code>indices</code> maps node ids to their index in <code>nodes</code>.
+     */
+    public AdjacencySnapshotImpl(AbstractNode[] nodes, TIntIntHashMap indices, int[] outOffsets, int[] outNeighbors, float[] outWeights, int[] inOffsets, int[] inNeighbors, float[] inWeights, int nodeVersion, int edgeVersion) {
+        this.nodes = nodes;
+        this.indices = indices;
+        this.outOffsets = outOffsets;
+        this.outNeighbors = outNeighbors;
+        this.outWeights = outWeights;
+        this.inOffsets = inOffsets;
+        this.inNeighbors = inNeighbors;
+        this.inWeights = inWeights;
+        this.nodeVersion = nodeVersion;
+        this.edgeVersion = edgeVersion;
+    }
+
+    /**
+     * Builds the snapshot of <code>view</code>. The caller must hold the read lock.
+     */
+    public static AdjacencySnapshotImpl build(GraphViewImpl view, Type type, int nodeVersion, int edgeVersion) {
+        TreeStructure structure = view.getStructure();
+        Predicate<AbstractNode> enabledPredicate = new Predicate<AbstractNode>() {
+
+            public boolean evaluate(AbstractNode element) {
+                return element.isEnabled();
+            }
+        };
+
+        //Nodes
+        AbstractNode[] nodes = new AbstractNode[view.getNodesEnabled()];
+        TIntIntHashMap indices = new TIntIntHashMap(nodes.length);
+        int count = 0;
+        for (TreeIterator itr = new TreeIterator(structure, true, ALL_NODES); itr.hasNext();) {
+            AbstractNode node = itr.next();
+            if (count == nodes.length) {
+                AbstractNode[] newNodes = new AbstractNode[nodes.length * 2 + 1];
+                System.arraycopy(nodes, 0, newNodes, 0, count);
+                nodes = newNodes;
+            }
+            nodes[count] = node;
+            indices.put(node.getNumber(), count);
+            count++;
+        }
+        if (count != nodes.length) {
+            AbstractNode[] newNodes = new AbstractNode[count];
+            System.arraycopy(nodes, 0, newNodes, 0, count);
+            nodes = newNodes;
+        }
+
+        //Edges
+        int capacity = view.getEdgesCountEnabled() + view.getMetaEdgesCountTotal();
+        if (type != Type.DIRECTED) {
+            capacity *= 2;
+        }
+        Adjacency out = new Adjacency(count, capacity);
+        Adjacency in = type == Type.UNDIRECTED ? null : new Adjacency(count, capacity);
+        for (int i = 0; i < count; i++) {
+            AbstractNode node = nodes[i];
+            switch (type) {
+                case DIRECTED:
+                    out.push(node, directedIterator(node, true, enabledPredicate), indices, false);
+                    in.push(node, directedIterator(node, false, enabledPredicate), indices, false);
+                    break;
+                case UNDIRECTED:
+                    out.push(node, undirectedIterator(node, enabledPredicate), indices, false);
+                    break;
+                case MIXED:
+                    out.push(node, directedIterator(node, true, enabledPredicate), indices, false);
+                    out.push(node, directedIterator(node, false, enabledPredicate), indices, true);
+                    in.push(node, directedIterator(node, false, enabledPredicate), indices, false);
+                    in.push(node, directedIterator(node, true, enabledPredicate), indices, true);
+                    break;
+            }
+            out.close(i);
+            if (in != null) {
+                in.close(i);
+            }
+        }
+        return new AdjacencySnapshotImpl(nodes, indices, out, in, nodeVersion, edgeVersion);
+    }
+
+    private static AbstractEdgeIterator directedIterator(AbstractNode node, boolean outgoing, Predicate<AbstractNode> enabledPredicate) {
+        if (outgoing) {
+            EdgeNodeIterator std = new EdgeNodeIterator(node, EdgeNodeIterator.EdgeNodeIteratorMode.OUT, false, enabledPredicate, ALL_EDGES);
+            MetaEdgeNodeIterator meta = new MetaEdgeNodeIterator(node.getMetaEdgesOutTree(), null, MetaEdgeNodeIterator.EdgeNodeIteratorMode.OUT, false);
+            return new BiEdgeIterator(std, meta);
+        } else {
+            EdgeNodeIterator std = new EdgeNodeIterator(node, EdgeNodeIterator.EdgeNodeIteratorMode.IN, false, enabledPredicate, ALL_EDGES);
+            MetaEdgeNodeIterator meta = new MetaEdgeNodeIterator(null, node.getMetaEdgesInTree(), MetaEdgeNodeIterator.EdgeNodeIteratorMode.IN, false);
+            return new BiEdgeIterator(std, meta);
+        }
+    }
+
+    private static AbstractEdgeIterator undirectedIterator(AbstractNode node, Predicate<AbstractNode> enabledPredicate) {
+        EdgeNodeIterator std = new EdgeNodeIterator(node, EdgeNodeIterator.EdgeNodeIteratorMode.BOTH, true, enabledPredicate, ALL_EDGES);
+        MetaEdgeNodeIterator meta = new MetaEdgeNodeIterator(node.getMetaEdgesOutTree(), node.getMetaEdgesInTree(), MetaEdgeNodeIterator.EdgeNodeIteratorMode.BOTH, true);
+        return new BiEdgeIterator(std, meta);
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public int getOutEntriesCount() {
+        return outNeighbors.length;
+    }
+
+    public Node getNode(int index) {
+        return nodes[index];
+    }
+
+    public int getIndex(Node node) {
+        if (node == null) {
+            throw new NullPointerException();
+        }
+        int id = node.getId();
+        if (indices.containsKey(id)) {
+            return indices.get(id);
+        }
+        return -1;
+    }
+
+    public int[] getOutOffsets() {
+        return outOffsets;
+    }
+
+    public int[] getOutNeighbors() {
+        return outNeighbors;
+    }
+
+    public float[] getOutWeights() {
+        return outWeights;
+    }
+
+    public int[] getInOffsets() {
+        return inOffsets;
+    }
+
+    public int[] getInNeighbors() {
+        return inNeighbors;
+    }
+
+    public float[] getInWeights() {
+        return inWeights;
+    }
+
+    public int getNodeVersion() {
+        return nodeVersion;
+    }
+
+    public int getEdgeVersion() {
+        return edgeVersion;
+    }
+
+    public boolean isValid(GraphVersion graphVersion) {
+        return graphVersion.getNodeVersion() == nodeVersion && graphVersion.getEdgeVersion() == edgeVersion;
+    }
+
+    private static class Adjacency {
+
+        private final int[] offsets;
+        private int[] neighbors;
+        private float[] weights;
+        private int size;
+
+        public Adjacency(int nodeCount, int capacity) {
+            offsets = new int[nodeCount + 1];
+            neighbors = new int[Math.max(capacity, 16)];
+            weights = new float[neighbors.length];
+        }
+
+        public void push(AbstractNode node, AbstractEdgeIterator itr, TIntIntHashMap indices, boolean undirectedOnly) {
+            int viewId = node.getViewId();
+            while (itr.hasNext()) {
+                AbstractEdge edge = itr.next();
+                if (undirectedOnly && edge.isDirected()) {
+                    continue;
+                }
+                AbstractNode source = edge.getSource(viewId);
+                AbstractNode opposite = source == node ? edge.getTarget(viewId) : source;
+                int oppositeId = opposite.getNumber();
+                if (!indices.containsKey(oppositeId)) {
+                    continue;
+                }
+                if (size == neighbors.length) {
+                    int newLength = neighbors.length + (neighbors.length >> 1);
+                    int[] newNeighbors = new int[newLength];
+                    float[] newWeights = new float[newLength];
+                    System.arraycopy(neighbors, 0, newNeighbors, 0, size);
+                    System.arraycopy(weights, 0, newWeights, 0, size);
+                    neighbors = newNeighbors;
+                    weights = newWeights;
+                }
+                neighbors[size] = indices.get(oppositeId);
+                weights[size] = edge.getWeight();
+                size++;
+            }
+        }
+
+        public void close(int index) {
+            offsets[index + 1] = size;
+        }
+
+        public int[] trimNeighbors() {
+            if (size == neighbors.length) {
+                return neighbors;
+            }
+            int[] res = new int[size];
+            System.arraycopy(neighbors, 0, res, 0, size);
+            return res;
+        }
+
+        public float[] trimWeights() {
+            if (size == weights.length) {
+                return weights;
+            }
+            float[] res = new float[size];
+            System.arraycopy(weights, 0, res, 0, size);
+            return res;
+        }
+    }
+}
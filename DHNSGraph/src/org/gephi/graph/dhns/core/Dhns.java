@@ -41,6 +41,9 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.dhns.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.gephi.data.attributes.api.AttributeController;
 import org.gephi.data.attributes.api.AttributeModel;
@@ -48,6 +51,7 @@ import org.gephi.data.attributes.api.AttributeRowFactory;
 import org.gephi.graph.api.DirectedGraph;
 import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphEvent;
 import org.gephi.graph.api.GraphListener;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.GraphSettings;
@@ -55,6 +59,7 @@ import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.HierarchicalMixedGraph;
 import org.gephi.graph.api.HierarchicalUndirectedGraph;
+import org.gephi.graph.api.MappedGraphBuilder;
 import org.gephi.graph.api.MixedGraph;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.api.NodeIterable;
@@ -69,6 +74,8 @@ import org.gephi.graph.dhns.graph.HierarchicalMixedGraphImpl;
 import org.gephi.graph.dhns.graph.HierarchicalUndirectedGraphImpl;
 import org.gephi.graph.dhns.graph.iterators.EdgeIterableImpl;
 import org.gephi.graph.dhns.graph.iterators.NodeIterableImpl;
+import org.gephi.graph.dhns.mapped.MappedGraphBuilderImpl;
+import org.gephi.graph.dhns.node.NodeDataStoreImpl;
 import org.gephi.graph.dhns.node.iterators.AbstractNodeIterator;
 import org.gephi.graph.dhns.predicate.Predicate;
 import org.gephi.project.api.Workspace;
@@ -91,13 +98,17 @@ public class Dhns implements GraphModel {
     private final EventManager eventManager;
     private final SettingsManager settingsManager;
     private final GraphFactoryImpl factory;
+    private final NodeDataStoreImpl nodeDataStore;
     private final DuplicateManager duplicateManager;
     //Type
     private boolean directed = false;
     private boolean undirected = false;
     private boolean mixed = false;
     //Locking
-    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final LockMetrics.DhnsReadWriteLock readWriteLock = new LockMetrics.DhnsReadWriteLock();
+    private final LockMetrics lockMetrics = new LockMetrics(readWriteLock);
+    private final AtomicLong writeSequence = new AtomicLong(2);
+    private long writeLockTime;
 
     public Dhns(DhnsGraphController controller, Workspace workspace) {
         this.controller = controller;
@@ -117,7 +128,8 @@ public class Dhns implements GraphModel {
                 attributeRowFactory = attributeModel.rowFactory();
             }
         }
-        factory = new GraphFactoryImpl(controller.getIDGen(), attributeRowFactory);
+        nodeDataStore = new NodeDataStoreImpl();
+        factory = new GraphFactoryImpl(controller.getIDGen(), attributeRowFactory, nodeDataStore);
 
         graphStructure = new GraphStructure(this);
 
@@ -163,6 +175,14 @@ public class Dhns implements GraphModel {
         return new EdgeIterableImpl(iterator, readWriteLock.readLock());
     }
 
+    public NodeIterable newNodeIterable(AbstractNodeIterator iterator, int sizeHint) {
+        return new NodeIterableImpl(iterator, readWriteLock.readLock(), sizeHint);
+    }
+
+    public EdgeIterable newEdgeIterable(AbstractEdgeIterator iterator, int sizeHint) {
+        return new EdgeIterableImpl(iterator, readWriteLock.readLock(), sizeHint);
+    }
+
     public NodeIterable newNodeIterable(AbstractNodeIterator iterator, Predicate<Node> predicate) {
         return new NodeIterableImpl(iterator, readWriteLock.readLock());
     }
@@ -185,7 +205,14 @@ public class Dhns implements GraphModel {
         }*/
         //String t = Thread.currentThread().toString();
         //Logger.getLogger("").log(Level.WARNING, "{0} read lock", Thread.currentThread());
-        readWriteLock.readLock().lock();
+        if (readWriteLock.isWriteLocked() || readWriteLock.hasQueuedThreads()) {
+            //May block, measure
+            long start = System.nanoTime();
+            readWriteLock.readLock().lock();
+            lockMetrics.readWaited(System.nanoTime() - start);
+        } else {
+            readWriteLock.readLock().lock();
+        }
     }
 
     public void readUnlock() {
@@ -205,7 +232,7 @@ public class Dhns implements GraphModel {
             throw new IllegalMonitorStateException("Impossible to acquire a write lock when currently holding a read lock. Use toArray() methods on NodeIterable and EdgeIterable to avoid holding a readLock.");
         }
         if (!readWriteLock.isWriteLockedByCurrentThread()) {
-            readWriteLock.writeLock().lock();
+            acquireWriteLock();
             return true;
         }
         return false;
@@ -213,7 +240,7 @@ public class Dhns implements GraphModel {
 
     public void conditionalWriteUnlock(boolean locked) {
         if (locked) {
-            readWriteLock.writeLock().unlock();
+            releaseWriteLock();
         }
     }
 
@@ -232,18 +259,60 @@ public class Dhns implements GraphModel {
         System.err.println("WARNING: writeLock() on the EDT - " + r.getStackTrace()[i].toString());
         }*/
         //Logger.getLogger("").log(Level.WARNING, "{0} write lock", Thread.currentThread());
-        readWriteLock.writeLock().lock();
+        acquireWriteLock();
     }
 
     public void writeUnlock() {
         //Logger.getLogger("").log(Level.WARNING, "{0} write unlock", Thread.currentThread());
+        releaseWriteLock();
+    }
+
+    private void acquireWriteLock() {
+        //The lock is non-fair, so tryLock() barges in as lock() would. It only
+        //tells whether the thread has to wait, and can't be interrupted
+        if (!readWriteLock.writeLock().tryLock()) {
+            long start = System.nanoTime();
+            readWriteLock.writeLock().lock();
+            lockMetrics.writeWaited(System.nanoTime() - start);
+        }
+        if (readWriteLock.getWriteHoldCount() == 1) {
+            //Odd sequence while writing, invalidates optimistic reads
+            writeSequence.incrementAndGet();
+            writeLockTime = System.nanoTime();
+            lockMetrics.writeAcquired();
+        }
+    }
+
+    private void releaseWriteLock() {
+        if (readWriteLock.getWriteHoldCount() == 1) {
+            lockMetrics.writeHeld(System.nanoTime() - writeLockTime);
+            writeSequence.incrementAndGet();
+        }
         readWriteLock.writeLock().unlock();
     }
 
+    public long tryOptimisticRead() {
+        long sequence = writeSequence.get();
+        return (sequence & 1) == 0 ? sequence : 0;
+    }
+
+    public boolean validate(long stamp) {
+        //The CAS orders the optimistic reads before the sequence check
+        return stamp != 0 && writeSequence.compareAndSet(stamp, stamp);
+    }
+
     public ReentrantReadWriteLock getReadWriteLock() {
         return readWriteLock;
     }
 
+    public LockMetrics getLockMetrics() {
+        return lockMetrics;
+    }
+
+    public EventMetrics getEventMetrics() {
+        return eventManager.getMetrics();
+    }
+
     //Type
     public void touchDirected() {
         if (undirected || mixed) {
@@ -304,6 +373,10 @@ public class Dhns implements GraphModel {
         eventManager.addGraphListener(graphListener);
     }
 
+    public void addGraphListener(GraphListener graphListener, GraphView view, GraphEvent.EventType... types) {
+        eventManager.addGraphListener(graphListener, view, types);
+    }
+
     public void removeGraphListener(GraphListener graphListener) {
         eventManager.removeGraphListener(graphListener);
     }
@@ -519,6 +592,14 @@ public class Dhns implements GraphModel {
         return graphStructure.getVisibleView();
     }
 
+    public NodeDataStoreImpl getNodeDataStore() {
+        return nodeDataStore;
+    }
+
+    public MappedGraphBuilder newMappedGraphBuilder(File directory) throws IOException {
+        return new MappedGraphBuilderImpl(this, directory);
+    }
+
     public Workspace getWorkspace() {
         return workspace;
     }
@@ -43,17 +43,26 @@ package org.gephi.graph.dhns.core;
 
 import java.util.HashMap;
 import java.util.Map;
+import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.utils.collection.avl.ParamAVLIterator;
 import org.gephi.graph.api.Attributes;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.Node;
+import org.gephi.graph.api.TextData;
 import org.gephi.graph.dhns.edge.AbstractEdge;
 import org.gephi.graph.dhns.edge.EdgeDataImpl;
 import org.gephi.graph.dhns.node.AbstractNode;
 import org.gephi.graph.dhns.node.NodeDataImpl;
+import org.gephi.graph.dhns.node.NodeDataStoreImpl;
 import org.gephi.graph.dhns.node.iterators.TreeListIterator;
 
 /**
+ * Copies a graph model, or some of its nodes, into another model.
+ * <p>
+ * When the destination is empty, node data blocks are shared copy-on-write
+ * with the source, under the write lock of the source so that no writer
+ * modifies a block while it becomes shared. Nodes, edges and attribute rows
+ * are always deep copied: sharing them between models is not implemented.
  *
  * @author Mathieu Bastian
  */
@@ -71,16 +80,31 @@ public class DuplicateManager {
 
     public void duplicate(Dhns destination, GraphViewImpl view) {
         GraphFactoryImpl factory = destination.factory();
-        dhns.readLock();
+
+        //Node data store, shared copy-on-write if the destination is empty.
+        //Blocks must not be written while they become shared, hence the write lock
+        NodeDataStoreImpl sourceStore = dhns.getNodeDataStore();
+        NodeDataStoreImpl newStore = factory.getNodeDataStore();
+        boolean shareStore = sourceStore != null && newStore != null && newStore != sourceStore && newStore.getSlotBound() == 0;
+        if (shareStore) {
+            dhns.writeLock();
+        } else {
+            dhns.readLock();
+        }
         destination.writeLock();
         TreeStructure treeStructure = view.getStructure();
         GraphStructure newGraphStructure = destination.getGraphStructure();
         TreeStructure newStructure = newGraphStructure.getMainView().getStructure();
+        if (shareStore) {
+            newStore.share(sourceStore);
+        }
+
         //Nodes
         for (TreeListIterator itr = new TreeListIterator(treeStructure.getTree(), 1); itr.hasNext();) {
             AbstractNode node = itr.next();
-            AbstractNode nodeCopy = factory.newNode();
-            duplicateNodeData(node.getNodeData(), nodeCopy.getNodeData());
+            int storeIndex = shareStore ? sourceStore.getIndex(node.getNodeData()) : -1;
+            AbstractNode nodeCopy = storeIndex != -1 ? factory.newSharedNode(storeIndex) : factory.newNode();
+            duplicateNodeData(node.getNodeData(), nodeCopy.getNodeData(), storeIndex == -1);
             nodeCopy.setEnabled(node.isEnabled());
             nodeCopy.setEnabledInDegree(node.getEnabledInDegree());
             nodeCopy.setEnabledOutDegree(node.getEnabledOutDegree());
@@ -89,6 +113,9 @@ public class DuplicateManager {
             newStructure.insertAsChild(nodeCopy, parentCopy);
             newGraphStructure.addToDictionnary(nodeCopy);
         }
+        if (shareStore) {
+            newStore.releaseUnusedSlots();
+        }
 
         //Edges
         ParamAVLIterator<AbstractEdge> edgeIterator = new ParamAVLIterator<AbstractEdge>();
@@ -128,7 +155,11 @@ public class DuplicateManager {
         //Metaedges
         newGraphStructure.getMainView().getStructureModifier().getEdgeProcessor().computeMetaEdges();
         destination.writeUnlock();
-        dhns.readUnlock();
+        if (shareStore) {
+            dhns.writeUnlock();
+        } else {
+            dhns.readUnlock();
+        }
     }
 
     public void duplicateNodes(Dhns destination, Node[] nodes) {
@@ -151,7 +182,7 @@ public class DuplicateManager {
             AbstractNode absSourceNode = (AbstractNode) sourceNode;
             AbstractNode nodeCopy = factory.newNode(sourceNode.getNodeData().getId());
             destGraph.addNode(nodeCopy);
-            duplicateNodeData((NodeDataImpl) sourceNode.getNodeData(), (NodeDataImpl) nodeCopy.getNodeData());
+            duplicateNodeData((NodeDataImpl) sourceNode.getNodeData(), (NodeDataImpl) nodeCopy.getNodeData(), true);
             nodeMap.put(absSourceNode, nodeCopy);
         }
 
@@ -191,24 +222,20 @@ public class DuplicateManager {
         dhns.readUnlock();
     }
 
-    private void duplicateNodeData(NodeDataImpl source, NodeDataImpl dest) {
-        dest.setX(source.x());
-        dest.setY(source.y());
-        dest.setZ(source.z());
-        dest.setR(source.r());
-        dest.setG(source.g());
-        dest.setB(source.b());
-        dest.setAlpha(source.alpha());
-        dest.setSize(source.getSize());
-        dest.getTextData().setColor(source.getTextData().getR(), source.getTextData().getG(), source.getTextData().getB(), source.getTextData().getAlpha());
-        dest.getTextData().setSize(source.getTextData().getSize());
-        dest.getTextData().setVisible(source.getTextData().isVisible());
-
-        //Attributes
-        Attributes sourceAttributes = source.getAttributes();
-        for (int i = 0; i < sourceAttributes.countValues(); i++) {
-            dest.getAttributes().setValue(i, sourceAttributes.getValue(i));
+    private void duplicateNodeData(NodeDataImpl source, NodeDataImpl dest, boolean copyValues) {
+        if (copyValues) {
+            dest.setX(source.x());
+            dest.setY(source.y());
+            dest.setZ(source.z());
+            dest.setR(source.r());
+            dest.setG(source.g());
+            dest.setB(source.b());
+            dest.setAlpha(source.alpha());
+            dest.setSize(source.getSize());
+            dest.setFixed(source.isFixed());
         }
+        duplicateTextData(source.getTextData(), dest.getTextData());
+        duplicateAttributes(source.getAttributes(), dest.getAttributes());
     }
 
     private void duplicateEdgeData(EdgeDataImpl source, EdgeDataImpl dest) {
@@ -216,14 +243,30 @@ public class DuplicateManager {
         dest.setG(source.g());
         dest.setB(source.b());
         dest.setAlpha(source.alpha());
-        dest.getTextData().setColor(source.getTextData().getR(), source.getTextData().getG(), source.getTextData().getB(), source.getTextData().getAlpha());
-        dest.getTextData().setSize(source.getTextData().getSize());
-        dest.getTextData().setVisible(source.getTextData().isVisible());
-
-        //Attributes
-        Attributes sourceAttributes = source.getAttributes();
-        for (int i = 0; i < sourceAttributes.countValues(); i++) {
-            dest.getAttributes().setValue(i, sourceAttributes.getValue(i));
+        duplicateTextData(source.getTextData(), dest.getTextData());
+        duplicateAttributes(source.getAttributes(), dest.getAttributes());
+    }
+
+    private void duplicateTextData(TextData source, TextData dest) {
+        if (source == null || dest == null) {
+            return;
+        }
+        dest.setColor(source.getR(), source.getG(), source.getB(), source.getAlpha());
+        dest.setSize(source.getSize());
+        dest.setVisible(source.isVisible());
+    }
+
+    private void duplicateAttributes(Attributes source, Attributes dest) {
+        if (source == null || dest == null) {
+            return;
+        }
+        if (source instanceof AttributeRow && dest instanceof AttributeRow) {
+            //Only cells which differ are set
+            ((AttributeRow) dest).setValues((AttributeRow) source);
+        } else {
+            for (int i = 0; i < source.countValues(); i++) {
+                dest.setValue(i, source.getValue(i));
+            }
         }
     }
 }
@@ -315,6 +315,33 @@ public class EdgeProcessor {
         }
     }
 
+    /**
+     * Copies meta edges of <code>sourceView</code>, which tree must be identical,
+     * instead of computing them again from edges.
+     */
+    public void copyMetaEdges(GraphViewImpl sourceView) {
+        int sourceViewId = sourceView.getViewId();
+        ParamAVLIterator<MetaEdgeImpl> metaEdgeIterator = new ParamAVLIterator<MetaEdgeImpl>();
+        for (TreeListIterator itr = new TreeListIterator(sourceView.getStructure().getTree(), 1); itr.hasNext();) {
+            AbstractNode node = itr.next();
+            AbstractNode nodeCopy = treeStructure.getNodeAt(node.getPre());
+            if (node.getMetaEdgesOutTree().getCount() > 0) {
+                metaEdgeIterator.setNode(node.getMetaEdgesOutTree());
+                while (metaEdgeIterator.hasNext()) {
+                    MetaEdgeImpl metaEdge = metaEdgeIterator.next();
+                    AbstractNode targetCopy = treeStructure.getNodeAt(metaEdge.getTarget(sourceViewId).getPre());
+                    MetaEdgeImpl metaEdgeCopy = dhns.factory().newMetaEdge(nodeCopy, targetCopy);
+                    metaEdgeCopy.copyFrom(metaEdge);
+                    nodeCopy.getMetaEdgesOutTree().add(metaEdgeCopy);
+                    targetCopy.getMetaEdgesInTree().add(metaEdgeCopy);
+                }
+            }
+            nodeCopy.setMutualMetaEdgeDegree(node.getMutualMetaEdgeDegree());
+        }
+        view.setMetaEdgesCountTotal(sourceView.getMetaEdgesCountTotal());
+        view.setMutualMetaEdgesTotal(sourceView.getMutualMetaEdgesTotal());
+    }
+
     private void createMetaEdge(AbstractNode source, AbstractNode target, AbstractEdge edge) {
         AbstractNode edgeSource = edge.getSource(viewId);
         AbstractNode edgeTarget = edge.getTarget(viewId);
@@ -41,206 +41,143 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.dhns.core;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
-import org.gephi.graph.api.Edge;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.gephi.graph.api.GraphEvent;
+import org.gephi.graph.api.GraphEvent.EventType;
 import org.gephi.graph.api.GraphListener;
 import org.gephi.graph.api.GraphView;
-import org.gephi.graph.api.Node;
 import org.gephi.graph.dhns.event.AbstractEvent;
-import org.gephi.graph.dhns.event.EdgeEvent;
-import org.gephi.graph.dhns.event.GeneralEvent;
-import org.gephi.graph.dhns.event.GraphEventDataImpl;
-import org.gephi.graph.dhns.event.GraphEventImpl;
-import org.gephi.graph.dhns.event.NodeEvent;
-import org.gephi.graph.dhns.event.ViewEvent;
+import org.gephi.graph.dhns.event.EventBatch;
+import org.openide.util.Exceptions;
 
 /**
+ * Delivers graph events to listeners from a dedicated thread.
+ * <p>
+ * Fired events are coalesced in an {@link EventBatch} until the batch is
+ * <code>delay</code> milliseconds old or holds <code>maxBatchSize</code>
+ * events. Listeners may subscribe to a view and a set of event types.
+ * <p>
+ * When more than <code>maxPendingEvents</code> are waiting, threads firing
+ * events wait for the dispatcher, unless they hold the <code>Dhns</code> lock
+ * because listeners may need it.
  *
  * @author Mathieu Bastian
  */
 public class EventManager implements Runnable {
 
     //Const
-    private final static long DELAY = 100;
+    public final static long DEFAULT_DELAY = 100;
+    public final static int DEFAULT_MAX_BATCH_SIZE = 100000;
+    public final static int DEFAULT_MAX_PENDING_EVENTS = 500000;
+    private final static long MAX_THROTTLE_TIME = 1000;
     //Architecture
-    private final List<GraphListener> listeners;
+    private final ReentrantReadWriteLock dhnsLock;
+    private final List<ListenerEntry> listeners;
     private final AtomicReference<Thread> thread = new AtomicReference<Thread>();
-    private final LinkedBlockingQueue<AbstractEvent> eventQueue;
     private final Object lock = new Object();
-    private final LinkedList<Integer> rateList = new LinkedList<Integer>();
-    private double avgRate = 1.0;
+    private final EventMetrics metrics = new EventMetrics();
+    private EventBatch pending = new EventBatch();
+    //Settings
+    private volatile long delay = DEFAULT_DELAY;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private volatile int maxPendingEvents = DEFAULT_MAX_PENDING_EVENTS;
     //Flag
-    private boolean stop;
+    private volatile boolean stop;
 
     public EventManager(Dhns dhns) {
-        this.eventQueue = new LinkedBlockingQueue<AbstractEvent>();
-        this.listeners = Collections.synchronizedList(new ArrayList<GraphListener>());
-        rateList.add(1);
+        this.dhnsLock = dhns.getReadWriteLock();
+        this.listeners = new CopyOnWriteArrayList<ListenerEntry>();
     }
 
     @Override
     public void run() {
-        int rate = 0;
         while (!stop) {
-            if (rate == (int) avgRate) {
+            EventBatch batch;
+            synchronized (lock) {
                 try {
-                    Thread.sleep(DELAY);
-                } catch (InterruptedException ex) {
-                    ex.printStackTrace();
-                }
-                int w = (int) (eventQueue.size() * 0.1f);
-                w = Math.max(1, w);
-                updateRate(w);
-                rate++;
-            }
-            List<Object> eventCompress = null;
-
-            AbstractEvent precEvt = null;
-            AbstractEvent evt = null;
-            while ((evt = eventQueue.peek()) != null) {
-                if (precEvt != null) {
-                    if ((evt instanceof NodeEvent || evt instanceof EdgeEvent) && precEvt.getEventType().equals(evt.getEventType()) && precEvt.getView() == evt.getView()) {     //Same type
-                        if (eventCompress == null) {
-                            eventCompress = new ArrayList<Object>();
-                            eventCompress.add(precEvt.getData());
-                        }
-                        eventCompress.add(evt.getData());
-                    } else {
-                        break;
-                    }
-                }
-                eventQueue.poll();
-                precEvt = evt;
-            }
-
-            if (precEvt != null) {
-                GraphEvent event = createEvent(precEvt, eventCompress);
-                for (GraphListener l : listeners.toArray(new GraphListener[0])) {
-                    l.graphChanged(event);
-                }
-            }
-            rate++;
-
-            while (eventQueue.isEmpty()) {
-                rate = (int) avgRate;
-                try {
-                    synchronized (lock) {
+                    while (!stop && pending.isEmpty()) {
                         lock.wait();
                     }
+                    long deadline = pending.getStartTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                    long remaining;
+                    while (!stop && pending.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                        lock.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                    }
                 } catch (InterruptedException e) {
+                    continue;
+                }
+                if (stop) {
+                    break;
                 }
+                batch = pending;
+                pending = new EventBatch();
+                metrics.batchTaken();
+                lock.notifyAll();
             }
+            dispatch(batch);
         }
     }
 
-    private GraphEvent createEvent(AbstractEvent event, List<Object> compress) {
-        final GraphEventDataImpl eventData = (event instanceof GeneralEvent) ? null : new GraphEventDataImpl();
-        final GraphEventImpl graphEventImpl = new GraphEventImpl(event.getView(), event.getEventType(), eventData);
-        if (event instanceof NodeEvent || event instanceof EdgeEvent) {
-            List<Node> nodes = null;
-            List<Edge> edges = null;
-            if (compress != null) {
-                for (Object o : compress) {
-                    if (o instanceof Node) {
-                        if (nodes == null) {
-                            nodes = new ArrayList<Node>();
-                        }
-                        nodes.add((Node) o);
-                    } else {
-                        if (edges == null) {
-                            edges = new ArrayList<Edge>();
-                        }
-                        edges.add((Edge) o);
+    private void dispatch(EventBatch batch) {
+        List<GraphEvent> events = batch.createEvents();
+        for (GraphEvent event : events) {
+            for (ListenerEntry entry : listeners) {
+                if (entry.accept(event)) {
+                    try {
+                        entry.listener.graphChanged(event);
+                    } catch (RuntimeException e) {
+                        Exceptions.printStackTrace(e);
                     }
                 }
-                switch (event.getEventType()) {
-                    case ADD_NODES_AND_EDGES:
-                        if (nodes != null) {
-                            eventData.setAddedNodes(nodes.toArray(new Node[0]));
-                        }
-                        if (edges != null) {
-                            eventData.setAddedEdges(edges.toArray(new Edge[0]));
-                        }
-                        break;
-                    case REMOVE_NODES_AND_EDGES:
-                        if (nodes != null) {
-                            eventData.setRemovedNodes(nodes.toArray(new Node[0]));
-                        }
-                        if (edges != null) {
-                            eventData.setRemovedEdges(edges.toArray(new Edge[0]));
-                        }
-                        break;
-                    case EXPAND:
-                        eventData.setExpandedNodes(nodes.toArray(new Node[0]));
-                        break;
-                    case RETRACT:
-                        eventData.setRetractedNodes(nodes.toArray(new Node[0]));
-                        break;
-                    case MOVE_NODES:
-                        eventData.setMovedNodes(nodes.toArray(new Node[0]));
-                        break;
-                }
-            } else {
-                switch (event.getEventType()) {
-                    case ADD_NODES_AND_EDGES:
-                        if (event instanceof NodeEvent) {
-                            eventData.setAddedNodes(new Node[]{(Node) event.getData()});
-                        } else {
-                            eventData.setAddedEdges(new Edge[]{(Edge) event.getData()});
-                        }
-                        break;
-                    case REMOVE_NODES_AND_EDGES:
-                        if (event instanceof NodeEvent) {
-                            eventData.setRemovedNodes(new Node[]{(Node) event.getData()});
-                        } else {
-                            eventData.setRemovedEdges(new Edge[]{(Edge) event.getData()});
-                        }
-                        break;
-                    case EXPAND:
-                        eventData.setExpandedNodes(new Node[]{(Node) event.getData()});
-                        break;
-                    case RETRACT:
-                        eventData.setRetractedNodes(new Node[]{(Node) event.getData()});
-                        break;
-                    case MOVE_NODES:
-                        eventData.setMovedNodes(new Node[]{(Node) event.getData()});
-                        break;
-                }
             }
-        } else if (event instanceof ViewEvent) {
-            eventData.setView((GraphView) event.getData());
         }
-        return graphEventImpl;
-    }
-
-    private double updateRate(int n) {
-        int windowLength = 10;
-        if (rateList.size() == windowLength) {
-            Integer oldest = rateList.poll();
-            avgRate = ((avgRate * windowLength) - oldest) / (windowLength - 1);
-        }
-        avgRate = ((avgRate * rateList.size()) + n) / (rateList.size() + 1);
-        rateList.add(n);
-        return avgRate;
+        metrics.batchDispatched(events.size(), System.nanoTime() - batch.getStartTime());
     }
 
     public void stop(boolean stop) {
         this.stop = stop;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
     }
 
     public void fireEvent(AbstractEvent event) {
-        eventQueue.add(event);
         synchronized (lock) {
-            lock.notifyAll();
+            pending.add(event);
+            int size = pending.size();
+            metrics.eventFired(size);
+            if (size == 1 || size == maxBatchSize) {
+                lock.notifyAll();
+            }
+            if (size >= maxPendingEvents && mayWait()) {
+                //Backpressure, wait until the dispatcher takes the batch
+                EventBatch batch = pending;
+                long start = System.nanoTime();
+                long deadline = start + TimeUnit.MILLISECONDS.toNanos(MAX_THROTTLE_TIME);
+                long remaining;
+                try {
+                    while (!stop && batch == pending && (remaining = deadline - System.nanoTime()) > 0) {
+                        lock.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                metrics.producerThrottled(System.nanoTime() - start);
+            }
         }
     }
 
+    private boolean mayWait() {
+        return thread.get() != Thread.currentThread()
+                && !dhnsLock.isWriteLockedByCurrentThread()
+                && dhnsLock.getReadHoldCount() == 0;
+    }
+
     public void start() {
         Thread t = new Thread(this);
         t.setDaemon(true);
@@ -255,12 +192,107 @@ public class EventManager implements Runnable {
     }
 
     public void addGraphListener(GraphListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
+        for (ListenerEntry entry : listeners) {
+            if (entry.listener == listener) {
+                return;
+            }
+        }
+        listeners.add(new ListenerEntry(listener, null, null));
+    }
+
+    /**
+     * Adds <code>listener</code>, or changes its filter if it is already
+     * registered.
+     * @param listener  the listener to add
+     * @param view      the view events must come from, or <code>null</code>
+     *                  for all views
+     * @param types     the event types to receive, all if empty
+     */
+    public void addGraphListener(GraphListener listener, GraphView view, EventType... types) {
+        EnumSet<EventType> typeSet = null;
+        if (types != null && types.length > 0) {
+            typeSet = EnumSet.noneOf(EventType.class);
+            for (EventType type : types) {
+                typeSet.add(type);
+            }
+        }
+        synchronized (listeners) {
+            removeGraphListener(listener);
+            listeners.add(new ListenerEntry(listener, view, typeSet));
         }
     }
 
     public void removeGraphListener(GraphListener listener) {
-        listeners.remove(listener);
+        for (ListenerEntry entry : listeners) {
+            if (entry.listener == listener) {
+                listeners.remove(entry);
+            }
+        }
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    /**
+     * Sets how long, in milliseconds, events are coalesced before delivery.
+     */
+    public void setDelay(long delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("The delay can't be negative");
+        }
+        this.delay = delay;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the number of events after which a batch is delivered without
+     * waiting for the delay.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxPendingEvents() {
+        return maxPendingEvents;
+    }
+
+    /**
+     * Sets the number of pending events after which threads firing events
+     * wait for the dispatcher.
+     */
+    public void setMaxPendingEvents(int maxPendingEvents) {
+        if (maxPendingEvents < 1) {
+            throw new IllegalArgumentException("The number of pending events must be positive");
+        }
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+    private static class ListenerEntry {
+
+        private final GraphListener listener;
+        private final GraphView view;
+        private final EnumSet<EventType> types;
+
+        public ListenerEntry(GraphListener listener, GraphView view, EnumSet<EventType> types) {
+            this.listener = listener;
+            this.view = view;
+            this.types = types;
+        }
+
+        public boolean accept(GraphEvent event) {
+            return (view == null || view == event.getSource())
+                    && (types == null || types.contains(event.getEventType()));
+        }
     }
 }
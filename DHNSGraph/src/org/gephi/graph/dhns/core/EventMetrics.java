@@ -0,0 +1,159 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the <code>EventManager</code> pipeline.
+ * <p>
+ * The queue depth is the number of events fired and not yet dispatched. The
+ * dispatch latency is measured from the first event of a batch until all
+ * listeners returned. Times are in nanoseconds.
+ */
+public class EventMetrics {
+
+    private final AtomicLong fired = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final AtomicLong dispatchLatency = new AtomicLong();
+    private final AtomicLong maxDispatchLatency = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong throttleTime = new AtomicLong();
+    private volatile int queueDepth;
+
+    EventMetrics() {
+    }
+
+    void eventFired(int depth) {
+        fired.incrementAndGet();
+        queueDepth = depth;
+        updateMax(maxQueueDepth, depth);
+    }
+
+    void batchDispatched(int deliveredEvents, long latency) {
+        batches.incrementAndGet();
+        delivered.addAndGet(deliveredEvents);
+        dispatchLatency.addAndGet(latency);
+        updateMax(maxDispatchLatency, latency);
+    }
+
+    void batchTaken() {
+        queueDepth = 0;
+    }
+
+    void producerThrottled(long time) {
+        throttled.incrementAndGet();
+        throttleTime.addAndGet(time);
+    }
+
+    private void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events fired by the structure.
+     */
+    public long getFiredCount() {
+        return fired.get();
+    }
+
+    /**
+     * Returns the number of batches dispatched to listeners.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Returns the number of <code>GraphEvent</code> created from batches,
+     * before listener filtering.
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getDispatchLatency() {
+        return dispatchLatency.get();
+    }
+
+    public long getMaxDispatchLatency() {
+        return maxDispatchLatency.get();
+    }
+
+    /**
+     * Returns the number of times a thread firing events waited for the
+     * dispatcher because the queue was full.
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    public long getThrottleTime() {
+        return throttleTime.get();
+    }
+
+    public void reset() {
+        fired.set(0);
+        batches.set(0);
+        delivered.set(0);
+        maxQueueDepth.set(0);
+        dispatchLatency.set(0);
+        maxDispatchLatency.set(0);
+        throttled.set(0);
+        throttleTime.set(0);
+    }
+}
@@ -57,6 +57,8 @@ import org.gephi.graph.dhns.edge.ProperEdgeImpl;
 import org.gephi.graph.dhns.edge.SelfLoopImpl;
 import org.gephi.graph.dhns.edge.MixedEdgeImpl;
 import org.gephi.graph.dhns.node.AbstractNode;
+import org.gephi.graph.dhns.node.NodeDataImpl;
+import org.gephi.graph.dhns.node.NodeDataStoreImpl;
 import org.openide.util.Lookup;
 
 /**
@@ -71,9 +73,15 @@ public class GraphFactoryImpl implements GraphFactory {
     private IDGen idGen;
     private AttributeRowFactory attributesFactory;
     private TextDataFactory textDataFactory;
+    private NodeDataStoreImpl nodeDataStore;
 
     public GraphFactoryImpl(IDGen idGen, AttributeRowFactory attributesFactory) {
+        this(idGen, attributesFactory, null);
+    }
+
+    public GraphFactoryImpl(IDGen idGen, AttributeRowFactory attributesFactory, NodeDataStoreImpl nodeDataStore) {
         this.idGen = idGen;
+        this.nodeDataStore = nodeDataStore;
         this.attributesFactory = attributesFactory;
         this.textDataFactory = Lookup.getDefault().lookup(TextDataFactory.class);
     }
@@ -115,7 +123,22 @@ public class GraphFactoryImpl implements GraphFactory {
     }
 
     public AbstractNode newNode(String id, int viewId) {
-        AbstractNode node = new AbstractNode(idGen.newNodeId(), viewId, 0, 0, 0, null);  //with wiew = 0
+        AbstractNode node = newAbstractNode(idGen.newNodeId(), viewId, null);  //with wiew = 0
+        initNode(node, id);
+        return node;
+    }
+
+    /**
+     * Creates a node which node data takes the slot at <code>storeIndex</code>
+     * in the node data store, after the store shared the blocks of another one.
+     */
+    public AbstractNode newSharedNode(int storeIndex) {
+        AbstractNode node = new AbstractNode(new NodeDataImpl(idGen.newNodeId(), null, nodeDataStore, storeIndex), 0, 0, 0, 0, null);
+        initNode(node, null);
+        return node;
+    }
+
+    private void initNode(AbstractNode node, String id) {
         node.getNodeData().setAttributes(newNodeAttributes(node.getNodeData()));
         node.getNodeData().setTextData(newTextData());
         if (id != null) {
@@ -123,7 +146,21 @@ public class GraphFactoryImpl implements GraphFactory {
         } else {
             node.getNodeData().setId("" + node.getId());
         }
-        return node;
+    }
+
+    /**
+     * Creates a node with the given identifier, which node data are kept in the
+     * node data store, if any.
+     */
+    public AbstractNode newAbstractNode(int ID, int viewId, AbstractNode parent) {
+        if (nodeDataStore == null) {
+            return new AbstractNode(ID, viewId, 0, 0, 0, parent);
+        }
+        return new AbstractNode(new NodeDataImpl(ID, null, nodeDataStore), viewId, 0, 0, 0, parent);
+    }
+
+    public NodeDataStoreImpl getNodeDataStore() {
+        return nodeDataStore;
     }
 
     public AbstractNode newNode(String id) {
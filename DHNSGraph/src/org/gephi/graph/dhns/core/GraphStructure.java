@@ -41,12 +41,15 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.dhns.core;
 
+import gnu.trove.TIntIntHashMap;
 import gnu.trove.TIntObjectHashMap;
 import gnu.trove.TObjectIntHashMap;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.gephi.utils.collection.avl.ParamAVLIterator;
 import org.gephi.graph.api.GraphEvent.EventType;
 import org.gephi.graph.dhns.edge.AbstractEdge;
@@ -54,6 +57,7 @@ import org.gephi.graph.dhns.event.ViewEvent;
 import org.gephi.graph.dhns.node.AbstractNode;
 import org.gephi.graph.dhns.node.NodeDataImpl;
 import org.gephi.graph.dhns.node.iterators.TreeListIterator;
+import org.gephi.graph.dhns.utils.avl.EdgeOppositeTree;
 
 /**
  *
@@ -118,21 +122,12 @@ public class GraphStructure {
             nodeCopy.setEnabledMutualDegree(node.getEnabledMutualDegree());
             AbstractNode parentCopy = node.parent != null ? newStructure.getNodeAt(node.parent.getPre()) : null;
             newStructure.insertAsChild(nodeCopy, parentCopy);
-        }
 
-        //Edges
-        ParamAVLIterator<AbstractEdge> edgeIterator = new ParamAVLIterator<AbstractEdge>();
-        for (TreeListIterator itr = new TreeListIterator(view.getStructure().getTree(), 1); itr.hasNext();) {
-            AbstractNode node = itr.next();
+            //Edges, adjacency trees are shared until modified in either view
+            nodeCopy.setEdgesOutTree(new EdgeOppositeTree(nodeCopy, node.getEdgesOutTree()));
+            nodeCopy.setEdgesInTree(new EdgeOppositeTree(nodeCopy, node.getEdgesInTree()));
             if (!node.getEdgesOutTree().isEmpty()) {
-                for (edgeIterator.setNode(node.getEdgesOutTree()); edgeIterator.hasNext();) {
-                    AbstractEdge edge = edgeIterator.next();
-                    AbstractNode sourceCopy = newStructure.getNodeAt(node.getPre());
-                    AbstractNode targetCopy = newStructure.getNodeAt(((AbstractNode) edge.getTarget().getNodeData().getNode(view.getViewId())).getPre());
-                    sourceCopy.getEdgesOutTree().add(edge);
-                    targetCopy.getEdgesInTree().add(edge);
-                    addToDictionnary(edge);
-                }
+                dictionnary.addEdges(node.getEdgesOutTree());
             }
         }
         viewCopy.setNodesEnabled(view.getNodesEnabled());
@@ -141,8 +136,10 @@ public class GraphStructure {
         viewCopy.setMutualEdgesTotal(view.getMutualEdgesTotal());
         viewCopy.setMutualEdgesEnabled(view.getMutualEdgesEnabled());
 
-        //Metaedges
-        viewCopy.getStructureModifier().getEdgeProcessor().computeMetaEdges();
+        //Metaedges, only exist when the tree has more than one level
+        if (newStructure.getTreeHeight() > 1) {
+            viewCopy.getStructureModifier().getEdgeProcessor().copyMetaEdges(view);
+        }
 
         views.add(viewCopy);
         dhns.writeUnlock();
@@ -175,6 +172,14 @@ public class GraphStructure {
         dictionnary.removeEdge(edge);
     }
 
+    public void addToDictionnary(AbstractNode[] nodes, AbstractEdge[] edges) {
+        dictionnary.addAll(nodes, edges);
+    }
+
+    public void ensureDictionnaryCapacity(int nodes, int edges) {
+        dictionnary.ensureCapacity(nodes, edges);
+    }
+
     public AbstractEdge getEdgeFromDictionnary(int id) {
         return dictionnary.getEdge(id);
     }
@@ -191,6 +196,10 @@ public class GraphStructure {
         return dictionnary.getNode(id, viewId);
     }
 
+    public AbstractNode[] getNodesFromDictionnary(String[] ids, int viewId) {
+        return dictionnary.getNodes(ids, viewId);
+    }
+
     public void setNodeId(NodeDataImpl node, String id) {
         String oldId = node.setId(id);
         dictionnary.setNodeId(oldId, id, node);
@@ -222,6 +231,7 @@ public class GraphStructure {
         private final WeakReference<GraphStructure> structureReference;
         private final int STD_TIMER = 300;
         private final int UNDESTRO_TIMER = 2000;
+        private final int IDLE_TIMER = 10000;
         private boolean running = true;
 
         public ViewDestructorThread(GraphStructure graphStructure) {
@@ -232,29 +242,25 @@ public class GraphStructure {
 
         @Override
         public void run() {
-            GraphStructure structure = null;
+            GraphStructure structure;
             while (running && (structure = structureReference.get()) != null) {
-                while (structure.destroyQueue.isEmpty()) {
-                    try {
-                        synchronized (structure.lock) {
-                            structure.lock.wait();
-                        }
-                    } catch (InterruptedException ex) {
-                        ex.printStackTrace();
-                    }
-                }
+                Object lock = structure.lock;
+                ConcurrentLinkedQueue<GraphViewImpl> queue = structure.destroyQueue;
                 boolean undestroyableViews = false;
-                for (GraphViewImpl v : structure.destroyQueue.toArray(new GraphViewImpl[0])) {
+                for (GraphViewImpl v : queue.toArray(new GraphViewImpl[0])) {
                     if (!v.hasGraphReference()) {
                         destroyView(structure, v);
-                        structure.destroyQueue.remove(v);
+                        queue.remove(v);
                     } else {
                         undestroyableViews = true;
                     }
                 }
+                //Don't hold the structure while waiting, so it can be collected
+                //and the thread ends. Idle, it only wakes up to check that.
+                structure = null;
                 try {
-                    synchronized (structure.lock) {
-                        structure.lock.wait(undestroyableViews ? UNDESTRO_TIMER : STD_TIMER);
+                    synchronized (lock) {
+                        lock.wait(queue.isEmpty() ? IDLE_TIMER : (undestroyableViews ? UNDESTRO_TIMER : STD_TIMER));
                     }
                 } catch (InterruptedException ex) {
                     ex.printStackTrace();
@@ -280,6 +286,7 @@ public class GraphStructure {
                 }
             }
             structure.views.remove(view);
+            view.clearAdjacencySnapshots();
             //System.out.println("Destroy view finished");           
             structure.dhns.writeUnlock();
             structure.dhns.getEventManager().fireEvent(new ViewEvent(EventType.DESTROY_VIEW, view));
@@ -290,145 +297,335 @@ public class GraphStructure {
         }
     }
 
+    /**
+     * Index of nodes and edges by identifier, split in stripes to let threads
+     * read while others write. Integer identifiers and string identifiers are
+     * striped independently, each stripe being guarded by its own read-write
+     * lock.
+     */
     private static class GraphDictionnary {
 
-        private final TObjectIntHashMap<String> nodesMap;
-        private final TIntObjectHashMap<NodeDataImpl> nodesIntMap;
-        private final TIntObjectHashMap<EdgeCounter> edgesRefCount;
-        private final TObjectIntHashMap<String> edgesMap;
+        private static final int STRIPES = 16;
+        private final Stripe[] stripes;
 
         public GraphDictionnary() {
-            nodesMap = new TObjectIntHashMap<String>();
-            nodesIntMap = new TIntObjectHashMap<NodeDataImpl>();
-            edgesRefCount = new TIntObjectHashMap<EdgeCounter>();
-            edgesMap = new TObjectIntHashMap<String>();
+            stripes = new Stripe[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe();
+            }
         }
 
-        public synchronized void addNode(AbstractNode node) {
-            if (node.getNodeData().getId() != null) {
-                nodesMap.put(node.getNodeData().getId(), node.getId());
+        private static int stripeIndex(int id) {
+            return id & (STRIPES - 1);
+        }
+
+        private static int stripeIndex(String id) {
+            int h = id.hashCode();
+            h ^= (h >>> 16);
+            return (h ^ (h >>> 8)) & (STRIPES - 1);
+        }
+
+        public void addNode(AbstractNode node) {
+            String id = node.getNodeData().getId();
+            if (id != null) {
+                Stripe stripe = stripes[stripeIndex(id)];
+                stripe.lock.writeLock().lock();
+                try {
+                    stripe.nodesMap.put(id, node.getId());
+                } finally {
+                    stripe.lock.writeLock().unlock();
+                }
+            }
+            Stripe stripe = stripes[stripeIndex(node.getId())];
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.nodesIntMap.put(node.getId(), node.getNodeData());
+            } finally {
+                stripe.lock.writeLock().unlock();
             }
-            nodesIntMap.put(node.getId(), node.getNodeData());
         }
 
-        public synchronized void removeNode(AbstractNode node) {
+        public void removeNode(AbstractNode node) {
             if (node.getNodeData().getNodes().getCount() == 1) {
-                if (node.getNodeData().getId() != null) {
-                    nodesMap.remove(node.getNodeData().getId());
+                String id = node.getNodeData().getId();
+                if (id != null) {
+                    Stripe stripe = stripes[stripeIndex(id)];
+                    stripe.lock.writeLock().lock();
+                    try {
+                        stripe.nodesMap.remove(id);
+                    } finally {
+                        stripe.lock.writeLock().unlock();
+                    }
+                }
+                Stripe stripe = stripes[stripeIndex(node.getId())];
+                stripe.lock.writeLock().lock();
+                try {
+                    stripe.nodesIntMap.remove(node.getId());
+                } finally {
+                    stripe.lock.writeLock().unlock();
+                }
+            }
+        }
+
+        public void addEdge(AbstractEdge edge) {
+            boolean added;
+            Stripe stripe = stripes[stripeIndex(edge.getId())];
+            stripe.lock.writeLock().lock();
+            try {
+                int count = stripe.edgesRefCount.get(edge.getId());
+                stripe.edgesRefCount.put(edge.getId(), count + 1);
+                added = count == 0;
+                if (added) {
+                    stripe.edgesIntMap.put(edge.getId(), edge);
+                }
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+            String id = edge.getEdgeData().getId();
+            if (added && id != null) {
+                Stripe idStripe = stripes[stripeIndex(id)];
+                idStripe.lock.writeLock().lock();
+                try {
+                    idStripe.edgesMap.put(id, edge.getId());
+                } finally {
+                    idStripe.lock.writeLock().unlock();
                 }
-                nodesIntMap.remove(node.getId());
             }
         }
 
-        public synchronized void addEdge(AbstractEdge edge) {
+        public void addEdges(EdgeOppositeTree edges) {
+            for (ParamAVLIterator<AbstractEdge> itr = new ParamAVLIterator<AbstractEdge>(edges); itr.hasNext();) {
+                addEdge(itr.next());
+            }
+        }
 
-            EdgeCounter edgeCounter = edgesRefCount.get(edge.getId());
-            if (edgeCounter != null) {
-                edgeCounter.inc();
-            } else {
-                edgeCounter = new EdgeCounter(edge);
-                edgesRefCount.put(edge.getId(), edgeCounter);
-                String id = edge.getEdgeData().getId();
-                if (id != null) {
-                    edgesMap.put(id, edge.getId());
+        public void addAll(AbstractNode[] nodes, AbstractEdge[] edges) {
+            for (int i = 0; i < nodes.length; i++) {
+                addNode(nodes[i]);
+            }
+            for (int i = 0; i < edges.length; i++) {
+                addEdge(edges[i]);
+            }
+        }
+
+        public void ensureCapacity(int nodes, int edges) {
+            int nodesPerStripe = nodes / STRIPES + 1;
+            int edgesPerStripe = edges / STRIPES + 1;
+            for (Stripe stripe : stripes) {
+                stripe.lock.writeLock().lock();
+                try {
+                    stripe.nodesMap.ensureCapacity(nodesPerStripe);
+                    stripe.nodesIntMap.ensureCapacity(nodesPerStripe);
+                    stripe.edgesRefCount.ensureCapacity(edgesPerStripe);
+                    stripe.edgesIntMap.ensureCapacity(edgesPerStripe);
+                    stripe.edgesMap.ensureCapacity(edgesPerStripe);
+                } finally {
+                    stripe.lock.writeLock().unlock();
                 }
             }
         }
 
-        public synchronized void removeEdge(AbstractEdge edge) {
-            EdgeCounter edgeCounter = edgesRefCount.get(edge.getId());
-            int count = edgeCounter.decAndGet();
-            if (count == 0) {
-                edgesRefCount.remove(edge.getId());
-                String id = edge.getEdgeData().getId();
-                if (id != null) {
-                    edgesMap.remove(id);
+        public void removeEdge(AbstractEdge edge) {
+            boolean removed = false;
+            Stripe stripe = stripes[stripeIndex(edge.getId())];
+            stripe.lock.writeLock().lock();
+            try {
+                int count = stripe.edgesRefCount.get(edge.getId()) - 1;
+                if (count <= 0) {
+                    stripe.edgesRefCount.remove(edge.getId());
+                    removed = stripe.edgesIntMap.remove(edge.getId()) != null;
+                } else {
+                    stripe.edgesRefCount.put(edge.getId(), count);
+                }
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+            String id = edge.getEdgeData().getId();
+            if (removed && id != null) {
+                Stripe idStripe = stripes[stripeIndex(id)];
+                idStripe.lock.writeLock().lock();
+                try {
+                    idStripe.edgesMap.remove(id);
+                } finally {
+                    idStripe.lock.writeLock().unlock();
                 }
             }
         }
 
-        public synchronized AbstractNode getNode(int id, int viewId) {
-            NodeDataImpl nodeDataImpl = nodesIntMap.get(id);
+        public AbstractNode getNode(int id, int viewId) {
+            Stripe stripe = stripes[stripeIndex(id)];
+            NodeDataImpl nodeDataImpl;
+            stripe.lock.readLock().lock();
+            try {
+                nodeDataImpl = stripe.nodesIntMap.get(id);
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
             if (nodeDataImpl != null) {
                 return (AbstractNode) nodeDataImpl.getNode(viewId);
             }
             return null;
         }
 
-        public synchronized AbstractNode getNode(String id, int viewId) {
-            int natId = nodesMap.get(id);
+        public AbstractNode getNode(String id, int viewId) {
+            int natId = getNaturalId(id, false);
             if (natId != 0) {
                 return getNode(natId, viewId);
             }
             return null;
         }
 
-        public synchronized AbstractEdge getEdge(int id) {
-            EdgeCounter edgeCounter = edgesRefCount.get(id);
-            if (edgeCounter != null) {
-                return edgeCounter.edge;
+        /**
+         * Resolves all <code>ids</code>, locking each stripe once.
+         */
+        public AbstractNode[] getNodes(String[] ids, int viewId) {
+            int[] stripeOf = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                stripeOf[i] = ids[i] != null ? stripeIndex(ids[i]) : -1;
+            }
+            int[] offsets = new int[STRIPES + 1];
+            int[] order = groupByStripe(stripeOf, offsets);
+            int[] natIds = new int[ids.length];
+            for (int s = 0; s < STRIPES; s++) {
+                if (offsets[s] == offsets[s + 1]) {
+                    continue;
+                }
+                Stripe stripe = stripes[s];
+                stripe.lock.readLock().lock();
+                try {
+                    for (int j = offsets[s]; j < offsets[s + 1]; j++) {
+                        natIds[order[j]] = stripe.nodesMap.get(ids[order[j]]);
+                    }
+                } finally {
+                    stripe.lock.readLock().unlock();
+                }
             }
-            return null;
-        }
 
-        public synchronized AbstractEdge getEdge(String id) {
-            int natId = edgesMap.get(id);
-            if (natId != 0) {
-                return getEdge(natId);
+            for (int i = 0; i < ids.length; i++) {
+                stripeOf[i] = natIds[i] != 0 ? stripeIndex(natIds[i]) : -1;
             }
-            return null;
+            order = groupByStripe(stripeOf, offsets);
+            AbstractNode[] nodes = new AbstractNode[ids.length];
+            for (int s = 0; s < STRIPES; s++) {
+                if (offsets[s] == offsets[s + 1]) {
+                    continue;
+                }
+                Stripe stripe = stripes[s];
+                stripe.lock.readLock().lock();
+                try {
+                    for (int j = offsets[s]; j < offsets[s + 1]; j++) {
+                        int index = order[j];
+                        NodeDataImpl nodeDataImpl = stripe.nodesIntMap.get(natIds[index]);
+                        if (nodeDataImpl != null) {
+                            nodes[index] = (AbstractNode) nodeDataImpl.getNode(viewId);
+                        }
+                    }
+                } finally {
+                    stripe.lock.readLock().unlock();
+                }
+            }
+            return nodes;
         }
 
-        public synchronized void setNodeId(String oldId, String newId, NodeDataImpl node) {
-            if (oldId != null) {
-                int val = nodesMap.remove(oldId);
-                nodesMap.put(newId, val);
-            } else {
-                nodesMap.put(newId, node.getID());
+        /**
+         * Counting sort of indices by stripe, negative stripes are skipped.
+         * <code>offsets</code> receives the start of each stripe in the result.
+         */
+        private static int[] groupByStripe(int[] stripeOf, int[] offsets) {
+            Arrays.fill(offsets, 0);
+            for (int i = 0; i < stripeOf.length; i++) {
+                if (stripeOf[i] >= 0) {
+                    offsets[stripeOf[i] + 1]++;
+                }
             }
+            for (int s = 0; s < STRIPES; s++) {
+                offsets[s + 1] += offsets[s];
+            }
+            int[] order = new int[offsets[STRIPES]];
+            int[] cursor = new int[STRIPES];
+            System.arraycopy(offsets, 0, cursor, 0, STRIPES);
+            for (int i = 0; i < stripeOf.length; i++) {
+                if (stripeOf[i] >= 0) {
+                    order[cursor[stripeOf[i]]++] = i;
+                }
+            }
+            return order;
         }
 
-        public synchronized void setEdgeId(String oldId, String newId, AbstractEdge edge) {
-            if (oldId != null) {
-                int val = edgesMap.remove(oldId);
-                edgesMap.put(newId, val);
-            } else {
-                edgesMap.put(newId, edge.getId());
+        public AbstractEdge getEdge(int id) {
+            Stripe stripe = stripes[stripeIndex(id)];
+            stripe.lock.readLock().lock();
+            try {
+                return stripe.edgesIntMap.get(id);
+            } finally {
+                stripe.lock.readLock().unlock();
             }
         }
 
-        private static class EdgeCounter {
-
-            protected final AbstractEdge edge;
-            private int counter = 1;
-
-            public EdgeCounter(AbstractEdge edge) {
-                this.edge = edge;
+        public AbstractEdge getEdge(String id) {
+            int natId = getNaturalId(id, true);
+            if (natId != 0) {
+                return getEdge(natId);
             }
+            return null;
+        }
 
-            private void inc() {
-                counter++;
+        private int getNaturalId(String id, boolean edge) {
+            Stripe stripe = stripes[stripeIndex(id)];
+            stripe.lock.readLock().lock();
+            try {
+                return edge ? stripe.edgesMap.get(id) : stripe.nodesMap.get(id);
+            } finally {
+                stripe.lock.readLock().unlock();
             }
+        }
 
-            private int decAndGet() {
-                return --counter;
+        public void setNodeId(String oldId, String newId, NodeDataImpl node) {
+            if (oldId != null) {
+                Stripe stripe = stripes[stripeIndex(oldId)];
+                stripe.lock.writeLock().lock();
+                try {
+                    stripe.nodesMap.remove(oldId);
+                } finally {
+                    stripe.lock.writeLock().unlock();
+                }
             }
+            Stripe stripe = stripes[stripeIndex(newId)];
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.nodesMap.put(newId, node.getID());
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
 
-            @Override
-            public boolean equals(Object obj) {
-                if (obj != null && obj instanceof EdgeCounter) {
-                    EdgeCounter e = (EdgeCounter) obj;
-                    return e.edge.equals(edge);
-                } else if (obj != null && obj instanceof AbstractEdge) {
-                    return obj.equals(edge);
+        public void setEdgeId(String oldId, String newId, AbstractEdge edge) {
+            if (oldId != null) {
+                Stripe stripe = stripes[stripeIndex(oldId)];
+                stripe.lock.writeLock().lock();
+                try {
+                    stripe.edgesMap.remove(oldId);
+                } finally {
+                    stripe.lock.writeLock().unlock();
                 }
-                return false;
             }
-
-            @Override
-            public int hashCode() {
-                return edge.hashCode();
+            Stripe stripe = stripes[stripeIndex(newId)];
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.edgesMap.put(newId, edge.getId());
+            } finally {
+                stripe.lock.writeLock().unlock();
             }
         }
+
+        private static class Stripe {
+
+            private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+            private final TObjectIntHashMap<String> nodesMap = new TObjectIntHashMap<String>();
+            private final TIntObjectHashMap<NodeDataImpl> nodesIntMap = new TIntObjectHashMap<NodeDataImpl>();
+            private final TObjectIntHashMap<String> edgesMap = new TObjectIntHashMap<String>();
+            private final TIntObjectHashMap<AbstractEdge> edgesIntMap = new TIntObjectHashMap<AbstractEdge>();
+            private final TIntIntHashMap edgesRefCount = new TIntIntHashMap();
+        }
     }
 }
@@ -66,6 +66,8 @@ public class GraphViewImpl implements GraphView {
     private int mutualMetaEdgesTotal;
     //RefCounting
     private final WeakHashMap<AbstractGraphImpl, Boolean> graphsMap = new WeakHashMap<AbstractGraphImpl, Boolean>();
+    //Snapshots
+    private final AdjacencySnapshotImpl[] snapshots = new AdjacencySnapshotImpl[AdjacencySnapshotImpl.Type.values().length];
 
     public GraphViewImpl(Dhns dhns, int viewId) {
         this.dhns = dhns;
@@ -221,6 +223,36 @@ public class GraphViewImpl implements GraphView {
         this.mutualMetaEdgesTotal = mutualMetaEdgesTotal;
     }
 
+    /**
+     * Returns the cached adjacency snapshot of <code>type</code>, or build it if
+     * the graph version changed since it was built. Stale snapshots of other
+     * types are released at the same time. The caller must hold the read lock.
+     */
+    public AdjacencySnapshotImpl getAdjacencySnapshot(AdjacencySnapshotImpl.Type type) {
+        GraphVersion graphVersion = dhns.getGraphVersion();
+        synchronized (snapshots) {
+            for (int i = 0; i < snapshots.length; i++) {
+                if (snapshots[i] != null && !snapshots[i].isValid(graphVersion)) {
+                    snapshots[i] = null;
+                }
+            }
+            AdjacencySnapshotImpl snapshot = snapshots[type.ordinal()];
+            if (snapshot == null) {
+                snapshot = AdjacencySnapshotImpl.build(this, type, graphVersion.getNodeVersion(), graphVersion.getEdgeVersion());
+                snapshots[type.ordinal()] = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    public void clearAdjacencySnapshots() {
+        synchronized (snapshots) {
+            for (int i = 0; i < snapshots.length; i++) {
+                snapshots[i] = null;
+            }
+        }
+    }
+
     public Dhns getGraphModel() {
         return dhns;
     }
@@ -0,0 +1,212 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Contention statistics of the <code>Dhns</code> read-write lock.
+ * <p>
+ * Write acquisitions, wait and hold times are always recorded. Read locks
+ * are only timed when they may block, i.e. when the write lock is held or
+ * threads are queued, so uncontended reads stay cheap. Times are in
+ * nanoseconds.
+ */
+public class LockMetrics {
+
+    private final DhnsReadWriteLock lock;
+    //Read
+    private final AtomicLong readContended = new AtomicLong();
+    private final AtomicLong readWaitTime = new AtomicLong();
+    private final AtomicLong maxReadWaitTime = new AtomicLong();
+    //Write
+    private final AtomicLong writeAcquired = new AtomicLong();
+    private final AtomicLong writeContended = new AtomicLong();
+    private final AtomicLong writeWaitTime = new AtomicLong();
+    private final AtomicLong maxWriteWaitTime = new AtomicLong();
+    private final AtomicLong writeHoldTime = new AtomicLong();
+    private final AtomicLong maxWriteHoldTime = new AtomicLong();
+    private volatile String maxWriteHolder;
+
+    LockMetrics(DhnsReadWriteLock lock) {
+        this.lock = lock;
+    }
+
+    void readWaited(long time) {
+        readContended.incrementAndGet();
+        readWaitTime.addAndGet(time);
+        updateMax(maxReadWaitTime, time);
+    }
+
+    void writeAcquired() {
+        writeAcquired.incrementAndGet();
+    }
+
+    void writeWaited(long time) {
+        writeContended.incrementAndGet();
+        writeWaitTime.addAndGet(time);
+        updateMax(maxWriteWaitTime, time);
+    }
+
+    void writeHeld(long time) {
+        writeHoldTime.addAndGet(time);
+        if (updateMax(maxWriteHoldTime, time)) {
+            maxWriteHolder = Thread.currentThread().getName();
+        }
+    }
+
+    private boolean updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getReadContendedCount() {
+        return readContended.get();
+    }
+
+    public long getReadWaitTime() {
+        return readWaitTime.get();
+    }
+
+    public long getMaxReadWaitTime() {
+        return maxReadWaitTime.get();
+    }
+
+    public long getWriteCount() {
+        return writeAcquired.get();
+    }
+
+    public long getWriteContendedCount() {
+        return writeContended.get();
+    }
+
+    public long getWriteWaitTime() {
+        return writeWaitTime.get();
+    }
+
+    public long getMaxWriteWaitTime() {
+        return maxWriteWaitTime.get();
+    }
+
+    public long getWriteHoldTime() {
+        return writeHoldTime.get();
+    }
+
+    public long getMaxWriteHoldTime() {
+        return maxWriteHoldTime.get();
+    }
+
+    /**
+     * Returns the name of the thread which held the write lock the longest.
+     */
+    public String getMaxWriteHolder() {
+        return maxWriteHolder;
+    }
+
+    /**
+     * Returns the thread currently holding the write lock, or <code>null</code>.
+     */
+    public Thread getWriteHolder() {
+        return lock.getWriteHolder();
+    }
+
+    public int getReadLockCount() {
+        return lock.getReadLockCount();
+    }
+
+    public int getQueueLength() {
+        return lock.getQueueLength();
+    }
+
+    public void reset() {
+        readContended.set(0);
+        readWaitTime.set(0);
+        maxReadWaitTime.set(0);
+        writeAcquired.set(0);
+        writeContended.set(0);
+        writeWaitTime.set(0);
+        maxWriteWaitTime.set(0);
+        writeHoldTime.set(0);
+        maxWriteHoldTime.set(0);
+        maxWriteHolder = null;
+    }
+
+    @Override
+    public String toString() {
+        Thread holder = getWriteHolder();
+        StringBuilder builder = new StringBuilder();
+        builder.append("Read: contended=").append(getReadContendedCount());
+        builder.append(" wait=").append(toMillis(getReadWaitTime())).append("ms");
+        builder.append(" maxWait=").append(toMillis(getMaxReadWaitTime())).append("ms");
+        builder.append(" held=").append(getReadLockCount());
+        builder.append("\nWrite: count=").append(getWriteCount());
+        builder.append(" contended=").append(getWriteContendedCount());
+        builder.append(" wait=").append(toMillis(getWriteWaitTime())).append("ms");
+        builder.append(" maxWait=").append(toMillis(getMaxWriteWaitTime())).append("ms");
+        builder.append(" hold=").append(toMillis(getWriteHoldTime())).append("ms");
+        builder.append(" maxHold=").append(toMillis(getMaxWriteHoldTime())).append("ms (").append(maxWriteHolder).append(")");
+        builder.append("\nQueued: ").append(getQueueLength());
+        builder.append(" Holder: ").append(holder != null ? holder.getName() : "none");
+        return builder.toString();
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Read-write lock which exposes its write owner.
+     */
+    static class DhnsReadWriteLock extends ReentrantReadWriteLock {
+
+        public Thread getWriteHolder() {
+            return getOwner();
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.gephi.graph.api.GraphEvent.EventType;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.dhns.edge.AbstractEdge;
 import org.gephi.graph.dhns.edge.MetaEdgeImpl;
+import org.gephi.graph.dhns.event.BulkEvent;
 import org.gephi.graph.dhns.event.EdgeEvent;
 import org.gephi.graph.dhns.event.GeneralEvent;
 import org.gephi.graph.dhns.event.NodeEvent;
@@ -331,6 +332,29 @@ public class StructureModifier {
         return group;
     }
 
+    public Node[] group(AbstractNode[][] groups) {
+        boolean locked = dhns.conditionalWriteLock();
+        AbstractNode[] groupNodes = new AbstractNode[groups.length];
+        int movedCount = 0;
+        for (int i = 0; i < groups.length; i++) {
+            AbstractNode group = dhns.factory().newNode(view.getViewId());
+            business.group(group, groups[i]);
+            dhns.getGraphStructure().addToDictionnary(group);
+            groupNodes[i] = group;
+            movedCount += groups[i].length;
+        }
+        graphVersion.incNodeAndEdgeVersion();
+        dhns.conditionalWriteUnlock(locked);
+        AbstractNode[] movedNodes = new AbstractNode[movedCount];
+        movedCount = 0;
+        for (int i = 0; i < groups.length; i++) {
+            System.arraycopy(groups[i], 0, movedNodes, movedCount, groups[i].length);
+            movedCount += groups[i].length;
+        }
+        dhns.getEventManager().fireEvent(new BulkEvent(EventType.ADD_NODES_AND_EDGES, view, groupNodes, null, movedNodes));
+        return groupNodes;
+    }
+
     public void ungroup(AbstractNode nodeGroup) {
         boolean locked = dhns.conditionalWriteLock();
         AbstractNode[] ungroupedNodes = business.ungroup(nodeGroup);
@@ -342,6 +366,25 @@ public class StructureModifier {
         }
     }
 
+    public void ungroup(AbstractNode[] nodeGroups) {
+        boolean locked = dhns.conditionalWriteLock();
+        AbstractNode[][] ungroupedNodes = new AbstractNode[nodeGroups.length][];
+        int movedCount = 0;
+        for (int i = 0; i < nodeGroups.length; i++) {
+            ungroupedNodes[i] = business.ungroup(nodeGroups[i]);
+            movedCount += ungroupedNodes[i].length;
+        }
+        graphVersion.incNodeAndEdgeVersion();
+        dhns.conditionalWriteUnlock(locked);
+        AbstractNode[] movedNodes = new AbstractNode[movedCount];
+        movedCount = 0;
+        for (int i = 0; i < nodeGroups.length; i++) {
+            System.arraycopy(ungroupedNodes[i], 0, movedNodes, movedCount, ungroupedNodes[i].length);
+            movedCount += ungroupedNodes[i].length;
+        }
+        dhns.getEventManager().fireEvent(new BulkEvent(EventType.REMOVE_NODES_AND_EDGES, view, nodeGroups, null, movedNodes));
+    }
+
     public void flatten() {
         dhns.writeLock();
         if (treeStructure.getTreeHeight() > 1) {
@@ -407,6 +450,118 @@ public class StructureModifier {
         dhns.getEventManager().fireEvent(new GeneralEvent(EventType.META_EDGES_UPDATE, view));
     }
 
+    public BulkLoader newBulkLoader(int nodesCapacity, int edgesCapacity) {
+        return new BulkLoader(nodesCapacity, edgesCapacity);
+    }
+
+    /**
+     * Loading session that adds nodes and edges while holding the write lock
+     * only once. Counters, dictionnary and versions are updated when the session
+     * is closed and a single <code>ADD_NODES_AND_EDGES</code> event is fired.
+     * <p>
+     * The write lock is acquired when the loader is created, so <code>close()</code>
+     * must always be called, typically from a <code>finally</code> block.
+     */
+    public class BulkLoader {
+
+        private final boolean locked;
+        private final List<AbstractNode> nodes;
+        private final List<AbstractEdge> edges;
+        private int nodesEnabled;
+        private int edgesEnabled;
+        private int mutualEdgesTotal;
+        private int mutualEdgesEnabled;
+        private boolean closed;
+
+        private BulkLoader(int nodesCapacity, int edgesCapacity) {
+            locked = dhns.conditionalWriteLock();
+            nodes = new ArrayList<AbstractNode>(nodesCapacity);
+            edges = new ArrayList<AbstractEdge>(edgesCapacity);
+            dhns.getGraphStructure().ensureDictionnaryCapacity(nodesCapacity, edgesCapacity);
+        }
+
+        public void addNode(AbstractNode node, AbstractNode parent) {
+            node.parent = parent != null ? parent : treeStructure.getRoot();
+            addNode(node, node.parent, treeStructure.getEnabledAncestor(node) == null);
+        }
+
+        /**
+         * Adds <code>node</code> with an explicit enabled state, for instance when
+         * restoring an expanded hierarchy. Nodes must be added in pre-order.
+         */
+        public void addNode(AbstractNode node, AbstractNode parent, boolean enabled) {
+            node.parent = parent != null ? parent : treeStructure.getRoot();
+            node.setEnabled(enabled);
+            treeStructure.insertAsChild(node, node.parent);
+            if (enabled) {
+                nodesEnabled++;
+            }
+            nodes.add(node);
+        }
+
+        public void addEdge(AbstractEdge edge) {
+            AbstractNode sourceNode = edge.getSource(view.getViewId());
+            AbstractNode targetNode = edge.getTarget(view.getViewId());
+
+            boolean enabled = sourceNode.isEnabled() && targetNode.isEnabled();
+
+            sourceNode.getEdgesOutTree().add(edge);
+            targetNode.getEdgesInTree().add(edge);
+
+            if (!edge.isSelfLoop() && sourceNode.getEdgesInTree().hasNeighbour(targetNode)) {
+                //Mututal edge
+                mutualEdgesTotal++;
+                if (enabled) {
+                    sourceNode.incEnabledMutualDegree();
+                    targetNode.incEnabledMutualDegree();
+                    mutualEdgesEnabled++;
+                }
+            }
+
+            if (enabled) {
+                edgesEnabled++;
+                sourceNode.incEnabledOutDegree();
+                targetNode.incEnabledInDegree();
+            }
+
+            if (!edge.isSelfLoop()) {
+                edgeProcessor.createMetaEdge(edge);
+            }
+            edges.add(edge);
+        }
+
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            AbstractNode[] nodesArray = nodes.toArray(new AbstractNode[nodes.size()]);
+            AbstractEdge[] edgesArray = edges.toArray(new AbstractEdge[edges.size()]);
+
+            //Counters
+            view.incNodesEnabled(nodesEnabled);
+            view.incEdgesCountTotal(edgesArray.length);
+            view.incEdgesCountEnabled(edgesEnabled);
+            view.incMutualEdgesTotal(mutualEdgesTotal);
+            view.incMutualEdgesEnabled(mutualEdgesEnabled);
+
+            dhns.getGraphStructure().addToDictionnary(nodesArray, edgesArray);
+            if (nodesArray.length > 0) {
+                graphVersion.incNodeVersion();
+            }
+            if (edgesArray.length > 0) {
+                graphVersion.incEdgeVersion();
+            }
+            dhns.conditionalWriteUnlock(locked);
+
+            if (nodesArray.length > 0 || edgesArray.length > 0) {
+                dhns.getEventManager().fireEvent(new BulkEvent(EventType.ADD_NODES_AND_EDGES, view,
+                        nodesArray.length > 0 ? nodesArray : null,
+                        edgesArray.length > 0 ? edgesArray : null));
+            }
+        }
+    }
+
     //------------------------------------------
     private class Business {
 
@@ -522,6 +677,9 @@ public class StructureModifier {
                     }
                 }
                 dhns.getGraphStructure().removeFromDictionnary(descendant);
+                if (graphView.isMainView()) {
+                    descendant.getNodeData().detach();
+                }
 
                 i++;
             }
@@ -595,6 +753,9 @@ public class StructureModifier {
                 AbstractNode node = itr.next();
                 node.getNodeData().getNodes().remove(view.getViewId());
                 dhns.getGraphStructure().removeFromDictionnary(node);
+                if (view.isMainView()) {
+                    node.getNodeData().detach();
+                }
                 deletedNodes[n++] = node;
             }
             treeStructure.clear();
@@ -75,6 +75,15 @@ public class MetaEdgeImpl extends AbstractEdge implements MetaEdge {
         return true;
     }
 
+    /**
+     * Copies counts and weight of <code>metaEdge</code>, the same meta edge in another view.
+     */
+    public void copyFrom(MetaEdgeImpl metaEdge) {
+        count = metaEdge.count;
+        directedCount = metaEdge.directedCount;
+        setWeight(metaEdge.getWeight());
+    }
+
     public boolean isEmpty() {
         return count == 0;
     }
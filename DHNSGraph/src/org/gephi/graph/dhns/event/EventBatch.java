@@ -0,0 +1,303 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.event;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphEvent;
+import org.gephi.graph.api.GraphEvent.EventType;
+import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.Node;
+
+/**
+ * Coalesces events fired during a time window. Node and edge events are
+ * merged per view, whatever their order, and elements added and then removed
+ * in the same batch are dropped. View events are kept in place: changes that
+ * come after one are merged in a new group.
+ * <p>
+ * When an element is added again after being removed, a new group is started
+ * as well, so listeners still see the removal first. Removing a node doesn't
+ * fire events for its edges, so edges added to it in the group are dropped
+ * with it.
+ */
+public class EventBatch {
+
+    private final List<Object> entries = new ArrayList<Object>();
+    private final Map<GraphView, ViewChanges> openChanges = new HashMap<GraphView, ViewChanges>();
+    private int size;
+    private long startTime;
+
+    public void add(AbstractEvent event) {
+        if (size++ == 0) {
+            startTime = System.nanoTime();
+        }
+        if (event instanceof ViewEvent) {
+            entries.add(event);
+            openChanges.clear();
+            return;
+        }
+        GraphView view = event.getView();
+        ViewChanges changes = openChanges.get(view);
+        if (changes == null || changes.conflicts(event)) {
+            changes = new ViewChanges(view);
+            openChanges.put(view, changes);
+            entries.add(changes);
+        }
+        changes.add(event);
+    }
+
+    /**
+     * Returns the number of events added to this batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the <code>System.nanoTime()</code> of the first event.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Creates the events to deliver, in order.
+     */
+    public List<GraphEvent> createEvents() {
+        List<GraphEvent> events = new ArrayList<GraphEvent>();
+        for (Object entry : entries) {
+            if (entry instanceof ViewChanges) {
+                ((ViewChanges) entry).createEvents(events);
+            } else {
+                ViewEvent viewEvent = (ViewEvent) entry;
+                GraphEventDataImpl eventData = new GraphEventDataImpl();
+                eventData.setView(viewEvent.getData());
+                events.add(new GraphEventImpl(viewEvent.getView(), viewEvent.getEventType(), eventData));
+            }
+        }
+        return events;
+    }
+
+    private static class ViewChanges {
+
+        private final GraphView view;
+        private final Set<Node> addedNodes = new LinkedHashSet<Node>();
+        private final Set<Edge> addedEdges = new LinkedHashSet<Edge>();
+        private final Map<Node, List<Edge>> addedEdgesByNode = new HashMap<Node, List<Edge>>();
+        private final Set<Node> movedNodes = new LinkedHashSet<Node>();
+        private final Set<Node> expandedNodes = new LinkedHashSet<Node>();
+        private final Set<Node> retractedNodes = new LinkedHashSet<Node>();
+        private final Set<Node> removedNodes = new LinkedHashSet<Node>();
+        private final Set<Edge> removedEdges = new LinkedHashSet<Edge>();
+        private final EnumSet<EventType> generalEvents = EnumSet.noneOf(EventType.class);
+
+        public ViewChanges(GraphView view) {
+            this.view = view;
+        }
+
+        public boolean conflicts(AbstractEvent event) {
+            if (event.getEventType() != EventType.ADD_NODES_AND_EDGES) {
+                return false;
+            }
+            if (event instanceof NodeEvent) {
+                return removedNodes.contains((Node) event.getData());
+            } else if (event instanceof EdgeEvent) {
+                return removedEdges.contains((Edge) event.getData());
+            } else if (event instanceof BulkEvent) {
+                BulkEvent bulkEvent = (BulkEvent) event;
+                if (!removedNodes.isEmpty() && bulkEvent.getNodes() != null) {
+                    for (Node n : bulkEvent.getNodes()) {
+                        if (removedNodes.contains(n)) {
+                            return true;
+                        }
+                    }
+                }
+                if (!removedEdges.isEmpty() && bulkEvent.getEdges() != null) {
+                    for (Edge e : bulkEvent.getEdges()) {
+                        if (removedEdges.contains(e)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        public void add(AbstractEvent event) {
+            if (event instanceof NodeEvent) {
+                addNode(event.getEventType(), (Node) event.getData());
+            } else if (event instanceof EdgeEvent) {
+                addEdge(event.getEventType(), (Edge) event.getData());
+            } else if (event instanceof BulkEvent) {
+                BulkEvent bulkEvent = (BulkEvent) event;
+                if (bulkEvent.getNodes() != null) {
+                    for (Node n : bulkEvent.getNodes()) {
+                        addNode(event.getEventType(), n);
+                    }
+                }
+                if (bulkEvent.getEdges() != null) {
+                    for (Edge e : bulkEvent.getEdges()) {
+                        addEdge(event.getEventType(), e);
+                    }
+                }
+                if (bulkEvent.getMovedNodes() != null) {
+                    for (Node n : bulkEvent.getMovedNodes()) {
+                        addNode(EventType.MOVE_NODES, n);
+                    }
+                }
+            } else {
+                generalEvents.add(event.getEventType());
+            }
+        }
+
+        private void addNode(EventType type, Node node) {
+            switch (type) {
+                case ADD_NODES_AND_EDGES:
+                    addedNodes.add(node);
+                    break;
+                case REMOVE_NODES_AND_EDGES:
+                    movedNodes.remove(node);
+                    expandedNodes.remove(node);
+                    retractedNodes.remove(node);
+                    if (!addedNodes.remove(node)) {
+                        removedNodes.add(node);
+                    }
+                    List<Edge> nodeEdges = addedEdgesByNode.remove(node);
+                    if (nodeEdges != null) {
+                        for (Edge e : nodeEdges) {
+                            addedEdges.remove(e);
+                        }
+                    }
+                    break;
+                case MOVE_NODES:
+                    movedNodes.add(node);
+                    break;
+                case EXPAND:
+                    if (!retractedNodes.remove(node)) {
+                        expandedNodes.add(node);
+                    }
+                    break;
+                case RETRACT:
+                    if (!expandedNodes.remove(node)) {
+                        retractedNodes.add(node);
+                    }
+                    break;
+            }
+        }
+
+        private void addEdge(EventType type, Edge edge) {
+            switch (type) {
+                case ADD_NODES_AND_EDGES:
+                    if (addedEdges.add(edge)) {
+                        indexEdge(edge.getSource(), edge);
+                        indexEdge(edge.getTarget(), edge);
+                    }
+                    break;
+                case REMOVE_NODES_AND_EDGES:
+                    if (!addedEdges.remove(edge)) {
+                        removedEdges.add(edge);
+                    }
+                    break;
+            }
+        }
+
+        private void indexEdge(Node node, Edge edge) {
+            List<Edge> nodeEdges = addedEdgesByNode.get(node);
+            if (nodeEdges == null) {
+                nodeEdges = new ArrayList<Edge>();
+                addedEdgesByNode.put(node, nodeEdges);
+            }
+            nodeEdges.add(edge);
+        }
+
+        public void createEvents(List<GraphEvent> events) {
+            if (!addedNodes.isEmpty() || !addedEdges.isEmpty()) {
+                GraphEventDataImpl eventData = new GraphEventDataImpl();
+                if (!addedNodes.isEmpty()) {
+                    eventData.setAddedNodes(addedNodes.toArray(new Node[addedNodes.size()]));
+                }
+                if (!addedEdges.isEmpty()) {
+                    eventData.setAddedEdges(addedEdges.toArray(new Edge[addedEdges.size()]));
+                }
+                events.add(new GraphEventImpl(view, EventType.ADD_NODES_AND_EDGES, eventData));
+            }
+            if (!movedNodes.isEmpty()) {
+                GraphEventDataImpl eventData = new GraphEventDataImpl();
+                eventData.setMovedNodes(movedNodes.toArray(new Node[movedNodes.size()]));
+                events.add(new GraphEventImpl(view, EventType.MOVE_NODES, eventData));
+            }
+            if (!expandedNodes.isEmpty()) {
+                GraphEventDataImpl eventData = new GraphEventDataImpl();
+                eventData.setExpandedNodes(expandedNodes.toArray(new Node[expandedNodes.size()]));
+                events.add(new GraphEventImpl(view, EventType.EXPAND, eventData));
+            }
+            if (!retractedNodes.isEmpty()) {
+                GraphEventDataImpl eventData = new GraphEventDataImpl();
+                eventData.setRetractedNodes(retractedNodes.toArray(new Node[retractedNodes.size()]));
+                events.add(new GraphEventImpl(view, EventType.RETRACT, eventData));
+            }
+            if (!removedNodes.isEmpty() || !removedEdges.isEmpty()) {
+                GraphEventDataImpl eventData = new GraphEventDataImpl();
+                if (!removedNodes.isEmpty()) {
+                    eventData.setRemovedNodes(removedNodes.toArray(new Node[removedNodes.size()]));
+                }
+                if (!removedEdges.isEmpty()) {
+                    eventData.setRemovedEdges(removedEdges.toArray(new Edge[removedEdges.size()]));
+                }
+                events.add(new GraphEventImpl(view, EventType.REMOVE_NODES_AND_EDGES, eventData));
+            }
+            for (EventType type : generalEvents) {
+                events.add(new GraphEventImpl(view, type, null));
+            }
+        }
+    }
+}
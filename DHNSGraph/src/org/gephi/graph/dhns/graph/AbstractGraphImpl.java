@@ -99,6 +99,14 @@ public abstract class AbstractGraphImpl {
         dhns.writeUnlock();
     }
 
+    public long tryOptimisticRead() {
+        return dhns.tryOptimisticRead();
+    }
+
+    public boolean validate(long stamp) {
+        return dhns.validate(stamp);
+    }
+
     public int getNodeVersion() {
         return dhns.getGraphVersion().getNodeVersion();
     }
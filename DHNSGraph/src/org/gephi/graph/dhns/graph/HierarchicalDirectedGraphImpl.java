@@ -48,18 +48,21 @@ import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.MetaEdge;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.api.NodeIterable;
+import org.gephi.graph.dhns.core.AdjacencySnapshotImpl;
 import org.gephi.graph.dhns.core.Dhns;
 import org.gephi.graph.dhns.core.GraphViewImpl;
 import org.gephi.graph.dhns.edge.AbstractEdge;
 import org.gephi.graph.dhns.edge.iterators.BiEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeAndMetaEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeIterator;
+import org.gephi.graph.dhns.edge.iterators.AbstractEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeNodeIterator;
 import org.gephi.graph.dhns.edge.iterators.MetaEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.MetaEdgeNodeIterator;
 import org.gephi.graph.dhns.edge.iterators.RangeEdgeIterator;
 import org.gephi.graph.dhns.node.AbstractNode;
 import org.gephi.graph.dhns.node.iterators.NeighborIterator;
+import org.gephi.graph.dhns.node.iterators.AbstractNodeIterator;
 import org.gephi.graph.dhns.node.iterators.TreeIterator;
 import org.gephi.graph.dhns.predicate.Tautology;
 import org.gephi.graph.dhns.utils.avl.EdgeOppositeTree;
@@ -77,21 +80,34 @@ public class HierarchicalDirectedGraphImpl extends HierarchicalGraphImpl impleme
     //Graph
     public boolean addEdge(Edge edge) {
         AbstractEdge absEdge = checkEdge(edge);
-        if (!edge.isDirected()) {
-            throw new IllegalArgumentException("Can't add an undirected egde");
-        }
-        if (checkEdgeExist(absEdge.getSource(view.getViewId()), absEdge.getTarget(view.getViewId()))) {
-            //Edge already exist
+        if (!isEdgeAddable(absEdge)) {
             return false;
         }
         if (!absEdge.hasAttributes()) {
             absEdge.setAttributes(dhns.factory().newEdgeAttributes(edge.getEdgeData()));
         }
         view.getStructureModifier().addEdge(absEdge);
-        dhns.touchDirected();
+        touchEdgeType(absEdge);
         return true;
     }
 
+    @Override
+    protected boolean isEdgeAddable(AbstractEdge absEdge) {
+        if (!absEdge.isDirected()) {
+            throw new IllegalArgumentException("Can't add an undirected egde");
+        }
+        if (checkEdgeExist(absEdge.getSource(view.getViewId()), absEdge.getTarget(view.getViewId()))) {
+            //Edge already exist
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void touchEdgeType(AbstractEdge absEdge) {
+        dhns.touchDirected();
+    }
+
     //Directed
     public boolean addEdge(Node source, Node target) {
         AbstractNode absSource = checkNode(source);
@@ -169,7 +185,12 @@ public class HierarchicalDirectedGraphImpl extends HierarchicalGraphImpl impleme
     //Graph
     public EdgeIterable getEdges() {
         readLock();
-        return dhns.newEdgeIterable(new EdgeIterator(structure, new TreeIterator(structure, true, Tautology.instance), false, enabledNodePredicate, Tautology.instance));
+        return dhns.newEdgeIterable(newEdgeIterator(new TreeIterator(structure, true, Tautology.instance)), view.getEdgesCountEnabled());
+    }
+
+    @Override
+    protected AbstractEdgeIterator newEdgeIterator(AbstractNodeIterator sourceIterator) {
+        return new EdgeIterator(structure, sourceIterator, false, enabledNodePredicate, Tautology.instance);
     }
 
     //ClusteredGraph
@@ -377,6 +398,11 @@ public class HierarchicalDirectedGraphImpl extends HierarchicalGraphImpl impleme
         return new HierarchicalDirectedGraphImpl(dhns, view);
     }
 
+    @Override
+    protected AdjacencySnapshotImpl.Type getAdjacencySnapshotType() {
+        return AdjacencySnapshotImpl.Type.DIRECTED;
+    }
+
     public EdgeIterable getHierarchyEdges() {
         throw new UnsupportedOperationException("Not supported yet.");
     }
@@ -41,17 +41,28 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.dhns.graph;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.graph.api.AdjacencySnapshot;
 import org.gephi.graph.api.Attributes;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.ImmutableTreeNode;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.api.NodeIterable;
+import org.gephi.graph.dhns.core.AdjacencySnapshotImpl;
 import org.gephi.graph.dhns.core.Dhns;
 import org.gephi.graph.dhns.core.GraphViewImpl;
+import org.gephi.graph.dhns.core.StructureModifier;
 import org.gephi.graph.dhns.edge.AbstractEdge;
+import org.gephi.graph.dhns.edge.iterators.AbstractEdgeIterator;
+import org.gephi.graph.dhns.graph.iterators.EdgeIterableImpl;
+import org.gephi.graph.dhns.graph.iterators.NodeIterableImpl;
 import org.gephi.graph.dhns.node.AbstractNode;
+import org.gephi.graph.dhns.node.iterators.AbstractNodeIterator;
 import org.gephi.graph.dhns.node.iterators.ChildrenIterator;
 import org.gephi.graph.dhns.node.iterators.DescendantIterator;
 import org.gephi.graph.dhns.node.iterators.LevelIterator;
@@ -80,6 +91,23 @@ public abstract class HierarchicalGraphImpl extends AbstractGraphImpl implements
 
     public abstract HierarchicalGraphImpl copy(Dhns dhns, GraphViewImpl view);
 
+    protected abstract AdjacencySnapshotImpl.Type getAdjacencySnapshotType();
+
+    /**
+     * Returns <code>true</code> if <code>edge</code> can be added to this graph,
+     * <code>false</code> if it, or an equivalent edge, already exists.
+     * @throws IllegalArgumentException if the edge type is not legal for this graph
+     */
+    protected abstract boolean isEdgeAddable(AbstractEdge edge);
+
+    protected abstract void touchEdgeType(AbstractEdge edge);
+
+    /**
+     * Returns the iterator used by <code>getEdges()</code>, walking the out
+     * edges of nodes returned by <code>sourceIterator</code>.
+     */
+    protected abstract AbstractEdgeIterator newEdgeIterator(AbstractNodeIterator sourceIterator);
+
     public boolean addNode(Node node, Node parent) {
         if (node == null) {
             throw new IllegalArgumentException("Node can't be null");
@@ -109,6 +137,64 @@ public abstract class HierarchicalGraphImpl extends AbstractGraphImpl implements
         return addNode(node, null);
     }
 
+    public int bulkLoad(Node[] nodes, Edge[] edges) {
+        return bulkLoad(nodes, null, edges);
+    }
+
+    public int bulkLoad(Node[] nodes, Node[] parents, Edge[] edges) {
+        int nodesCount = nodes != null ? nodes.length : 0;
+        int edgesCount = edges != null ? edges.length : 0;
+        if (parents != null && parents.length != nodesCount) {
+            throw new IllegalArgumentException("Parents and nodes must have the same length");
+        }
+        int added = 0;
+        StructureModifier.BulkLoader loader = view.getStructureModifier().newBulkLoader(nodesCount, edgesCount);
+        try {
+            //Nodes
+            for (int i = 0; i < nodesCount; i++) {
+                if (nodes[i] == null) {
+                    throw new IllegalArgumentException("Node can't be null");
+                }
+                AbstractNode absNode = (AbstractNode) nodes[i];
+                AbstractNode absParent = null;
+                if (parents != null && parents[i] != null) {
+                    absParent = checkNode(parents[i]);
+                }
+                if (absNode.isValid(view.getViewId())) {
+                    continue;
+                }
+                if (absNode.avlNode != null) { //exist in another view
+                    if (absNode.getInView(view.getViewId()) != null) {
+                        continue;
+                    }
+                    absNode = new AbstractNode(absNode.getNodeData(), view.getViewId());
+                }
+                if (!absNode.getNodeData().hasAttributes()) {
+                    absNode.getNodeData().setAttributes(dhns.factory().newNodeAttributes(absNode.getNodeData()));
+                }
+                loader.addNode(absNode, absParent);
+                added++;
+            }
+
+            //Edges
+            for (int i = 0; i < edgesCount; i++) {
+                AbstractEdge absEdge = checkEdge(edges[i]);
+                if (!isEdgeAddable(absEdge)) {
+                    continue;
+                }
+                if (!absEdge.hasAttributes()) {
+                    absEdge.setAttributes(dhns.factory().newEdgeAttributes(absEdge.getEdgeData()));
+                }
+                loader.addEdge(absEdge);
+                touchEdgeType(absEdge);
+                added++;
+            }
+        } finally {
+            loader.close();
+        }
+        return added;
+    }
+
     public boolean contains(Node node) {
         if (node == null) {
             throw new NullPointerException();
@@ -139,6 +225,13 @@ public abstract class HierarchicalGraphImpl extends AbstractGraphImpl implements
         return dhns.getGraphStructure().getNodeFromDictionnary(id, view.getViewId());
     }
 
+    public Node[] getNodes(String[] ids) {
+        if (ids == null) {
+            throw new NullPointerException();
+        }
+        return dhns.getGraphStructure().getNodesFromDictionnary(ids, view.getViewId());
+    }
+
     public Edge getEdge(String id) {
         if (id == null) {
             throw new NullPointerException();
@@ -148,7 +241,43 @@ public abstract class HierarchicalGraphImpl extends AbstractGraphImpl implements
 
     public NodeIterable getNodes() {
         readLock();
-        return dhns.newNodeIterable(new TreeIterator(structure, true, Tautology.instance));
+        return dhns.newNodeIterable(new TreeIterator(structure, true, Tautology.instance), view.getNodesEnabled());
+    }
+
+    public NodeIterable[] getNodeRanges(int count) {
+        TreeIterator[] iterators = newRangeIterators(count);
+        NodeIterable[] ranges = new NodeIterable[count];
+        for (int i = 0; i < count; i++) {
+            ranges[i] = new NodeIterableImpl(iterators[i], null);
+        }
+        return ranges;
+    }
+
+    public EdgeIterable[] getEdgeRanges(int count) {
+        TreeIterator[] iterators = newRangeIterators(count);
+        EdgeIterable[] ranges = new EdgeIterable[count];
+        for (int i = 0; i < count; i++) {
+            ranges[i] = new EdgeIterableImpl(newEdgeIterator(iterators[i]), null);
+        }
+        return ranges;
+    }
+
+    private TreeIterator[] newRangeIterators(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        ReentrantReadWriteLock lock = dhns.getReadWriteLock();
+        if (lock.getReadHoldCount() == 0 && !lock.isWriteLockedByCurrentThread()) {
+            throw new IllegalMonitorStateException("Ranges must be created and iterated while holding the graph lock");
+        }
+        int size = structure.getTreeSize() - 1;     //Exclude virtual root
+        TreeIterator[] iterators = new TreeIterator[count];
+        for (int i = 0; i < count; i++) {
+            int from = 1 + (int) ((long) size * i / count);
+            int to = 1 + (int) ((long) size * (i + 1) / count);
+            iterators[i] = new TreeIterator(structure, true, Tautology.<AbstractNode>all(), from, to);
+        }
+        return iterators;
     }
 
     public NodeIterable getNodesTree() {
@@ -388,6 +517,57 @@ public abstract class HierarchicalGraphImpl extends AbstractGraphImpl implements
         view.getStructureModifier().ungroup(absNode);
     }
 
+    public Node[] groupNodes(Node[][] groups) {
+        if (groups == null || groups.length == 0) {
+            throw new IllegalArgumentException("groups can't be null or empty");
+        }
+        AbstractNode[][] absGroups = new AbstractNode[groups.length][];
+        Set<AbstractNode> grouped = new HashSet<AbstractNode>();
+        for (int i = 0; i < groups.length; i++) {
+            Node[] nodes = groups[i];
+            if (nodes == null || nodes.length == 0) {
+                throw new IllegalArgumentException("nodes can't be null or empty");
+            }
+            AbstractNode[] absNodes = new AbstractNode[nodes.length];
+            AbstractNode parent = null;
+            for (int j = 0; j < nodes.length; j++) {
+                AbstractNode node = checkNode(nodes[j]);
+                if (!grouped.add(node)) {
+                    throw new IllegalArgumentException("A node can't be in several groups");
+                }
+                absNodes[j] = node;
+                if (parent == null) {
+                    parent = node.parent;
+                } else if (parent != node.parent) {
+                    throw new IllegalArgumentException("All nodes must have the same parent");
+                }
+            }
+            absGroups[i] = absNodes;
+        }
+
+        return view.getStructureModifier().group(absGroups);
+    }
+
+    public void ungroupNodes(Node[] nodeGroups) {
+        if (nodeGroups == null) {
+            throw new IllegalArgumentException("nodeGroups can't be null");
+        }
+        AbstractNode[] absNodes = new AbstractNode[nodeGroups.length];
+        Set<AbstractNode> ungrouped = new HashSet<AbstractNode>();
+        for (int i = 0; i < nodeGroups.length; i++) {
+            AbstractNode absNode = checkNode(nodeGroups[i]);
+            if (absNode.size == 0) {
+                throw new IllegalArgumentException("nodeGroup can't be empty");
+            }
+            if (!ungrouped.add(absNode)) {
+                throw new IllegalArgumentException("A group can't be ungrouped several times");
+            }
+            absNodes[i] = absNode;
+        }
+
+        view.getStructureModifier().ungroup(absNodes);
+    }
+
     public boolean expand(Node node) {
         AbstractNode absNode = checkNode(node);
         if (absNode.size == 0 || !absNode.isEnabled()) {
@@ -436,6 +616,13 @@ public abstract class HierarchicalGraphImpl extends AbstractGraphImpl implements
         view.getStructureModifier().flatten();
     }
 
+    public AdjacencySnapshot getAdjacencySnapshot() {
+        readLock();
+        AdjacencySnapshot snapshot = view.getAdjacencySnapshot(getAdjacencySnapshotType());
+        readUnlock();
+        return snapshot;
+    }
+
     public Attributes getAttributes() {
         return view.getAttributes();
     }
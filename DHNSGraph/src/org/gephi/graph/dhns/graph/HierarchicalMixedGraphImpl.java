@@ -47,17 +47,20 @@ import org.gephi.graph.api.HierarchicalMixedGraph;
 import org.gephi.graph.api.MetaEdge;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.api.NodeIterable;
+import org.gephi.graph.dhns.core.AdjacencySnapshotImpl;
 import org.gephi.graph.dhns.core.Dhns;
 import org.gephi.graph.dhns.core.GraphViewImpl;
 import org.gephi.graph.dhns.edge.AbstractEdge;
 import org.gephi.graph.dhns.edge.iterators.BiEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeAndMetaEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeIterator;
+import org.gephi.graph.dhns.edge.iterators.AbstractEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeNodeIterator;
 import org.gephi.graph.dhns.edge.iterators.MetaEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.MetaEdgeNodeIterator;
 import org.gephi.graph.dhns.node.AbstractNode;
 import org.gephi.graph.dhns.node.iterators.NeighborIterator;
+import org.gephi.graph.dhns.node.iterators.AbstractNodeIterator;
 import org.gephi.graph.dhns.node.iterators.TreeIterator;
 import org.gephi.graph.dhns.predicate.Predicate;
 import org.gephi.graph.dhns.predicate.Tautology;
@@ -85,8 +88,21 @@ public class HierarchicalMixedGraphImpl extends HierarchicalGraphImpl implements
 
     public boolean addEdge(Edge edge) {
         AbstractEdge absEdge = checkEdge(edge);
-        AbstractNode source = checkNode(edge.getSource());
-        AbstractNode target = checkNode(edge.getTarget());
+        if (!isEdgeAddable(absEdge)) {
+            return false;
+        }
+        if (!absEdge.hasAttributes()) {
+            absEdge.setAttributes(dhns.factory().newEdgeAttributes(edge.getEdgeData()));
+        }
+        view.getStructureModifier().addEdge(absEdge);
+        touchEdgeType(absEdge);
+        return true;
+    }
+
+    @Override
+    protected boolean isEdgeAddable(AbstractEdge absEdge) {
+        AbstractNode source = checkNode(absEdge.getSource());
+        AbstractNode target = checkNode(absEdge.getTarget());
         if (checkEdgeExist(source, target)) {
             //Edge already exist
             return false;
@@ -96,16 +112,16 @@ public class HierarchicalMixedGraphImpl extends HierarchicalGraphImpl implements
             //The symmetric edge exist and is undirected
             return false;
         }
-        if (!absEdge.hasAttributes()) {
-            absEdge.setAttributes(dhns.factory().newEdgeAttributes(edge.getEdgeData()));
-        }
-        view.getStructureModifier().addEdge(absEdge);
+        return true;
+    }
+
+    @Override
+    protected void touchEdgeType(AbstractEdge absEdge) {
         if (absEdge.isDirected()) {
             dhns.touchDirected();
         } else {
             dhns.touchUndirected();
         }
-        return true;
     }
 
     public boolean addEdge(Node source, Node target, boolean directed) {
@@ -177,7 +193,12 @@ public class HierarchicalMixedGraphImpl extends HierarchicalGraphImpl implements
 
     public EdgeIterable getEdges() {
         readLock();
-        return dhns.newEdgeIterable(new EdgeIterator(structure, new TreeIterator(structure, true, Tautology.instance), false, Tautology.instance, Tautology.instance));
+        return dhns.newEdgeIterable(newEdgeIterator(new TreeIterator(structure, true, Tautology.instance)), view.getEdgesCountEnabled());
+    }
+
+    @Override
+    protected AbstractEdgeIterator newEdgeIterator(AbstractNodeIterator sourceIterator) {
+        return new EdgeIterator(structure, sourceIterator, false, Tautology.instance, Tautology.instance);
     }
 
     public EdgeIterable getEdgesTree() {
@@ -314,6 +335,11 @@ public class HierarchicalMixedGraphImpl extends HierarchicalGraphImpl implements
         return new HierarchicalMixedGraphImpl(dhns, view);
     }
 
+    @Override
+    protected AdjacencySnapshotImpl.Type getAdjacencySnapshotType() {
+        return AdjacencySnapshotImpl.Type.MIXED;
+    }
+
     public EdgeIterable getHierarchyEdges() {
         throw new UnsupportedOperationException("Not supported yet.");
     }
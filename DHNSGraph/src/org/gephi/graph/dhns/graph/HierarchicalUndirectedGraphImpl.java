@@ -47,6 +47,7 @@ import org.gephi.graph.api.HierarchicalUndirectedGraph;
 import org.gephi.graph.api.MetaEdge;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.api.NodeIterable;
+import org.gephi.graph.dhns.core.AdjacencySnapshotImpl;
 import org.gephi.graph.dhns.core.Dhns;
 import org.gephi.graph.dhns.core.GraphViewImpl;
 import org.gephi.graph.dhns.edge.AbstractEdge;
@@ -54,12 +55,14 @@ import org.gephi.graph.dhns.edge.MixedEdgeImpl;
 import org.gephi.graph.dhns.edge.iterators.BiEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeAndMetaEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeIterator;
+import org.gephi.graph.dhns.edge.iterators.AbstractEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.EdgeNodeIterator;
 import org.gephi.graph.dhns.edge.iterators.MetaEdgeIterator;
 import org.gephi.graph.dhns.edge.iterators.MetaEdgeNodeIterator;
 import org.gephi.graph.dhns.edge.iterators.RangeEdgeIterator;
 import org.gephi.graph.dhns.node.AbstractNode;
 import org.gephi.graph.dhns.node.iterators.NeighborIterator;
+import org.gephi.graph.dhns.node.iterators.AbstractNodeIterator;
 import org.gephi.graph.dhns.node.iterators.TreeIterator;
 import org.gephi.graph.dhns.predicate.Tautology;
 
@@ -75,23 +78,36 @@ public class HierarchicalUndirectedGraphImpl extends HierarchicalGraphImpl imple
 
     public boolean addEdge(Edge edge) {
         AbstractEdge absEdge = checkEdge(edge);
-        if (absEdge instanceof MixedEdgeImpl && edge.isDirected() && !absEdge.isSelfLoop()) {
-            throw new IllegalArgumentException("Can't add a directed egde");
-        }
-        AbstractNode source = checkNode(edge.getSource());
-        AbstractNode target = checkNode(edge.getTarget());
-        if (checkEdgeExist(source, target) || checkEdgeExist(target, source)) {
-            //Edge already exist
+        if (!isEdgeAddable(absEdge)) {
             return false;
         }
         if (!absEdge.hasAttributes()) {
             absEdge.setAttributes(dhns.factory().newEdgeAttributes(edge.getEdgeData()));
         }
         view.getStructureModifier().addEdge(absEdge);
-        dhns.touchUndirected();
+        touchEdgeType(absEdge);
         return true;
     }
 
+    @Override
+    protected boolean isEdgeAddable(AbstractEdge absEdge) {
+        if (absEdge instanceof MixedEdgeImpl && absEdge.isDirected() && !absEdge.isSelfLoop()) {
+            throw new IllegalArgumentException("Can't add a directed egde");
+        }
+        AbstractNode source = checkNode(absEdge.getSource());
+        AbstractNode target = checkNode(absEdge.getTarget());
+        if (checkEdgeExist(source, target) || checkEdgeExist(target, source)) {
+            //Edge already exist
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void touchEdgeType(AbstractEdge absEdge) {
+        dhns.touchUndirected();
+    }
+
     public boolean addEdge(Node node1, Node node2) {
         AbstractNode absNode1 = checkNode(node1);
         AbstractNode absNode2 = checkNode(node2);
@@ -129,7 +145,12 @@ public class HierarchicalUndirectedGraphImpl extends HierarchicalGraphImpl imple
 
     public EdgeIterable getEdges() {
         readLock();
-        return dhns.newEdgeIterable(new EdgeIterator(structure, new TreeIterator(structure, true, Tautology.instance), true, enabledNodePredicate, Tautology.instance));
+        return dhns.newEdgeIterable(newEdgeIterator(new TreeIterator(structure, true, Tautology.instance)), view.getEdgesCountEnabled() - view.getMutualEdgesEnabled());
+    }
+
+    @Override
+    protected AbstractEdgeIterator newEdgeIterator(AbstractNodeIterator sourceIterator) {
+        return new EdgeIterator(structure, sourceIterator, true, enabledNodePredicate, Tautology.instance);
     }
 
     public EdgeIterable getEdgesTree() {
@@ -294,6 +315,11 @@ public class HierarchicalUndirectedGraphImpl extends HierarchicalGraphImpl imple
         return new HierarchicalUndirectedGraphImpl(dhns, view);
     }
 
+    @Override
+    protected AdjacencySnapshotImpl.Type getAdjacencySnapshotType() {
+        return AdjacencySnapshotImpl.Type.UNDIRECTED;
+    }
+
     public EdgeIterable getHierarchyEdges() {
         throw new UnsupportedOperationException("Not supported yet.");
     }
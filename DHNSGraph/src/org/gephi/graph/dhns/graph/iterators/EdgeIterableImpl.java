@@ -61,11 +61,21 @@ import org.gephi.graph.dhns.predicate.Predicate;
 public class EdgeIterableImpl implements EdgeIterable {
 
     private EdgeIteratorImpl iterator;
+    private int sizeHint = -1;
 
     public EdgeIterableImpl(AbstractEdgeIterator iterator, Lock lock) {
         this.iterator = new EdgeIteratorImpl(iterator, lock);
     }
 
+    /**
+     * Creates an iterable which <code>toArray()</code> allocates an array of
+     * <code>sizeHint</code> elements upfront.
+     */
+    public EdgeIterableImpl(AbstractEdgeIterator iterator, Lock lock, int sizeHint) {
+        this.iterator = new EdgeIteratorImpl(iterator, lock);
+        this.sizeHint = sizeHint;
+    }
+
     public EdgeIterableImpl(AbstractEdgeIterator iterator, Lock lock, Predicate<AbstractEdge> predicate) {
         this.iterator = new FilteredEdgeIteratorImpl(iterator, lock, predicate);
     }
@@ -85,11 +95,29 @@ public class EdgeIterableImpl implements EdgeIterable {
     }
 
     public Edge[] toArray() {
-        ArrayList<Edge> list = new ArrayList<Edge>();
+        if (sizeHint < 0) {
+            ArrayList<Edge> list = new ArrayList<Edge>();
+            for (; iterator.hasNext();) {
+                list.add(iterator.next());
+            }
+            return list.toArray(new Edge[0]);
+        }
+        Edge[] array = new Edge[sizeHint];
+        int size = 0;
         for (; iterator.hasNext();) {
-            list.add(iterator.next());
+            if (size == array.length) {
+                Edge[] newArray = new Edge[Math.max(16, size * 2)];
+                System.arraycopy(array, 0, newArray, 0, size);
+                array = newArray;
+            }
+            array[size++] = iterator.next();
+        }
+        if (size < array.length) {
+            Edge[] newArray = new Edge[size];
+            System.arraycopy(array, 0, newArray, 0, size);
+            array = newArray;
         }
-        return list.toArray(new Edge[0]);
+        return array;
     }
 
     public EdgeIteratorImpl getIterator() {
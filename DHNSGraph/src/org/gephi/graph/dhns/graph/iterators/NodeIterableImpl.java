@@ -60,11 +60,21 @@ import org.gephi.graph.dhns.predicate.Predicate;
 public class NodeIterableImpl implements NodeIterable {
 
     private NodeIteratorImpl iterator;
+    private int sizeHint = -1;
 
     public NodeIterableImpl(AbstractNodeIterator iterator, Lock lock) {
         this.iterator = new NodeIteratorImpl(iterator, lock);
     }
 
+    /**
+     * Creates an iterable which <code>toArray()</code> allocates an array of
+     * <code>sizeHint</code> elements upfront.
+     */
+    public NodeIterableImpl(AbstractNodeIterator iterator, Lock lock, int sizeHint) {
+        this.iterator = new NodeIteratorImpl(iterator, lock);
+        this.sizeHint = sizeHint;
+    }
+
     public NodeIterableImpl(AbstractNodeIterator iterator, Lock lock, Predicate<Node> predicate) {
         this.iterator = new FilteredNodeIteratorImpl(iterator, lock, predicate);
     }
@@ -84,11 +94,29 @@ public class NodeIterableImpl implements NodeIterable {
     }
 
     public Node[] toArray() {
-        ArrayList<Node> list = new ArrayList<Node>();
+        if (sizeHint < 0) {
+            ArrayList<Node> list = new ArrayList<Node>();
+            for (; iterator.hasNext();) {
+                list.add(iterator.next());
+            }
+            return list.toArray(new Node[0]);
+        }
+        Node[] array = new Node[sizeHint];
+        int size = 0;
         for (; iterator.hasNext();) {
-            list.add(iterator.next());
+            if (size == array.length) {
+                Node[] newArray = new Node[Math.max(16, size * 2)];
+                System.arraycopy(array, 0, newArray, 0, size);
+                array = newArray;
+            }
+            array[size++] = iterator.next();
+        }
+        if (size < array.length) {
+            Node[] newArray = new Node[size];
+            System.arraycopy(array, 0, newArray, 0, size);
+            array = newArray;
         }
-        return list.toArray(new Node[0]);
+        return array;
     }
 
     public NodeIteratorImpl getIterator() {
@@ -0,0 +1,124 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import org.gephi.graph.api.Attributes;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeData;
+import org.gephi.graph.api.Node;
+
+/**
+ * Flyweight edge over a record of a {@link MappedEdgeStore}. Instances are
+ * created on demand and two instances with the same id are equal.
+ */
+public class MappedEdge implements Edge {
+
+    private final MappedGraph graph;
+    private final int id;
+
+    public MappedEdge(MappedGraph graph, int id) {
+        this.graph = graph;
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public MappedGraph getGraph() {
+        return graph;
+    }
+
+    public Node getSource() {
+        return graph.getNodeAt(graph.getStore().getSource(id));
+    }
+
+    public Node getTarget() {
+        return graph.getNodeAt(graph.getStore().getTarget(id));
+    }
+
+    public float getWeight() {
+        return graph.getStore().getWeight(id);
+    }
+
+    public float getWeight(double low, double high) {
+        return getWeight();
+    }
+
+    public void setWeight(float weight) {
+        graph.setWeight(id, weight);
+    }
+
+    public boolean isDirected() {
+        return (graph.getStore().getFlags(id) & MappedEdgeStore.FLAG_DIRECTED) != 0;
+    }
+
+    public boolean isSelfLoop() {
+        return graph.getStore().getSource(id) == graph.getStore().getTarget(id);
+    }
+
+    public EdgeData getEdgeData() {
+        return new MappedEdgeData(this);
+    }
+
+    /**
+     * Mapped edges have no attributes.
+     * @return <code>null</code>
+     */
+    public Attributes getAttributes() {
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof MappedEdge) {
+            MappedEdge edge = (MappedEdge) obj;
+            return edge.id == id && edge.graph == graph;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * graph.hashCode() + id;
+    }
+}
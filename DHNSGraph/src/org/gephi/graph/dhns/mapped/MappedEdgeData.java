@@ -0,0 +1,186 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import org.gephi.graph.api.Attributes;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeData;
+import org.gephi.graph.api.Model;
+import org.gephi.graph.api.NodeData;
+import org.gephi.graph.api.TextData;
+import org.gephi.graph.spi.LayoutData;
+
+/**
+ * Edge data of a {@link MappedEdge}. Only the weight is stored, the size is
+ * the weight and other properties have default values and can't be modified.
+ */
+public class MappedEdgeData implements EdgeData {
+
+    private final MappedEdge edge;
+
+    public MappedEdgeData(MappedEdge edge) {
+        this.edge = edge;
+    }
+
+    public Edge getEdge() {
+        return edge;
+    }
+
+    public NodeData getSource() {
+        return edge.getSource().getNodeData();
+    }
+
+    public NodeData getTarget() {
+        return edge.getTarget().getNodeData();
+    }
+
+    public String getId() {
+        return null;
+    }
+
+    public String getLabel() {
+        return null;
+    }
+
+    public void setLabel(String label) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public <T extends LayoutData> T getLayoutData() {
+        return null;
+    }
+
+    public void setLayoutData(LayoutData layoutData) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public Attributes getAttributes() {
+        return null;
+    }
+
+    public float x() {
+        return (getSource().x() + 2 * getTarget().x()) / 3f;
+    }
+
+    public float y() {
+        return (getSource().y() + 2 * getTarget().y()) / 3f;
+    }
+
+    public float z() {
+        return (getSource().z() + 2 * getTarget().z()) / 3f;
+    }
+
+    public void setX(float x) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public void setY(float y) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public void setZ(float z) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public float getRadius() {
+        return 0;
+    }
+
+    public float getSize() {
+        return edge.getWeight();
+    }
+
+    public void setSize(float size) {
+        edge.setWeight(size);
+    }
+
+    /**
+     * Returns -1, mapped edges have no specific color.
+     */
+    public float r() {
+        return -1f;
+    }
+
+    public float g() {
+        return 0f;
+    }
+
+    public float b() {
+        return 0f;
+    }
+
+    public void setR(float r) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public void setG(float g) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public void setB(float b) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public void setColor(float r, float g, float b) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public float alpha() {
+        return 1f;
+    }
+
+    public void setAlpha(float alpha) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public Model getModel() {
+        return null;
+    }
+
+    public void setModel(Model obj) {
+        throw new UnsupportedOperationException("Mapped edges are read-only");
+    }
+
+    public TextData getTextData() {
+        return null;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import java.util.NoSuchElementException;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.EdgeIterator;
+
+/**
+ * Edge iterable over a range of ids in the out file of a
+ * {@link MappedEdgeStore}, followed by a range of the in file. Self-loops
+ * of the in range are skipped, as they are already in the out range when
+ * both ranges belong to the same node. Edges are created on demand.
+ */
+public class MappedEdgeIterable implements EdgeIterable {
+
+    private final MappedGraph graph;
+    private final MappedEdgeStore store;
+    private final int outTo;
+    private final int inTo;
+    private final boolean skipSelfLoops;
+    private final MappedEdgeIterator iterator;
+
+    public MappedEdgeIterable(MappedGraph graph, int outFrom, int outTo, int inFrom, int inTo, boolean skipSelfLoops) {
+        this.graph = graph;
+        this.store = graph.getStore();
+        this.outTo = outTo;
+        this.inTo = inTo;
+        this.skipSelfLoops = skipSelfLoops;
+        this.iterator = new MappedEdgeIterator(outFrom, inFrom);
+    }
+
+    public EdgeIterator iterator() {
+        return iterator;
+    }
+
+    public void doBreak() {
+        iterator.outIndex = outTo;
+        iterator.inIndex = inTo;
+        iterator.nextId = -1;
+    }
+
+    public Edge[] toArray() {
+        Edge[] array = new Edge[1 + Math.max(0, outTo - iterator.outIndex) + Math.max(0, inTo - iterator.inIndex)];
+        int size = 0;
+        while (iterator.hasNext()) {
+            array[size++] = iterator.next();
+        }
+        if (size < array.length) {
+            Edge[] newArray = new Edge[size];
+            System.arraycopy(array, 0, newArray, 0, size);
+            array = newArray;
+        }
+        return array;
+    }
+
+    private class MappedEdgeIterator implements EdgeIterator {
+
+        private int outIndex;
+        private int inIndex;
+        private int nextId = -1;
+
+        public MappedEdgeIterator(int outFrom, int inFrom) {
+            this.outIndex = outFrom;
+            this.inIndex = inFrom;
+        }
+
+        public boolean hasNext() {
+            if (nextId != -1) {
+                return true;
+            }
+            if (outIndex < outTo) {
+                nextId = outIndex++;
+                return true;
+            }
+            while (inIndex < inTo) {
+                int id = store.getInEdge(inIndex++);
+                if (!skipSelfLoops || store.getSource(id) != store.getTarget(id)) {
+                    nextId = id;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Edge next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MappedEdge edge = new MappedEdge(graph, nextId);
+            nextId = -1;
+            return edge;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Off-heap storage of edges in memory-mapped files. Edges are first appended
+ * to a log, then <code>build()</code> sorts them in two <b>Compressed Sparse
+ * Row</b> files:
+ * <ul><li>The out file holds source, target, weight and flags of each edge,
+ * grouped by source. The position of an edge in this file is its id.</li>
+ * <li>The in file holds edge ids grouped by target. Within a target, ids are
+ * sorted, hence by source, which allows binary searches.</li></ul>
+ * Only the offsets arrays, one integer per node, are kept on the heap.
+ */
+public class MappedEdgeStore {
+
+    public static final int DEFAULT_SEGMENT_SHIFT = 27;     //128 MB segments
+    public static final int FLAG_DIRECTED = 1;
+    //Records, in bytes
+    private static final int EDGE_RECORD = 16;
+    private static final int ID_RECORD = 4;
+    //Settings
+    private final File directory;
+    private final int segmentShift;
+    //Files
+    private MappedFile log;
+    private MappedFile out;
+    private MappedFile in;
+    //Offsets
+    private int[] outOffsets;
+    private int[] inOffsets;
+    private int edgeCount;
+
+    public MappedEdgeStore(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    public MappedEdgeStore(File directory, int segmentShift) throws IOException {
+        if (!directory.isDirectory()) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        if (segmentShift < 4 || segmentShift > 30) {
+            throw new IllegalArgumentException("Segment shift must be between 4 and 30");
+        }
+        this.directory = directory;
+        this.segmentShift = segmentShift;
+        this.log = new MappedFile(File.createTempFile("edges", ".log", directory), segmentShift);
+    }
+
+    public void append(int source, int target, float weight, int flags) throws IOException {
+        if (log == null) {
+            throw new IllegalStateException("The store has already been built");
+        }
+        if (edgeCount == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many edges");
+        }
+        long position = (long) edgeCount * EDGE_RECORD;
+        log.ensureCapacity(position + EDGE_RECORD);
+        writeEdge(log, position, source, target, weight, flags);
+        edgeCount++;
+    }
+
+    /**
+     * Sorts appended edges by source and by target, and deletes the log.
+     * Sources and targets must be lower than <code>nodeCount</code>.
+     */
+    public void build(int nodeCount) throws IOException {
+        if (log == null) {
+            throw new IllegalStateException("The store has already been built");
+        }
+        outOffsets = new int[nodeCount + 1];
+        inOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            long position = (long) i * EDGE_RECORD;
+            outOffsets[log.getInt(position) + 1]++;
+            inOffsets[log.getInt(position + 4) + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+            inOffsets[i + 1] += inOffsets[i];
+        }
+
+        //Scatter the log by source, keeping the append order within a source
+        out = new MappedFile(File.createTempFile("edges", ".out", directory), segmentShift);
+        out.ensureCapacity((long) edgeCount * EDGE_RECORD);
+        int[] cursors = new int[nodeCount];
+        System.arraycopy(outOffsets, 0, cursors, 0, nodeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            long position = (long) i * EDGE_RECORD;
+            int source = log.getInt(position);
+            int id = cursors[source]++;
+            writeEdge(out, (long) id * EDGE_RECORD, source, log.getInt(position + 4), log.getFloat(position + 8), log.getInt(position + 12));
+        }
+        log.close();
+        log = null;
+
+        //Ids are visited in increasing order, so they are sorted within each target
+        in = new MappedFile(File.createTempFile("edges", ".in", directory), segmentShift);
+        in.ensureCapacity((long) edgeCount * ID_RECORD);
+        System.arraycopy(inOffsets, 0, cursors, 0, nodeCount);
+        for (int id = 0; id < edgeCount; id++) {
+            int target = out.getInt((long) id * EDGE_RECORD + 4);
+            in.putInt((long) (cursors[target]++) * ID_RECORD, id);
+        }
+    }
+
+    private static void writeEdge(MappedFile file, long position, int source, int target, float weight, int flags) {
+        file.putInt(position, source);
+        file.putInt(position + 4, target);
+        file.putFloat(position + 8, weight);
+        file.putInt(position + 12, flags);
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public int getSource(int id) {
+        return out.getInt((long) id * EDGE_RECORD);
+    }
+
+    public int getTarget(int id) {
+        return out.getInt((long) id * EDGE_RECORD + 4);
+    }
+
+    public float getWeight(int id) {
+        return out.getFloat((long) id * EDGE_RECORD + 8);
+    }
+
+    public void setWeight(int id, float weight) {
+        out.putFloat((long) id * EDGE_RECORD + 8, weight);
+    }
+
+    public int getFlags(int id) {
+        return out.getInt((long) id * EDGE_RECORD + 12);
+    }
+
+    /**
+     * Returns the id of the edge at <code>index</code> in the in file.
+     */
+    public int getInEdge(int index) {
+        return in.getInt((long) index * ID_RECORD);
+    }
+
+    /**
+     * Returns offsets of out edges: edges of node <code>i</code> have ids
+     * between <code>offsets[i]</code> and <code>offsets[i + 1]</code>.
+     */
+    public int[] getOutOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * Returns offsets of in edges, in the in file.
+     */
+    public int[] getInOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * Returns the id of the first edge from <code>source</code> to
+     * <code>target</code>, or <code>-1</code> if not found.
+     */
+    public int findEdge(int source, int target) {
+        int low = inOffsets[target];
+        int high = inOffsets[target + 1] - 1;
+        int from = outOffsets[source];
+        int to = outOffsets[source + 1];
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = getInEdge(mid);
+            if (id < from) {
+                low = mid + 1;
+            } else if (id >= to) {
+                high = mid - 1;
+            } else {
+                //Walk back to the first edge from source
+                while (mid > inOffsets[target] && getInEdge(mid - 1) >= from) {
+                    mid--;
+                }
+                return getInEdge(mid);
+            }
+        }
+        return -1;
+    }
+
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+    }
+}
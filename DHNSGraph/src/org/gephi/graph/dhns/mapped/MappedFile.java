@@ -0,0 +1,119 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * File mapped in memory by segments of fixed size, so it can be larger than
+ * a single <code>MappedByteBuffer</code>. Positions are in bytes and values
+ * must not overlap two segments, which is the case as long as records have a
+ * power of two size.
+ */
+class MappedFile {
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final int segmentShift;
+    private final int segmentMask;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    public MappedFile(File file, int segmentShift) throws IOException {
+        this.file = file;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+    }
+
+    /**
+     * Maps segments until <code>size</code> bytes are available.
+     */
+    public void ensureCapacity(long size) throws IOException {
+        long segmentSize = 1L << segmentShift;
+        int count = (int) ((size + segmentSize - 1) >>> segmentShift);
+        if (count > segments.length) {
+            MappedByteBuffer[] newSegments = new MappedByteBuffer[count];
+            System.arraycopy(segments, 0, newSegments, 0, segments.length);
+            for (int i = segments.length; i < count; i++) {
+                newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentSize, segmentSize);
+                newSegments[i].order(ByteOrder.nativeOrder());
+            }
+            segments = newSegments;
+        }
+    }
+
+    public int getInt(long position) {
+        return segments[(int) (position >>> segmentShift)].getInt((int) position & segmentMask);
+    }
+
+    public void putInt(long position, int value) {
+        segments[(int) (position >>> segmentShift)].putInt((int) position & segmentMask, value);
+    }
+
+    public float getFloat(long position) {
+        return segments[(int) (position >>> segmentShift)].getFloat((int) position & segmentMask);
+    }
+
+    public void putFloat(long position, float value) {
+        segments[(int) (position >>> segmentShift)].putFloat((int) position & segmentMask, value);
+    }
+
+    /**
+     * Closes the file and deletes it. Mapped segments are only released by the
+     * garbage collector, so deletion is deferred to exit if the platform refuses it.
+     */
+    public void close() throws IOException {
+        segments = new MappedByteBuffer[0];
+        channel.close();
+        randomAccessFile.close();
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,782 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import gnu.trove.TIntHashSet;
+import gnu.trove.TIntIntHashMap;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.gephi.graph.api.AdjacencySnapshot;
+import org.gephi.graph.api.Attributes;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.HierarchicalDirectedGraph;
+import org.gephi.graph.api.ImmutableTreeNode;
+import org.gephi.graph.api.MetaEdge;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeIterable;
+import org.gephi.graph.dhns.core.AdjacencySnapshotImpl;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.node.AbstractNode;
+
+/**
+ * Read-only directed graph which edges are in a {@link MappedEdgeStore}.
+ * Nodes are kept in an array, their index in the array being their index in
+ * the store. The hierarchy is flat: all nodes are leaves at level 0 and there
+ * are no meta-edges.
+ * <p>
+ * The structure can't be modified, so iterables don't lock. Locks are still
+ * provided so callers can guard weight updates like with other graphs.
+ */
+public class MappedGraph implements HierarchicalDirectedGraph {
+
+    private final Dhns dhns;
+    private final MappedEdgeStore store;
+    private final AbstractNode[] nodes;
+    private final TIntIntHashMap indices;
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private volatile long writeCount;
+    private volatile int edgeVersion;
+    private Map<String, Integer> stringIndices;
+    private AdjacencySnapshotImpl snapshot;
+
+    public MappedGraph(Dhns dhns, MappedEdgeStore store, AbstractNode[] nodes, TIntIntHashMap indices) {
+        this.dhns = dhns;
+        this.store = store;
+        this.nodes = nodes;
+        this.indices = indices;
+    }
+
+    public MappedEdgeStore getStore() {
+        return store;
+    }
+
+    public Node getNodeAt(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Deletes the mapped files. The graph can't be used anymore.
+     */
+    public void close() throws IOException {
+        store.close();
+    }
+
+    void setWeight(int id, float weight) {
+        store.setWeight(id, weight);
+        edgeVersion++;
+    }
+
+    private int checkNode(Node node) {
+        if (node == null) {
+            throw new IllegalArgumentException("node can't be null");
+        }
+        int id = node.getId();
+        if (!indices.containsKey(id)) {
+            throw new IllegalArgumentException("Node must be in the graph");
+        }
+        return indices.get(id);
+    }
+
+    private int checkEdge(Edge edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("edge can't be null");
+        }
+        if (!(edge instanceof MappedEdge) || ((MappedEdge) edge).getGraph() != this) {
+            throw new IllegalArgumentException("Edge must be in the graph");
+        }
+        return edge.getId();
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    private NodeIterable emptyNodes() {
+        return new MappedNodeIterable(nodes, 0, 0);
+    }
+
+    private EdgeIterable emptyEdges() {
+        return new MappedEdgeIterable(this, 0, 0, 0, 0, false);
+    }
+
+    /**
+     * Returns distinct neighbors of the node at <code>index</code>, without
+     * itself like <code>NeighborIterator</code>.
+     */
+    private NodeIterable neighbors(int index, boolean out, boolean in) {
+        int[] outOffsets = store.getOutOffsets();
+        int[] inOffsets = store.getInOffsets();
+        TIntHashSet set = new TIntHashSet();
+        Node[] res = new Node[(out ? outOffsets[index + 1] - outOffsets[index] : 0) + (in ? inOffsets[index + 1] - inOffsets[index] : 0)];
+        int size = 0;
+        if (out) {
+            for (int i = outOffsets[index]; i < outOffsets[index + 1]; i++) {
+                int target = store.getTarget(i);
+                if (target != index && set.add(target)) {
+                    res[size++] = nodes[target];
+                }
+            }
+        }
+        if (in) {
+            for (int i = inOffsets[index]; i < inOffsets[index + 1]; i++) {
+                int source = store.getSource(store.getInEdge(i));
+                if (source != index && set.add(source)) {
+                    res[size++] = nodes[source];
+                }
+            }
+        }
+        return new MappedNodeIterable(res, 0, size);
+    }
+
+    //Graph
+    public boolean addEdge(Edge edge) {
+        throw readOnly();
+    }
+
+    public boolean addNode(Node node) {
+        throw readOnly();
+    }
+
+    public int bulkLoad(Node[] nodes, Edge[] edges) {
+        throw readOnly();
+    }
+
+    public boolean removeEdge(Edge edge) {
+        throw readOnly();
+    }
+
+    public boolean removeNode(Node node) {
+        throw readOnly();
+    }
+
+    public boolean contains(Node node) {
+        if (node == null) {
+            throw new NullPointerException();
+        }
+        return indices.containsKey(node.getId());
+    }
+
+    public boolean contains(Edge edge) {
+        if (edge == null) {
+            throw new NullPointerException();
+        }
+        return edge instanceof MappedEdge && ((MappedEdge) edge).getGraph() == this;
+    }
+
+    public Node getNode(int id) {
+        if (!indices.containsKey(id)) {
+            return null;
+        }
+        return nodes[indices.get(id)];
+    }
+
+    public synchronized Node getNode(String id) {
+        if (id == null) {
+            throw new NullPointerException();
+        }
+        if (stringIndices == null) {
+            stringIndices = new HashMap<String, Integer>(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                String nodeId = nodes[i].getNodeData().getId();
+                if (nodeId != null) {
+                    stringIndices.put(nodeId, i);
+                }
+            }
+        }
+        Integer index = stringIndices.get(id);
+        return index != null ? nodes[index] : null;
+    }
+
+    public Node[] getNodes(String[] ids) {
+        if (ids == null) {
+            throw new NullPointerException();
+        }
+        Node[] res = new Node[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            res[i] = ids[i] != null ? getNode(ids[i]) : null;
+        }
+        return res;
+    }
+
+    public Edge getEdge(int id) {
+        if (id < 0 || id >= store.getEdgeCount()) {
+            return null;
+        }
+        return new MappedEdge(this, id);
+    }
+
+    /**
+     * Mapped edges have no string identifier.
+     * @return <code>null</code>
+     */
+    public Edge getEdge(String id) {
+        if (id == null) {
+            throw new NullPointerException();
+        }
+        return null;
+    }
+
+    public Edge getEdge(Node source, Node target) {
+        if (source == null || target == null) {
+            return null;
+        }
+        int id = store.findEdge(checkNode(source), checkNode(target));
+        return id != -1 ? new MappedEdge(this, id) : null;
+    }
+
+    public NodeIterable getNodes() {
+        return new MappedNodeIterable(nodes, 0, nodes.length);
+    }
+
+    public EdgeIterable getEdges() {
+        return new MappedEdgeIterable(this, 0, store.getEdgeCount(), 0, 0, false);
+    }
+
+    public NodeIterable[] getNodeRanges(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        NodeIterable[] ranges = new NodeIterable[count];
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((long) nodes.length * i / count);
+            int to = (int) ((long) nodes.length * (i + 1) / count);
+            ranges[i] = new MappedNodeIterable(nodes, from, to);
+        }
+        return ranges;
+    }
+
+    public EdgeIterable[] getEdgeRanges(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        int[] outOffsets = store.getOutOffsets();
+        EdgeIterable[] ranges = new EdgeIterable[count];
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((long) nodes.length * i / count);
+            int to = (int) ((long) nodes.length * (i + 1) / count);
+            ranges[i] = new MappedEdgeIterable(this, outOffsets[from], outOffsets[to], 0, 0, false);
+        }
+        return ranges;
+    }
+
+    public NodeIterable getNeighbors(Node node) {
+        return neighbors(checkNode(node), true, true);
+    }
+
+    public EdgeIterable getEdges(Node node) {
+        int index = checkNode(node);
+        int[] outOffsets = store.getOutOffsets();
+        int[] inOffsets = store.getInOffsets();
+        return new MappedEdgeIterable(this, outOffsets[index], outOffsets[index + 1], inOffsets[index], inOffsets[index + 1], true);
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public int getEdgeCount() {
+        return store.getEdgeCount();
+    }
+
+    public int getNodeVersion() {
+        return 0;
+    }
+
+    public int getEdgeVersion() {
+        return edgeVersion;
+    }
+
+    public Node getOpposite(Node node, Edge edge) {
+        int index = checkNode(node);
+        int id = checkEdge(edge);
+        if (store.getSource(id) == index) {
+            return nodes[store.getTarget(id)];
+        } else if (store.getTarget(id) == index) {
+            return nodes[store.getSource(id)];
+        }
+        throw new IllegalArgumentException("Node must be either source or target of the edge.");
+    }
+
+    public int getDegree(Node node) {
+        return getInDegree(node) + getOutDegree(node);
+    }
+
+    public boolean isSelfLoop(Edge edge) {
+        int id = checkEdge(edge);
+        return store.getSource(id) == store.getTarget(id);
+    }
+
+    public boolean isDirected(Edge edge) {
+        int id = checkEdge(edge);
+        return (store.getFlags(id) & MappedEdgeStore.FLAG_DIRECTED) != 0;
+    }
+
+    public boolean isAdjacent(Node node1, Node node2) {
+        if (node1 == node2) {
+            throw new IllegalArgumentException("Nodes can't be the same");
+        }
+        return isSuccessor(node1, node2) || isPredecessor(node1, node2);
+    }
+
+    public boolean isAdjacent(Edge edge1, Edge edge2) {
+        if (edge1 == edge2) {
+            throw new IllegalArgumentException("Edges can't be the same");
+        }
+        int id1 = checkEdge(edge1);
+        int id2 = checkEdge(edge2);
+        int source1 = store.getSource(id1);
+        int target1 = store.getTarget(id1);
+        int source2 = store.getSource(id2);
+        int target2 = store.getTarget(id2);
+        return source1 == source2 || source1 == target2 || target1 == source2 || target1 == target2;
+    }
+
+    public void clearEdges(Node node) {
+        throw readOnly();
+    }
+
+    public void clear() {
+        throw readOnly();
+    }
+
+    public void clearEdges() {
+        throw readOnly();
+    }
+
+    public void setId(Node node, String id) {
+        throw readOnly();
+    }
+
+    public void setId(Edge edge, String id) {
+        throw readOnly();
+    }
+
+    public void readLock() {
+        readWriteLock.readLock().lock();
+    }
+
+    public void readUnlock() {
+        readWriteLock.readLock().unlock();
+    }
+
+    public void readUnlockAll() {
+        for (int i = readWriteLock.getReadHoldCount(); i > 0; i--) {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    public void writeLock() {
+        if (readWriteLock.getReadHoldCount() > 0) {
+            throw new IllegalMonitorStateException("Impossible to acquire a write lock when currently holding a read lock. Use toArray() methods on NodeIterable and EdgeIterable to avoid holding a readLock.");
+        }
+        readWriteLock.writeLock().lock();
+        writeCount++;
+    }
+
+    public void writeUnlock() {
+        readWriteLock.writeLock().unlock();
+    }
+
+    public long tryOptimisticRead() {
+        if (readWriteLock.isWriteLocked()) {
+            return 0;
+        }
+        return writeCount + 1;
+    }
+
+    public boolean validate(long stamp) {
+        return stamp != 0 && !readWriteLock.isWriteLocked() && writeCount + 1 == stamp;
+    }
+
+    public GraphModel getGraphModel() {
+        return dhns;
+    }
+
+    /**
+     * Returns the main view of the model, which nodes of this graph have
+     * been created in.
+     */
+    public GraphView getView() {
+        return dhns.getGraphStructure().getMainView();
+    }
+
+    public Attributes getAttributes() {
+        return dhns.getGraphStructure().getMainView().getAttributes();
+    }
+
+    //Directed
+    public boolean addEdge(Node source, Node target) {
+        throw readOnly();
+    }
+
+    public EdgeIterable getInEdges(Node node) {
+        int index = checkNode(node);
+        int[] inOffsets = store.getInOffsets();
+        return new MappedEdgeIterable(this, 0, 0, inOffsets[index], inOffsets[index + 1], false);
+    }
+
+    public EdgeIterable getOutEdges(Node node) {
+        int index = checkNode(node);
+        int[] outOffsets = store.getOutOffsets();
+        return new MappedEdgeIterable(this, outOffsets[index], outOffsets[index + 1], 0, 0, false);
+    }
+
+    public NodeIterable getSuccessors(Node node) {
+        return neighbors(checkNode(node), true, false);
+    }
+
+    public NodeIterable getPredecessors(Node node) {
+        return neighbors(checkNode(node), false, true);
+    }
+
+    public boolean isSuccessor(Node node, Node successor) {
+        return store.findEdge(checkNode(node), checkNode(successor)) != -1;
+    }
+
+    public boolean isPredecessor(Node node, Node predecessor) {
+        return store.findEdge(checkNode(predecessor), checkNode(node)) != -1;
+    }
+
+    public int getInDegree(Node node) {
+        int index = checkNode(node);
+        int[] inOffsets = store.getInOffsets();
+        return inOffsets[index + 1] - inOffsets[index];
+    }
+
+    public int getOutDegree(Node node) {
+        int index = checkNode(node);
+        int[] outOffsets = store.getOutOffsets();
+        return outOffsets[index + 1] - outOffsets[index];
+    }
+
+    public int getMutualDegree(Node node) {
+        int index = checkNode(node);
+        int[] outOffsets = store.getOutOffsets();
+        int count = 0;
+        for (int i = outOffsets[index]; i < outOffsets[index + 1]; i++) {
+            int target = store.getTarget(i);
+            if (target != index && store.findEdge(target, index) != -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //Hierarchical
+    public boolean addNode(Node node, Node parent) {
+        throw readOnly();
+    }
+
+    public int bulkLoad(Node[] nodes, Node[] parents, Edge[] edges) {
+        throw readOnly();
+    }
+
+    public boolean removeMetaEdge(Edge metaEdge) {
+        throw readOnly();
+    }
+
+    public int getChildrenCount(Node node) {
+        checkNode(node);
+        return 0;
+    }
+
+    public int getDescendantCount(Node node) {
+        checkNode(node);
+        return 0;
+    }
+
+    public Node getParent(Node node) {
+        checkNode(node);
+        return null;
+    }
+
+    public NodeIterable getChildren(Node node) {
+        checkNode(node);
+        return emptyNodes();
+    }
+
+    public NodeIterable getDescendant(Node node) {
+        checkNode(node);
+        return emptyNodes();
+    }
+
+    public EdgeIterable getInnerEdges(Node nodeGroup) {
+        checkNode(nodeGroup);
+        return emptyEdges();
+    }
+
+    public EdgeIterable getOuterEdges(Node nodeGroup) {
+        return getEdges(nodeGroup);
+    }
+
+    public NodeIterable getTopNodes() {
+        return getNodes();
+    }
+
+    public NodeIterable getNodesTree() {
+        return getNodes();
+    }
+
+    public EdgeIterable getEdgesTree() {
+        return getEdges();
+    }
+
+    public int getTotalEdgeCount() {
+        return getEdgeCount();
+    }
+
+    public NodeIterable getNodes(int level) {
+        if (level != 0) {
+            throw new IllegalArgumentException("Level must be between 0 and the height of the tree, currently height=0");
+        }
+        return getNodes();
+    }
+
+    public int getLevelSize(int level) {
+        if (level != 0) {
+            throw new IllegalArgumentException("Level must be between 0 and the height of the tree, currently height=0");
+        }
+        return nodes.length;
+    }
+
+    public boolean isDescendant(Node node, Node descendant) {
+        checkNode(node);
+        checkNode(descendant);
+        return false;
+    }
+
+    public boolean isAncestor(Node node, Node ancestor) {
+        checkNode(node);
+        checkNode(ancestor);
+        return false;
+    }
+
+    public boolean isFollowing(Node node, Node following) {
+        return checkNode(following) > checkNode(node);
+    }
+
+    public boolean isPreceding(Node node, Node preceding) {
+        return checkNode(preceding) < checkNode(node);
+    }
+
+    public boolean isParent(Node node, Node parent) {
+        checkNode(node);
+        checkNode(parent);
+        return false;
+    }
+
+    public int getHeight() {
+        return 0;
+    }
+
+    public int getLevel(Node node) {
+        checkNode(node);
+        return 0;
+    }
+
+    public void moveToGroup(Node node, Node nodeGroup) {
+        throw readOnly();
+    }
+
+    public void removeFromGroup(Node node) {
+        throw readOnly();
+    }
+
+    public Node groupNodes(Node[] nodes) {
+        throw readOnly();
+    }
+
+    public void ungroupNodes(Node nodeGroup) {
+        throw readOnly();
+    }
+
+    public Node[] groupNodes(Node[][] groups) {
+        throw readOnly();
+    }
+
+    public void ungroupNodes(Node[] nodeGroups) {
+        throw readOnly();
+    }
+
+    public void flatten() {
+        //Already flat
+    }
+
+    public EdgeIterable getHierarchyEdges() {
+        return emptyEdges();
+    }
+
+    public ImmutableTreeNode wrapToTreeNode() {
+        throw new UnsupportedOperationException("Mapped graphs have no tree");
+    }
+
+    public boolean expand(Node node) {
+        checkNode(node);
+        return false;
+    }
+
+    public boolean retract(Node node) {
+        checkNode(node);
+        return false;
+    }
+
+    public boolean isInView(Node node) {
+        return contains(node);
+    }
+
+    public void resetViewToLeaves() {
+    }
+
+    public void resetViewToTopNodes() {
+    }
+
+    public void resetViewToLevel(int level) {
+        if (level != 0) {
+            throw new IllegalArgumentException("Level must be between 0 and the height of the tree, currently height=0");
+        }
+    }
+
+    public EdgeIterable getMetaEdges() {
+        return emptyEdges();
+    }
+
+    public EdgeIterable getEdgesAndMetaEdges() {
+        return getEdges();
+    }
+
+    public EdgeIterable getMetaEdges(Node nodeGroup) {
+        checkNode(nodeGroup);
+        return emptyEdges();
+    }
+
+    public EdgeIterable getEdgesAndMetaEdges(Node node) {
+        return getEdges(node);
+    }
+
+    public MetaEdge getMetaEdge(Node source, Node target) {
+        checkNode(source);
+        checkNode(target);
+        return null;
+    }
+
+    public int getMetaDegree(Node node) {
+        checkNode(node);
+        return 0;
+    }
+
+    public int getTotalDegree(Node node) {
+        return getDegree(node);
+    }
+
+    public void clearMetaEdges(Node node) {
+        throw readOnly();
+    }
+
+    /**
+     * Copies the mapped adjacency in heap arrays. Edges are all considered
+     * directed, whatever their flag.
+     */
+    public synchronized AdjacencySnapshot getAdjacencySnapshot() {
+        int version = edgeVersion;
+        if (snapshot != null && snapshot.getEdgeVersion() == version) {
+            return snapshot;
+        }
+        int edgeCount = store.getEdgeCount();
+        int[] outNeighbors = new int[edgeCount];
+        float[] outWeights = new float[edgeCount];
+        int[] inNeighbors = new int[edgeCount];
+        float[] inWeights = new float[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            outNeighbors[i] = store.getTarget(i);
+            outWeights[i] = store.getWeight(i);
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            int id = store.getInEdge(i);
+            inNeighbors[i] = store.getSource(id);
+            inWeights[i] = outWeights[id];
+        }
+        snapshot = new AdjacencySnapshotImpl(nodes, indices, store.getOutOffsets(), outNeighbors, outWeights, store.getInOffsets(), inNeighbors, inWeights, 0, version);
+        return snapshot;
+    }
+
+    //Hierarchical directed
+    public EdgeIterable getMetaInEdges(Node node) {
+        checkNode(node);
+        return emptyEdges();
+    }
+
+    public EdgeIterable getInEdgesAndMetaInEdges(Node node) {
+        return getInEdges(node);
+    }
+
+    public EdgeIterable getMetaOutEdges(Node node) {
+        checkNode(node);
+        return emptyEdges();
+    }
+
+    public EdgeIterable getOutEdgesAndMetaOutEdges(Node node) {
+        return getOutEdges(node);
+    }
+
+    public int getMetaInDegree(Node node) {
+        checkNode(node);
+        return 0;
+    }
+
+    public int getTotalInDegree(Node node) {
+        return getInDegree(node);
+    }
+
+    public int getTotalOutDegree(Node node) {
+        return getOutDegree(node);
+    }
+
+    public int getMetaOutDegree(Node node) {
+        checkNode(node);
+        return 0;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import gnu.trove.TIntIntHashMap;
+import java.io.File;
+import java.io.IOException;
+import org.gephi.graph.api.HierarchicalDirectedGraph;
+import org.gephi.graph.api.MappedGraphBuilder;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.node.AbstractNode;
+
+/**
+ * Implementation of the mapped graph builder, appends edges to a
+ * {@link MappedEdgeStore} and creates a {@link MappedGraph}.
+ */
+public class MappedGraphBuilderImpl implements MappedGraphBuilder {
+
+    private final Dhns dhns;
+    private MappedEdgeStore store;
+    private AbstractNode[] nodes = new AbstractNode[16];
+    private int nodeCount;
+    private final TIntIntHashMap indices = new TIntIntHashMap();
+
+    public MappedGraphBuilderImpl(Dhns dhns, File directory) throws IOException {
+        this(dhns, new MappedEdgeStore(directory));
+    }
+
+    public MappedGraphBuilderImpl(Dhns dhns, MappedEdgeStore store) {
+        this.dhns = dhns;
+        this.store = store;
+    }
+
+    public int addNode(Node node) {
+        checkNotBuilt();
+        if (node == null) {
+            throw new NullPointerException();
+        }
+        int id = node.getId();
+        if (indices.containsKey(id)) {
+            return indices.get(id);
+        }
+        if (nodeCount == nodes.length) {
+            AbstractNode[] newNodes = new AbstractNode[nodes.length * 2];
+            System.arraycopy(nodes, 0, newNodes, 0, nodeCount);
+            nodes = newNodes;
+        }
+        nodes[nodeCount] = (AbstractNode) node;
+        indices.put(id, nodeCount);
+        return nodeCount++;
+    }
+
+    public void addEdge(int source, int target, float weight, boolean directed) throws IOException {
+        checkNotBuilt();
+        if (source < 0 || source >= nodeCount || target < 0 || target >= nodeCount) {
+            throw new IllegalArgumentException("Source and target must be node indices");
+        }
+        store.append(source, target, weight, directed ? MappedEdgeStore.FLAG_DIRECTED : 0);
+    }
+
+    public void addEdge(Node source, Node target, float weight, boolean directed) throws IOException {
+        if (source == null || target == null) {
+            throw new NullPointerException();
+        }
+        if (!indices.containsKey(source.getId()) || !indices.containsKey(target.getId())) {
+            throw new IllegalArgumentException("Source and target must have been added");
+        }
+        addEdge(indices.get(source.getId()), indices.get(target.getId()), weight, directed);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return store != null ? store.getEdgeCount() : 0;
+    }
+
+    public HierarchicalDirectedGraph build() throws IOException {
+        checkNotBuilt();
+        if (nodeCount != nodes.length) {
+            AbstractNode[] newNodes = new AbstractNode[nodeCount];
+            System.arraycopy(nodes, 0, newNodes, 0, nodeCount);
+            nodes = newNodes;
+        }
+        store.build(nodeCount);
+        MappedGraph graph = new MappedGraph(dhns, store, nodes, indices);
+        store = null;
+        return graph;
+    }
+
+    private void checkNotBuilt() {
+        if (store == null) {
+            throw new IllegalStateException("The graph has already been built");
+        }
+    }
+}
@@ -63,16 +63,10 @@ public class NodeDataImpl implements NodeData, GroupData {
     protected final ViewNodeTree nodes;
     //NodeData
     protected LayoutData layoutData;
-    protected float x;
-    protected float y;
-    protected float z;
-    protected float r = 0.6f;
-    protected float g = 0.6f;
-    protected float b = 0.6f;
-    protected float alpha = 1f;
-    protected float size = 1f;
+    protected final NodeDataStoreImpl store;
+    protected final int index;
+    protected final Values values;
     protected Model model;
-    protected boolean fixed;
     protected String label;
     protected Attributes attributes;
     protected TextData textData;
@@ -84,8 +78,50 @@ public class NodeDataImpl implements NodeData, GroupData {
             this.nodes.add(rootNode);
         }
         this.ID = ID;
-        this.x = (float) ((0.01 + Math.random()) * 1000) - 500;
-        this.y = (float) ((0.01 + Math.random()) * 1000) - 500;
+        this.store = null;
+        this.index = -1;
+        this.values = new Values();
+        this.values.x = (float) ((0.01 + Math.random()) * 1000) - 500;
+        this.values.y = (float) ((0.01 + Math.random()) * 1000) - 500;
+    }
+
+    public NodeDataImpl(int ID, AbstractNode rootNode, NodeDataStoreImpl store) {
+        this.nodes = new ViewNodeTree();
+        if (rootNode != null) {
+            this.nodes.add(rootNode);
+        }
+        this.ID = ID;
+        this.store = store;
+        this.index = store.allocate(this);
+        this.values = null;
+    }
+
+    /**
+     * Creates a node data which takes the slot at <code>index</code> in
+     * <code>store</code>, and the values it already has.
+     */
+    public NodeDataImpl(int ID, AbstractNode rootNode, NodeDataStoreImpl store, int index) {
+        this.nodes = new ViewNodeTree();
+        if (rootNode != null) {
+            this.nodes.add(rootNode);
+        }
+        this.ID = ID;
+        this.store = store;
+        this.index = index;
+        this.values = null;
+        store.adopt(this, index);
+    }
+
+    /**
+     * Removes this node data from the store, which doesn't return it anymore.
+     * It keeps its slot until it is garbage collected, so that accessors
+     * called concurrently never read or write the slot of another node.
+     * Does nothing if not stored.
+     */
+    public void detach() {
+        if (store != null) {
+            store.retire(this);
+        }
     }
 
     public int getID() {
@@ -125,29 +161,56 @@ public class NodeDataImpl implements NodeData, GroupData {
     }
 
     public float x() {
-        return x;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.x;
+        }
+        return s.getBlockOf(index).x[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public float y() {
-        return y;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.y;
+        }
+        return s.getBlockOf(index).y[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public float z() {
-        return z;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.z;
+        }
+        return s.getBlockOf(index).z[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public void setX(float x) {
-        this.x = x;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.x = x;
+        } else {
+            s.getWritableBlockOf(index).x[index & NodeDataStoreImpl.BLOCK_MASK] = x;
+        }
         updatePositionFlag();
     }
 
     public void setY(float y) {
-        this.y = y;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.y = y;
+        } else {
+            s.getWritableBlockOf(index).y[index & NodeDataStoreImpl.BLOCK_MASK] = y;
+        }
         updatePositionFlag();
     }
 
     public void setZ(float z) {
-        this.z = z;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.z = z;
+        } else {
+            s.getWritableBlockOf(index).z[index & NodeDataStoreImpl.BLOCK_MASK] = z;
+        }
         updatePositionFlag();
     }
 
@@ -162,45 +225,94 @@ public class NodeDataImpl implements NodeData, GroupData {
      * @return Size of the node
      */
     public float getRadius() {
-        return size;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.size;
+        }
+        return s.getBlockOf(index).size[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public float getSize() {
-        return size;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.size;
+        }
+        return s.getBlockOf(index).size[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public void setSize(float size) {
-        this.size = size;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.size = size;
+        } else {
+            s.getWritableBlockOf(index).size[index & NodeDataStoreImpl.BLOCK_MASK] = size;
+        }
     }
 
     public float r() {
-        return r;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.r;
+        }
+        return s.getBlockOf(index).r[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public float g() {
-        return g;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.g;
+        }
+        return s.getBlockOf(index).g[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public float b() {
-        return b;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.b;
+        }
+        return s.getBlockOf(index).b[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public void setR(float r) {
-        this.r = r;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.r = r;
+        } else {
+            s.getWritableBlockOf(index).r[index & NodeDataStoreImpl.BLOCK_MASK] = r;
+        }
     }
 
     public void setG(float g) {
-        this.g = g;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.g = g;
+        } else {
+            s.getWritableBlockOf(index).g[index & NodeDataStoreImpl.BLOCK_MASK] = g;
+        }
     }
 
     public void setB(float b) {
-        this.b = b;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.b = b;
+        } else {
+            s.getWritableBlockOf(index).b[index & NodeDataStoreImpl.BLOCK_MASK] = b;
+        }
     }
 
     public void setColor(float r, float g, float b) {
-        this.r = r;
-        this.g = g;
-        this.b = b;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.r = r;
+            values.g = g;
+            values.b = b;
+        } else {
+            NodeDataStoreImpl.Block writable = s.getWritableBlockOf(index);
+            int offset = index & NodeDataStoreImpl.BLOCK_MASK;
+            writable.r[offset] = r;
+            writable.g[offset] = g;
+            writable.b[offset] = b;
+        }
     }
 
     public void setLabel(String label) {
@@ -212,11 +324,20 @@ public class NodeDataImpl implements NodeData, GroupData {
     }
 
     public float alpha() {
-        return alpha;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.alpha;
+        }
+        return s.getBlockOf(index).alpha[index & NodeDataStoreImpl.BLOCK_MASK];
     }
 
     public void setAlpha(float alpha) {
-        this.alpha = alpha;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.alpha = alpha;
+        } else {
+            s.getWritableBlockOf(index).alpha[index & NodeDataStoreImpl.BLOCK_MASK] = alpha;
+        }
     }
 
     public Model getModel() {
@@ -252,11 +373,20 @@ public class NodeDataImpl implements NodeData, GroupData {
     }
 
     public boolean isFixed() {
-        return fixed;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            return values.fixed;
+        }
+        return s.getBlockOf(index).isFixed(index & NodeDataStoreImpl.BLOCK_MASK);
     }
 
     public void setFixed(boolean fixed) {
-        this.fixed = fixed;
+        NodeDataStoreImpl s = store;
+        if (s == null) {
+            values.fixed = fixed;
+        } else {
+            s.getWritableBlockOf(index).setFixed(index & NodeDataStoreImpl.BLOCK_MASK, fixed);
+        }
     }
 
     public TextData getTextData() {
@@ -274,4 +404,20 @@ public class NodeDataImpl implements NodeData, GroupData {
     public void setHullModel(Model hullModel) {
         this.hullModel = hullModel;
     }
+
+    /**
+     * Values of a node data which is not in a store.
+     */
+    static final class Values {
+
+        float x;
+        float y;
+        float z;
+        float r = 0.6f;
+        float g = 0.6f;
+        float b = 0.6f;
+        float alpha = 1f;
+        float size = 1f;
+        boolean fixed;
+    }
 }
@@ -0,0 +1,432 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.node;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.gephi.graph.api.Model;
+import org.gephi.graph.api.NodeData;
+import org.gephi.graph.api.NodeDataStore;
+
+/**
+ * Column storage of node data values, in blocks of <code>BLOCK_SIZE</code>
+ * slots, which never move. Node data only keep the store and their slot index.
+ * It doesn't save memory: columns take as much as the inline fields they
+ * replace, but layouts and renderers can work on arrays.
+ * <p>
+ * Slots are allocated when node data are created by the factory. When nodes
+ * are deleted from the main view, their node data is retired: the store
+ * doesn't return it anymore, but it keeps its slot and stays usable. The slot
+ * is only freed once the node data is garbage collected, so accessors which
+ * run without lock never touch a slot given to another node.
+ * <p>
+ * When a graph is duplicated, the destination store can share the blocks of
+ * the source store with <code>share()</code>. Shared blocks are copied on
+ * first write, by either side, so only the blocks which are modified take
+ * memory in each store.
+ *
+ */
+public class NodeDataStoreImpl implements NodeDataStore {
+
+    public static final int BLOCK_SHIFT = 12;
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private volatile Block[] blocks = new Block[0];
+    private volatile NodeDataImpl[][] owners = new NodeDataImpl[0][];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int bound;
+    private final ReferenceQueue<NodeDataImpl> retiredQueue = new ReferenceQueue<NodeDataImpl>();
+    private final Set<RetiredSlot> retiredSlots = new HashSet<RetiredSlot>();
+
+    synchronized int allocate(NodeDataImpl owner) {
+        reclaimRetiredSlots();
+        int index;
+        if (freeCount > 0) {
+            index = freeSlots[--freeCount];
+        } else {
+            index = bound++;
+            int blockIndex = index >>> BLOCK_SHIFT;
+            if (blockIndex >= blocks.length) {
+                Block[] newBlocks = new Block[blockIndex + 1];
+                NodeDataImpl[][] newOwners = new NodeDataImpl[blockIndex + 1][];
+                System.arraycopy(blocks, 0, newBlocks, 0, blocks.length);
+                System.arraycopy(owners, 0, newOwners, 0, owners.length);
+                newBlocks[blockIndex] = new Block(BLOCK_SIZE);
+                newOwners[blockIndex] = new NodeDataImpl[BLOCK_SIZE];
+                owners = newOwners;
+                blocks = newBlocks;
+            }
+        }
+        materialize(index).reset(index & BLOCK_MASK);
+        owners[index >>> BLOCK_SHIFT][index & BLOCK_MASK] = owner;
+        return index;
+    }
+
+    synchronized void adopt(NodeDataImpl owner, int index) {
+        if (index < 0 || index >= bound || owners[index >>> BLOCK_SHIFT][index & BLOCK_MASK] != null) {
+            throw new IllegalArgumentException("The slot " + index + " is not available");
+        }
+        owners[index >>> BLOCK_SHIFT][index & BLOCK_MASK] = owner;
+    }
+
+    /**
+     * Removes <code>owner</code> from its slot, which is freed once the node
+     * data is garbage collected.
+     */
+    synchronized void retire(NodeDataImpl owner) {
+        int index = owner.index;
+        if (owners[index >>> BLOCK_SHIFT][index & BLOCK_MASK] == owner) {
+            owners[index >>> BLOCK_SHIFT][index & BLOCK_MASK] = null;
+            retiredSlots.add(new RetiredSlot(owner, retiredQueue));
+        }
+    }
+
+    private void reclaimRetiredSlots() {
+        RetiredSlot slot;
+        while ((slot = (RetiredSlot) retiredQueue.poll()) != null) {
+            retiredSlots.remove(slot);
+            release(slot.index);
+        }
+    }
+
+    private void release(int index) {
+        if (freeCount == freeSlots.length) {
+            int[] newArray = new int[freeSlots.length * 2];
+            System.arraycopy(freeSlots, 0, newArray, 0, freeCount);
+            freeSlots = newArray;
+        }
+        freeSlots[freeCount++] = index;
+    }
+
+    Block getBlockOf(int index) {
+        return blocks[index >>> BLOCK_SHIFT];
+    }
+
+    /**
+     * Returns the block of the slot at <code>index</code>, which is first
+     * copied if it is shared with another store.
+     */
+    Block getWritableBlockOf(int index) {
+        int blockIndex = index >>> BLOCK_SHIFT;
+        Block block = blocks[blockIndex];
+        //The block may have been replaced by a private copy since it was read,
+        //it then belongs to the other store even if it isn't shared anymore
+        if (block.sharers > 1 || blocks[blockIndex] != block) {
+            block = materialize(index);
+        }
+        return block;
+    }
+
+    /**
+     * Returns the block of the slot at <code>index</code>, after copying it if
+     * it is shared with another store.
+     */
+    synchronized Block materialize(int index) {
+        int blockIndex = index >>> BLOCK_SHIFT;
+        Block block = blocks[blockIndex];
+        if (block.sharers > 1) {
+            //The copy replaces the block before it stops being shared, so
+            //writers never see it private while this store still uses it
+            Block copy = block.copy();
+            Block[] newBlocks = blocks.clone();
+            newBlocks[blockIndex] = copy;
+            blocks = newBlocks;
+            block.unshare();
+            return copy;
+        }
+        return block;
+    }
+
+    /**
+     * Shares the blocks of <code>source</code> with this store, which must be
+     * empty. Slots keep their indices, so node data can then take the slot of
+     * the node data they copy with {@link NodeDataImpl#NodeDataImpl(int, AbstractNode, NodeDataStoreImpl, int)}.
+     * Call <code>releaseUnusedSlots()</code> once done.
+     * @param source the store to share blocks with
+     * @throws IllegalStateException if this store is not empty
+     */
+    public synchronized void share(NodeDataStoreImpl source) {
+        if (bound > 0) {
+            throw new IllegalStateException("The store is not empty");
+        }
+        synchronized (source) {
+            Block[] sourceBlocks = source.blocks;
+            Block[] newBlocks = new Block[sourceBlocks.length];
+            NodeDataImpl[][] newOwners = new NodeDataImpl[sourceBlocks.length][];
+            for (int i = 0; i < sourceBlocks.length; i++) {
+                newBlocks[i] = sourceBlocks[i].share();
+                newOwners[i] = new NodeDataImpl[BLOCK_SIZE];
+            }
+            bound = source.bound;
+            owners = newOwners;
+            blocks = newBlocks;
+        }
+    }
+
+    /**
+     * Frees slots below the bound which have no node data, after node data
+     * took their slot in shared blocks.
+     */
+    public synchronized void releaseUnusedSlots() {
+        freeCount = 0;
+        for (int i = bound - 1; i >= 0; i--) {
+            if (owners[i >>> BLOCK_SHIFT][i & BLOCK_MASK] == null) {
+                if (freeCount == freeSlots.length) {
+                    int[] newArray = new int[freeSlots.length * 2];
+                    System.arraycopy(freeSlots, 0, newArray, 0, freeCount);
+                    freeSlots = newArray;
+                }
+                freeSlots[freeCount++] = i;
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return BLOCK_SIZE;
+    }
+
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    public synchronized int getSlotBound() {
+        return bound;
+    }
+
+    public int getSharedBlockCount() {
+        Block[] b = blocks;
+        int count = 0;
+        for (int i = 0; i < b.length; i++) {
+            if (b[i].sharers > 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getPrivateMemory() {
+        Block[] b = blocks;
+        long memory = 0;
+        for (int i = 0; i < b.length; i++) {
+            if (b[i].sharers == 1) {
+                memory += b[i].getMemory();
+            }
+        }
+        return memory;
+    }
+
+    public int getIndex(NodeData nodeData) {
+        if (nodeData instanceof NodeDataImpl) {
+            NodeDataImpl nodeDataImpl = (NodeDataImpl) nodeData;
+            int index = nodeDataImpl.index;
+            if (nodeDataImpl.store == this && owners[index >>> BLOCK_SHIFT][index & BLOCK_MASK] == nodeDataImpl) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public NodeData getNodeData(int index) {
+        NodeDataImpl[][] o = owners;
+        if (index < 0 || (index >>> BLOCK_SHIFT) >= o.length) {
+            return null;
+        }
+        return o[index >>> BLOCK_SHIFT][index & BLOCK_MASK];
+    }
+
+    public float[] getX(int block) {
+        return materialize(block << BLOCK_SHIFT).x;
+    }
+
+    public float[] getY(int block) {
+        return materialize(block << BLOCK_SHIFT).y;
+    }
+
+    public float[] getZ(int block) {
+        return materialize(block << BLOCK_SHIFT).z;
+    }
+
+    public float[] getR(int block) {
+        return materialize(block << BLOCK_SHIFT).r;
+    }
+
+    public float[] getG(int block) {
+        return materialize(block << BLOCK_SHIFT).g;
+    }
+
+    public float[] getB(int block) {
+        return materialize(block << BLOCK_SHIFT).b;
+    }
+
+    public float[] getAlpha(int block) {
+        return materialize(block << BLOCK_SHIFT).alpha;
+    }
+
+    public float[] getSize(int block) {
+        return materialize(block << BLOCK_SHIFT).size;
+    }
+
+    public boolean isFixed(int index) {
+        return blocks[index >>> BLOCK_SHIFT].isFixed(index & BLOCK_MASK);
+    }
+
+    public void commitPositions() {
+        NodeDataImpl[][] o = owners;
+        for (int i = 0; i < o.length; i++) {
+            NodeDataImpl[] blockOwners = o[i];
+            for (int j = 0; j < blockOwners.length; j++) {
+                NodeDataImpl owner = blockOwners[j];
+                if (owner != null) {
+                    Model model = owner.getModel();
+                    if (model != null) {
+                        model.updatePositionFlag();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Columns of <code>length</code> slots, shared by <code>sharers</code>
+     * stores.
+     */
+    static class Block {
+
+        final float[] x;
+        final float[] y;
+        final float[] z;
+        final float[] r;
+        final float[] g;
+        final float[] b;
+        final float[] alpha;
+        final float[] size;
+        final BitSet fixed;
+        volatile int sharers = 1;
+
+        Block(int length) {
+            x = new float[length];
+            y = new float[length];
+            z = new float[length];
+            r = new float[length];
+            g = new float[length];
+            b = new float[length];
+            alpha = new float[length];
+            size = new float[length];
+            fixed = new BitSet(length);
+        }
+
+        synchronized Block share() {
+            sharers++;
+            return this;
+        }
+
+        /**
+         * Returns a copy of this block, for a store which stops sharing it.
+         */
+        Block copy() {
+            Block copy = new Block(x.length);
+            System.arraycopy(x, 0, copy.x, 0, x.length);
+            System.arraycopy(y, 0, copy.y, 0, y.length);
+            System.arraycopy(z, 0, copy.z, 0, z.length);
+            System.arraycopy(r, 0, copy.r, 0, r.length);
+            System.arraycopy(g, 0, copy.g, 0, g.length);
+            System.arraycopy(b, 0, copy.b, 0, b.length);
+            System.arraycopy(alpha, 0, copy.alpha, 0, alpha.length);
+            System.arraycopy(size, 0, copy.size, 0, size.length);
+            synchronized (fixed) {
+                copy.fixed.or(fixed);
+            }
+            return copy;
+        }
+
+        synchronized void unshare() {
+            sharers--;
+        }
+
+        /**
+         * Returns the size, in bytes, of the columns of this block: eight
+         * float arrays and the bits of fixed nodes.
+         */
+        long getMemory() {
+            return 8L * 4 * x.length + fixed.size() / 8;
+        }
+
+        void reset(int offset) {
+            x[offset] = (float) ((0.01 + Math.random()) * 1000) - 500;
+            y[offset] = (float) ((0.01 + Math.random()) * 1000) - 500;
+            z[offset] = 0f;
+            r[offset] = 0.6f;
+            g[offset] = 0.6f;
+            b[offset] = 0.6f;
+            alpha[offset] = 1f;
+            size[offset] = 1f;
+            setFixed(offset, false);
+        }
+
+        boolean isFixed(int offset) {
+            return fixed.get(offset);
+        }
+
+        void setFixed(int offset, boolean value) {
+            synchronized (fixed) {
+                fixed.set(offset, value);
+            }
+        }
+    }
+
+    /**
+     * Slot of a retired node data, to be freed when it is collected.
+     */
+    private static class RetiredSlot extends WeakReference<NodeDataImpl> {
+
+        private final int index;
+
+        RetiredSlot(NodeDataImpl owner, ReferenceQueue<NodeDataImpl> queue) {
+            super(owner, queue);
+            this.index = owner.index;
+        }
+    }
+}
@@ -59,6 +59,7 @@ import org.gephi.graph.dhns.predicate.Predicate;
 public class TreeIterator extends AbstractNodeIterator implements Iterator<Node>, ResetableIterator {
 
     protected int treeSize;
+    protected final int fromIndex;
     protected DurableTreeList treeList;
     protected int nextIndex;
     protected int diffIndex;
@@ -69,16 +70,26 @@ public class TreeIterator extends AbstractNodeIterator implements Iterator<Node>
     protected Predicate<AbstractNode> predicate;
 
     public TreeIterator(TreeStructure treeStructure, boolean skipping, Predicate<AbstractNode> predicate) {
+        this(treeStructure, skipping, predicate, 1, treeStructure.getTree().size());
+    }
+
+    /**
+     * Iterates only nodes which pre-order is in <code>[fromIndex, toIndex)</code>.
+     * When skipping, descendants of enabled nodes are disabled so a range can
+     * start anywhere in the tree.
+     */
+    public TreeIterator(TreeStructure treeStructure, boolean skipping, Predicate<AbstractNode> predicate, int fromIndex, int toIndex) {
         this.treeList = treeStructure.getTree();
-        nextIndex = 1;
+        this.fromIndex = fromIndex;
+        nextIndex = fromIndex;
         diffIndex = 2;
-        treeSize = treeList.size();
+        treeSize = Math.min(toIndex, treeList.size());
         this.skipping = skipping;
         this.predicate = predicate;
     }
 
     public void reset() {
-        nextIndex = 1;
+        nextIndex = fromIndex;
         diffIndex = 2;
     }
 
@@ -52,4 +52,17 @@ public class Tautology implements Predicate {
     public boolean evaluate(Object element) {
         return true;
     }
+
+    /**
+     * Returns a predicate accepting all elements, typed for the iterators
+     * which take a <code>Predicate&lt;T&gt;</code>.
+     */
+    public static <T> Predicate<T> all() {
+        return new Predicate<T>() {
+
+            public boolean evaluate(T element) {
+                return true;
+            }
+        };
+    }
 }
@@ -45,6 +45,10 @@ import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
 import java.util.Map.Entry;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -58,6 +62,7 @@ import org.gephi.graph.dhns.core.GraphVersion;
 import org.gephi.graph.dhns.core.GraphViewImpl;
 import org.gephi.graph.dhns.core.IDGen;
 import org.gephi.graph.dhns.core.SettingsManager;
+import org.gephi.graph.dhns.core.StructureModifier;
 import org.gephi.graph.dhns.core.TreeStructure;
 import org.gephi.graph.dhns.edge.AbstractEdge;
 import org.gephi.graph.dhns.edge.MixedEdgeImpl;
@@ -65,6 +70,7 @@ import org.gephi.graph.dhns.edge.ProperEdgeImpl;
 import org.gephi.graph.dhns.edge.SelfLoopImpl;
 import org.gephi.graph.dhns.node.AbstractNode;
 import org.gephi.graph.dhns.node.iterators.TreeListIterator;
+import static org.gephi.project.spi.BinaryPersistenceUtils.*;
 
 /**
  *
@@ -88,6 +94,12 @@ public class DHNSSerializer {
     private static final String ELEMENT_SETTINGS = "Settings";
     private static final String ELEMENT_SETTINGS_PROPERTY = "Property";
     private static final String ELEMENT_IDGEN = "IDGen";
+    //Binary
+    private static final int BINARY_VERSION = 1;
+    private static final byte BINARY_EDGE_PROPER = 0;
+    private static final byte BINARY_EDGE_SELFLOOP = 1;
+    private static final byte BINARY_EDGE_MIXED_DIRECTED = 2;
+    private static final byte BINARY_EDGE_MIXED_UNDIRECTED = 3;
 
     public void writeDhns(XMLStreamWriter writer, Dhns dhns) throws XMLStreamException {
         writer.writeStartElement(ELEMENT_DHNS);
@@ -152,6 +164,164 @@ public class DHNSSerializer {
         }
     }
 
+    /**
+     * Writes the main view as a binary section. Nodes are written in pre-order
+     * with the pre-order index of their parent, edges are grouped by source
+     * node so the source is delta-encoded. Degrees and view counters aren't
+     * written as they are recomputed when loading.
+     */
+    public void writeDhns(DataOutputStream stream, Dhns dhns) throws IOException {
+        stream.writeInt(BINARY_VERSION);
+        stream.writeBoolean(dhns.isDirected());
+        stream.writeBoolean(dhns.isUndirected());
+        stream.writeBoolean(dhns.isMixed());
+
+        IDGen idGen = dhns.getIdGen();
+        writeVarInt(stream, idGen.getNodeGen());
+        writeVarInt(stream, idGen.getEdgeGen());
+
+        Map<String, Object> properties = dhns.getSettingsManager().getClientProperties();
+        writeVarInt(stream, properties.size());
+        for (Entry<String, Object> entry : properties.entrySet()) {
+            writeString(stream, entry.getKey());
+            ByteArrayOutputStream valueStream = new ByteArrayOutputStream();
+            XMLEncoder xmlEncoder = new XMLEncoder(valueStream);
+            xmlEncoder.writeObject(entry.getValue());
+            xmlEncoder.close();
+            writeString(stream, valueStream.toString());
+        }
+
+        GraphVersion graphVersion = dhns.getGraphVersion();
+        writeVarInt(stream, graphVersion.getNodeVersion());
+        writeVarInt(stream, graphVersion.getEdgeVersion());
+
+        //Tree
+        TreeStructure treeStructure = dhns.getGraphStructure().getMainView().getStructure();
+        writeVarInt(stream, treeStructure.getTreeSize() - 1);
+        int edgesCount = 0;
+        for (TreeListIterator itr = new TreeListIterator(treeStructure.getTree(), 1); itr.hasNext();) {
+            AbstractNode node = itr.next();
+            writeVarInt(stream, node.getId());
+            writeVarInt(stream, node.parent.pre);
+            stream.writeBoolean(node.isEnabled());
+            edgesCount += node.getEdgesOutTree().getCount();
+        }
+
+        //Edges
+        writeVarInt(stream, edgesCount);
+        ParamAVLIterator<AbstractEdge> edgeIterator = new ParamAVLIterator<AbstractEdge>();
+        int lastSource = 0;
+        for (TreeListIterator itr = new TreeListIterator(treeStructure.getTree(), 1); itr.hasNext();) {
+            AbstractNode node = itr.next();
+            for (edgeIterator.setNode(node.getEdgesOutTree()); edgeIterator.hasNext();) {
+                AbstractEdge edge = edgeIterator.next();
+                if (edge.isSelfLoop()) {
+                    stream.writeByte(BINARY_EDGE_SELFLOOP);
+                } else if (edge.isMixed()) {
+                    stream.writeByte(edge.isDirected() ? BINARY_EDGE_MIXED_DIRECTED : BINARY_EDGE_MIXED_UNDIRECTED);
+                } else {
+                    stream.writeByte(BINARY_EDGE_PROPER);
+                }
+                writeVarInt(stream, edge.getId());
+                writeVarInt(stream, node.pre - lastSource);
+                lastSource = node.pre;
+                if (!edge.isSelfLoop()) {
+                    writeVarInt(stream, edge.getTarget().pre);
+                }
+                stream.writeFloat(edge.getWeight());
+            }
+        }
+    }
+
+    /**
+     * Reads a binary section written by <code>writeDhns(DataOutputStream, Dhns)</code>.
+     * Nodes and edges are added through a single bulk loader session, which
+     * also rebuilds degrees, view counters and meta edges.
+     */
+    public void readDhns(DataInputStream stream, Dhns dhns) throws IOException {
+        readVersion(stream, BINARY_VERSION, ELEMENT_DHNS);
+        dhns.setDirected(stream.readBoolean());
+        dhns.setUndirected(stream.readBoolean());
+        dhns.setMixed(stream.readBoolean());
+
+        IDGen idGen = dhns.getIdGen();
+        idGen.setNodeGen(readVarInt(stream));
+        idGen.setEdgeGen(readVarInt(stream));
+
+        SettingsManager settingsManager = dhns.getSettingsManager();
+        int propertiesCount = readVarInt(stream);
+        for (int i = 0; i < propertiesCount; i++) {
+            String key = readString(stream);
+            String valueXML = readString(stream);
+            XMLDecoder xmlDecoder = new XMLDecoder(new ByteArrayInputStream(valueXML.getBytes()));
+            settingsManager.putClientProperty(key, xmlDecoder.readObject());
+        }
+
+        int nodeVersion = readVarInt(stream);
+        int edgeVersion = readVarInt(stream);
+
+        GraphStructure graphStructure = dhns.getGraphStructure();
+        GraphFactoryImpl factory = dhns.factory();
+        int nodesCount = readVarInt(stream);
+        AbstractNode[] nodes = new AbstractNode[nodesCount + 1];
+        nodes[0] = graphStructure.getMainView().getStructure().getRoot();
+
+        StructureModifier.BulkLoader loader = null;
+        try {
+            //Tree
+            for (int i = 1; i <= nodesCount; i++) {
+                int id = readVarInt(stream);
+                int parentPre = readVarInt(stream);
+                boolean enabled = stream.readBoolean();
+                if (parentPre < 0 || parentPre >= i) {
+                    throw new IOException("Invalid parent " + parentPre + " for node at " + i);
+                }
+                AbstractNode parentNode = nodes[parentPre];
+                AbstractNode absNode = factory.newAbstractNode(id, 0, parentNode);
+                absNode.setEnabled(enabled);
+                absNode.getNodeData().setAttributes(factory.newNodeAttributes(absNode.getNodeData()));
+                absNode.getNodeData().setId(String.valueOf(id));
+                absNode.getNodeData().setTextData(factory.newTextData());
+                nodes[i] = absNode;
+            }
+
+            //Edges
+            int edgesCount = readVarInt(stream);
+            loader = graphStructure.getMainView().getStructureModifier().newBulkLoader(nodesCount, edgesCount);
+            for (int i = 1; i <= nodesCount; i++) {
+                loader.addNode(nodes[i], nodes[i].parent, nodes[i].isEnabled());
+            }
+            int source = 0;
+            for (int i = 0; i < edgesCount; i++) {
+                byte kind = stream.readByte();
+                int id = readVarInt(stream);
+                source += readVarInt(stream);
+                AbstractNode srcNode = nodes[source];
+                AbstractEdge edge;
+                if (kind == BINARY_EDGE_SELFLOOP) {
+                    edge = new SelfLoopImpl(id, srcNode);
+                } else {
+                    AbstractNode destNode = nodes[readVarInt(stream)];
+                    if (kind == BINARY_EDGE_PROPER) {
+                        edge = new ProperEdgeImpl(id, srcNode, destNode);
+                    } else {
+                        edge = new MixedEdgeImpl(id, srcNode, destNode, kind == BINARY_EDGE_MIXED_DIRECTED);
+                    }
+                }
+                edge.setWeight(stream.readFloat());
+                edge.getEdgeData().setAttributes(factory.newEdgeAttributes(edge.getEdgeData()));
+                edge.getEdgeData().setId(String.valueOf(id));
+                edge.getEdgeData().setTextData(factory.newTextData());
+                loader.addEdge(edge);
+            }
+        } finally {
+            if (loader != null) {
+                loader.close();
+            }
+        }
+        dhns.getGraphVersion().setVersion(nodeVersion, edgeVersion);
+    }
+
     public void writeEdges(XMLStreamWriter writer, TreeStructure treeStructure) throws XMLStreamException {
         writer.writeStartElement(ELEMENT_EDGES);
 
@@ -284,7 +454,7 @@ public class DHNSSerializer {
                     if (ELEMENT_TREESTRUCTURE_NODE.equalsIgnoreCase(name)) {
                         Boolean enabled = Boolean.parseBoolean(reader.getAttributeValue(null, "enabled"));
                         AbstractNode parentNode = treeStructure.getNodeAt(Integer.parseInt(reader.getAttributeValue(null, "parent")));
-                        AbstractNode absNode = new AbstractNode(Integer.parseInt(reader.getAttributeValue(null, "id")), 0, 0, 0, 0, parentNode);
+                        AbstractNode absNode = factory.newAbstractNode(Integer.parseInt(reader.getAttributeValue(null, "id")), 0, parentNode);
                         absNode.setEnabled(enabled);
                         Integer inDegree = Integer.parseInt(reader.getAttributeValue(null, "enabledindegree"));
                         Integer outDegree = Integer.parseInt(reader.getAttributeValue(null, "enabledoutdegree"));
@@ -41,6 +41,9 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.dhns.utils;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
@@ -57,6 +60,7 @@ import org.gephi.graph.dhns.node.AbstractNode;
 import org.gephi.graph.dhns.node.NodeDataImpl;
 import org.gephi.graph.dhns.node.iterators.TreeListIterator;
 import org.gephi.graph.dhns.predicate.Tautology;
+import static org.gephi.project.spi.BinaryPersistenceUtils.*;
 
 /**
  *
@@ -71,6 +75,7 @@ public class DataSerializer {
     private static final String ELEMENT_NODEDATA_SIZE = "size";
     private static final String ELEMENT_EDGEDATA = "edgedata";
     private static final String ELEMENT_EDGEDATA_COLOR = "color";
+    private static final int BINARY_VERSION = 1;
 
     public void writeData(XMLStreamWriter writer, Dhns dhns) throws XMLStreamException {
         writer.writeStartElement(ELEMENT_DATA);
@@ -85,7 +90,7 @@ public class DataSerializer {
             }
         }
 
-        EdgeIterator edgeIterator = new EdgeIterator(treeStructure, new TreeListIterator(treeStructure.getTree(), 1), false, Tautology.instance, Tautology.instance);
+        EdgeIterator edgeIterator = new EdgeIterator(treeStructure, new TreeListIterator(treeStructure.getTree(), 1), false, Tautology.<AbstractNode>all(), Tautology.<AbstractEdge>all());
         for (; edgeIterator.hasNext();) {
             EdgeDataImpl edgeData = edgeIterator.next().getEdgeData();
             if (edgeData != null) {
@@ -125,6 +130,140 @@ public class DataSerializer {
         }
     }
 
+    /**
+     * Writes node and edge data as a binary section. Values are written in
+     * columns, one block per property, in the main view pre-order for nodes and
+     * with the edge id for edges. String ids are only written when they differ
+     * from the default id.
+     */
+    public void writeData(DataOutputStream stream, Dhns dhns) throws IOException {
+        stream.writeInt(BINARY_VERSION);
+        TreeStructure treeStructure = dhns.getGraphStructure().getMainView().getStructure();
+
+        //Nodes
+        NodeDataImpl[] nodeDatas = new NodeDataImpl[treeStructure.getTreeSize() - 1];
+        int nodesCount = 0;
+        for (TreeListIterator itr = new TreeListIterator(treeStructure.getTree(), 1); itr.hasNext();) {
+            nodeDatas[nodesCount++] = itr.next().getNodeData();
+        }
+        writeVarInt(stream, nodesCount);
+        for (int i = 0; i < nodesCount; i++) {
+            NodeDataImpl nodeData = nodeDatas[i];
+            writeString(stream, nodeData.getId() != null && !nodeData.getId().equals(String.valueOf(nodeData.getRootNode().getId())) ? nodeData.getId() : null);
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            stream.writeFloat(nodeDatas[i].x());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            stream.writeFloat(nodeDatas[i].y());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            stream.writeFloat(nodeDatas[i].z());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            NodeDataImpl nodeData = nodeDatas[i];
+            stream.writeFloat(nodeData.r());
+            stream.writeFloat(nodeData.g());
+            stream.writeFloat(nodeData.b());
+            stream.writeFloat(nodeData.alpha());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            stream.writeFloat(nodeDatas[i].getSize());
+        }
+
+        //Edges
+        int edgesCount = dhns.getGraphStructure().getMainView().getEdgesCountTotal();
+        EdgeDataImpl[] edgeDatas = new EdgeDataImpl[edgesCount];
+        edgesCount = 0;
+        EdgeIterator edgeIterator = new EdgeIterator(treeStructure, new TreeListIterator(treeStructure.getTree(), 1), false, Tautology.<AbstractNode>all(), Tautology.<AbstractEdge>all());
+        for (; edgeIterator.hasNext();) {
+            if (edgesCount == edgeDatas.length) {
+                EdgeDataImpl[] newArray = new EdgeDataImpl[edgesCount * 2 + 1];
+                System.arraycopy(edgeDatas, 0, newArray, 0, edgesCount);
+                edgeDatas = newArray;
+            }
+            edgeDatas[edgesCount++] = edgeIterator.next().getEdgeData();
+        }
+        writeVarInt(stream, edgesCount);
+        for (int i = 0; i < edgesCount; i++) {
+            AbstractEdge edge = edgeDatas[i].getEdge();
+            writeVarInt(stream, edge.getId());
+            writeString(stream, edgeDatas[i].getId() != null && !edgeDatas[i].getId().equals(String.valueOf(edge.getId())) ? edgeDatas[i].getId() : null);
+        }
+        for (int i = 0; i < edgesCount; i++) {
+            EdgeDataImpl edgeData = edgeDatas[i];
+            stream.writeFloat(edgeData.r());
+            stream.writeFloat(edgeData.g());
+            stream.writeFloat(edgeData.b());
+            stream.writeFloat(edgeData.alpha());
+        }
+    }
+
+    public void readData(DataInputStream stream, Dhns dhns) throws IOException {
+        readVersion(stream, BINARY_VERSION, ELEMENT_DATA);
+        GraphStructure structure = dhns.getGraphStructure();
+        TreeStructure treeStructure = structure.getMainView().getStructure();
+
+        //Nodes
+        int nodesCount = readVarInt(stream);
+        if (nodesCount != treeStructure.getTreeSize() - 1) {
+            throw new IOException("The data section has " + nodesCount + " nodes but the graph has " + (treeStructure.getTreeSize() - 1));
+        }
+        NodeDataImpl[] nodeDatas = new NodeDataImpl[nodesCount];
+        int index = 0;
+        for (TreeListIterator itr = new TreeListIterator(treeStructure.getTree(), 1); itr.hasNext();) {
+            nodeDatas[index++] = itr.next().getNodeData();
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            String id = readString(stream);
+            if (id != null) {
+                structure.setNodeId(nodeDatas[i], id);
+            }
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            nodeDatas[i].setX(stream.readFloat());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            nodeDatas[i].setY(stream.readFloat());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            nodeDatas[i].setZ(stream.readFloat());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            NodeDataImpl nodeData = nodeDatas[i];
+            nodeData.setR(stream.readFloat());
+            nodeData.setG(stream.readFloat());
+            nodeData.setB(stream.readFloat());
+            nodeData.setAlpha(stream.readFloat());
+        }
+        for (int i = 0; i < nodesCount; i++) {
+            nodeDatas[i].setSize(stream.readFloat());
+        }
+
+        //Edges
+        int edgesCount = readVarInt(stream);
+        EdgeDataImpl[] edgeDatas = new EdgeDataImpl[edgesCount];
+        for (int i = 0; i < edgesCount; i++) {
+            int edgeId = readVarInt(stream);
+            AbstractEdge edge = structure.getEdgeFromDictionnary(edgeId);
+            if (edge == null) {
+                throw new IOException("The edge " + edgeId + " can't be found");
+            }
+            String id = readString(stream);
+            if (id != null) {
+                structure.setEdgeId(edge, id);
+            }
+            edgeDatas[i] = edge.getEdgeData();
+        }
+        for (int i = 0; i < edgesCount; i++) {
+            EdgeDataImpl edgeData = edgeDatas[i];
+            edgeData.setR(stream.readFloat());
+            edgeData.setG(stream.readFloat());
+            edgeData.setB(stream.readFloat());
+            edgeData.setAlpha(stream.readFloat());
+        }
+    }
+
     public void writeNodeData(XMLStreamWriter writer, NodeDataImpl nodeData) throws XMLStreamException {
         writer.writeStartElement(ELEMENT_NODEDATA);
         AbstractNode node = nodeData.getRootNode();
@@ -54,12 +54,16 @@ import org.gephi.graph.dhns.node.AbstractNode;
  * of the edge is duplicated in each node, once as <b>IN</b> and once as <b>OUT</b>. In each node, the
  * tree key must be the neigbour's number. So the <code>getNumber()</code> method compare the given
  * item with the owner and returns the neighbour's number.
+ * <p>
+ * A tree can be created as a copy-on-write copy of another tree, for instance when a view is copied.
+ * Both trees then share their structure until one of them is modified.
  * 
  * @author Mathieu Bastian
  */
 public class EdgeOppositeTree extends ParamAVLTree<AbstractEdge> {
 
     private AbstractNode owner;
+    private boolean shared;
 
     public EdgeOppositeTree(AbstractNode owner) {
         super();
@@ -67,6 +71,45 @@ public class EdgeOppositeTree extends ParamAVLTree<AbstractEdge> {
         setAccessor(new EdgeOppositeImplAVLItemAccessor());
     }
 
+    public EdgeOppositeTree(AbstractNode owner, EdgeOppositeTree tree) {
+        this(owner);
+        if (!tree.isEmpty()) {
+            this.root = tree.root;
+            this.count = tree.count;
+            this.shared = true;
+            tree.shared = true;
+        }
+    }
+
+    @Override
+    public boolean add(AbstractEdge item) {
+        detach();
+        return super.add(item);
+    }
+
+    @Override
+    public boolean remove(AbstractEdge item) {
+        detach();
+        return super.remove(item);
+    }
+
+    @Override
+    public void clear() {
+        shared = false;
+        super.clear();
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    private void detach() {
+        if (shared) {
+            copyFrom(this);
+            shared = false;
+        }
+    }
+
     public AbstractNode getOwner() {
         return owner;
     }
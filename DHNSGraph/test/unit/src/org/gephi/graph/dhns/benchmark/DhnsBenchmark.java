@@ -0,0 +1,558 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.utils.DHNSSerializer;
+
+/**
+ * Headless benchmarks of the DHNS core on synthetic graphs, writing results as
+ * JSON. Run with the <code>benchmark</code> Ant target of this module, or
+ * directly with the following options:
+ * <ul><li><code>-scales 10000,100000</code>: node counts</li>
+ * <li><code>-generators ERDOS_RENYI,GRID</code>: graph types</li>
+ * <li><code>-include regex</code>: benchmarks to run</li>
+ * <li><code>-warmup n</code> and <code>-iterations n</code></li>
+ * <li><code>-seed n</code></li>
+ * <li><code>-output file</code>: JSON file, standard output otherwise</li></ul>
+ */
+public class DhnsBenchmark {
+
+    private int[] scales = {10000, 100000, 1000000};
+    private GraphGenerator.Type[] generators = GraphGenerator.Type.values();
+    private Pattern include = Pattern.compile(".*");
+    private int warmup = 2;
+    private int iterations = 5;
+    private long seed = 42;
+    //Keeps results alive
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        DhnsBenchmark benchmark = new DhnsBenchmark();
+        File output = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            if (arg.equals("-scales")) {
+                String[] split = value.split(",");
+                benchmark.scales = new int[split.length];
+                for (int j = 0; j < split.length; j++) {
+                    benchmark.scales[j] = Integer.parseInt(split[j].trim());
+                }
+            } else if (arg.equals("-generators")) {
+                String[] split = value.split(",");
+                benchmark.generators = new GraphGenerator.Type[split.length];
+                for (int j = 0; j < split.length; j++) {
+                    benchmark.generators[j] = GraphGenerator.Type.valueOf(split[j].trim().toUpperCase());
+                }
+            } else if (arg.equals("-include")) {
+                benchmark.include = Pattern.compile(value);
+            } else if (arg.equals("-warmup")) {
+                benchmark.warmup = Integer.parseInt(value);
+            } else if (arg.equals("-iterations")) {
+                benchmark.iterations = Integer.parseInt(value);
+            } else if (arg.equals("-seed")) {
+                benchmark.seed = Long.parseLong(value);
+            } else if (arg.equals("-output")) {
+                output = new File(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        List<Result> results = benchmark.run();
+        Writer writer;
+        if (output != null) {
+            if (output.getParentFile() != null) {
+                output.getParentFile().mkdirs();
+            }
+            writer = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+        } else {
+            writer = new OutputStreamWriter(System.out, "UTF-8");
+        }
+        try {
+            writeJson(writer, results);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void setScales(int... scales) {
+        this.scales = scales;
+    }
+
+    public void setGenerators(GraphGenerator.Type... generators) {
+        this.generators = generators;
+    }
+
+    public void setInclude(String regex) {
+        this.include = Pattern.compile(regex);
+    }
+
+    public void setIterations(int warmup, int iterations) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    public List<Result> run() throws Exception {
+        List<Result> results = new ArrayList<Result>();
+        for (int scale : scales) {
+            for (GraphGenerator.Type type : generators) {
+                Workload workload = new Workload(type, scale, seed);
+                for (Benchmark benchmark : createBenchmarks()) {
+                    if (include.matcher(benchmark.getName()).matches()) {
+                        System.err.println("Running " + benchmark.getName() + " on " + workload);
+                        results.add(run(benchmark, workload));
+                    }
+                }
+                workload.dispose();
+            }
+        }
+        return results;
+    }
+
+    private Result run(Benchmark benchmark, Workload workload) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            runOnce(benchmark, workload);
+        }
+        Result result = new Result(benchmark.getName(), workload);
+        for (int i = 0; i < iterations; i++) {
+            result.add(runOnce(benchmark, workload));
+        }
+        return result;
+    }
+
+    private long[] runOnce(Benchmark benchmark, Workload workload) throws Exception {
+        benchmark.setUp(workload);
+        try {
+            long start = System.nanoTime();
+            long operations = benchmark.run();
+            long time = System.nanoTime() - start;
+            sink += operations;
+            return new long[]{time, operations};
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    public static List<Benchmark> createBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new MutationBenchmark("addNodesAndEdges") {
+
+            @Override
+            public long run() {
+                DirectedGraph graph = dhns.getDirectedGraph();
+                for (Node n : nodes) {
+                    graph.addNode(n);
+                }
+                for (Edge e : edges) {
+                    graph.addEdge(e);
+                }
+                return nodes.length + edges.length;
+            }
+        });
+        benchmarks.add(new MutationBenchmark("bulkLoad") {
+
+            @Override
+            public long run() {
+                return dhns.getDirectedGraph().bulkLoad(nodes, edges);
+            }
+        });
+        benchmarks.add(new Benchmark("removeNodes") {
+
+            private Dhns dhns;
+            private Node[] removed;
+
+            @Override
+            public void setUp(Workload workload) {
+                dhns = workload.newDhns();
+                Node[] nodes = dhns.getDirectedGraph().getNodes().toArray();
+                removed = new Node[nodes.length / 10];
+                for (int i = 0; i < removed.length; i++) {
+                    removed[i] = nodes[i * 10];
+                }
+            }
+
+            @Override
+            public long run() {
+                DirectedGraph graph = dhns.getDirectedGraph();
+                for (Node n : removed) {
+                    graph.removeNode(n);
+                }
+                return removed.length;
+            }
+
+            @Override
+            public void tearDown() {
+                dhns.getEventManager().stop(true);
+                dhns = null;
+            }
+        });
+        benchmarks.add(new ReadBenchmark("getNeighbors") {
+
+            @Override
+            public long run() {
+                long count = 0;
+                for (Node n : nodes) {
+                    count += graph.getNeighbors(n).toArray().length;
+                }
+                return count;
+            }
+        });
+        benchmarks.add(new ReadBenchmark("getEdges") {
+
+            @Override
+            public long run() {
+                long count = 0;
+                for (Node n : nodes) {
+                    for (Edge e : graph.getEdges(n)) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+        });
+        benchmarks.add(new ReadBenchmark("degree") {
+
+            @Override
+            public long run() {
+                long count = 0;
+                for (Node n : nodes) {
+                    count += graph.getDegree(n) + graph.getInDegree(n);
+                }
+                return count;
+            }
+        });
+        benchmarks.add(new ReadBenchmark("iterateNodes") {
+
+            @Override
+            public long run() {
+                long count = 0;
+                for (Node n : graph.getNodes()) {
+                    count += n.getId() > 0 ? 1 : 0;
+                }
+                return count;
+            }
+        });
+        benchmarks.add(new ReadBenchmark("iterateEdges") {
+
+            @Override
+            public long run() {
+                long count = 0;
+                for (Edge e : graph.getEdges()) {
+                    count += e.getId() > 0 ? 1 : 0;
+                }
+                return count;
+            }
+        });
+        benchmarks.add(new ReadBenchmark("copyView") {
+
+            private GraphView view;
+
+            @Override
+            public long run() {
+                view = dhns.newView();
+                return nodes.length;
+            }
+
+            @Override
+            public void tearDown() {
+                dhns.destroyView(view);
+                view = null;
+            }
+        });
+        benchmarks.add(new Benchmark("groupUngroup") {
+
+            private Dhns dhns;
+            private Node[][] groups;
+
+            @Override
+            public void setUp(Workload workload) {
+                dhns = workload.newDhns();
+                Node[] nodes = dhns.getDirectedGraph().getNodes().toArray();
+                groups = new Node[nodes.length / 100][];
+                for (int i = 0; i < groups.length; i++) {
+                    groups[i] = new Node[10];
+                    System.arraycopy(nodes, i * 10, groups[i], 0, 10);
+                }
+            }
+
+            @Override
+            public long run() {
+                HierarchicalGraph graph = dhns.getHierarchicalDirectedGraph();
+                Node[] groupNodes = new Node[groups.length];
+                for (int i = 0; i < groups.length; i++) {
+                    groupNodes[i] = graph.groupNodes(groups[i]);
+                }
+                for (int i = 0; i < groupNodes.length; i++) {
+                    graph.ungroupNodes(groupNodes[i]);
+                }
+                return groups.length * 10;
+            }
+
+            @Override
+            public void tearDown() {
+                dhns.getEventManager().stop(true);
+                dhns = null;
+            }
+        });
+        benchmarks.add(new ReadBenchmark("serializerRoundTrip") {
+
+            private Workload workload;
+
+            @Override
+            public void setUp(Workload workload) {
+                super.setUp(workload);
+                this.workload = workload;
+            }
+
+            @Override
+            public long run() throws IOException {
+                DHNSSerializer serializer = new DHNSSerializer();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream output = new DataOutputStream(bytes);
+                serializer.writeDhns(output, dhns);
+                output.flush();
+
+                Dhns copy = workload.newEmptyDhns();
+                serializer.readDhns(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), copy);
+                copy.getEventManager().stop(true);
+                return bytes.size();
+            }
+        });
+        return benchmarks;
+    }
+
+    public static void writeJson(Writer writer, List<Result> results) {
+        PrintWriter out = new PrintWriter(writer);
+        out.println("{");
+        out.println("  \"java.version\": " + quote(System.getProperty("java.version")) + ",");
+        out.println("  \"os\": " + quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")) + ",");
+        out.println("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",");
+        out.println("  \"date\": " + new Date().getTime() + ",");
+        out.println("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            out.print("    {\"benchmark\": " + quote(r.benchmark)
+                    + ", \"generator\": " + quote(r.generator)
+                    + ", \"nodes\": " + r.nodes
+                    + ", \"edges\": " + r.edges
+                    + ", \"iterations\": " + r.times.size()
+                    + ", \"meanNs\": " + Math.round(r.getMean())
+                    + ", \"minNs\": " + r.getMin()
+                    + ", \"maxNs\": " + r.getMax()
+                    + ", \"stdevNs\": " + Math.round(r.getStandardDeviation())
+                    + ", \"operations\": " + r.operations
+                    + ", \"opsPerSecond\": " + String.format(Locale.US, "%.1f", r.getThroughput())
+                    + "}");
+            out.println(i < results.size() - 1 ? "," : "");
+        }
+        out.println("  ]");
+        out.println("}");
+        out.flush();
+    }
+
+    private static String quote(String s) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * Timings of a benchmark on a workload.
+     */
+    public static class Result {
+
+        private final String benchmark;
+        private final String generator;
+        private final int nodes;
+        private final int edges;
+        private final List<Long> times = new ArrayList<Long>();
+        private long operations;
+
+        public Result(String benchmark, Workload workload) {
+            this.benchmark = benchmark;
+            this.generator = workload.getType().name();
+            this.nodes = workload.getNodeCount();
+            this.edges = workload.getEdgeCount();
+        }
+
+        void add(long[] run) {
+            times.add(run[0]);
+            operations = run[1];
+        }
+
+        public String getBenchmark() {
+            return benchmark;
+        }
+
+        public int getIterations() {
+            return times.size();
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public double getMean() {
+            double sum = 0;
+            for (long t : times) {
+                sum += t;
+            }
+            return times.isEmpty() ? 0 : sum / times.size();
+        }
+
+        public long getMin() {
+            long min = Long.MAX_VALUE;
+            for (long t : times) {
+                min = Math.min(min, t);
+            }
+            return times.isEmpty() ? 0 : min;
+        }
+
+        public long getMax() {
+            long max = 0;
+            for (long t : times) {
+                max = Math.max(max, t);
+            }
+            return max;
+        }
+
+        public double getStandardDeviation() {
+            double mean = getMean();
+            double sum = 0;
+            for (long t : times) {
+                sum += (t - mean) * (t - mean);
+            }
+            return times.size() < 2 ? 0 : Math.sqrt(sum / (times.size() - 1));
+        }
+
+        public double getThroughput() {
+            double mean = getMean();
+            return mean > 0 ? operations * 1e9 / mean : 0;
+        }
+    }
+
+    /**
+     * Benchmark on a new empty <code>Dhns</code>, with the workload nodes and
+     * edges created but not added.
+     */
+    private static abstract class MutationBenchmark extends Benchmark {
+
+        protected Dhns dhns;
+        protected Node[] nodes;
+        protected Edge[] edges;
+
+        public MutationBenchmark(String name) {
+            super(name);
+        }
+
+        @Override
+        public void setUp(Workload workload) {
+            dhns = workload.newEmptyDhns();
+            nodes = workload.newNodes(dhns);
+            edges = workload.newEdges(dhns, nodes);
+        }
+
+        @Override
+        public void tearDown() {
+            dhns.getEventManager().stop(true);
+            dhns = null;
+            nodes = null;
+            edges = null;
+        }
+    }
+
+    /**
+     * Benchmark on the shared loaded <code>Dhns</code>, which it must not
+     * modify.
+     */
+    private static abstract class ReadBenchmark extends Benchmark {
+
+        protected Dhns dhns;
+        protected DirectedGraph graph;
+        protected Node[] nodes;
+
+        public ReadBenchmark(String name) {
+            super(name);
+        }
+
+        @Override
+        public void setUp(Workload workload) {
+            dhns = workload.getSharedDhns();
+            graph = dhns.getDirectedGraph();
+            nodes = graph.getNodes().toArray();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.benchmark;
+
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import org.gephi.graph.dhns.core.Dhns;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Runs every benchmark once on small graphs, to keep the harness working.
+ */
+public class DhnsBenchmarkTest {
+
+    @Test
+    public void testGenerators() {
+        int[] grid = GraphGenerator.grid(9);
+        assertEquals(12 * 2, grid.length);
+        int[] ba = GraphGenerator.barabasiAlbert(100, 1);
+        assertEquals((100 - 2) * 2 * 2, ba.length);
+        int[] er = GraphGenerator.erdosRenyi(100, 1);
+        for (int i = 0; i < er.length; i += 2) {
+            assertTrue(er[i] != er[i + 1]);
+        }
+    }
+
+    @Test
+    public void testDhnsCollected() throws Exception {
+        //Benchmarks create a Dhns per iteration, none may be retained
+        Workload workload = new Workload(GraphGenerator.Type.GRID, 10000, 1);
+        Dhns dhns = workload.newDhns();
+        dhns.getEventManager().stop(true);
+        WeakReference<Dhns> reference = new WeakReference<Dhns>(dhns);
+        dhns = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        DhnsBenchmark benchmark = new DhnsBenchmark();
+        benchmark.setScales(500);
+        benchmark.setIterations(0, 1);
+        List<DhnsBenchmark.Result> results = benchmark.run();
+        assertEquals(DhnsBenchmark.createBenchmarks().size() * GraphGenerator.Type.values().length, results.size());
+        for (DhnsBenchmark.Result result : results) {
+            assertEquals(1, result.getIterations());
+            assertTrue(result.getBenchmark(), result.getOperations() > 0);
+        }
+
+        StringWriter writer = new StringWriter();
+        DhnsBenchmark.writeJson(writer, results);
+        assertTrue(writer.toString().contains("\"benchmark\": \"serializerRoundTrip\""));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.benchmark;
+
+import java.util.Random;
+
+/**
+ * Synthetic graphs for benchmarks. Edges are returned as pairs of node indices,
+ * <code>edges[2 * i]</code> being the source and <code>edges[2 * i + 1]</code>
+ * the target of the i-th edge.
+ */
+public final class GraphGenerator {
+
+    public enum Type {
+
+        ERDOS_RENYI,
+        BARABASI_ALBERT,
+        GRID
+    }
+    public static final int AVERAGE_DEGREE = 4;
+
+    private GraphGenerator() {
+    }
+
+    public static int[] generate(Type type, int nodes, long seed) {
+        switch (type) {
+            case ERDOS_RENYI:
+                return erdosRenyi(nodes, seed);
+            case BARABASI_ALBERT:
+                return barabasiAlbert(nodes, seed);
+            default:
+                return grid(nodes);
+        }
+    }
+
+    /**
+     * G(n, m) random graph with <code>m = n * AVERAGE_DEGREE / 2</code> and no
+     * self-loops.
+     */
+    public static int[] erdosRenyi(int nodes, long seed) {
+        Random random = new Random(seed);
+        int edgesCount = nodes < 2 ? 0 : nodes * AVERAGE_DEGREE / 2;
+        int[] edges = new int[edgesCount * 2];
+        for (int i = 0; i < edgesCount; i++) {
+            int source = random.nextInt(nodes);
+            int target = random.nextInt(nodes - 1);
+            if (target >= source) {
+                target++;
+            }
+            edges[2 * i] = source;
+            edges[2 * i + 1] = target;
+        }
+        return edges;
+    }
+
+    /**
+     * Preferential attachment, each new node links to
+     * <code>AVERAGE_DEGREE / 2</code> existing nodes.
+     */
+    public static int[] barabasiAlbert(int nodes, long seed) {
+        Random random = new Random(seed);
+        int m = AVERAGE_DEGREE / 2;
+        if (nodes <= m) {
+            return new int[0];
+        }
+        int edgesCount = (nodes - m) * m;
+        int[] edges = new int[edgesCount * 2];
+        int e = 0;
+        for (int i = m; i < nodes; i++) {
+            for (int j = 0; j < m; j++) {
+                int target;
+                if (e == 0) {
+                    target = j;
+                } else {
+                    //Endpoints are drawn proportionally to degree
+                    target = edges[random.nextInt(e * 2)];
+                }
+                edges[2 * e] = i;
+                edges[2 * e + 1] = target;
+                e++;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Square grid, each node being linked to its right and bottom neighbors.
+     */
+    public static int[] grid(int nodes) {
+        int side = (int) Math.ceil(Math.sqrt(nodes));
+        int[] edges = new int[nodes * 4];
+        int e = 0;
+        for (int i = 0; i < nodes; i++) {
+            if ((i % side) + 1 < side && i + 1 < nodes) {
+                edges[e++] = i;
+                edges[e++] = i + 1;
+            }
+            if (i + side < nodes) {
+                edges[e++] = i;
+                edges[e++] = i + side;
+            }
+        }
+        int[] res = new int[e];
+        System.arraycopy(edges, 0, res, 0, e);
+        return res;
+    }
+}
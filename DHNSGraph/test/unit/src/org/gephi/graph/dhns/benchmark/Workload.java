@@ -0,0 +1,133 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.benchmark;
+
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+
+/**
+ * A generated graph benchmarks run on. The loaded <code>Dhns</code> is shared
+ * by benchmarks which don't modify it, others create their own.
+ */
+public class Workload {
+
+    private final GraphGenerator.Type type;
+    private final int nodeCount;
+    private final int[] edges;
+    private Dhns sharedDhns;
+
+    public Workload(GraphGenerator.Type type, int nodeCount, long seed) {
+        this.type = type;
+        this.nodeCount = nodeCount;
+        this.edges = GraphGenerator.generate(type, nodeCount, seed);
+    }
+
+    public GraphGenerator.Type getType() {
+        return type;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edges.length / 2;
+    }
+
+    public Dhns newEmptyDhns() {
+        return new Dhns(new DhnsGraphController(), null);
+    }
+
+    /**
+     * Creates the nodes and edges of this workload in <code>dhns</code>,
+     * without adding them.
+     */
+    public Node[] newNodes(Dhns dhns) {
+        GraphFactoryImpl factory = dhns.factory();
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = factory.newNode();
+        }
+        return nodes;
+    }
+
+    public Edge[] newEdges(Dhns dhns, Node[] nodes) {
+        GraphFactoryImpl factory = dhns.factory();
+        Edge[] res = new Edge[edges.length / 2];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = factory.newEdge(nodes[edges[2 * i]], nodes[edges[2 * i + 1]]);
+        }
+        return res;
+    }
+
+    /**
+     * Returns a new <code>Dhns</code> loaded with this workload.
+     */
+    public Dhns newDhns() {
+        Dhns dhns = newEmptyDhns();
+        Node[] nodes = newNodes(dhns);
+        dhns.getDirectedGraph().bulkLoad(nodes, newEdges(dhns, nodes));
+        return dhns;
+    }
+
+    public Dhns getSharedDhns() {
+        if (sharedDhns == null) {
+            sharedDhns = newDhns();
+        }
+        return sharedDhns;
+    }
+
+    public void dispose() {
+        if (sharedDhns != null) {
+            sharedDhns.getEventManager().stop(true);
+            sharedDhns = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + "[" + nodeCount + "]";
+    }
+}
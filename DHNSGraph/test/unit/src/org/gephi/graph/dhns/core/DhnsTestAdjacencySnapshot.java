@@ -0,0 +1,139 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.gephi.graph.api.AdjacencySnapshot;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.edge.AbstractEdge;
+import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
+import org.gephi.graph.dhns.graph.HierarchicalUndirectedGraphImpl;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares adjacency snapshots of directed and undirected graphs with their
+ * edge trees, and checks a snapshot is dropped once the graph changes.
+ */
+public class DhnsTestAdjacencySnapshot {
+
+    private Dhns dhnsGlobal;
+    private HierarchicalDirectedGraphImpl graphGlobal;
+    private Map<String, Node> nodeMap;
+
+    @Before
+    public void setUp() {
+        DhnsGraphController controller = new DhnsGraphController();
+        dhnsGlobal = new Dhns(controller, null);
+        graphGlobal = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+        nodeMap = new HashMap<String, Node>();
+        GraphFactoryImpl factory = dhnsGlobal.factory();
+
+        for (int i = 0; i < 5; i++) {
+            Node node = factory.newNode();
+            node.getNodeData().setLabel("Node " + i);
+            graphGlobal.addNode(node);
+            nodeMap.put(node.getNodeData().getLabel(), node);
+        }
+
+        graphGlobal.addEdge(factory.newEdge(nodeMap.get("Node 0"), nodeMap.get("Node 1"), 1f, true));
+        graphGlobal.addEdge(factory.newEdge(nodeMap.get("Node 0"), nodeMap.get("Node 2"), 1f, true));
+        graphGlobal.addEdge(factory.newEdge(nodeMap.get("Node 2"), nodeMap.get("Node 0"), 1f, true));
+        graphGlobal.addEdge(factory.newEdge(nodeMap.get("Node 3"), nodeMap.get("Node 4"), 1f, true));
+    }
+
+    @Test
+    public void testDirectedSnapshot() {
+        AdjacencySnapshot snapshot = graphGlobal.getAdjacencySnapshot();
+        assertEquals(5, snapshot.getNodeCount());
+        assertEquals(4, snapshot.getOutEntriesCount());
+
+        int n0 = snapshot.getIndex(nodeMap.get("Node 0"));
+        int n1 = snapshot.getIndex(nodeMap.get("Node 1"));
+        assertSame(nodeMap.get("Node 0"), snapshot.getNode(n0));
+
+        int[] outOffsets = snapshot.getOutOffsets();
+        assertEquals(2, outOffsets[n0 + 1] - outOffsets[n0]);
+        assertEquals(0, outOffsets[n1 + 1] - outOffsets[n1]);
+
+        int[] inOffsets = snapshot.getInOffsets();
+        assertEquals(1, inOffsets[n1 + 1] - inOffsets[n1]);
+        assertEquals(n0, snapshot.getInNeighbors()[inOffsets[n1]]);
+        assertEquals(snapshot.getOutEntriesCount(), snapshot.getOutWeights().length);
+        assertEquals(snapshot.getOutEntriesCount(), snapshot.getInWeights().length);
+    }
+
+    @Test
+    public void testUndirectedSnapshot() {
+        HierarchicalUndirectedGraphImpl undirected = new HierarchicalUndirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+        AdjacencySnapshot snapshot = undirected.getAdjacencySnapshot();
+        assertSame(snapshot.getOutOffsets(), snapshot.getInOffsets());
+
+        //Mutual edges 0-2 and 2-0 are merged
+        assertEquals(6, snapshot.getOutEntriesCount());
+        int n0 = snapshot.getIndex(nodeMap.get("Node 0"));
+        int n4 = snapshot.getIndex(nodeMap.get("Node 4"));
+        int[] offsets = snapshot.getOutOffsets();
+        assertEquals(2, offsets[n0 + 1] - offsets[n0]);
+        assertEquals(1, offsets[n4 + 1] - offsets[n4]);
+    }
+
+    @Test
+    public void testSnapshotInvalidation() {
+        AdjacencySnapshot snapshot = graphGlobal.getAdjacencySnapshot();
+        assertSame(snapshot, graphGlobal.getAdjacencySnapshot());
+
+        graphGlobal.addEdge(dhnsGlobal.factory().newEdge(nodeMap.get("Node 4"), nodeMap.get("Node 3"), 1f, true));
+        AdjacencySnapshot updated = graphGlobal.getAdjacencySnapshot();
+        assertNotSame(snapshot, updated);
+        assertEquals(5, updated.getOutEntriesCount());
+
+        graphGlobal.removeNode(nodeMap.get("Node 4"));
+        updated = graphGlobal.getAdjacencySnapshot();
+        assertEquals(4, updated.getNodeCount());
+        assertEquals(-1, updated.getIndex(nodeMap.get("Node 4")));
+        assertEquals(3, updated.getOutEntriesCount());
+    }
+}
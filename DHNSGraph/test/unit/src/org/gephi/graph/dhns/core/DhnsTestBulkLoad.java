@@ -0,0 +1,164 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphEvent;
+import org.gephi.graph.api.GraphListener;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
+import org.gephi.graph.dhns.graph.HierarchicalUndirectedGraphImpl;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Loads directed, undirected and hierarchical graphs in bulk, and checks a
+ * bulk load fires a single event.
+ */
+public class DhnsTestBulkLoad {
+
+    private Dhns dhnsGlobal;
+    private GraphFactoryImpl factory;
+    private Node[] nodes;
+
+    @Before
+    public void setUp() {
+        DhnsGraphController controller = new DhnsGraphController();
+        dhnsGlobal = new Dhns(controller, null);
+        factory = dhnsGlobal.factory();
+        nodes = new Node[10];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode();
+        }
+    }
+
+    @Test
+    public void testDirectedBulkLoad() {
+        HierarchicalDirectedGraphImpl graph = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+        Edge[] edges = new Edge[]{
+            factory.newEdge(nodes[0], nodes[1]),
+            factory.newEdge(nodes[1], nodes[0]),
+            factory.newEdge(nodes[1], nodes[2]),
+            factory.newEdge(nodes[1], nodes[2]), //parallel, skipped
+            factory.newEdge(nodes[3], nodes[3])
+        };
+        int nodeVersion = graph.getNodeVersion();
+        int edgeVersion = graph.getEdgeVersion();
+
+        assertEquals(14, graph.bulkLoad(nodes, edges));
+        assertEquals(nodeVersion + 1, graph.getNodeVersion());
+        assertEquals(edgeVersion + 1, graph.getEdgeVersion());
+
+        GraphViewImpl view = dhnsGlobal.getGraphStructure().getMainView();
+        assertEquals(10, graph.getNodeCount());
+        assertEquals(4, graph.getEdgeCount());
+        assertEquals(1, view.getMutualEdgesTotal());
+        assertEquals(2, graph.getOutDegree(nodes[1]));
+        assertEquals(1, graph.getInDegree(nodes[0]));
+        assertSame(nodes[5], graph.getNode(nodes[5].getId()));
+        assertSame(edges[2], graph.getEdge(edges[2].getId()));
+        assertTrue(graph.isDirected(edges[0]));
+
+        //Already loaded elements are skipped
+        assertEquals(0, graph.bulkLoad(nodes, edges));
+        assertEquals(10, graph.getNodeCount());
+    }
+
+    @Test
+    public void testUndirectedBulkLoad() {
+        HierarchicalUndirectedGraphImpl graph = new HierarchicalUndirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+        Edge[] edges = new Edge[]{
+            factory.newEdge(nodes[0], nodes[1], 1f, false),
+            factory.newEdge(nodes[1], nodes[0], 1f, false), //symmetric, skipped
+            factory.newEdge(nodes[1], nodes[2], 1f, false)
+        };
+        assertEquals(12, graph.bulkLoad(nodes, edges));
+        assertEquals(2, graph.getEdgeCount());
+        assertEquals(2, graph.getDegree(nodes[1]));
+
+        try {
+            graph.bulkLoad(null, new Edge[]{factory.newEdge(nodes[4], nodes[5], 1f, true)});
+            fail("Directed edge accepted by undirected graph");
+        } catch (IllegalArgumentException e) {
+        }
+        //Lock must have been released
+        assertFalse(dhnsGlobal.getReadWriteLock().isWriteLocked());
+    }
+
+    @Test
+    public void testHierarchyBulkLoad() {
+        HierarchicalDirectedGraphImpl graph = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+        Node[] parents = new Node[nodes.length];
+        for (int i = 1; i < nodes.length; i++) {
+            parents[i] = nodes[0];
+        }
+        assertEquals(10, graph.bulkLoad(nodes, parents, null));
+        assertEquals(9, graph.getChildrenCount(nodes[0]));
+        assertEquals(1, graph.getNodeCount());
+        assertSame(nodes[0], graph.getParent(nodes[4]));
+    }
+
+    @Test
+    public void testSingleEvent() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final GraphEvent[] received = new GraphEvent[1];
+        dhnsGlobal.addGraphListener(new GraphListener() {
+
+            public void graphChanged(GraphEvent event) {
+                received[0] = event;
+                latch.countDown();
+            }
+        });
+        HierarchicalDirectedGraphImpl graph = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+        Edge[] edges = new Edge[]{factory.newEdge(nodes[0], nodes[1]), factory.newEdge(nodes[2], nodes[3])};
+        graph.bulkLoad(nodes, edges);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(GraphEvent.EventType.ADD_NODES_AND_EDGES, received[0].getEventType());
+        assertEquals(10, received[0].getData().addedNodes().length);
+        assertEquals(2, received[0].getData().addedEdges().length);
+    }
+}
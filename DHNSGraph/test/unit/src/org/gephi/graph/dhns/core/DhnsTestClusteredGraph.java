@@ -1017,6 +1017,89 @@ public class DhnsTestClusteredGraph {
         assertEquals(1, view.getEdgesCountEnabled());
     }
 
+    @Test
+    public void testGroupUngroupBatch() {
+        GraphViewImpl view = dhnsGlobal2.getGraphStructure().getMainView();
+        TreeStructure treeStructure = view.getStructure();
+        int metaEdgesCount = graphGlobal2Directed.getMetaEdges().toArray().length;
+        int edgesCountEnabled = view.getEdgesCountEnabled();
+        int mutualEdgesEnabled = view.getMutualEdgesEnabled();
+        int nodeVersion = graphGlobal2Directed.getNodeVersion();
+
+        graphGlobal2Directed.ungroupNodes(graphGlobal2Directed.getTopNodes().toArray());
+        assertEquals(6, graphGlobal2Directed.getNodeCount());
+        assertEquals(0, graphGlobal2Directed.getHeight());
+        assertEquals(0, graphGlobal2Directed.getMetaEdges().toArray().length);
+        assertEquals(nodeVersion + 1, graphGlobal2Directed.getNodeVersion());
+        try {
+            checkHierarchy(treeStructure);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        Node[][] groups = new Node[3][];
+        for (int i = 0; i < 3; i++) {
+            groups[i] = new Node[]{nodeMap.get("Leaf " + (2 * i)), nodeMap.get("Leaf " + (2 * i + 1))};
+        }
+        Node[] groupNodes = graphGlobal2Directed.groupNodes(groups);
+        assertEquals(3, groupNodes.length);
+        assertEquals(3, graphGlobal2Directed.getNodeCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2, graphGlobal2Directed.getChildrenCount(groupNodes[i]));
+            assertSame(groupNodes[i], graphGlobal2Directed.getParent(groups[i][0]));
+            assertTrue(graphGlobal2Directed.isInView(groupNodes[i]));
+        }
+        assertEquals(metaEdgesCount, graphGlobal2Directed.getMetaEdges().toArray().length);
+        assertEquals(edgesCountEnabled, view.getEdgesCountEnabled());
+        assertEquals(mutualEdgesEnabled, view.getMutualEdgesEnabled());
+        try {
+            checkHierarchy(treeStructure);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        try {
+            graphGlobal2Directed.groupNodes(new Node[][]{{groups[0][0]}, {groups[0][0]}});
+            fail("A node can't be in two groups");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testCopyViewMetaEdges() {
+        GraphViewImpl view = dhnsGlobal2.getGraphStructure().getMainView();
+        GraphViewImpl viewCopy = (GraphViewImpl) dhnsGlobal2.newView();
+        assertEquals(view.getMetaEdgesCountTotal(), viewCopy.getMetaEdgesCountTotal());
+        assertEquals(view.getMutualMetaEdgesTotal(), viewCopy.getMutualMetaEdgesTotal());
+
+        HierarchicalDirectedGraphImpl graphCopy = new HierarchicalDirectedGraphImpl(dhnsGlobal2, viewCopy);
+        Node[] topNodes = graphGlobal2Directed.getTopNodes().toArray();
+        Node[] topNodesCopy = graphCopy.getTopNodes().toArray();
+        assertEquals(topNodes.length, topNodesCopy.length);
+        for (int i = 0; i < topNodes.length; i++) {
+            assertSame(topNodes[i].getNodeData(), topNodesCopy[i].getNodeData());
+            assertEquals(graphGlobal2Directed.getMetaOutDegree(topNodes[i]), graphCopy.getMetaOutDegree(topNodesCopy[i]));
+            assertEquals(graphGlobal2Directed.getMetaInDegree(topNodes[i]), graphCopy.getMetaInDegree(topNodesCopy[i]));
+            for (int j = 0; j < topNodes.length; j++) {
+                MetaEdgeImpl metaEdge = (MetaEdgeImpl) graphGlobal2Directed.getMetaEdge(topNodes[i], topNodes[j]);
+                MetaEdgeImpl metaEdgeCopy = (MetaEdgeImpl) graphCopy.getMetaEdge(topNodesCopy[i], topNodesCopy[j]);
+                if (metaEdge == null) {
+                    assertNull(metaEdgeCopy);
+                } else {
+                    assertEquals(metaEdge.getCount(), metaEdgeCopy.getCount());
+                    assertEquals(metaEdge.getWeight(), metaEdgeCopy.getWeight(), 0f);
+                    assertEquals(metaEdge.isDirected(), metaEdgeCopy.isDirected());
+                }
+            }
+        }
+
+        //Meta edges of the copy are maintained like computed ones
+        graphGlobal2Directed.expand(topNodes[0]);
+        graphCopy.expand(topNodesCopy[0]);
+        assertEquals(view.getMetaEdgesCountTotal(), viewCopy.getMetaEdgesCountTotal());
+        assertEquals(graphGlobal2Directed.getMetaEdges().toArray().length, graphCopy.getMetaEdges().toArray().length);
+    }
+
     @Test
     public void testEvents() {
         GraphListener gl = new GraphListener() {
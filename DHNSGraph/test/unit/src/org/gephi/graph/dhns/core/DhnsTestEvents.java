@@ -0,0 +1,265 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphEvent;
+import org.gephi.graph.api.GraphEvent.EventType;
+import org.gephi.graph.api.GraphListener;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.event.EdgeEvent;
+import org.gephi.graph.dhns.event.EventBatch;
+import org.gephi.graph.dhns.event.NodeEvent;
+import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks how events of a batch are coalesced, filtered by listeners and
+ * counted by the event metrics.
+ */
+public class DhnsTestEvents {
+
+    private Dhns dhnsGlobal;
+    private GraphFactoryImpl factory;
+    private HierarchicalDirectedGraphImpl graph;
+
+    @Before
+    public void setUp() {
+        DhnsGraphController controller = new DhnsGraphController();
+        dhnsGlobal = new Dhns(controller, null);
+        dhnsGlobal.getEventManager().setDelay(500);
+        factory = dhnsGlobal.factory();
+        graph = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        Node n1 = factory.newNode();
+        Node n2 = factory.newNode();
+        Node n3 = factory.newNode();
+        graph.addNode(n1);
+        graph.addNode(n2);
+        Edge e1 = factory.newEdge(n1, n2);
+        graph.addEdge(e1);
+        graph.addNode(n3);
+        Edge e2 = factory.newEdge(n2, n3);
+        graph.addEdge(e2);
+        graph.removeNode(n3);
+
+        List<GraphEvent> events = collect(null, 1);
+        assertEquals(1, events.size());
+        GraphEvent event = events.get(0);
+        assertEquals(EventType.ADD_NODES_AND_EDGES, event.getEventType());
+        assertEquals(Arrays.asList(n1, n2), Arrays.asList(event.getData().addedNodes()));
+        assertEquals(Arrays.asList(e1), Arrays.asList(event.getData().addedEdges()));
+        assertNull(event.getData().removedNodes());
+        assertNull(event.getData().removedEdges());
+    }
+
+    @Test
+    public void testAddThenRemoveNodeWithEdges() throws Exception {
+        Node n1 = factory.newNode();
+        graph.addNode(n1);
+        collect(null, 1);
+
+        Node n2 = factory.newNode();
+        Node n3 = factory.newNode();
+        graph.addNode(n2);
+        graph.addNode(n3);
+        Edge e1 = factory.newEdge(n1, n2);
+        Edge e2 = factory.newEdge(n2, n3);
+        Edge e3 = factory.newEdge(n1, n3);
+        graph.addEdge(e1);
+        graph.addEdge(e2);
+        graph.addEdge(e3);
+        graph.removeNode(n2);
+
+        List<GraphEvent> events = collect(null, 1);
+        assertEquals(1, events.size());
+        GraphEvent event = events.get(0);
+        assertEquals(EventType.ADD_NODES_AND_EDGES, event.getEventType());
+        assertEquals(Arrays.asList(n3), Arrays.asList(event.getData().addedNodes()));
+        assertEquals(Arrays.asList(e3), Arrays.asList(event.getData().addedEdges()));
+        assertNull(event.getData().removedNodes());
+        assertNull(event.getData().removedEdges());
+    }
+
+    @Test
+    public void testBatchDropsEdgesOfCancelledNode() {
+        Node n1 = factory.newNode();
+        Node n2 = factory.newNode();
+        Edge e1 = factory.newEdge(n1, n2);
+        EventBatch batch = new EventBatch();
+        batch.add(new NodeEvent(EventType.ADD_NODES_AND_EDGES, n2, graph.getView()));
+        batch.add(new EdgeEvent(EventType.ADD_NODES_AND_EDGES, e1, graph.getView()));
+        batch.add(new NodeEvent(EventType.REMOVE_NODES_AND_EDGES, n2, graph.getView()));
+        assertTrue(batch.createEvents().isEmpty());
+    }
+
+    @Test
+    public void testRemoveThenAdd() throws Exception {
+        Node n1 = factory.newNode();
+        graph.addNode(n1);
+        collect(null, 1);
+
+        graph.removeNode(n1);
+        graph.addNode(n1);
+        List<GraphEvent> events = collect(null, 2);
+        assertEquals(EventType.REMOVE_NODES_AND_EDGES, events.get(0).getEventType());
+        assertEquals(EventType.ADD_NODES_AND_EDGES, events.get(1).getEventType());
+    }
+
+    @Test
+    public void testGroupBatch() throws Exception {
+        Node[] nodes = new Node[4];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode();
+            graph.addNode(nodes[i]);
+        }
+        collect(null, 1);
+
+        Node[] groups = graph.groupNodes(new Node[][]{{nodes[0], nodes[1]}, {nodes[2], nodes[3]}});
+        assertEquals(1, dhnsGlobal.getEventMetrics().getQueueDepth());
+        List<GraphEvent> events = collect(null, 2);
+        assertEquals(EventType.ADD_NODES_AND_EDGES, events.get(0).getEventType());
+        assertEquals(Arrays.asList(groups), Arrays.asList(events.get(0).getData().addedNodes()));
+        assertEquals(EventType.MOVE_NODES, events.get(1).getEventType());
+        assertEquals(Arrays.asList(nodes), Arrays.asList(events.get(1).getData().movedNodes()));
+
+        graph.ungroupNodes(groups);
+        assertEquals(1, dhnsGlobal.getEventMetrics().getQueueDepth());
+        events = collect(null, 2);
+        assertEquals(EventType.MOVE_NODES, events.get(0).getEventType());
+        assertEquals(Arrays.asList(nodes), Arrays.asList(events.get(0).getData().movedNodes()));
+        assertEquals(EventType.REMOVE_NODES_AND_EDGES, events.get(1).getEventType());
+        assertEquals(Arrays.asList(groups), Arrays.asList(events.get(1).getData().removedNodes()));
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        Node n1 = factory.newNode();
+        Node n2 = factory.newNode();
+        graph.addNode(n1);
+        graph.addNode(n2);
+        collect(null, 1);
+
+        final List<GraphEvent> other = new ArrayList<GraphEvent>();
+        dhnsGlobal.addGraphListener(new GraphListener() {
+
+            public void graphChanged(GraphEvent event) {
+                other.add(event);
+            }
+        }, graph.getView(), EventType.MOVE_NODES);
+        graph.addNode(factory.newNode());
+        graph.removeNode(n2);
+        List<GraphEvent> events = collect(EventType.REMOVE_NODES_AND_EDGES, 1);
+        assertEquals(1, events.size());
+        assertSame(n2, events.get(0).getData().removedNodes()[0]);
+        assertTrue(other.isEmpty());
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        EventMetrics metrics = dhnsGlobal.getEventMetrics();
+        for (int i = 0; i < 10; i++) {
+            graph.addNode(factory.newNode());
+        }
+        assertEquals(10, metrics.getQueueDepth());
+        collect(null, 1);
+
+        //Metrics are updated once all listeners returned, so they are final
+        //when the next batch reaches a listener. It is held until checked.
+        final CountDownLatch called = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        GraphListener listener = new GraphListener() {
+
+            public void graphChanged(GraphEvent event) {
+                called.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        dhnsGlobal.addGraphListener(listener);
+        graph.addNode(factory.newNode());
+        try {
+            assertTrue(called.await(5, TimeUnit.SECONDS));
+            assertEquals(11, metrics.getFiredCount());
+            assertEquals(1, metrics.getBatchCount());
+            assertEquals(0, metrics.getQueueDepth());
+            assertTrue(metrics.getMaxDispatchLatency() > 0);
+        } finally {
+            release.countDown();
+            dhnsGlobal.removeGraphListener(listener);
+        }
+    }
+
+    private List<GraphEvent> collect(EventType type, int count) throws InterruptedException {
+        final List<GraphEvent> events = new ArrayList<GraphEvent>();
+        final CountDownLatch latch = new CountDownLatch(count);
+        GraphListener listener = new GraphListener() {
+
+            public void graphChanged(GraphEvent event) {
+                events.add(event);
+                latch.countDown();
+            }
+        };
+        if (type != null) {
+            dhnsGlobal.addGraphListener(listener, null, type);
+        } else {
+            dhnsGlobal.addGraphListener(listener);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        dhnsGlobal.removeGraphListener(listener);
+        return events;
+    }
+}
@@ -125,6 +125,32 @@ public class DhnsTestId {
         assertEquals(e1, rootGraph.getEdge(e1Id));
     }
 
+    @Test
+    public void testGetNodes() {
+        GraphFactory factory = graphModel.factory();
+
+        Node[] nodes = new Node[100];
+        String[] ids = new String[nodes.length + 2];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode("node" + i);
+            rootGraph.addNode(nodes[i]);
+            ids[ids.length - 1 - i] = "node" + i;
+        }
+        ids[0] = "missing";
+        ids[1] = null;
+
+        Node[] result = rootGraph.getNodes(ids);
+        assertEquals(ids.length, result.length);
+        assertNull(result[0]);
+        assertNull(result[1]);
+        for (int i = 0; i < nodes.length; i++) {
+            assertSame(nodes[i], result[ids.length - 1 - i]);
+        }
+
+        rootGraph.removeNode(nodes[0]);
+        assertNull(rootGraph.getNodes(new String[]{"node0"})[0]);
+    }
+
     @Test
     public void testSetId() {
         GraphFactory factory = graphModel.factory();
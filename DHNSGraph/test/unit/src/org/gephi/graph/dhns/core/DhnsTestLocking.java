@@ -0,0 +1,131 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.util.concurrent.CountDownLatch;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Optimistic reads, reentrant writes and the lock contention metrics.
+ */
+public class DhnsTestLocking {
+
+    private Dhns dhnsGlobal;
+    private HierarchicalDirectedGraphImpl graphGlobal;
+
+    @Before
+    public void setUp() {
+        DhnsGraphController controller = new DhnsGraphController();
+        dhnsGlobal = new Dhns(controller, null);
+        graphGlobal = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+    }
+
+    @Test
+    public void testOptimisticRead() {
+        long stamp = graphGlobal.tryOptimisticRead();
+        assertTrue(stamp != 0);
+        assertTrue(graphGlobal.validate(stamp));
+
+        Node node = dhnsGlobal.factory().newNode();
+        graphGlobal.addNode(node);
+        assertFalse(graphGlobal.validate(stamp));
+
+        graphGlobal.writeLock();
+        assertEquals(0, graphGlobal.tryOptimisticRead());
+        graphGlobal.writeUnlock();
+
+        stamp = graphGlobal.tryOptimisticRead();
+        graphGlobal.readLock();
+        graphGlobal.readUnlock();
+        assertTrue(graphGlobal.validate(stamp));
+        assertFalse(graphGlobal.validate(0));
+    }
+
+    @Test
+    public void testReentrantWrite() {
+        graphGlobal.writeLock();
+        graphGlobal.addNode(dhnsGlobal.factory().newNode());
+        graphGlobal.writeUnlock();
+        assertFalse(dhnsGlobal.getReadWriteLock().isWriteLocked());
+        assertTrue(graphGlobal.tryOptimisticRead() != 0);
+    }
+
+    @Test
+    public void testLockMetrics() throws Exception {
+        final LockMetrics metrics = dhnsGlobal.getLockMetrics();
+        metrics.reset();
+        graphGlobal.addNode(dhnsGlobal.factory().newNode());
+        assertEquals(1, metrics.getWriteCount());
+        assertNull(metrics.getWriteHolder());
+
+        //Contended read
+        graphGlobal.writeLock();
+        assertSame(Thread.currentThread(), metrics.getWriteHolder());
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread reader = new Thread(new Runnable() {
+
+            public void run() {
+                graphGlobal.readLock();
+                graphGlobal.readUnlock();
+                done.countDown();
+            }
+        });
+        reader.start();
+        while (metrics.getQueueLength() == 0) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+        graphGlobal.writeUnlock();
+        done.await();
+
+        assertEquals(1, metrics.getReadContendedCount());
+        assertTrue(metrics.getReadWaitTime() > 0);
+        assertTrue(metrics.getMaxWriteHoldTime() > 0);
+        assertEquals(Thread.currentThread().getName(), metrics.getMaxWriteHolder());
+        assertNotNull(metrics.toString());
+    }
+}
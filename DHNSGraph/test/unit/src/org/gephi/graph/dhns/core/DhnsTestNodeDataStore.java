@@ -0,0 +1,209 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.lang.ref.WeakReference;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.gephi.graph.api.NodeDataStore;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the column store of node data: bulk access, retired slots and blocks
+ * shared by duplicated graphs.
+ */
+public class DhnsTestNodeDataStore {
+
+    private Dhns dhnsGlobal;
+    private GraphFactoryImpl factory;
+    private HierarchicalDirectedGraphImpl graph;
+
+    @Before
+    public void setUp() {
+        DhnsGraphController controller = new DhnsGraphController();
+        dhnsGlobal = new Dhns(controller, null);
+        factory = dhnsGlobal.factory();
+        graph = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+    }
+
+    @Test
+    public void testColumns() {
+        NodeDataStore store = dhnsGlobal.getNodeDataStore();
+        Node[] nodes = new Node[store.getBlockSize() + 10];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode();
+            graph.addNode(nodes[i]);
+            nodes[i].getNodeData().setX(i);
+            nodes[i].getNodeData().setSize(2f);
+        }
+        assertEquals(2, store.getBlockCount());
+        assertEquals(nodes.length, store.getSlotBound());
+
+        for (int i = 0; i < nodes.length; i++) {
+            NodeData nodeData = nodes[i].getNodeData();
+            int index = store.getIndex(nodeData);
+            int block = index / store.getBlockSize();
+            int offset = index % store.getBlockSize();
+            assertSame(nodeData, store.getNodeData(index));
+            assertEquals(i, store.getX(block)[offset], 0f);
+            assertEquals(2f, store.getSize(block)[offset], 0f);
+            assertEquals(0.6f, store.getR(block)[offset], 0f);
+        }
+
+        //Writes in columns are seen by node data
+        int index = store.getIndex(nodes[3].getNodeData());
+        store.getY(0)[index] = 42f;
+        assertEquals(42f, nodes[3].getNodeData().y(), 0f);
+
+        nodes[4].getNodeData().setFixed(true);
+        assertTrue(store.isFixed(store.getIndex(nodes[4].getNodeData())));
+    }
+
+    @Test
+    public void testDeleteRetiresSlot() throws Exception {
+        dhnsGlobal.getEventManager().stop(true);
+        NodeDataStore store = dhnsGlobal.getNodeDataStore();
+        Node n1 = factory.newNode();
+        Node n2 = factory.newNode();
+        graph.addNode(n1);
+        graph.addNode(n2);
+        n1.getNodeData().setX(12f);
+        n1.getNodeData().setColor(0.1f, 0.2f, 0.3f);
+        n1.getNodeData().setFixed(true);
+        int index = store.getIndex(n1.getNodeData());
+
+        graph.removeNode(n1);
+        assertEquals(-1, store.getIndex(n1.getNodeData()));
+        assertNull(store.getNodeData(index));
+        assertEquals(12f, n1.getNodeData().x(), 0f);
+
+        //The slot is kept while the node data is reachable
+        Node n3 = factory.newNode();
+        assertFalse(index == store.getIndex(n3.getNodeData()));
+        assertEquals(3, store.getSlotBound());
+        assertEquals(12f, n1.getNodeData().x(), 0f);
+        assertEquals(0.2f, n1.getNodeData().g(), 0f);
+        assertTrue(n1.getNodeData().isFixed());
+
+        //Retired node data stay writable, without touching other slots
+        float x = n3.getNodeData().x();
+        n1.getNodeData().setX(-5f);
+        assertEquals(-5f, n1.getNodeData().x(), 0f);
+        assertEquals(x, n3.getNodeData().x(), 0f);
+
+        //Then reused once collected
+        WeakReference<Node> reference = new WeakReference<Node>(n1);
+        n1 = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        assertNull(reference.get());
+        Node n4 = null;
+        for (int i = 0; i < 50 && n4 == null; i++) {
+            Node node = factory.newNode();
+            if (store.getIndex(node.getNodeData()) == index) {
+                n4 = node;
+            } else {
+                System.gc();
+                Thread.sleep(100);
+            }
+        }
+        assertNotNull(n4);
+        assertFalse(n4.getNodeData().isFixed());
+    }
+
+    @Test
+    public void testDuplicateSharesBlocks() {
+        NodeDataStore store = dhnsGlobal.getNodeDataStore();
+        Node[] nodes = new Node[store.getBlockSize() + 10];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode();
+            graph.addNode(nodes[i]);
+            nodes[i].getNodeData().setX(i);
+        }
+        graph.removeNode(nodes[0]);
+        int freeIndex = store.getIndex(nodes[1].getNodeData()) - 1;
+
+        Dhns copy = new Dhns(new DhnsGraphController(), null);
+        dhnsGlobal.getDuplicateManager().duplicate(copy);
+        NodeDataStore copyStore = copy.getNodeDataStore();
+        assertEquals(2, copyStore.getSharedBlockCount());
+        assertEquals(2, store.getSharedBlockCount());
+        assertEquals(0, copyStore.getPrivateMemory());
+        assertEquals(nodes.length - 1, copy.getGraphStructure().getMainView().getNodesEnabled());
+
+        //Values are shared
+        Node[] copyNodes = copy.getDirectedGraph().getNodes().toArray();
+        for (int i = 0; i < copyNodes.length; i++) {
+            NodeData nodeData = copyNodes[i].getNodeData();
+            NodeData sourceData = store.getNodeData(copyStore.getIndex(nodeData));
+            assertNotNull(sourceData);
+            assertEquals(sourceData.x(), nodeData.x(), 0f);
+        }
+
+        //Writing in the copy materializes the block
+        NodeData copyData = copyNodes[0].getNodeData();
+        NodeData sourceData = store.getNodeData(copyStore.getIndex(copyData));
+        copyData.setX(-1f);
+        assertEquals(-1f, copyData.x(), 0f);
+        assertFalse(sourceData.x() == -1f);
+        assertEquals(1, copyStore.getSharedBlockCount());
+        assertEquals(1, store.getSharedBlockCount());
+        //Eight float columns and the fixed bits
+        assertEquals(store.getBlockSize() * 32 + store.getBlockSize() / 8, copyStore.getPrivateMemory());
+
+        //Writing in the source too
+        int lastIndex = store.getIndex(nodes[nodes.length - 1].getNodeData());
+        nodes[nodes.length - 1].getNodeData().setX(-2f);
+        assertEquals(0, copyStore.getSharedBlockCount());
+        assertEquals(nodes.length - 1, copyStore.getNodeData(lastIndex).x(), 0f);
+
+        //Free slots are kept
+        Node newNode = copy.factory().newNode();
+        assertEquals(freeIndex, copyStore.getIndex(newNode.getNodeData()));
+    }
+}
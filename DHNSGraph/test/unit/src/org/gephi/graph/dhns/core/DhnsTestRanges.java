@@ -0,0 +1,177 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.core;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeIterable;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
+import org.gephi.graph.dhns.graph.HierarchicalGraphImpl;
+import org.gephi.graph.dhns.graph.HierarchicalUndirectedGraphImpl;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Iterates node and edge ranges of a view, also as arrays, and checks ranges
+ * can only be read under the read lock.
+ */
+public class DhnsTestRanges {
+
+    private Dhns dhnsGlobal;
+    private HierarchicalDirectedGraphImpl graph;
+    private HierarchicalUndirectedGraphImpl undirectedGraph;
+
+    @Before
+    public void setUp() {
+        DhnsGraphController controller = new DhnsGraphController();
+        dhnsGlobal = new Dhns(controller, null);
+        GraphFactoryImpl factory = dhnsGlobal.factory();
+        graph = new HierarchicalDirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+        undirectedGraph = new HierarchicalUndirectedGraphImpl(dhnsGlobal, dhnsGlobal.getGraphStructure().getMainView());
+
+        Node[] nodes = new Node[100];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode();
+            graph.addNode(nodes[i]);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            Node source = nodes[random.nextInt(nodes.length)];
+            Node target = nodes[random.nextInt(nodes.length)];
+            if (graph.getEdge(source, target) == null) {
+                graph.addEdge(factory.newEdge(source, target));
+            }
+            if (i % 10 == 0 && graph.getEdge(target, source) == null) {
+                graph.addEdge(factory.newEdge(target, source));
+            }
+        }
+
+        //Groups make ranges start inside retracted subtrees
+        graph.groupNodes(new Node[]{nodes[10], nodes[11], nodes[12], nodes[13]});
+        graph.groupNodes(new Node[]{nodes[50], nodes[51]});
+    }
+
+    @Test
+    public void testNodeRanges() {
+        Set<Node> expected = new HashSet<Node>();
+        for (Node n : graph.getNodes()) {
+            expected.add(n);
+        }
+        for (int count : new int[]{1, 3, 7, 200}) {
+            graph.readLock();
+            NodeIterable[] ranges = graph.getNodeRanges(count);
+            assertEquals(count, ranges.length);
+            Set<Node> actual = new HashSet<Node>();
+            int total = 0;
+            for (NodeIterable range : ranges) {
+                for (Node n : range) {
+                    actual.add(n);
+                    total++;
+                }
+            }
+            graph.readUnlock();
+            assertEquals(expected.size(), total);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testEdgeRanges() {
+        assertEdgeRanges(graph);
+        assertEdgeRanges(undirectedGraph);
+    }
+
+    private void assertEdgeRanges(HierarchicalGraphImpl g) {
+        Set<Edge> expected = new HashSet<Edge>();
+        for (Edge e : g.getEdges()) {
+            expected.add(e);
+        }
+        g.readLock();
+        EdgeIterable[] ranges = g.getEdgeRanges(5);
+        Set<Edge> actual = new HashSet<Edge>();
+        int total = 0;
+        for (EdgeIterable range : ranges) {
+            for (Edge e : range) {
+                actual.add(e);
+                total++;
+            }
+        }
+        g.readUnlock();
+        assertEquals(expected.size(), total);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testLockRequired() {
+        try {
+            graph.getNodeRanges(2);
+            fail();
+        } catch (IllegalMonitorStateException e) {
+        }
+        graph.writeLock();
+        assertEquals(2, graph.getEdgeRanges(2).length);
+        graph.writeUnlock();
+    }
+
+    @Test
+    public void testToArray() {
+        Node[] nodes = graph.getNodes().toArray();
+        assertEquals(graph.getNodeCount(), nodes.length);
+        for (Node n : nodes) {
+            assertNotNull(n);
+        }
+        Edge[] edges = graph.getEdges().toArray();
+        assertEquals(graph.getEdgeCount(), edges.length);
+        Edge[] undirectedEdges = undirectedGraph.getEdges().toArray();
+        assertEquals(undirectedGraph.getEdgeCount(), undirectedEdges.length);
+        assertTrue(undirectedEdges.length < edges.length);
+        for (Edge e : undirectedEdges) {
+            assertNotNull(e);
+        }
+    }
+}
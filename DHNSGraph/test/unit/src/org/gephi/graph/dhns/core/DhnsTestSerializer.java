@@ -41,6 +41,11 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.dhns.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import javax.xml.stream.Location;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLReporter;
@@ -57,7 +62,9 @@ import org.gephi.graph.dhns.DhnsGraphController;
 import org.gephi.graph.dhns.edge.AbstractEdge;
 import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
 import org.gephi.graph.dhns.node.AbstractNode;
+import org.gephi.graph.dhns.node.NodeDataImpl;
 import org.gephi.graph.dhns.utils.DHNSSerializer;
+import org.gephi.graph.dhns.utils.DataSerializer;
 import org.gephi.project.api.ProjectController;
 import org.gephi.project.api.Workspace;
 import org.junit.After;
@@ -176,6 +183,50 @@ public class DhnsTestSerializer {
         }
     }
 
+    @Test
+    public void testDhnsBinarySerializer() throws Exception {
+        nodeMap2.get("Node 3").getNodeData().setX(12.5f);
+        nodeMap2.get("Node 3").getNodeData().setColor(0.2f, 0.4f, 0.6f);
+        dhns2.getGraphStructure().setNodeId((NodeDataImpl) nodeMap2.get("Node 8").getNodeData(), "n8");
+        assertBinaryRoundTrip(dhns2);
+
+        //Hierarchy with an expanded node
+        graph1.expand(graph1.getNode(1));
+        assertBinaryRoundTrip(dhns1);
+    }
+
+    private void assertBinaryRoundTrip(Dhns source) throws XMLStreamException, IOException {
+        DHNSSerializer dhnsSerializer = new DHNSSerializer();
+        DataSerializer dataSerializer = new DataSerializer();
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        DataOutputStream outputStream = new DataOutputStream(byteStream);
+        dhnsSerializer.writeDhns(outputStream, source);
+        dataSerializer.writeData(outputStream, source);
+        outputStream.close();
+
+        ProjectController pc = Lookup.getDefault().lookup(ProjectController.class);
+        Workspace workspace = pc.newWorkspace(pc.getCurrentProject());
+        pc.openWorkspace(workspace);
+        Lookup.getDefault().lookup(AttributeController.class).getModel();
+        Dhns copy = new Dhns(new DhnsGraphController(), workspace);
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(byteStream.toByteArray()));
+        dhnsSerializer.readDhns(inputStream, copy);
+        dataSerializer.readData(inputStream, copy);
+        assertEquals(-1, inputStream.read());
+
+        StringWriter sourceWriter = new StringWriter();
+        XMLStreamWriter xmlWriter = createWriter(sourceWriter);
+        dhnsSerializer.writeDhns(xmlWriter, source);
+        dataSerializer.writeData(xmlWriter, source);
+        xmlWriter.flush();
+        StringWriter copyWriter = new StringWriter();
+        xmlWriter = createWriter(copyWriter);
+        dhnsSerializer.writeDhns(xmlWriter, copy);
+        dataSerializer.writeData(xmlWriter, copy);
+        xmlWriter.flush();
+        assertEquals(sourceWriter.toString(), copyWriter.toString());
+    }
+
     private XMLStreamWriter createWriter(StringWriter stringWriter) {
         XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
         outputFactory.setProperty("javax.xml.stream.isRepairingNamespaces", Boolean.FALSE);
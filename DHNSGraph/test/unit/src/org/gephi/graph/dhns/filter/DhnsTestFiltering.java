@@ -46,6 +46,7 @@ import java.util.Map;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.dhns.DhnsGraphController;
@@ -180,6 +181,43 @@ public class DhnsTestFiltering {
         }
     }
 
+    @Test
+    public void testCopyOnWriteView() {
+        Node node2 = nodeMap.get("Node 2");
+        Node node5 = nodeMap.get("Node 5");
+        Node node6 = nodeMap.get("Node 6");
+        Edge edge25 = edgeMap.get("2-5");
+
+        HierarchicalDirectedGraph mainGraph = (HierarchicalDirectedGraph) graphGlobal;
+        GraphView newView = dhnsGlobal.newView();
+        HierarchicalDirectedGraph viewGraph = dhnsGlobal.getHierarchicalDirectedGraph(newView);
+        AbstractNode mainNode2 = (AbstractNode) node2;
+        AbstractNode viewNode2 = mainNode2.getInView(newView.getViewId());
+        assertTrue(viewNode2.getEdgesOutTree().isShared());
+        assertTrue(mainNode2.getEdgesOutTree().isShared());
+
+        //Modify the view, main is unchanged
+        viewGraph.removeEdge(edge25);
+        assertFalse(viewGraph.contains(edge25));
+        assertTrue(mainGraph.contains(edge25));
+        assertEquals(3, mainGraph.getOutDegree(node2));
+        assertEquals(2, viewGraph.getOutDegree(node2));
+        assertFalse(viewNode2.getEdgesOutTree().isShared());
+        assertEquals(3, mainGraph.getInDegree(node5));
+        assertEquals(2, viewGraph.getInDegree(node5));
+
+        //Modify main, view is unchanged
+        Edge edge62 = dhnsGlobal.factory().newEdge(node6, node2, 1f, true);
+        mainGraph.addEdge(edge62);
+        assertTrue(mainGraph.contains(edge62));
+        assertFalse(viewGraph.contains(edge62));
+        assertEquals(2, mainGraph.getOutDegree(node6));
+        assertEquals(1, viewGraph.getOutDegree(node6));
+        assertEquals(0, viewGraph.getInDegree(node2));
+        assertEquals(9, mainGraph.getEdgeCount());
+        assertEquals(7, viewGraph.getEdgeCount());
+    }
+
     @Test
     public void testFlatten() {
         Node[] nodeGroup = new Node[]{nodeMap.get("Node 1"), nodeMap.get("Node 2")};
@@ -0,0 +1,205 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.dhns.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.gephi.graph.api.AdjacencySnapshot;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.gephi.graph.dhns.graph.HierarchicalDirectedGraphImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Builds a small graph backed by mapped files and reads its structure, edges
+ * and adjacency snapshot back, then checks it refuses modifications.
+ */
+public class DhnsTestMappedGraph {
+
+    private File directory;
+    private Node[] nodes;
+    private HierarchicalDirectedGraphImpl expected;
+    private MappedGraph graph;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("mapped", "");
+        directory.delete();
+        directory.mkdir();
+
+        DhnsGraphController controller = new DhnsGraphController();
+        Dhns dhns = new Dhns(controller, null);
+        GraphFactoryImpl factory = dhns.factory();
+        expected = new HierarchicalDirectedGraphImpl(dhns, dhns.getGraphStructure().getMainView());
+
+        //Small segments so records are spread over many of them
+        MappedGraphBuilderImpl builder = new MappedGraphBuilderImpl(dhns, new MappedEdgeStore(directory, 6));
+        nodes = new Node[50];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode();
+            expected.addNode(nodes[i]);
+            assertEquals(i, builder.addNode(nodes[i]));
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            int source = random.nextInt(nodes.length);
+            int target = random.nextInt(nodes.length);
+            if (expected.getEdge(nodes[source], nodes[target]) == null) {
+                Edge edge = factory.newEdge(nodes[source], nodes[target], 1f + random.nextInt(5), true);
+                expected.addEdge(edge);
+                builder.addEdge(source, target, edge.getWeight(), true);
+            }
+        }
+        graph = (MappedGraph) builder.build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        graph.close();
+        directory.delete();
+    }
+
+    @Test
+    public void testStructure() {
+        assertEquals(expected.getNodeCount(), graph.getNodeCount());
+        assertEquals(expected.getEdgeCount(), graph.getEdgeCount());
+        for (Node n : nodes) {
+            assertEquals(expected.getOutDegree(n), graph.getOutDegree(n));
+            assertEquals(expected.getInDegree(n), graph.getInDegree(n));
+            assertEquals(expected.getDegree(n), graph.getDegree(n));
+            assertEquals(expected.getMutualDegree(n), graph.getMutualDegree(n));
+            assertEquals(toSet(expected.getSuccessors(n).toArray()), toSet(graph.getSuccessors(n).toArray()));
+            assertEquals(toSet(expected.getPredecessors(n).toArray()), toSet(graph.getPredecessors(n).toArray()));
+            assertEquals(toSet(expected.getNeighbors(n).toArray()), toSet(graph.getNeighbors(n).toArray()));
+            assertEquals(expected.getEdges(n).toArray().length, graph.getEdges(n).toArray().length);
+            for (Node m : nodes) {
+                Edge expectedEdge = expected.getEdge(n, m);
+                Edge edge = graph.getEdge(n, m);
+                if (expectedEdge == null) {
+                    assertNull(edge);
+                    assertFalse(graph.isSuccessor(n, m));
+                } else {
+                    assertSame(n, edge.getSource());
+                    assertSame(m, edge.getTarget());
+                    assertEquals(expectedEdge.getWeight(), edge.getWeight(), 0f);
+                    assertTrue(graph.isSuccessor(n, m));
+                    assertTrue(graph.isPredecessor(m, n));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEdges() {
+        Set<Edge> edges = new HashSet<Edge>();
+        for (Edge e : graph.getEdges()) {
+            assertTrue(graph.contains(e));
+            assertEquals(e, graph.getEdge(e.getId()));
+            edges.add(e);
+        }
+        assertEquals(graph.getEdgeCount(), edges.size());
+
+        Set<Edge> ranges = new HashSet<Edge>();
+        for (EdgeIterable range : graph.getEdgeRanges(3)) {
+            for (Edge e : range) {
+                ranges.add(e);
+            }
+        }
+        assertEquals(edges, ranges);
+
+        Edge edge = edges.iterator().next();
+        int version = graph.getEdgeVersion();
+        edge.setWeight(42f);
+        assertEquals(42f, graph.getEdge(edge.getId()).getWeight(), 0f);
+        assertTrue(graph.getEdgeVersion() != version);
+    }
+
+    @Test
+    public void testAdjacencySnapshot() {
+        AdjacencySnapshot snapshot = graph.getAdjacencySnapshot();
+        AdjacencySnapshot expectedSnapshot = expected.getAdjacencySnapshot();
+        assertEquals(expectedSnapshot.getOutEntriesCount(), snapshot.getOutEntriesCount());
+        for (Node n : nodes) {
+            int i = snapshot.getIndex(n);
+            int j = expectedSnapshot.getIndex(n);
+            assertSame(n, snapshot.getNode(i));
+            assertEquals(expectedSnapshot.getOutOffsets()[j + 1] - expectedSnapshot.getOutOffsets()[j], snapshot.getOutOffsets()[i + 1] - snapshot.getOutOffsets()[i]);
+            assertEquals(expectedSnapshot.getInOffsets()[j + 1] - expectedSnapshot.getInOffsets()[j], snapshot.getInOffsets()[i + 1] - snapshot.getInOffsets()[i]);
+            float sum = 0f;
+            for (int k = snapshot.getInOffsets()[i]; k < snapshot.getInOffsets()[i + 1]; k++) {
+                Node source = snapshot.getNode(snapshot.getInNeighbors()[k]);
+                assertEquals(graph.getEdge(source, n).getWeight(), snapshot.getInWeights()[k], 0f);
+                sum += snapshot.getInWeights()[k];
+            }
+            float expectedSum = 0f;
+            for (Edge e : expected.getInEdges(n)) {
+                expectedSum += e.getWeight();
+            }
+            assertEquals(expectedSum, sum, 0.0001f);
+        }
+        assertSame(snapshot, graph.getAdjacencySnapshot());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        graph.removeNode(nodes[0]);
+    }
+
+    private static Set<Node> toSet(Node[] array) {
+        Set<Node> set = new HashSet<Node>();
+        for (Node n : array) {
+            set.add(n);
+        }
+        assertEquals(array.length, set.size());
+        return set;
+    }
+}
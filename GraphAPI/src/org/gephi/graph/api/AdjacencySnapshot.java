@@ -0,0 +1,161 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.api;
+
+/**
+ * Immutable compact adjacency of a graph, in the <b>Compressed Sparse Row</b>
+ * (CSR) format. Nodes of the graph are given a dense index between
+ * <code>0</code> and <code>getNodeCount() - 1</code> and neighbors of the
+ * node at index <code>i</code> are stored in the neighbors array between
+ * <code>offsets[i]</code> (inclusive) and <code>offsets[i + 1]</code> (exclusive).
+ * <p>
+ * The snapshot is built from the graph it has been obtained from, and follows the
+ * same semantic:
+ * <ul><li>For <b>directed</b> graphs, outgoing and incoming adjacency are
+ * different.</li>
+ * <li>For <b>undirected</b> graphs, outgoing and incoming adjacency are the
+ * same arrays, mutual edges are present only once.</li>
+ * <li>For <b>mixed</b> graphs, undirected edges are present in both directions.</li>
+ * <li>For <b>hierarchical</b> graphs, only nodes in the view are present and
+ * meta-edges are included.</li></ul>
+ * <p>
+ * Snapshots are cached by the graph model and shared between callers, the
+ * returned arrays should therefore <b>never be modified</b>. A snapshot is
+ * valid as long as the graph node and edge version are the same as in
+ * <code>getNodeVersion()</code> and <code>getEdgeVersion()</code>.
+ * <h3>Iterate over neighbors</h3>
+ * <pre>
+ * AdjacencySnapshot snapshot = graph.getAdjacencySnapshot();
+ * int[] offsets = snapshot.getOutOffsets();
+ * int[] neighbors = snapshot.getOutNeighbors();
+ * for (int i = 0; i &lt; snapshot.getNodeCount(); i++) {
+ *     for (int j = offsets[i]; j &lt; offsets[i + 1]; j++) {
+ *         int neighbor = neighbors[j];
+ *     }
+ * }
+ * </pre>
+ * @see HierarchicalGraph#getAdjacencySnapshot()
+ */
+public interface AdjacencySnapshot {
+
+    /**
+     * Returns the number of nodes in the snapshot.
+     * @return the number of nodes
+     */
+    public int getNodeCount();
+
+    /**
+     * Returns the number of entries in the outgoing adjacency, which is the
+     * length of <code>getOutNeighbors()</code>.
+     * @return the number of outgoing adjacency entries
+     */
+    public int getOutEntriesCount();
+
+    /**
+     * Returns the node at <code>index</code>.
+     * @param index the dense index, between <code>0</code> and
+     * <code>getNodeCount() - 1</code>
+     * @return the node at <code>index</code>
+     */
+    public Node getNode(int index);
+
+    /**
+     * Returns the dense index of <code>node</code> or <code>-1</code> if the
+     * node is not in the snapshot.
+     * @param node the node whose index is to be returned
+     * @return the index of <code>node</code> or <code>-1</code> if not found
+     */
+    public int getIndex(Node node);
+
+    /**
+     * Returns the outgoing offsets array, of length <code>getNodeCount() + 1</code>.
+     * @return the outgoing offsets
+     */
+    public int[] getOutOffsets();
+
+    /**
+     * Returns the outgoing neighbors array. Values are dense node indices.
+     * @return the outgoing neighbors
+     */
+    public int[] getOutNeighbors();
+
+    /**
+     * Returns the outgoing weights array, aligned with <code>getOutNeighbors()</code>.
+     * @return the outgoing edges weight
+     */
+    public float[] getOutWeights();
+
+    /**
+     * Returns the incoming offsets array, of length <code>getNodeCount() + 1</code>.
+     * For undirected graphs, returns the same array as <code>getOutOffsets()</code>.
+     * @return the incoming offsets
+     */
+    public int[] getInOffsets();
+
+    /**
+     * Returns the incoming neighbors array. Values are dense node indices.
+     * For undirected graphs, returns the same array as <code>getOutNeighbors()</code>.
+     * @return the incoming neighbors
+     */
+    public int[] getInNeighbors();
+
+    /**
+     * Returns the incoming weights array, aligned with <code>getInNeighbors()</code>.
+     * For undirected graphs, returns the same array as <code>getOutWeights()</code>.
+     * @return the incoming edges weight
+     */
+    public float[] getInWeights();
+
+    /**
+     * Returns the graph node version this snapshot has been built from.
+     * @return the node version of the snapshot
+     * @see Graph#getNodeVersion()
+     */
+    public int getNodeVersion();
+
+    /**
+     * Returns the graph edge version this snapshot has been built from.
+     * @return the edge version of the snapshot
+     * @see Graph#getEdgeVersion()
+     */
+    public int getEdgeVersion();
+}
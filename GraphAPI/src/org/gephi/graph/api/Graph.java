@@ -98,6 +98,27 @@ public interface Graph extends Attributable {
      */
     public boolean addNode(Node node);
 
+    /**
+     * Add <code>nodes</code> and then <code>edges</code> to the graph in a single
+     * operation. The write lock is acquired only once, the graph version is
+     * incremented once and listeners receive a single
+     * <code>ADD_NODES_AND_EDGES</code> event containing all added elements. This
+     * is much faster than repeated calls to <code>addNode()</code> and
+     * <code>addEdge()</code> when loading large graphs.
+     * <p>
+     * Nodes already in the graph and edges rejected by the rules of
+     * <code>addEdge()</code> are skipped. Edges may refer to nodes of the
+     * <code>nodes</code> array.
+     * @param nodes the nodes to add, or <code>null</code>
+     * @param edges the edges to add, or <code>null</code>
+     * @return the number of nodes and edges actually added
+     * @throws IllegalArgumentException if an element is <code>null</code>, or
+     * if an edge is not legal for this graph, as for <code>addEdge()</code>.
+     * Elements preceding the illegal one remain added.
+     * @throws IllegalMonitorStateException if the current thread is holding a read lock
+     */
+    public int bulkLoad(Node[] nodes, Edge[] edges);
+
     /**
      * Remove <code>edge</code> from the graph.
      * Fails if the edge doesn't exist.
@@ -164,6 +185,18 @@ public interface Graph extends Attributable {
      */
     public Node getNode(String id);
 
+    /**
+     * Returns the nodes with identifiers equal to <code>ids</code>, in the same
+     * order. Elements are <code>null</code> where no node is found. This is
+     * faster than calling <code>getNode(String)</code> for each identifier, and
+     * several threads can resolve identifiers at the same time.
+     * <p>
+     * Nodes must be present in the view this graph is from.
+     * @param ids the string identifiers, may contain <code>null</code>
+     * @return the nodes found, with the same length as <code>ids</code>
+     */
+    public Node[] getNodes(String[] ids);
+
     /**
      * Returns the edge with identifier equals to <code>id</code>. If not found,
      * returns <code>null</code>. This id is generated and can be found in
@@ -214,6 +247,33 @@ public interface Graph extends Attributable {
      */
     public EdgeIterable getEdges();
 
+    /**
+     * Splits nodes returned by <code>getNodes()</code> in <code>count</code>
+     * disjoint ranges, for instance to process them in parallel with an
+     * <code>ExecutorService</code>. Together the ranges contain exactly the
+     * nodes of <code>getNodes()</code>, some ranges may be empty.
+     * <p>
+     * Ranges don't lock the graph. The caller must hold <code>readLock()</code>
+     * from the creation of the ranges until all threads have finished iterating.
+     * @param count the number of ranges, at least 1
+     * @return <code>count</code> node iterables
+     * @throws IllegalMonitorStateException if the current thread doesn't hold the graph lock
+     */
+    public NodeIterable[] getNodeRanges(int count);
+
+    /**
+     * Splits edges returned by <code>getEdges()</code> in <code>count</code>
+     * disjoint ranges, grouped by source node. Together the ranges contain
+     * exactly the edges of <code>getEdges()</code>, some ranges may be empty.
+     * <p>
+     * Ranges don't lock the graph. The caller must hold <code>readLock()</code>
+     * from the creation of the ranges until all threads have finished iterating.
+     * @param count the number of ranges, at least 1
+     * @return <code>count</code> edge iterables
+     * @throws IllegalMonitorStateException if the current thread doesn't hold the graph lock
+     */
+    public EdgeIterable[] getEdgeRanges(int count);
+
     /**
      * Returns neighbors of <code>node</code>. Neighbors are nodes connected to
      * <code>node</code> with any edge of the graph. Neighbors exclude <code>node</code> itself,
@@ -418,6 +478,37 @@ public interface Graph extends Attributable {
      */
     public void writeUnlock();
 
+    /**
+     * Starts an optimistic read and returns a stamp to be checked later with
+     * <code>validate()</code>. No lock is acquired, so writers are never blocked.
+     * Returns <code>0</code> if the graph is currently write locked, in which case
+     * the caller should fall back to <code>readLock()</code>.
+     * <p>
+     * Optimistic reads are meant for short reads of simple values, like node
+     * positions, colors or counts. Iterating over the structure without a read
+     * lock is not safe. Typical usage:
+     * <pre>
+     * long stamp = graph.tryOptimisticRead();
+     * float x = node.getNodeData().x();
+     * if (!graph.validate(stamp)) {
+     *     graph.readLock();
+     *     x = node.getNodeData().x();
+     *     graph.readUnlock();
+     * }
+     * </pre>
+     * @return a non-zero stamp, or <code>0</code> if the graph is write locked
+     */
+    public long tryOptimisticRead();
+
+    /**
+     * Returns <code>true</code> if the graph has not been write locked since
+     * <code>stamp</code> was returned by <code>tryOptimisticRead()</code>.
+     * Always returns <code>false</code> for a zero stamp.
+     * @param stamp a stamp returned by <code>tryOptimisticRead()</code>
+     * @return <code>true</code> if values read since the stamp was issued are consistent
+     */
+    public boolean validate(long stamp);
+
     /**
      * Returns the graph model this graph belongs to.
      * @return the graph model this graph belongs to.
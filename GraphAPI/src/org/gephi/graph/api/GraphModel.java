@@ -41,6 +41,8 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.graph.api;
 
+import java.io.File;
+import java.io.IOException;
 import org.gephi.project.api.Workspace;
 
 /**
@@ -346,6 +348,19 @@ public interface GraphModel {
      */
     public void addGraphListener(GraphListener graphListener);
 
+    /**
+     * Add <code>graphListener</code> as a listener to this graph, receiving only
+     * events of <code>view</code> and of the given types. If the listener is
+     * already added, its filter is replaced.
+     * <p>
+     * Events are coalesced before delivery: a listener receives at most one
+     * event per view and type for each batch of modifications.
+     * @param graphListener the listener to add
+     * @param view          the view to listen, or <code>null</code> for all views
+     * @param types         the event types to receive, or none for all types
+     */
+    public void addGraphListener(GraphListener graphListener, GraphView view, GraphEvent.EventType... types);
+
     /**
      * Remove <code>graphListener</code> as a listener to this graph.
      * @param graphListener the listener to remove
@@ -386,6 +401,24 @@ public interface GraphModel {
      */
     public boolean isHierarchical();
 
+    /**
+     * Returns the column storage of node positions, colors and sizes, for
+     * bulk access to node data of this model.
+     * @return the node data store of this model
+     */
+    public NodeDataStore getNodeDataStore();
+
+    /**
+     * Creates a builder for a read-only directed graph which edges are stored
+     * in memory-mapped files in <code>directory</code>, for graphs with more
+     * edges than the heap can hold. The graph is independent from the views
+     * of this model, nodes should be created with <code>factory()</code>.
+     * @param directory an existing directory where edge files are created
+     * @return a new mapped graph builder
+     * @throws IOException if files can't be created in <code>directory</code>
+     */
+    public MappedGraphBuilder newMappedGraphBuilder(File directory) throws IOException;
+
     /**
      * Returns the workspace this graph model belongs to.
      * @return the workspace that owns this graph model
@@ -76,6 +76,25 @@ public interface HierarchicalGraph extends Graph {
      */
     public boolean addNode(Node node, Node parent);
 
+    /**
+     * Add <code>nodes</code> as children of <code>parents</code> and then
+     * <code>edges</code> to the graph in a single operation. The node at index
+     * <code>i</code> is added as a child of <code>parents[i]</code>, or of the
+     * (virtual) root node if it is <code>null</code>. Parents must already be in
+     * the graph or precede their children in <code>nodes</code>.
+     * @param nodes the nodes to add, or <code>null</code>
+     * @param parents the parents of <code>nodes</code>, or <code>null</code>
+     * to add all nodes at the root
+     * @param edges the edges to add, or <code>null</code>
+     * @return the number of nodes and edges actually added
+     * @throws IllegalArgumentException if <code>parents</code> and <code>nodes</code>
+     * lengths differ, if a parent is not legal in the graph or for the same
+     * reasons as <code>Graph.bulkLoad()</code>
+     * @throws IllegalMonitorStateException if the current thread is holding a read lock
+     * @see Graph#bulkLoad(org.gephi.graph.api.Node[], org.gephi.graph.api.Edge[])
+     */
+    public int bulkLoad(Node[] nodes, Node[] parents, Edge[] edges);
+
     /**
      * Remove <code>metaEdge</code> from the graph. Fails if the edge doesn't exist.
      * @param metaEdge  the meta edge that is to be removed
@@ -328,6 +347,30 @@ public interface HierarchicalGraph extends Graph {
      */
     public void ungroupNodes(Node nodeGroup);
 
+    /**
+     * Group each array of <code>groups</code> into a new node group, like
+     * <code>groupNodes(Node[])</code> but under a single lock and with a single
+     * version increment and event for the whole batch. A node can't be in two groups.
+     * @param groups the arrays of nodes to be grouped, each one becomes a group
+     * @return the newly created groups, in the same order as <code>groups</code>
+     * @throws IllegalArgumentException if <code>groups</code> or one of its arrays is <code>null</code> or empty,
+     * or if content nodes are not legal in the graph or appear in several groups,
+     * or if nodes' parent is not similar between elements of an array
+     * @throws IllegalMonitorStateException if the current thread is holding a read lock
+     */
+    public Node[] groupNodes(Node[][] groups);
+
+    /**
+     * Ungroup each node group in <code>nodeGroups</code>, like
+     * <code>ungroupNodes(Node)</code> but under a single lock and with a single
+     * version increment and event for the whole batch.
+     * @param nodeGroups the parent nodes of nodes to be ungrouped
+     * @throws IllegalArgumentException if <code>nodeGroups</code> is <code>null</code>,
+     * or if a group is <code>null</code>, empty, not legal in the graph or present several times
+     * @throws IllegalMonitorStateException if the current thread is holding a read lock
+     */
+    public void ungroupNodes(Node[] nodeGroups);
+
     /**
      * Flatten the hierarchy by keeping only nodes in the view and by transforming meta edges into edges. All nodes not in the
      * view are removed from the graph. New edges are created from meta edges, with same attributes and weight.
@@ -495,4 +538,17 @@ public interface HierarchicalGraph extends Graph {
      * @throws IllegalMonitorStateException if the current thread is holding a read lock
      */
     public void clearMetaEdges(Node node);
+
+    /**
+     * Returns the adjacency of the nodes in the view as an immutable
+     * {@link AdjacencySnapshot}, with primitive arrays indexed by a dense node
+     * index. The snapshot contains edges and meta edges and follows the
+     * semantic of this graph type (directed, undirected or mixed).
+     * <p>
+     * The snapshot is built once per node and edge version and cached until
+     * the graph structure changes. It is well suited for algorithms iterating
+     * many times over the structure, like statistics.
+     * @return the adjacency snapshot of the graph
+     */
+    public AdjacencySnapshot getAdjacencySnapshot();
 }
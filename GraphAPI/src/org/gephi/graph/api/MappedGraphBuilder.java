@@ -0,0 +1,127 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.api;
+
+import java.io.IOException;
+
+/**
+ * Builds a read-only directed graph which edges are stored outside the heap,
+ * in memory-mapped files. Meant for the analysis of graphs too large to fit
+ * in memory as regular edges, nodes are still kept on the heap.
+ * <p>
+ * Nodes are created with the graph model factory and added first, edges are
+ * then appended with the node indices returned by <code>addNode()</code>.
+ * Once <code>build()</code> has been called, edges are sorted by source and
+ * target in the mapped files and the builder can't be used anymore.
+ * <p>
+ * The returned graph supports all read methods of
+ * <code>HierarchicalDirectedGraph</code> on a flat hierarchy. Edges are
+ * flyweights created on demand, they have no attributes and only their weight
+ * can be modified. Methods that modify the structure throw
+ * <code>UnsupportedOperationException</code>.
+ * <h3>Load a graph</h3>
+ * <pre>
+ * MappedGraphBuilder builder = graphModel.newMappedGraphBuilder(directory);
+ * for (int i = 0; i &lt; nodeCount; i++) {
+ *     builder.addNode(graphModel.factory().newNode());
+ * }
+ * for (...) {
+ *     builder.addEdge(source, target, 1f, true);
+ * }
+ * HierarchicalDirectedGraph graph = builder.build();
+ * </pre>
+ * @see GraphModel#newMappedGraphBuilder(java.io.File)
+ */
+public interface MappedGraphBuilder {
+
+    /**
+     * Adds <code>node</code> and returns its index. If the node has already
+     * been added, returns its existing index.
+     * @param node a node created by the graph model factory
+     * @return the index of <code>node</code>, used to add edges
+     */
+    public int addNode(Node node);
+
+    /**
+     * Appends an edge between nodes at <code>source</code> and
+     * <code>target</code> indices. Parallel edges are not checked.
+     * @param source the index of the source node
+     * @param target the index of the target node
+     * @param weight the weight of the edge
+     * @param directed <code>true</code> if the edge is directed
+     * @throws IOException if the edge file can't be extended
+     * @throws IllegalArgumentException if an index is not a node index
+     */
+    public void addEdge(int source, int target, float weight, boolean directed) throws IOException;
+
+    /**
+     * Appends an edge between <code>source</code> and <code>target</code>,
+     * which must have been added before.
+     * @param source the source node
+     * @param target the target node
+     * @param weight the weight of the edge
+     * @param directed <code>true</code> if the edge is directed
+     * @throws IOException if the edge file can't be extended
+     * @throws IllegalArgumentException if a node has not been added
+     */
+    public void addEdge(Node source, Node target, float weight, boolean directed) throws IOException;
+
+    /**
+     * Returns the number of nodes added so far.
+     * @return the node count
+     */
+    public int getNodeCount();
+
+    /**
+     * Returns the number of edges added so far.
+     * @return the edge count
+     */
+    public int getEdgeCount();
+
+    /**
+     * Sorts edges in the mapped files and returns the graph. The builder
+     * can't be used once this method has been called.
+     * @return a read-only graph backed by the mapped files
+     * @throws IOException if the mapped files can't be written
+     */
+    public HierarchicalDirectedGraph build() throws IOException;
+}
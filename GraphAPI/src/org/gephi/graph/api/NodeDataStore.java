@@ -0,0 +1,157 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.graph.api;
+
+/**
+ * Column storage of node positions, colors and sizes, for bulk access by
+ * layouts and renderers. Node data of a graph model are flyweights over this
+ * store: each one owns a slot and reads and writes its values in the columns.
+ * <p>
+ * Columns are split in blocks of <code>getBlockSize()</code> slots, which are
+ * never moved or resized once created, so arrays can be kept while nodes are
+ * added. The slot at <code>index</code> is at position
+ * <code>index % getBlockSize()</code> in block <code>index / getBlockSize()</code>.
+ * Some slots are free, in that case <code>getNodeData(index)</code> returns
+ * <code>null</code> and values should be ignored.
+ * <p>
+ * Writing positions in arrays bypasses <code>NodeData.setX()</code>, so
+ * <code>commitPositions()</code> must be called once writing is done.
+ * <p>
+ * Graph models duplicated in another workspace share their blocks with the
+ * copy until either side writes in them, at which point the block is copied.
+ * Column getters always return the arrays of a private block, but arrays got
+ * before the model was duplicated should be got again.
+ * <h3>Move all nodes</h3>
+ * <pre>
+ * NodeDataStore store = graphModel.getNodeDataStore();
+ * for (int b = 0; b &lt; store.getBlockCount(); b++) {
+ *     float[] x = store.getX(b);
+ *     for (int i = 0; i &lt; x.length; i++) {
+ *         x[i] += 10f;
+ *     }
+ * }
+ * store.commitPositions();
+ * </pre>
+ * @see GraphModel#getNodeDataStore()
+ */
+public interface NodeDataStore {
+
+    /**
+     * Returns the number of slots in each block, which is also the length of
+     * arrays returned by column getters.
+     * @return the block size
+     */
+    public int getBlockSize();
+
+    /**
+     * Returns the number of blocks currently allocated.
+     * @return the number of blocks
+     */
+    public int getBlockCount();
+
+    /**
+     * Returns the index after the highest slot ever used, slots above can be
+     * ignored.
+     * @return the upper bound of used slots
+     */
+    public int getSlotBound();
+
+    /**
+     * Returns the number of blocks which are currently shared with the store
+     * of another graph model, after the model has been duplicated.
+     * @return the number of shared blocks
+     */
+    public int getSharedBlockCount();
+
+    /**
+     * Returns the memory, in bytes, taken by columns of blocks which are not
+     * shared with another store. Memory of shared blocks is not counted, nor
+     * the memory of nodes, edges and attribute rows.
+     * @return the memory of private columns, in bytes
+     */
+    public long getPrivateMemory();
+
+    /**
+     * Returns the slot index of <code>nodeData</code> or <code>-1</code> if it
+     * doesn't belong to this store.
+     * @param nodeData the node data whose slot is to be returned
+     * @return the slot index or <code>-1</code> if not found
+     */
+    public int getIndex(NodeData nodeData);
+
+    /**
+     * Returns the node data owning the slot at <code>index</code> or
+     * <code>null</code> if the slot is free.
+     * @param index the slot index
+     * @return the node data at <code>index</code> or <code>null</code>
+     */
+    public NodeData getNodeData(int index);
+
+    public float[] getX(int block);
+
+    public float[] getY(int block);
+
+    public float[] getZ(int block);
+
+    public float[] getR(int block);
+
+    public float[] getG(int block);
+
+    public float[] getB(int block);
+
+    public float[] getAlpha(int block);
+
+    public float[] getSize(int block);
+
+    /**
+     * Returns <code>true</code> if the node at <code>index</code> is fixed and
+     * shouldn't be moved by layouts.
+     * @param index the slot index
+     * @return <code>true</code> if the node is fixed
+     */
+    public boolean isFixed(int index);
+
+    /**
+     * Notifies renderers that positions have been written directly in arrays.
+     */
+    public void commitPositions();
+}
@@ -41,10 +41,19 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.layout;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.gephi.graph.api.GraphController;
+import org.gephi.graph.api.GraphModel;
 import org.gephi.layout.spi.Layout;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.gephi.layout.spi.WorkingSetLayout;
+import org.gephi.layout.api.LayoutCheckpoint;
 import org.gephi.layout.api.LayoutController;
 import org.gephi.layout.api.LayoutModel;
+import org.gephi.layout.api.LayoutMonitor;
 import org.gephi.project.api.ProjectController;
 import org.gephi.utils.longtask.spi.LongTask;
 import org.gephi.utils.progress.ProgressTicket;
@@ -64,6 +73,12 @@ public class LayoutControllerImpl implements LayoutController {
 
     private LayoutModelImpl model;
     private LayoutRun layoutRun;
+    private int publishRate = LayoutWorkingSet.DEFAULT_PUBLISH_RATE;
+    private double convergenceThreshold = 0;
+    private long timeBudget = 0;
+    private File checkpointFile;
+    private int checkpointInterval;
+    private volatile LayoutMonitor monitor;
 
     public LayoutControllerImpl() {
         Lookup.getDefault().lookup(ProjectController.class).addWorkspaceListener(new WorkspaceListener() {
@@ -152,43 +167,165 @@ public class LayoutControllerImpl implements LayoutController {
         model.getExecutor().cancel();
     }
 
-    private static class LayoutRun implements LongTask, Runnable {
+    public void setPublishRate(int publishRate) {
+        if (publishRate < 0) {
+            throw new IllegalArgumentException("The publish rate can't be negative");
+        }
+        this.publishRate = publishRate;
+    }
+
+    public int getPublishRate() {
+        return publishRate;
+    }
+
+    public void setConvergenceThreshold(double convergenceThreshold) {
+        if (convergenceThreshold < 0) {
+            throw new IllegalArgumentException("The convergence threshold can't be negative");
+        }
+        this.convergenceThreshold = convergenceThreshold;
+    }
+
+    public double getConvergenceThreshold() {
+        return convergenceThreshold;
+    }
+
+    public void setTimeBudget(long timeBudget) {
+        if (timeBudget < 0) {
+            throw new IllegalArgumentException("The time budget can't be negative");
+        }
+        this.timeBudget = timeBudget;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    public void setCheckpoint(File file, int interval) {
+        if (file != null && interval < 1) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive");
+        }
+        this.checkpointFile = file;
+        this.checkpointInterval = file != null ? interval : 0;
+    }
+
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public int restoreCheckpoint(File file) throws IOException {
+        GraphController graphController = Lookup.getDefault().lookup(GraphController.class);
+        return LayoutCheckpoint.read(graphController.getModel().getHierarchicalGraphVisible(), file);
+    }
+
+    public LayoutMonitor getMonitor() {
+        return monitor;
+    }
+
+    private class LayoutRun implements LongTask, Runnable {
 
         private final Layout layout;
         private boolean stopRun = false;
         private ProgressTicket progressTicket;
         private final Integer iterations;
+        private final File checkpoint;
+        private final int checkpointEvery;
+        private final GraphModel graphModel;
+        private final LayoutMonitor runMonitor;
+        private long lastReport;
 
         public LayoutRun(Layout layout) {
-            this.layout = layout;
-            this.iterations = null;
+            this(layout, null);
         }
 
         public LayoutRun(Layout layout, int numIterations) {
+            this(layout, Integer.valueOf(numIterations));
+        }
+
+        private LayoutRun(Layout layout, Integer numIterations) {
             this.layout = layout;
             this.iterations = numIterations;
+            this.checkpoint = checkpointFile;
+            this.checkpointEvery = checkpointInterval;
+            //The graph the layout was injected with, the workspace may change while running
+            this.graphModel = Lookup.getDefault().lookup(GraphController.class).getModel();
+            this.runMonitor = new LayoutMonitor(layout, convergenceThreshold, timeBudget);
         }
 
         public void run() {
             Progress.setDisplayName(progressTicket, layout.getBuilder().getName());
             Progress.start(progressTicket);
+            monitor = runMonitor;
             layout.initAlgo();
+            runMonitor.start();
+            lastReport = System.currentTimeMillis();
             long i = 0;
             while (layout.canAlgo() && !stopRun) {
                 layout.goAlgo();
+                publish(false);
                 i++;
-                if (iterations != null && iterations.longValue() == i) {
+                boolean stop = runMonitor.iterate();
+                if (checkpoint != null && i % checkpointEvery == 0) {
+                    checkpoint();
+                }
+                report();
+                if (stop || (iterations != null && iterations.longValue() == i)) {
                     break;
                 }
             }
+            publish(true);
             layout.endAlgo();
-            if (i > 1) {
-                Progress.finish(progressTicket, NbBundle.getMessage(LayoutControllerImpl.class, "LayoutRun.end", layout.getBuilder().getName(), i));
+            String name = layout.getBuilder().getName();
+            if (runMonitor.isConverged()) {
+                Progress.finish(progressTicket, NbBundle.getMessage(LayoutControllerImpl.class, "LayoutRun.converged", name, i));
+            } else if (runMonitor.isTimeBudgetSpent()) {
+                Progress.finish(progressTicket, NbBundle.getMessage(LayoutControllerImpl.class, "LayoutRun.timeBudget", name, i));
+            } else if (i > 1) {
+                Progress.finish(progressTicket, NbBundle.getMessage(LayoutControllerImpl.class, "LayoutRun.end", name, i));
             } else {
                 Progress.finish(progressTicket);
             }
         }
 
+        private void checkpoint() {
+            publish(true);
+            if (graphModel != null) {
+                try {
+                    LayoutCheckpoint.write(graphModel.getHierarchicalGraphVisible(), checkpoint);
+                } catch (IOException ex) {
+                    Logger.getLogger(LayoutControllerImpl.class.getName()).log(Level.WARNING, "Can't write the layout checkpoint", ex);
+                }
+            }
+        }
+
+        /**
+         * Shows the iteration rate in the progress, once per second.
+         */
+        private void report() {
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= 1000) {
+                lastReport = now;
+                Progress.progress(progressTicket, NbBundle.getMessage(LayoutControllerImpl.class, "LayoutRun.rate", String.format("%.1f", runMonitor.getIterationRate())));
+            }
+        }
+
+        private void publish(boolean force) {
+            if (layout instanceof WorkingSetLayout) {
+                LayoutWorkingSet workingSet = ((WorkingSetLayout) layout).getWorkingSet();
+                if (workingSet != null) {
+                    if (force) {
+                        workingSet.publish();
+                    } else {
+                        workingSet.setPublishRate(publishRate);
+                        workingSet.publishIfDue();
+                    }
+                }
+            }
+        }
+
         public boolean cancel() {
             stopRun = true;
             return true;
@@ -0,0 +1,228 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+
+/**
+ * Saves and restores node positions, so a long layout run can be resumed
+ * after a crash. The file is a text file with one line per node: the node
+ * identifier, <code>x</code>, <code>y</code> and <code>z</code> separated by
+ * tabs. Backslashes and line breaks of identifiers are escaped. Nodes without
+ * identifier can't be found again and aren't saved.
+ * <p>
+ * The file is written in a temporary file first and then renamed. Where a
+ * rename can't replace a file, the previous checkpoint is renamed to a
+ * <code>.bak</code> file until the new one is in place, and is read instead
+ * if the checkpoint is missing.
+ */
+public class LayoutCheckpoint {
+
+    private static final String HEADER = "#Gephi layout checkpoint";
+    private static final String ENCODING = "UTF-8";
+
+    private LayoutCheckpoint() {
+    }
+
+    /**
+     * Writes positions of the nodes of <code>graph</code> in <code>file</code>.
+     * @param graph the graph whose positions are saved
+     * @param file the checkpoint file
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Graph graph, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), ENCODING));
+        try {
+            writer.write(HEADER);
+            writer.write('\n');
+            graph.readLock();
+            try {
+                for (Node node : graph.getNodes()) {
+                    NodeData nodeData = node.getNodeData();
+                    if (nodeData.getId() == null) {
+                        continue;
+                    }
+                    writer.write(escape(nodeData.getId()));
+                    writer.write('\t');
+                    writer.write(Float.toString(nodeData.x()));
+                    writer.write('\t');
+                    writer.write(Float.toString(nodeData.y()));
+                    writer.write('\t');
+                    writer.write(Float.toString(nodeData.z()));
+                    writer.write('\n');
+                }
+            } finally {
+                graph.readUnlock();
+            }
+        } finally {
+            writer.close();
+        }
+        if (!temp.renameTo(file)) {
+            //Can't replace an existing file on some platforms, keep the
+            //previous checkpoint aside until the new one is in place
+            File backup = getBackup(file);
+            if (backup.exists() && !backup.delete()) {
+                throw new IOException("Can't delete " + backup);
+            }
+            if (file.exists() && !file.renameTo(backup)) {
+                throw new IOException("Can't rename " + file + " to " + backup);
+            }
+            if (!temp.renameTo(file)) {
+                backup.renameTo(file);
+                throw new IOException("Can't rename " + temp + " to " + file);
+            }
+            backup.delete();
+        }
+    }
+
+    /**
+     * Restores positions saved in <code>file</code> to the nodes of
+     * <code>graph</code> with the same identifier. Other nodes are left
+     * unchanged.
+     * @param graph the graph whose positions are restored
+     * @param file the checkpoint file
+     * @return the number of nodes restored
+     * @throws IOException if the file can't be read or is not a checkpoint
+     */
+    public static int read(Graph graph, File file) throws IOException {
+        if (!file.exists() && getBackup(file).exists()) {
+            //Interrupted while replacing the checkpoint
+            file = getBackup(file);
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+        try {
+            String line = reader.readLine();
+            if (line == null || !line.equals(HEADER)) {
+                throw new IOException(file + " is not a layout checkpoint");
+            }
+            int restored = 0;
+            while ((line = reader.readLine()) != null) {
+                //The identifier may contain tabs, coordinates are the last fields
+                int zIndex = line.lastIndexOf('\t');
+                int yIndex = zIndex > 0 ? line.lastIndexOf('\t', zIndex - 1) : -1;
+                int xIndex = yIndex > 0 ? line.lastIndexOf('\t', yIndex - 1) : -1;
+                if (xIndex < 0) {
+                    throw new IOException("Invalid checkpoint line: " + line);
+                }
+                Node node = graph.getNode(unescape(line.substring(0, xIndex)));
+                if (node != null) {
+                    try {
+                        NodeData nodeData = node.getNodeData();
+                        nodeData.setX(Float.parseFloat(line.substring(xIndex + 1, yIndex)));
+                        nodeData.setY(Float.parseFloat(line.substring(yIndex + 1, zIndex)));
+                        nodeData.setZ(Float.parseFloat(line.substring(zIndex + 1)));
+                        restored++;
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid checkpoint line: " + line);
+                    }
+                }
+            }
+            return restored;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static File getBackup(File file) {
+        return new File(file.getPath() + ".bak");
+    }
+
+    private static String escape(String id) {
+        StringBuilder builder = new StringBuilder(id.length());
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String unescape(String id) throws IOException {
+        StringBuilder builder = new StringBuilder(id.length());
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c != '\\') {
+                builder.append(c);
+            } else if (++i < id.length()) {
+                switch (id.charAt(i)) {
+                    case '\\':
+                        builder.append('\\');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    default:
+                        throw new IOException("Invalid escape in checkpoint identifier: " + id);
+                }
+            } else {
+                throw new IOException("Invalid escape in checkpoint identifier: " + id);
+            }
+        }
+        return builder.toString();
+    }
+}
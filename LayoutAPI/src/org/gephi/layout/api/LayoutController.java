@@ -41,6 +41,8 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.layout.api;
 
+import java.io.File;
+import java.io.IOException;
 import org.gephi.layout.spi.Layout;
 import org.gephi.project.api.Workspace;
 
@@ -93,4 +95,92 @@ public interface LayoutController {
      * @return <code>true</code> if the layout can be stopped.
      */
     public boolean canStop();
+
+    /**
+     * Sets how many times per second positions computed by a
+     * {@link org.gephi.layout.spi.WorkingSetLayout} are copied back in the
+     * graph while it runs. They are always copied when the layout stops.
+     * @param publishRate the publish rate, in hertz, <code>0</code> to publish
+     * only when the layout stops
+     */
+    public void setPublishRate(int publishRate);
+
+    /**
+     * Returns how many times per second positions computed by a
+     * {@link org.gephi.layout.spi.WorkingSetLayout} are copied back in the
+     * graph while it runs.
+     * @return the publish rate, in hertz
+     */
+    public int getPublishRate();
+
+    /**
+     * Sets the displacement below which a running layout is considered
+     * converged and stopped. See {@link LayoutMonitor} for how convergence is
+     * measured.
+     * @param convergenceThreshold the relative displacement threshold,
+     * <code>0</code> to never stop on convergence
+     */
+    public void setConvergenceThreshold(double convergenceThreshold);
+
+    /**
+     * Returns the displacement below which a running layout is considered
+     * converged and stopped.
+     * @return the relative displacement threshold, <code>0</code> if the
+     * layout never stops on convergence
+     */
+    public double getConvergenceThreshold();
+
+    /**
+     * Sets the maximum duration of a layout execution, after which it is
+     * stopped.
+     * @param timeBudget the time budget, in milliseconds, <code>0</code> for
+     * no limit
+     */
+    public void setTimeBudget(long timeBudget);
+
+    /**
+     * Returns the maximum duration of a layout execution.
+     * @return the time budget, in milliseconds, <code>0</code> for no limit
+     */
+    public long getTimeBudget();
+
+    /**
+     * Sets the file node positions are saved in every <code>interval</code>
+     * iterations while a layout runs, to resume it with
+     * <code>restoreCheckpoint()</code> after a crash.
+     * @param file the checkpoint file, or <code>null</code> to disable
+     * checkpoints
+     * @param interval the number of iterations between two checkpoints
+     */
+    public void setCheckpoint(File file, int interval);
+
+    /**
+     * Returns the file node positions are saved in while a layout runs.
+     * @return the checkpoint file, or <code>null</code> if disabled
+     */
+    public File getCheckpointFile();
+
+    /**
+     * Returns the number of iterations between two checkpoints.
+     * @return the checkpoint interval
+     */
+    public int getCheckpointInterval();
+
+    /**
+     * Restores node positions saved in a checkpoint file to the current
+     * graph.
+     * @param file the checkpoint file
+     * @return the number of nodes restored
+     * @throws IOException if the file can't be read
+     */
+    public int restoreCheckpoint(File file) throws IOException;
+
+    /**
+     * Returns the monitor of the running layout, or of the last execution if
+     * no layout is running. It gives the iteration rate and the convergence
+     * of the layout.
+     * @return the layout monitor, or <code>null</code> if no layout has been
+     * executed
+     */
+    public LayoutMonitor getMonitor();
 }
@@ -0,0 +1,262 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.api;
+
+import org.gephi.layout.spi.ConvergentLayout;
+import org.gephi.layout.spi.Layout;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.gephi.layout.spi.WorkingSetLayout;
+
+/**
+ * Monitors a layout run: counts iterations, measures the iteration rate and
+ * the displacement of nodes, and tells when the run should stop because the
+ * layout converged or the time budget is spent.
+ * <p>
+ * The displacement is the one of {@link ConvergentLayout}, or measured on the
+ * working set of a {@link WorkingSetLayout}. The layout is considered
+ * converged when the displacement stays below the convergence threshold for
+ * <code>STABLE_ITERATIONS</code> consecutive iterations.
+ * <p>
+ * Call <code>start()</code> before the first iteration and
+ * <code>iterate()</code> after each. Getters can be called from any thread.
+ */
+public class LayoutMonitor {
+
+    public static final int STABLE_ITERATIONS = 10;
+    private static final long RATE_PERIOD = 1000000000L;
+    private final Layout layout;
+    private final double convergenceThreshold;
+    private final long timeBudget;
+    //Working set displacement
+    private LayoutWorkingSet workingSet;
+    private float[] previousX = new float[0];
+    private float[] previousY = new float[0];
+    private int previousCount = -1;
+    //State
+    private long startTime;
+    private long rateTime;
+    private long rateIterations;
+    private int stableIterations;
+    private volatile long iterations;
+    private volatile long elapsedTime;
+    private volatile double iterationRate;
+    private volatile double displacement = Double.NaN;
+    private volatile boolean converged;
+    private volatile boolean timeBudgetSpent;
+
+    /**
+     * Creates a monitor.
+     * @param layout the monitored layout
+     * @param convergenceThreshold the displacement below which the layout is
+     * considered converged, <code>0</code> to never stop on convergence
+     * @param timeBudget the maximum duration of the run, in milliseconds,
+     * <code>0</code> for no limit
+     */
+    public LayoutMonitor(Layout layout, double convergenceThreshold, long timeBudget) {
+        this.layout = layout;
+        this.convergenceThreshold = convergenceThreshold;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Starts monitoring, before the first iteration.
+     */
+    public void start() {
+        startTime = System.nanoTime();
+        rateTime = startTime;
+        rateIterations = 0;
+        stableIterations = 0;
+        iterations = 0;
+        elapsedTime = 0;
+        iterationRate = 0;
+        displacement = Double.NaN;
+        converged = false;
+        timeBudgetSpent = false;
+    }
+
+    /**
+     * Records an iteration of the layout, just done.
+     * @return <code>true</code> if the run should stop, because the layout
+     * converged or the time budget is spent
+     */
+    public boolean iterate() {
+        long now = System.nanoTime();
+        iterations++;
+        elapsedTime = (now - startTime) / 1000000L;
+        if (now - rateTime >= RATE_PERIOD) {
+            iterationRate = (iterations - rateIterations) * 1e9 / (now - rateTime);
+            rateTime = now;
+            rateIterations = iterations;
+        } else if (rateIterations == 0 && now > startTime) {
+            iterationRate = iterations * 1e9 / (now - startTime);
+        }
+
+        if (convergenceThreshold > 0) {
+            displacement = measureDisplacement();
+            if (displacement < convergenceThreshold) {
+                stableIterations++;
+                converged = stableIterations >= STABLE_ITERATIONS;
+            } else {
+                stableIterations = 0;
+            }
+        }
+        timeBudgetSpent = timeBudget > 0 && elapsedTime >= timeBudget;
+        return converged || timeBudgetSpent;
+    }
+
+    private double measureDisplacement() {
+        if (layout instanceof ConvergentLayout) {
+            return ((ConvergentLayout) layout).getDisplacement();
+        }
+        LayoutWorkingSet set = null;
+        if (layout instanceof WorkingSetLayout) {
+            set = ((WorkingSetLayout) layout).getWorkingSet();
+        }
+        if (set == null) {
+            return Double.NaN;
+        }
+
+        //Compare with the positions of the previous iteration, unless the
+        //working set has been reloaded
+        int count = set.getNodeCount();
+        float[] x = set.getX();
+        float[] y = set.getY();
+        double result = Double.NaN;
+        if (set == workingSet && count == previousCount) {
+            double sum = 0;
+            float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                double dx = x[i] - previousX[i];
+                double dy = y[i] - previousY[i];
+                sum += Math.sqrt(dx * dx + dy * dy);
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            result = getRelativeDisplacement(sum, count, minX, minY, maxX, maxY);
+        }
+        if (previousX.length < count) {
+            previousX = new float[count];
+            previousY = new float[count];
+        }
+        System.arraycopy(x, 0, previousX, 0, count);
+        System.arraycopy(y, 0, previousY, 0, count);
+        previousCount = count;
+        workingSet = set;
+        return result;
+    }
+
+    /**
+     * Returns the average displacement divided by the diagonal of the
+     * bounding box, as defined by {@link ConvergentLayout#getDisplacement()}.
+     * @param sum the sum of nodes displacement
+     * @param count the number of nodes
+     * @param minX the bounding box left
+     * @param minY the bounding box bottom
+     * @param maxX the bounding box right
+     * @param maxY the bounding box top
+     * @return the relative displacement
+     */
+    public static double getRelativeDisplacement(double sum, int count, double minX, double minY, double maxX, double maxY) {
+        if (count == 0) {
+            return 0;
+        }
+        double diagonal = Math.sqrt((maxX - minX) * (maxX - minX) + (maxY - minY) * (maxY - minY));
+        if (diagonal == 0) {
+            return sum > 0 ? Double.POSITIVE_INFINITY : 0;
+        }
+        return sum / count / diagonal;
+    }
+
+    /**
+     * Returns the number of iterations done.
+     * @return the number of iterations
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the time since the run started, as of the last iteration.
+     * @return the elapsed time, in milliseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns the number of iterations per second, measured over the last
+     * second.
+     * @return the iteration rate, in hertz
+     */
+    public double getIterationRate() {
+        return iterationRate;
+    }
+
+    /**
+     * Returns the displacement of the last iteration, <code>NaN</code> if
+     * unknown or if convergence isn't monitored.
+     * @return the relative displacement of the last iteration
+     * @see ConvergentLayout#getDisplacement()
+     */
+    public double getDisplacement() {
+        return displacement;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public boolean isTimeBudgetSpent() {
+        return timeBudgetSpent;
+    }
+
+    public double getConvergenceThreshold() {
+        return convergenceThreshold;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.spi;
+
+import org.gephi.graph.api.AdjacencySnapshot;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+
+/**
+ * Copy of the graph a layout iterates on: the adjacency as a cached
+ * {@link AdjacencySnapshot}, edges and meta-edges as arrays of source and
+ * target indices, and positions and sizes in <code>float</code> arrays, all
+ * indexed by the dense node index of the snapshot.
+ * <p>
+ * Layouts move nodes by writing in <code>getX()</code> and
+ * <code>getY()</code>. Positions are copied back in node data by
+ * <code>publish()</code>, at most <code>getPublishRate()</code> times per
+ * second when the layout controller calls <code>publishIfDue()</code>, and
+ * when the layout ends. If a node has been moved by someone else since the
+ * last publication, for instance dragged by the user, its new position is
+ * taken in the arrays instead.
+ * <p>
+ * Call <code>update()</code> at the beginning of each step: the working set is
+ * reloaded only if the graph structure changed, which is the only time the
+ * graph lock is taken for more than a version check.
+ * @see WorkingSetLayout
+ */
+public class LayoutWorkingSet {
+
+    public static final int DEFAULT_PUBLISH_RATE = 30;
+    private AdjacencySnapshot snapshot;
+    private float[] x = new float[0];
+    private float[] y = new float[0];
+    private float[] size = new float[0];
+    private int[] edgeSources = new int[0];
+    private int[] edgeTargets = new int[0];
+    private float[] edgeWeights = new float[0];
+    private float[] publishedX = new float[0];
+    private float[] publishedY = new float[0];
+    private int publishRate = DEFAULT_PUBLISH_RATE;
+    private long lastPublish;
+
+    /**
+     * Reloads the working set from <code>graph</code> if its structure changed
+     * since the last call. Pending positions are published first.
+     * @param graph the graph the layout runs on
+     * @return <code>true</code> if the working set has been reloaded
+     */
+    public boolean update(HierarchicalGraph graph) {
+        graph.readLock();
+        try {
+            AdjacencySnapshot newSnapshot = graph.getAdjacencySnapshot();
+            if (newSnapshot == snapshot) {
+                return false;
+            }
+            if (snapshot != null) {
+                publish();
+            }
+            snapshot = newSnapshot;
+            load(graph);
+            return true;
+        } finally {
+            graph.readUnlock();
+        }
+    }
+
+    private void load(HierarchicalGraph graph) {
+        int count = snapshot.getNodeCount();
+        x = new float[count];
+        y = new float[count];
+        size = new float[count];
+        publishedX = new float[count];
+        publishedY = new float[count];
+        for (int i = 0; i < count; i++) {
+            NodeData nodeData = snapshot.getNode(i).getNodeData();
+            x[i] = publishedX[i] = nodeData.x();
+            y[i] = publishedY[i] = nodeData.y();
+            size[i] = nodeData.getSize();
+        }
+
+        Edge[] edges = graph.getEdgesAndMetaEdges().toArray();
+        edgeSources = new int[edges.length];
+        edgeTargets = new int[edges.length];
+        edgeWeights = new float[edges.length];
+        int edgeCount = 0;
+        for (Edge edge : edges) {
+            int source = snapshot.getIndex(edge.getSource());
+            int target = snapshot.getIndex(edge.getTarget());
+            if (source != -1 && target != -1) {
+                edgeSources[edgeCount] = source;
+                edgeTargets[edgeCount] = target;
+                edgeWeights[edgeCount] = edge.getWeight();
+                edgeCount++;
+            }
+        }
+        if (edgeCount < edges.length) {
+            edgeSources = trim(edgeSources, edgeCount);
+            edgeTargets = trim(edgeTargets, edgeCount);
+            float[] weights = new float[edgeCount];
+            System.arraycopy(edgeWeights, 0, weights, 0, edgeCount);
+            edgeWeights = weights;
+        }
+        lastPublish = System.nanoTime();
+    }
+
+    private static int[] trim(int[] array, int length) {
+        int[] trimmed = new int[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    /**
+     * Copies positions back in node data, except for nodes moved by someone
+     * else since the last publication, whose position is copied in arrays.
+     */
+    public void publish() {
+        if (snapshot == null) {
+            return;
+        }
+        for (int i = 0; i < x.length; i++) {
+            NodeData nodeData = snapshot.getNode(i).getNodeData();
+            if (nodeData.x() != publishedX[i] || nodeData.y() != publishedY[i]) {
+                x[i] = nodeData.x();
+                y[i] = nodeData.y();
+            } else {
+                nodeData.setX(x[i]);
+                nodeData.setY(y[i]);
+            }
+            publishedX[i] = x[i];
+            publishedY[i] = y[i];
+        }
+        lastPublish = System.nanoTime();
+    }
+
+    /**
+     * Publishes positions if the last publication is older than
+     * <code>1 / getPublishRate()</code> second.
+     * @return <code>true</code> if positions have been published
+     */
+    public boolean publishIfDue() {
+        if (publishRate > 0 && System.nanoTime() - lastPublish >= 1000000000L / publishRate) {
+            publish();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of publications per second.
+     * @return the publish rate, in hertz
+     */
+    public int getPublishRate() {
+        return publishRate;
+    }
+
+    /**
+     * Sets the number of publications per second done by
+     * <code>publishIfDue()</code>, <code>0</code> to publish only when the
+     * layout ends.
+     * @param publishRate the publish rate, in hertz
+     */
+    public void setPublishRate(int publishRate) {
+        if (publishRate < 0) {
+            throw new IllegalArgumentException("The publish rate can't be negative");
+        }
+        this.publishRate = publishRate;
+    }
+
+    /**
+     * Returns the adjacency snapshot, or <code>null</code> before the first
+     * <code>update()</code>.
+     * @return the adjacency snapshot
+     */
+    public AdjacencySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int getNodeCount() {
+        return x.length;
+    }
+
+    public Node getNode(int index) {
+        return snapshot.getNode(index);
+    }
+
+    public float[] getX() {
+        return x;
+    }
+
+    public float[] getY() {
+        return y;
+    }
+
+    /**
+     * Returns node sizes, as they were when the working set was loaded.
+     * @return the sizes array
+     */
+    public float[] getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of edges and meta-edges.
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return edgeSources.length;
+    }
+
+    /**
+     * Returns edge source indices. Each edge is present once, whatever its
+     * direction.
+     * @return the sources array, aligned with <code>getEdgeTargets()</code>
+     */
+    public int[] getEdgeSources() {
+        return edgeSources;
+    }
+
+    public int[] getEdgeTargets() {
+        return edgeTargets;
+    }
+
+    public float[] getEdgeWeights() {
+        return edgeWeights;
+    }
+
+    /**
+     * Returns <code>true</code> if the node at <code>index</code> is fixed and
+     * shouldn't be moved.
+     * @param index the dense node index
+     * @return <code>true</code> if the node is fixed
+     */
+    public boolean isFixed(int index) {
+        return snapshot.getNode(index).getNodeData().isFixed();
+    }
+}
@@ -1,6 +1,6 @@
 /*
-Copyright 2008-2011 Gephi
-Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
 Website : http://www.gephi.org
 
 This file is part of Gephi.
@@ -39,31 +39,21 @@ Contributor(s):
 
 Portions Copyrighted 2011 Gephi Consortium.
  */
-package org.gephi.layout.plugin.forceAtlas2;
-
-import org.gephi.graph.api.Node;
-import org.gephi.layout.plugin.forceAtlas2.ForceFactory.RepulsionForce;
+package org.gephi.layout.spi;
 
 /**
+ * Layout which iterates on a {@link LayoutWorkingSet} rather than on node
+ * data. The layout controller publishes the working set positions at a
+ * regular rate while the layout runs, and before <code>endAlgo()</code>.
  *
- * @author Mathieu Jacomy
+ * @author Mathieu Bastian
  */
-public class OperationNodeRegionRepulse extends Operation {
-
-    private final Node n;
-    private final Region r;
-    private final RepulsionForce f;
-    private final double theta;
-
-    public OperationNodeRegionRepulse(Node n, Region r, RepulsionForce f, double theta) {
-        this.n = n;
-        this.f = f;
-        this.r = r;
-        this.theta = theta;
-    }
-
-    @Override
-    public void execute() {
-        r.applyForce(n, f, theta);
-    }
+public interface WorkingSetLayout extends Layout {
+
+    /**
+     * Returns the working set the layout currently iterates on, or
+     * <code>null</code> if it doesn't use any.
+     * @return the working set or <code>null</code>
+     */
+    public LayoutWorkingSet getWorkingSet();
 }
@@ -44,8 +44,9 @@ package org.gephi.layout.plugin;
 import org.gephi.dynamic.api.DynamicController;
 import org.gephi.dynamic.api.DynamicModel;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.layout.spi.Layout;
 import org.gephi.layout.spi.LayoutBuilder;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.gephi.layout.spi.WorkingSetLayout;
 import org.gephi.project.api.Workspace;
 import org.openide.util.Lookup;
 
@@ -53,12 +54,13 @@ import org.openide.util.Lookup;
  * Base class for layout algorithms.
  * @author Helder Suzuki <heldersuzuki@gephi.org>
  */
-public abstract class AbstractLayout implements Layout {
+public abstract class AbstractLayout implements WorkingSetLayout {
 
     private final LayoutBuilder layoutBuilder;
     protected GraphModel graphModel;
     protected DynamicModel dynamicModel;
     private boolean converged;
+    private LayoutWorkingSet workingSet;
 
     public AbstractLayout(LayoutBuilder layoutBuilder) {
         this.layoutBuilder = layoutBuilder;
@@ -88,4 +90,33 @@ public abstract class AbstractLayout implements Layout {
     public boolean isConverged() {
         return converged;
     }
+
+    public LayoutWorkingSet getWorkingSet() {
+        return workingSet;
+    }
+
+    /**
+     * Returns the working set of the visible graph, reloaded if its structure
+     * changed. Layouts iterating on arrays call it at the beginning of each
+     * step.
+     * @return the up-to-date working set
+     */
+    protected LayoutWorkingSet updateWorkingSet() {
+        if (workingSet == null) {
+            workingSet = new LayoutWorkingSet();
+        }
+        workingSet.update(graphModel.getHierarchicalGraphVisible());
+        return workingSet;
+    }
+
+    /**
+     * Publishes the working set positions and releases it. Called by layouts
+     * using <code>updateWorkingSet()</code> in <code>endAlgo()</code>.
+     */
+    protected void releaseWorkingSet() {
+        if (workingSet != null) {
+            workingSet.publish();
+            workingSet = null;
+        }
+    }
 }
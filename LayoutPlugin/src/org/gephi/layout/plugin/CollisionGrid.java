@@ -0,0 +1,286 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.openide.util.Exceptions;
+
+/**
+ * Broad-phase collision detection between axis-aligned boxes, typically node
+ * disks and label bounds. Boxes are put in all cells of a uniform grid they
+ * overlap, so only boxes sharing a cell are tested.
+ * <p>
+ * <code>visit()</code> calls the {@link Collision} once for each ordered pair
+ * <code>(i, j)</code> of overlapping boxes, in parallel. Each box
+ * <code>i</code> is handled by one thread only, and its collisions are always
+ * visited in the same order, so a collision that only modifies data of
+ * <code>i</code> is safe and gives the same results whatever the number of
+ * threads.
+ */
+public class CollisionGrid {
+
+    private static final int MIN_TASK_SIZE = 1000;
+    private float[] minX;
+    private float[] minY;
+    private float[] maxX;
+    private float[] maxY;
+    private int count;
+    //Grid
+    private float originX;
+    private float originY;
+    private float cellSize;
+    private int columns;
+    private int rows;
+    private int[] cellStart = new int[0];
+    private int[] cellBoxes = new int[0];
+
+    /**
+     * Collision between two boxes.
+     */
+    public interface Collision {
+
+        /**
+         * Called when box <code>i</code> overlaps box <code>j</code>. Called
+         * concurrently for different <code>i</code>.
+         * @param i the index of the box
+         * @param j the index of the other box
+         * @return <code>true</code> if the collision is effective, as defined
+         * by the implementation
+         */
+        public boolean collide(int i, int j);
+    }
+
+    /**
+     * Builds the grid for the first <code>count</code> boxes. Arrays are not
+     * copied and shouldn't be modified until the grid is built again. Boxes
+     * with <code>NaN</code> bounds are ignored.
+     * @param minX boxes left bound
+     * @param minY boxes bottom bound
+     * @param maxX boxes right bound
+     * @param maxY boxes top bound
+     * @param count the number of boxes
+     */
+    public void build(float[] minX, float[] minY, float[] maxX, float[] maxY, int count) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.count = count;
+
+        float left = Float.POSITIVE_INFINITY;
+        float bottom = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float top = Float.NEGATIVE_INFINITY;
+        double extent = 0;
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            if (isValid(i)) {
+                left = Math.min(left, minX[i]);
+                bottom = Math.min(bottom, minY[i]);
+                right = Math.max(right, maxX[i]);
+                top = Math.max(top, maxY[i]);
+                extent += Math.max(maxX[i] - minX[i], maxY[i] - minY[i]);
+                valid++;
+            }
+        }
+        if (valid == 0) {
+            columns = 0;
+            rows = 0;
+            return;
+        }
+
+        //Cells are twice as large as the average box, and larger if there
+        //would be more cells than boxes
+        float size = (float) (2 * extent / valid);
+        if (size <= 0) {
+            size = 1f;
+        }
+        while ((long) ((right - left) / size + 1) * (long) ((top - bottom) / size + 1) > 2L * valid) {
+            size *= 2;
+        }
+        originX = left;
+        originY = bottom;
+        cellSize = size;
+        columns = (int) ((right - left) / size) + 1;
+        rows = (int) ((top - bottom) / size) + 1;
+
+        //Counting sort of boxes by cell
+        int cellCount = columns * rows;
+        if (cellStart.length < cellCount + 1) {
+            cellStart = new int[cellCount + 1];
+        } else {
+            for (int c = 0; c <= cellCount; c++) {
+                cellStart[c] = 0;
+            }
+        }
+        int entries = 0;
+        for (int i = 0; i < count; i++) {
+            if (isValid(i)) {
+                for (int r = row(minY[i]); r <= row(maxY[i]); r++) {
+                    for (int c = column(minX[i]); c <= column(maxX[i]); c++) {
+                        cellStart[r * columns + c + 1]++;
+                        entries++;
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        if (cellBoxes.length < entries) {
+            cellBoxes = new int[entries];
+        }
+        for (int i = 0; i < count; i++) {
+            if (isValid(i)) {
+                for (int r = row(minY[i]); r <= row(maxY[i]); r++) {
+                    for (int c = column(minX[i]); c <= column(maxX[i]); c++) {
+                        cellBoxes[cellStart[r * columns + c]++] = i;
+                    }
+                }
+            }
+        }
+        for (int c = cellCount; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    private boolean isValid(int i) {
+        return !Float.isNaN(minX[i]) && !Float.isNaN(minY[i]) && !Float.isNaN(maxX[i]) && !Float.isNaN(maxY[i]);
+    }
+
+    private int column(float x) {
+        return Math.max(0, Math.min(columns - 1, (int) ((x - originX) / cellSize)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - originY) / cellSize)));
+    }
+
+    /**
+     * Calls <code>collision</code> for each ordered pair of overlapping boxes.
+     * @param collision the collision to call
+     * @param pool the executor, or <code>null</code> to run in the current
+     * thread
+     * @param threadCount the number of threads of the pool
+     * @return the number of effective collisions
+     */
+    public int visit(final Collision collision, ExecutorService pool, int threadCount) {
+        if (columns == 0) {
+            return 0;
+        }
+        int taskCount = pool == null ? 1 : Math.max(1, Math.min(threadCount, count / MIN_TASK_SIZE));
+        final int[] collisions = new int[taskCount];
+        List<Future<?>> futures = new ArrayList<Future<?>>(taskCount);
+        for (int t = 0; t < taskCount; t++) {
+            final int task = t;
+            final int from = (int) ((long) count * t / taskCount);
+            final int to = (int) ((long) count * (t + 1) / taskCount);
+            Runnable runnable = new Runnable() {
+
+                public void run() {
+                    int effective = 0;
+                    for (int i = from; i < to; i++) {
+                        if (isValid(i)) {
+                            effective += visit(i, collision);
+                        }
+                    }
+                    collisions[task] = effective;
+                }
+            };
+            if (taskCount == 1) {
+                runnable.run();
+            } else {
+                futures.add(pool.submit(runnable));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Exceptions.printStackTrace(ex);
+            } catch (ExecutionException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }
+        int total = 0;
+        for (int t = 0; t < taskCount; t++) {
+            total += collisions[t];
+        }
+        return total;
+    }
+
+    private int visit(int i, Collision collision) {
+        int effective = 0;
+        for (int r = row(minY[i]); r <= row(maxY[i]); r++) {
+            for (int c = column(minX[i]); c <= column(maxX[i]); c++) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int j = cellBoxes[k];
+                    if (j != i && minX[i] <= maxX[j] && minX[j] <= maxX[i]
+                            && minY[i] <= maxY[j] && minY[j] <= maxY[i]) {
+                        //Pairs sharing several cells are only visited in the
+                        //cell of the intersection bottom-left corner
+                        if (column(Math.max(minX[i], minX[j])) == c && row(Math.max(minY[i], minY[j])) == r) {
+                            if (collision.collide(i, j)) {
+                                effective++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return effective;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
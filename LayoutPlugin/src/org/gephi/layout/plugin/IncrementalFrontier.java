@@ -0,0 +1,354 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphEvent;
+import org.gephi.graph.api.GraphEvent.EventType;
+import org.gephi.graph.api.GraphListener;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+
+/**
+ * Nodes to lay out incrementally while a graph grows, for instance while
+ * it is streamed. Once added as a listener of
+ * <code>ADD_NODES_AND_EDGES</code> and <code>REMOVE_NODES_AND_EDGES</code>
+ * events, the frontier collects added nodes and the endpoints of added and
+ * removed edges. <code>update()</code> places new nodes at the barycenter of
+ * their neighbors and extends the frontier to the nodes at most
+ * <code>depth</code> hops away from changes. Layouts then only move nodes of
+ * the frontier, the rest of the graph being pinned, until the frontier is
+ * cleared by a full pass.
+ * <p>
+ * Events are received in the event thread, other methods should be called
+ * by the layout thread.
+ */
+public class IncrementalFrontier implements GraphListener {
+
+    private final Object lock = new Object();
+    private final Random random = new Random(42);
+    //Changes since the last update, guarded by lock
+    private Set<Node> pendingNodes = new LinkedHashSet<Node>();
+    private Set<Node> pendingEndpoints = new LinkedHashSet<Node>();
+    private Set<Node> pendingRemoved = new HashSet<Node>();
+    //Frontier
+    private final Set<Node> frontier = new LinkedHashSet<Node>();
+    private int version;
+
+    public void graphChanged(GraphEvent event) {
+        if (event.getEventType() == EventType.ADD_NODES_AND_EDGES) {
+            Node[] addedNodes = event.getData().addedNodes();
+            Edge[] addedEdges = event.getData().addedEdges();
+            synchronized (lock) {
+                if (addedNodes != null) {
+                    for (Node node : addedNodes) {
+                        pendingNodes.add(node);
+                        pendingRemoved.remove(node);
+                    }
+                }
+                addEndpoints(addedEdges);
+                lock.notifyAll();
+            }
+        } else if (event.getEventType() == EventType.REMOVE_NODES_AND_EDGES) {
+            Node[] removedNodes = event.getData().removedNodes();
+            Edge[] removedEdges = event.getData().removedEdges();
+            synchronized (lock) {
+                addEndpoints(removedEdges);
+                if (removedNodes != null) {
+                    for (Node node : removedNodes) {
+                        pendingNodes.remove(node);
+                        pendingEndpoints.remove(node);
+                        pendingRemoved.add(node);
+                    }
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void addEndpoints(Edge[] edges) {
+        if (edges != null) {
+            for (Edge edge : edges) {
+                pendingEndpoints.add(edge.getSource());
+                pendingEndpoints.add(edge.getTarget());
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if changes have been received since the last
+     * update.
+     * @return <code>true</code> if there are pending changes
+     */
+    public boolean hasChanges() {
+        synchronized (lock) {
+            return !pendingNodes.isEmpty() || !pendingEndpoints.isEmpty();
+        }
+    }
+
+    /**
+     * Waits until changes are received, at most <code>timeout</code>
+     * milliseconds.
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return <code>true</code> if there are pending changes
+     */
+    public boolean awaitChanges(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (lock) {
+            long remaining;
+            while (pendingNodes.isEmpty() && pendingEndpoints.isEmpty()
+                    && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return !pendingNodes.isEmpty() || !pendingEndpoints.isEmpty();
+        }
+    }
+
+    /**
+     * Applies pending changes: places new nodes at the barycenter of their
+     * neighbors and adds nodes at most <code>depth</code> hops away from new
+     * nodes and edges to the frontier. The graph should be locked.
+     * @param graph the graph the layout runs on
+     * @param depth the number of hops around changes
+     * @return the number of new nodes and edge endpoints
+     */
+    public int update(HierarchicalGraph graph, int depth) {
+        Set<Node> newNodes;
+        Set<Node> endpoints;
+        Set<Node> removed;
+        synchronized (lock) {
+            if (pendingNodes.isEmpty() && pendingEndpoints.isEmpty() && pendingRemoved.isEmpty()) {
+                return 0;
+            }
+            newNodes = pendingNodes;
+            endpoints = pendingEndpoints;
+            removed = pendingRemoved;
+            pendingNodes = new LinkedHashSet<Node>();
+            pendingEndpoints = new LinkedHashSet<Node>();
+            pendingRemoved = new HashSet<Node>();
+        }
+        if (!removed.isEmpty()) {
+            frontier.removeAll(removed);
+            version++;
+        }
+
+        List<Node> seeds = new ArrayList<Node>(newNodes.size() + endpoints.size());
+        Set<Node> unplaced = new LinkedHashSet<Node>(newNodes);
+        seeds.addAll(newNodes);
+        for (Node node : endpoints) {
+            if (!newNodes.contains(node)) {
+                seeds.add(node);
+            }
+        }
+        place(graph, unplaced);
+
+        //Breadth-first search from changes, nodes already in the frontier
+        //are expanded again as their neighborhood may have changed
+        Map<Node, Integer> distances = new HashMap<Node, Integer>();
+        List<Node> queue = new ArrayList<Node>(seeds);
+        for (Node node : seeds) {
+            distances.put(node, 0);
+        }
+        for (int head = 0; head < queue.size(); head++) {
+            Node node = queue.get(head);
+            Edge[] edges = getEdges(graph, node);
+            if (edges == null) {
+                continue;
+            }
+            frontier.add(node);
+            int distance = distances.get(node);
+            if (distance < depth) {
+                for (Edge edge : edges) {
+                    Node neighbor = graph.getOpposite(node, edge);
+                    if (!distances.containsKey(neighbor)) {
+                        distances.put(neighbor, distance + 1);
+                        queue.add(neighbor);
+                    }
+                }
+            }
+        }
+        version++;
+        return seeds.size();
+    }
+
+    /**
+     * Places new nodes at the barycenter of their placed neighbors, by
+     * rounds, so chains of new nodes follow the graph. Nodes without placed
+     * neighbors keep their position.
+     */
+    private void place(HierarchicalGraph graph, Set<Node> unplaced) {
+        while (!unplaced.isEmpty()) {
+            List<Node> placed = new ArrayList<Node>();
+            List<float[]> positions = new ArrayList<float[]>();
+            for (Node node : unplaced) {
+                Edge[] edges = getEdges(graph, node);
+                if (edges == null) {
+                    continue;
+                }
+                float x = 0f;
+                float y = 0f;
+                float size = 0f;
+                int count = 0;
+                for (Edge edge : edges) {
+                    Node neighbor = graph.getOpposite(node, edge);
+                    if (neighbor != node && !unplaced.contains(neighbor)) {
+                        NodeData neighborData = neighbor.getNodeData();
+                        x += neighborData.x();
+                        y += neighborData.y();
+                        size += neighborData.getSize();
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    //Jitter, so siblings don't start at the same position
+                    double angle = random.nextDouble() * 2 * Math.PI;
+                    float radius = Math.max(1f, size / count);
+                    placed.add(node);
+                    positions.add(new float[]{
+                                x / count + (float) (radius * Math.cos(angle)),
+                                y / count + (float) (radius * Math.sin(angle))});
+                }
+            }
+            if (placed.isEmpty()) {
+                return;
+            }
+            for (int i = 0; i < placed.size(); i++) {
+                Node node = placed.get(i);
+                if (!node.getNodeData().isFixed()) {
+                    node.getNodeData().setX(positions.get(i)[0]);
+                    node.getNodeData().setY(positions.get(i)[1]);
+                }
+                unplaced.remove(node);
+            }
+        }
+    }
+
+    /**
+     * Returns the edges and meta edges of <code>node</code>, or
+     * <code>null</code> if the node has been removed from the graph and the
+     * event isn't received yet.
+     */
+    private Edge[] getEdges(HierarchicalGraph graph, Node node) {
+        try {
+            return graph.getEdgesAndMetaEdges(node).toArray();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the nodes of the frontier. Nodes removed from the graph are
+     * removed from the frontier when the event is received, so the layout
+     * should ignore nodes it doesn't know.
+     * @return the frontier nodes
+     */
+    public Node[] getNodes() {
+        return frontier.toArray(new Node[frontier.size()]);
+    }
+
+    /**
+     * Returns the edges and meta edges with at least one endpoint in
+     * <code>nodes</code>, each edge once.
+     * @param graph the graph the layout runs on
+     * @param nodes frontier nodes, which must be in the graph
+     * @return the frontier edges
+     */
+    public Edge[] getEdges(HierarchicalGraph graph, Node[] nodes) {
+        List<Edge> edges = new ArrayList<Edge>();
+        for (Node node : nodes) {
+            for (Edge edge : graph.getEdgesAndMetaEdges(node)) {
+                Node neighbor = graph.getOpposite(node, edge);
+                //Edges inside the frontier are added from their source
+                if (!frontier.contains(neighbor) || edge.getSource() == node) {
+                    edges.add(edge);
+                }
+            }
+        }
+        return edges.toArray(new Edge[edges.size()]);
+    }
+
+    /**
+     * Returns <code>true</code> if <code>node</code> is in the frontier.
+     * @param node the node to test
+     * @return <code>true</code> if the node is in the frontier
+     */
+    public boolean contains(Node node) {
+        return frontier.contains(node);
+    }
+
+    public boolean isEmpty() {
+        return frontier.isEmpty();
+    }
+
+    /**
+     * Empties the frontier, typically after a full pass. Pending changes are
+     * kept.
+     */
+    public void clear() {
+        if (!frontier.isEmpty()) {
+            frontier.clear();
+            version++;
+        }
+    }
+
+    /**
+     * Returns the version of the frontier, incremented each time it changes.
+     * @return the frontier version
+     */
+    public int getVersion() {
+        return version;
+    }
+}
@@ -52,4 +52,10 @@ public interface Displacement {
     public void setStep(float step);
 
     public void moveNode(NodeData node, ForceVector forceData);
+
+    /**
+     * Moves the node at <code>index</code> in the position arrays. Called
+     * concurrently for different nodes.
+     */
+    public void moveNode(float[] x, float[] y, int index, float forceX, float forceY);
 }
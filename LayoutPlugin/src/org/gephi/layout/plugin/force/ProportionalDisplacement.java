@@ -79,4 +79,16 @@ public class ProportionalDisplacement implements Displacement {
             node.setY(y);
         }
     }
+
+    public void moveNode(float[] x, float[] y, int index, float forceX, float forceY) {
+        float newX = x[index] + forceX * step;
+        float newY = y[index] + forceY * step;
+
+        if (assertValue(newX)) {
+            x[index] = newX;
+        }
+        if (assertValue(newY)) {
+            y[index] = newY;
+        }
+    }
 }
@@ -75,6 +75,19 @@ public class StepDisplacement implements Displacement {
         }
     }
 
+    public void moveNode(float[] x, float[] y, int index, float forceX, float forceY) {
+        float norm = (float) Math.sqrt(forceX * forceX + forceY * forceY);
+        float newX = x[index] + forceX / norm * step;
+        float newY = y[index] + forceY / norm * step;
+
+        if (assertValue(newX)) {
+            x[index] = newX;
+        }
+        if (assertValue(newY)) {
+            y[index] = newY;
+        }
+    }
+
     public void setStep(float step) {
         this.step = step;
     }
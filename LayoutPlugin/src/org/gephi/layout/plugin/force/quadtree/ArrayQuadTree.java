@@ -0,0 +1,371 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.force.quadtree;
+
+/**
+ * Barnes-Hut quadtree built on position arrays. Regions are stored in flat
+ * arrays, a node being referenced by its index in the position arrays.
+ * <p>
+ * Once built the tree is read-only, so several threads can compute the
+ * repulsion of different nodes at the same time. The tree can be built again
+ * on the same instance, arrays are reused as long as they are large enough.
+ * <p>
+ * When nodes move a little between two steps, <code>refit()</code> updates
+ * regions bounds and mass centers without changing which nodes they contain.
+ * Regions grow and overlap as nodes move, which makes the tree slower but not
+ * wrong, so the tree should be built again when <code>refit()</code> reports
+ * too much growth.
+ * <p>
+ * Unlike the ForceAtlas2 <code>RegionTree</code>, which reads positions from
+ * <code>Node</code> objects and applies ForceAtlas2 forces, this tree only
+ * needs position and mass arrays. Coarse levels of the scalable multilevel
+ * layout have no <code>Node</code>, and nodes may have a mass other than
+ * their degree. <code>CollisionGrid</code> only finds close pairs, it has no
+ * mass centers.
+ *
+ * @see BarnesHut
+ */
+public class ArrayQuadTree {
+
+    private float[] x;
+    private float[] y;
+    private float[] nodeMass;
+    private int nodeCount;
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    //Regions
+    private int regionCount;
+    private int[] start = new int[0];
+    private int[] end = new int[0];
+    private int[] depth = new int[0];
+    private int[] firstChild = new int[0];
+    private int[] childCount = new int[0];
+    private float[] minX = new float[0];
+    private float[] minY = new float[0];
+    private float[] size = new float[0];
+    private float[] mass = new float[0];
+    private float[] centerX = new float[0];
+    private float[] centerY = new float[0];
+    private double builtSize;
+
+    /**
+     * Builds the tree of the first <code>count</code> nodes of the arrays.
+     * Arrays are not copied and shouldn't be modified until the tree is built
+     * again.
+     * @param x nodes x position
+     * @param y nodes y position
+     * @param nodeMass nodes mass, or <code>null</code> for unit masses
+     * @param count the number of nodes
+     * @param maxLevel the maximum depth of the tree, regions at this depth are
+     * leaves whatever their number of nodes
+     */
+    public void build(float[] x, float[] y, float[] nodeMass, int count, int maxLevel) {
+        this.x = x;
+        this.y = y;
+        this.nodeMass = nodeMass;
+        this.nodeCount = count;
+        if (order.length < count) {
+            order = new int[count];
+            scratch = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        regionCount = 0;
+        if (count == 0) {
+            return;
+        }
+
+        float left = Float.POSITIVE_INFINITY;
+        float bottom = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float top = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            left = Math.min(left, x[i]);
+            bottom = Math.min(bottom, y[i]);
+            right = Math.max(right, x[i]);
+            top = Math.max(top, y[i]);
+        }
+        addRegion(0, count, 0, left, bottom, Math.max(right - left, top - bottom));
+
+        //Regions are split in creation order, so children always come after
+        //their parent
+        for (int r = 0; r < regionCount; r++) {
+            if (end[r] - start[r] > 1 && depth[r] < maxLevel) {
+                split(r);
+            }
+        }
+        builtSize = 0;
+        for (int r = regionCount - 1; r >= 0; r--) {
+            updateMass(r);
+            builtSize += size[r];
+        }
+    }
+
+    /**
+     * Updates the tree after nodes moved: region bounds become the bounding
+     * square of their nodes, and mass centers are computed again. Positions
+     * are read from the arrays given to <code>build()</code>.
+     * @return the sum of region sizes relative to the sum when the tree was
+     * built, <code>1</code> or less if regions didn't grow
+     */
+    public float refit() {
+        double totalSize = 0;
+        for (int r = regionCount - 1; r >= 0; r--) {
+            float left = Float.POSITIVE_INFINITY;
+            float bottom = Float.POSITIVE_INFINITY;
+            float right = Float.NEGATIVE_INFINITY;
+            float top = Float.NEGATIVE_INFINITY;
+            if (childCount[r] == 0) {
+                for (int i = start[r]; i < end[r]; i++) {
+                    int n = order[i];
+                    left = Math.min(left, x[n]);
+                    bottom = Math.min(bottom, y[n]);
+                    right = Math.max(right, x[n]);
+                    top = Math.max(top, y[n]);
+                }
+            } else {
+                int child = firstChild[r];
+                for (int c = child; c < child + childCount[r]; c++) {
+                    left = Math.min(left, minX[c]);
+                    bottom = Math.min(bottom, minY[c]);
+                    right = Math.max(right, minX[c] + size[c]);
+                    top = Math.max(top, minY[c] + size[c]);
+                }
+            }
+            minX[r] = left;
+            minY[r] = bottom;
+            size[r] = Math.max(right - left, top - bottom);
+            updateMass(r);
+            totalSize += size[r];
+        }
+        if (builtSize == 0) {
+            return totalSize == 0 ? 1f : Float.POSITIVE_INFINITY;
+        }
+        return (float) (totalSize / builtSize);
+    }
+
+    private void split(int region) {
+        float half = size[region] / 2;
+        float middleX = minX[region] + half;
+        float middleY = minY[region] + half;
+        int from = start[region];
+        int to = end[region];
+
+        //Stable partition in the 4 quadrants
+        int[] counts = new int[4];
+        for (int i = from; i < to; i++) {
+            counts[quadrant(order[i], middleX, middleY)]++;
+        }
+        int[] offsets = new int[4];
+        offsets[0] = from;
+        for (int q = 1; q < 4; q++) {
+            offsets[q] = offsets[q - 1] + counts[q - 1];
+        }
+        for (int i = from; i < to; i++) {
+            int n = order[i];
+            scratch[offsets[quadrant(n, middleX, middleY)]++] = n;
+        }
+        System.arraycopy(scratch, from, order, from, to - from);
+
+        firstChild[region] = regionCount;
+        int childFrom = from;
+        for (int q = 0; q < 4; q++) {
+            if (counts[q] > 0) {
+                addRegion(childFrom, childFrom + counts[q], depth[region] + 1,
+                        (q & 1) == 0 ? minX[region] : middleX,
+                        (q & 2) == 0 ? minY[region] : middleY,
+                        half);
+                childCount[region]++;
+            }
+            childFrom += counts[q];
+        }
+    }
+
+    private int quadrant(int n, float middleX, float middleY) {
+        return (x[n] < middleX ? 0 : 1) + (y[n] < middleY ? 0 : 2);
+    }
+
+    private void addRegion(int from, int to, int level, float left, float bottom, float width) {
+        if (regionCount == start.length) {
+            growRegions();
+        }
+        int r = regionCount++;
+        start[r] = from;
+        end[r] = to;
+        depth[r] = level;
+        firstChild[r] = -1;
+        childCount[r] = 0;
+        minX[r] = left;
+        minY[r] = bottom;
+        size[r] = width;
+    }
+
+    private void updateMass(int region) {
+        float m = 0;
+        float cx = 0;
+        float cy = 0;
+        if (childCount[region] == 0) {
+            for (int i = start[region]; i < end[region]; i++) {
+                int n = order[i];
+                float nm = nodeMass != null ? nodeMass[n] : 1f;
+                m += nm;
+                cx += x[n] * nm;
+                cy += y[n] * nm;
+            }
+        } else {
+            int child = firstChild[region];
+            for (int c = child; c < child + childCount[region]; c++) {
+                m += mass[c];
+                cx += centerX[c] * mass[c];
+                cy += centerY[c] * mass[c];
+            }
+        }
+        mass[region] = m;
+        centerX[region] = m > 0 ? cx / m : minX[region] + size[region] / 2;
+        centerY[region] = m > 0 ? cy / m : minY[region] + size[region] / 2;
+    }
+
+    private void growRegions() {
+        int capacity = Math.max(16, start.length + (start.length >> 1));
+        start = grow(start, capacity);
+        end = grow(end, capacity);
+        depth = grow(depth, capacity);
+        firstChild = grow(firstChild, capacity);
+        childCount = grow(childCount, capacity);
+        minX = grow(minX, capacity);
+        minY = grow(minY, capacity);
+        size = grow(size, capacity);
+        mass = grow(mass, capacity);
+        centerX = grow(centerX, capacity);
+        centerY = grow(centerY, capacity);
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] newArray = new int[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    /**
+     * Computes the repulsion of all nodes on <code>node</code>. Each node
+     * pushes <code>node</code> away with a force of
+     * <code>constant * mass / distance</code>, distant regions being
+     * approximated by their mass center when <code>distance * theta</code> is
+     * greater than their size. Coincident nodes are ignored.
+     * @param node the index of the node
+     * @param theta the Barnes-Hut opening criteria
+     * @param constant the force constant
+     * @param result array of length 2 the force x and y are written in
+     */
+    public void computeRepulsion(int node, float theta, float constant, float[] result) {
+        result[0] = 0;
+        result[1] = 0;
+        if (regionCount > 0) {
+            computeRepulsion(0, node, theta, constant, result);
+        }
+    }
+
+    private void computeRepulsion(int region, int node, float theta, float constant, float[] result) {
+        float px = x[node];
+        float py = y[node];
+        if (childCount[region] == 0) {
+            for (int i = start[region]; i < end[region]; i++) {
+                int other = order[i];
+                if (other != node) {
+                    addForce(px, py, x[other], y[other], nodeMass != null ? nodeMass[other] : 1f, constant, result);
+                }
+            }
+            return;
+        }
+        float xDist = px - centerX[region];
+        float yDist = py - centerY[region];
+        float distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+        boolean inside = px >= minX[region] && px <= minX[region] + size[region]
+                && py >= minY[region] && py <= minY[region] + size[region];
+        if (!inside && distance * theta > size[region]) {
+            addForce(px, py, centerX[region], centerY[region], mass[region], constant, result);
+        } else {
+            int child = firstChild[region];
+            for (int c = child; c < child + childCount[region]; c++) {
+                computeRepulsion(c, node, theta, constant, result);
+            }
+        }
+    }
+
+    private static void addForce(float px, float py, float ox, float oy, float m, float constant, float[] result) {
+        float xDist = px - ox;
+        float yDist = py - oy;
+        float squaredDistance = xDist * xDist + yDist * yDist;
+        if (squaredDistance > QuadTree.eps * QuadTree.eps) {
+            float scale = constant * m / squaredDistance;
+            result[0] += xDist * scale;
+            result[1] += yDist * scale;
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public float getMass() {
+        return regionCount > 0 ? mass[0] : 0f;
+    }
+
+    public float getMassCenterX() {
+        return regionCount > 0 ? centerX[0] : 0f;
+    }
+
+    public float getMassCenterY() {
+        return regionCount > 0 ? centerY[0] : 0f;
+    }
+}
@@ -43,29 +43,39 @@ package org.gephi.layout.plugin.force.yifanHu;
 
 import java.util.ArrayList;
 import java.util.List;
-import org.gephi.graph.api.Edge;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.gephi.graph.api.AdjacencySnapshot;
 import org.gephi.graph.api.HierarchicalGraph;
-import org.gephi.graph.api.Node;
-import org.gephi.graph.api.NodeData;
 import org.gephi.graph.api.Spatial;
 import org.gephi.layout.plugin.AbstractLayout;
 import org.gephi.layout.plugin.GraphUtils;
 import org.gephi.layout.plugin.force.AbstractForce;
 import org.gephi.layout.plugin.force.Displacement;
 import org.gephi.layout.plugin.force.ForceVector;
-import org.gephi.layout.plugin.force.quadtree.BarnesHut;
+import org.gephi.layout.plugin.force.quadtree.ArrayQuadTree;
 import org.gephi.layout.spi.Layout;
 import org.gephi.layout.spi.LayoutBuilder;
 import org.gephi.layout.spi.LayoutProperty;
-import org.gephi.layout.plugin.force.quadtree.QuadTree;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.openide.util.Exceptions;
 import org.openide.util.NbBundle;
 
 /**
  * Hu's basic algorithm
+ * <p>
+ * The layout iterates on the arrays of a {@link LayoutWorkingSet}. Repulsion
+ * is computed in parallel with an {@link ArrayQuadTree}, which is refitted
+ * between steps and only built again when it degrades.
  * @author Helder Suzuki <heldersuzuki@gephi.org>
  */
 public class YifanHuLayout extends AbstractLayout implements Layout {
 
+    private static final float REFIT_TOLERANCE = 1.25f;
+    private static final int MIN_TASK_SIZE = 1000;
     private float optimalDistance;
     private float relativeStrength;
     private float step;
@@ -80,6 +90,13 @@ public class YifanHuLayout extends AbstractLayout implements Layout {
     private double energy0;
     private double energy;
     private HierarchicalGraph graph;
+    private int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    //Forces
+    private final ArrayQuadTree tree = new ArrayQuadTree();
+    private AdjacencySnapshot snapshot;
+    private ExecutorService pool;
+    private float[] forceX = new float[0];
+    private float[] forceY = new float[0];
 
     public YifanHuLayout(LayoutBuilder layoutBuilder, Displacement displacement) {
         super(layoutBuilder);
@@ -98,14 +115,6 @@ public class YifanHuLayout extends AbstractLayout implements Layout {
         return displacement;
     }
 
-    private AbstractForce getEdgeForce() {
-        return new SpringForce(getOptimalDistance());
-    }
-
-    private AbstractForce getNodeForce() {
-        return new ElectricalForce(getRelativeStrength(), getOptimalDistance());
-    }
-
     private void updateStep() {
         if (isAdaptiveCooling()) {
             if (energy < energy0) {
@@ -204,6 +213,13 @@ public class YifanHuLayout extends AbstractLayout implements Layout {
                     "YifanHu.theta.name",
                     NbBundle.getMessage(getClass(), "YifanHu.theta.desc"),
                     "getBarnesHutTheta", "setBarnesHutTheta"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(getClass(), "YifanHu.threads.name"),
+                    BARNESHUT_CATEGORY,
+                    "YifanHu.threads.name",
+                    NbBundle.getMessage(getClass(), "YifanHu.threads.desc"),
+                    "getThreadsCount", "setThreadsCount"));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -217,60 +233,84 @@ public class YifanHuLayout extends AbstractLayout implements Layout {
         }
         graph = graphModel.getHierarchicalGraphVisible();
         energy = Float.POSITIVE_INFINITY;
-        for (Node n : graph.getNodes()) {
-            NodeData data = n.getNodeData();
-            data.setLayoutData(new ForceVector());
-        }
         progress = 0;
         setConverged(false);
         setStep(initialStep);
+        //Daemon threads, so a layout which isn't ended doesn't keep the VM alive
+        pool = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Yifan Hu layout thread");
+                t.setDaemon(true);
+                return t;
+            }
+        });
     }
 
     public void endAlgo() {
-        for (Node node : graph.getNodes()) {
-            NodeData data = node.getNodeData();
-            data.setLayoutData(null);
+        releaseWorkingSet();
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
         }
+        snapshot = null;
+        forceX = new float[0];
+        forceY = new float[0];
     }
 
     public void goAlgo() {
-        graph = graphModel.getHierarchicalGraphVisible();
-        graph.readLock();
-        Node[] nodes = graph.getNodes().toArray();
-        for (Node n : nodes) {
-            if (n.getNodeData().getLayoutData() == null || !(n.getNodeData().getLayoutData() instanceof ForceVector)) {
-                n.getNodeData().setLayoutData(new ForceVector());
-            }
+        LayoutWorkingSet workingSet = updateWorkingSet();
+        final int count = workingSet.getNodeCount();
+        final float[] x = workingSet.getX();
+        final float[] y = workingSet.getY();
+
+        // The quadtree is refitted to the new positions, and built again when
+        // the graph changed or regions grew too much
+        if (workingSet.getSnapshot() != snapshot || tree.refit() > REFIT_TOLERANCE) {
+            snapshot = workingSet.getSnapshot();
+            tree.build(x, y, null, count, getQuadTreeMaxLevel());
+        }
+        if (forceX.length != count) {
+            forceX = new float[count];
+            forceY = new float[count];
         }
 
-        // Evaluates n^2 inter node forces using BarnesHut.
-        QuadTree tree = QuadTree.buildTree(graph, getQuadTreeMaxLevel());
-
-//        double electricEnergy = 0; ///////////////////////
-//        double springEnergy = 0; ///////////////////////
-        BarnesHut barnes = new BarnesHut(getNodeForce());
-        barnes.setTheta(getBarnesHutTheta());
-        for (Node node : nodes) {
-            NodeData data = node.getNodeData();
-            ForceVector layoutData = data.getLayoutData();
-
-            ForceVector f = barnes.calculateForce(data, tree);
-            layoutData.add(f);
-//            electricEnergy += f.getEnergy();
+        // Evaluates n^2 inter node forces using BarnesHut, in parallel
+        final float constant = getRelativeStrength() * getOptimalDistance() * getOptimalDistance();
+        final float theta = getBarnesHutTheta();
+        int taskCount = Math.max(1, Math.min(threadCount, count / MIN_TASK_SIZE));
+        Runnable[] tasks = new Runnable[taskCount];
+        for (int t = 0; t < taskCount; t++) {
+            final int from = (int) ((long) count * t / taskCount);
+            final int to = (int) ((long) count * (t + 1) / taskCount);
+            tasks[t] = new Runnable() {
+
+                public void run() {
+                    float[] repulsion = new float[2];
+                    for (int i = from; i < to; i++) {
+                        tree.computeRepulsion(i, theta, constant, repulsion);
+                        forceX[i] = repulsion[0];
+                        forceY[i] = repulsion[1];
+                    }
+                }
+            };
         }
+        run(tasks);
 
         // Apply edge forces.
-
-        for (Edge e : graph.getEdgesAndMetaEdges()) {
-            if (!e.getSource().equals(e.getTarget())) {
-                NodeData n1 = e.getSource().getNodeData();
-                NodeData n2 = e.getTarget().getNodeData();
-                ForceVector f1 = n1.getLayoutData();
-                ForceVector f2 = n2.getLayoutData();
-
-                ForceVector f = getEdgeForce().calculateForce(n1, n2);
-                f1.add(f);
-                f2.subtract(f);
+        int[] sources = workingSet.getEdgeSources();
+        int[] targets = workingSet.getEdgeTargets();
+        for (int e = 0; e < sources.length; e++) {
+            int n1 = sources[e];
+            int n2 = targets[e];
+            if (n1 != n2) {
+                float xDist = x[n2] - x[n1];
+                float yDist = y[n2] - y[n1];
+                float scale = (float) Math.sqrt(xDist * xDist + yDist * yDist) / getOptimalDistance();
+                forceX[n1] += xDist * scale;
+                forceY[n1] += yDist * scale;
+                forceX[n2] -= xDist * scale;
+                forceY[n2] -= yDist * scale;
             }
         }
 
@@ -278,31 +318,67 @@ public class YifanHuLayout extends AbstractLayout implements Layout {
         energy0 = energy;
         energy = 0;
         double maxForce = 1;
-        for (Node n : nodes) {
-            NodeData data = n.getNodeData();
-            ForceVector force = data.getLayoutData();
-
-            energy += force.getNorm();
-            maxForce = Math.max(maxForce, force.getNorm());
+        for (int i = 0; i < count; i++) {
+            double norm = Math.sqrt(forceX[i] * forceX[i] + forceY[i] * forceY[i]);
+            energy += norm;
+            maxForce = Math.max(maxForce, norm);
         }
 
         // Apply displacements on nodes.
-        for (Node n : nodes) {
-            NodeData data = n.getNodeData();
-            if (!data.isFixed()) {
-                ForceVector force = data.getLayoutData();
+        final float forceScale = (float) (1.0 / maxForce);
+        final Displacement nodeDisplacement = getDisplacement();
+        final LayoutWorkingSet finalWorkingSet = workingSet;
+        for (int t = 0; t < taskCount; t++) {
+            final int from = (int) ((long) count * t / taskCount);
+            final int to = (int) ((long) count * (t + 1) / taskCount);
+            tasks[t] = new Runnable() {
+
+                public void run() {
+                    for (int i = from; i < to; i++) {
+                        if (!finalWorkingSet.isFixed(i)) {
+                            nodeDisplacement.moveNode(x, y, i, forceX[i] * forceScale, forceY[i] * forceScale);
+                        }
+                    }
+                }
+            };
+        }
+        run(tasks);
+        postAlgo();
+    }
 
-                force.multiply((float) (1.0 / maxForce));
-                getDisplacement().moveNode(data, force);
+    private void run(Runnable[] tasks) {
+        if (tasks.length == 1 || pool == null) {
+            for (Runnable task : tasks) {
+                task.run();
             }
+            return;
         }
-        postAlgo();
-//        springEnergy = energy - electricEnergy;
-//        System.out.println("electric: " + electricEnergy + "    spring: " + springEnergy);
-//        System.out.println("energy0 = " + energy0 + "   energy = " + energy);
-        graph.readUnlock();
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks.length);
+        for (Runnable task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Exceptions.printStackTrace(ex);
+            } catch (ExecutionException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }
+    }
+
+    public Integer getThreadsCount() {
+        return threadCount;
     }
 
+    public void setThreadsCount(Integer threadCount) {
+        if (threadCount < 1) {
+            setThreadsCount(1);
+        } else {
+            this.threadCount = threadCount;
+        }
+    }
 
     /* Maximum level for Barnes-Hut's quadtree */
     public Integer getQuadTreeMaxLevel() {
@@ -0,0 +1,99 @@
+/*
+Copyright 2008-2011 Gephi
+Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import org.gephi.data.attributes.type.TimeInterval;
+import org.gephi.graph.api.Edge;
+import org.gephi.layout.plugin.forceAtlas2.ForceFactory.AttractionForce;
+
+/**
+ * Attraction along edges from <code>from</code> to <code>to</code>, added in
+ * the given buffer.
+ */
+public class EdgesThread implements Runnable {
+
+    private Edge[] edges;
+    private int from;
+    private int to;
+    private AttractionForce Attraction;
+    private double edgeWeightInfluence;
+    private TimeInterval timeInterval;
+    private ForceBuffer buffer;
+
+    public EdgesThread(Edge[] edges, int from, int to, AttractionForce Attraction, double edgeWeightInfluence, TimeInterval timeInterval, ForceBuffer buffer) {
+        this.edges = edges;
+        this.from = from;
+        this.to = to;
+        this.Attraction = Attraction;
+        this.edgeWeightInfluence = edgeWeightInfluence;
+        this.timeInterval = timeInterval;
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void run() {
+        if (edgeWeightInfluence == 0) {
+            for (int eIndex = from; eIndex < to; eIndex++) {
+                Edge e = edges[eIndex];
+                Attraction.apply(e.getSource(), e.getTarget(), 1, buffer);
+            }
+        } else if (edgeWeightInfluence == 1) {
+            for (int eIndex = from; eIndex < to; eIndex++) {
+                Edge e = edges[eIndex];
+                Attraction.apply(e.getSource(), e.getTarget(), getWeight(e), buffer);
+            }
+        } else {
+            for (int eIndex = from; eIndex < to; eIndex++) {
+                Edge e = edges[eIndex];
+                Attraction.apply(e.getSource(), e.getTarget(), Math.pow(getWeight(e), edgeWeightInfluence), buffer);
+            }
+        }
+    }
+
+    private float getWeight(Edge edge) {
+        if (timeInterval != null) {
+            return edge.getWeight(timeInterval.getLow(), timeInterval.getHigh());
+        } else {
+            return edge.getWeight();
+        }
+    }
+}
@@ -52,17 +52,21 @@ import org.gephi.dynamic.DynamicUtilities;
 import org.gephi.dynamic.api.DynamicController;
 import org.gephi.dynamic.api.DynamicModel;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphEvent.EventType;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.api.NodeData;
+import org.gephi.layout.plugin.CollisionGrid;
+import org.gephi.layout.plugin.IncrementalFrontier;
 import org.gephi.layout.plugin.forceAtlas2.ForceFactory.AttractionForce;
 import org.gephi.layout.plugin.forceAtlas2.ForceFactory.RepulsionForce;
+import org.gephi.layout.api.LayoutMonitor;
+import org.gephi.layout.spi.ConvergentLayout;
 import org.gephi.layout.spi.Layout;
 import org.gephi.layout.spi.LayoutBuilder;
 import org.gephi.layout.spi.LayoutProperty;
 import org.gephi.project.api.Workspace;
-import org.openide.util.Exceptions;
 import org.openide.util.Lookup;
 import org.openide.util.NbBundle;
 
@@ -70,8 +74,10 @@ import org.openide.util.NbBundle;
  * ForceAtlas 2 Layout, manages each step of the computations.
  * @author Mathieu Jacomy
  */
-public class ForceAtlas2 implements Layout {
+public class ForceAtlas2 implements ConvergentLayout {
 
+    //Each force buffer takes 16 bytes per node
+    private static final long MAX_BUFFER_BYTES = 128L << 20;
     private GraphModel graphModel;
     private HierarchicalGraph graph;
     private final ForceAtlas2Builder layoutBuilder;
@@ -89,20 +95,40 @@ public class ForceAtlas2 implements Layout {
     private boolean strongGravityMode;
     private int threadCount;
     private int currentThreadCount;
-    private Region rootRegion;
+    private RegionTree rootRegion;
+    private ForceBuffer[] buffers;
+    private final CollisionGrid collisionGrid = new CollisionGrid();
+    private float[] overlapMinX = new float[0];
+    private float[] overlapMinY = new float[0];
+    private float[] overlapMaxX = new float[0];
+    private float[] overlapMaxY = new float[0];
     double outboundAttCompensation = 1;
+    //Incremental
+    private static final long IDLE_TIME = 100;
+    private boolean incremental;
+    private int incrementalDepth;
+    private int fullPassInterval;
+    private IncrementalFrontier frontier;
+    private int iterationsSinceFullPass;
+    private RegionTree pinnedRegion;
+    private int pinnedFrontierVersion;
+    private int pinnedNodeVersion;
+    private Node[] pinnedNodes = new Node[0];
+    private float[] pinnedPositions = new float[0];
+    private volatile double displacement = Double.NaN;
     //Dynamic Weight
     private TimeInterval timeInterval;
     private ExecutorService pool;
 
     public ForceAtlas2(ForceAtlas2Builder layoutBuilder) {
         this.layoutBuilder = layoutBuilder;
-        this.threadCount = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        this.threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
     }
 
     @Override
     public void initAlgo() {
         speed = 1.;
+        displacement = Double.NaN;
 
         graph = graphModel.getHierarchicalGraphVisible();
         this.timeInterval = DynamicUtilities.getVisibleInterval(dynamicModel);
@@ -127,6 +153,15 @@ public class ForceAtlas2 implements Layout {
 
         pool = Executors.newFixedThreadPool(threadCount);
         currentThreadCount = threadCount;
+
+        // Incremental mode: listen to structure changes, and start with a full
+        // pass
+        if (isIncremental()) {
+            frontier = new IncrementalFrontier();
+            graphModel.addGraphListener(frontier, null, EventType.ADD_NODES_AND_EDGES, EventType.REMOVE_NODES_AND_EDGES);
+            iterationsSinceFullPass = fullPassInterval;
+            pinnedRegion = null;
+        }
     }
 
     @Override
@@ -138,12 +173,23 @@ public class ForceAtlas2 implements Layout {
         graph = graphModel.getHierarchicalGraphVisible();
         this.timeInterval = DynamicUtilities.getVisibleInterval(dynamicModel);
 
+        // Incremental mode: nothing to do until the graph grows, wait without
+        // holding the lock, so changes can be made. The displacement is
+        // unknown meanwhile, so waiting doesn't count as converging.
+        displacement = Double.NaN;
+        if (frontier != null && frontier.isEmpty() && iterationsSinceFullPass < fullPassInterval) {
+            graph.readUnlockAll();
+            if (!frontier.awaitChanges(IDLE_TIME)) {
+                return;
+            }
+        }
+
         graph.readLock();
         Node[] nodes = graph.getNodes().toArray();
-        Edge[] edges = graph.getEdgesAndMetaEdges().toArray();
 
         // Initialise layout data
-        for (Node n : nodes) {
+        for (int i = 0; i < nodes.length; i++) {
+            Node n = nodes[i];
             if (n.getNodeData().getLayoutData() == null || !(n.getNodeData().getLayoutData() instanceof ForceAtlas2LayoutData)) {
                 ForceAtlas2LayoutData nLayout = new ForceAtlas2LayoutData();
                 n.getNodeData().setLayoutData(nLayout);
@@ -151,16 +197,44 @@ public class ForceAtlas2 implements Layout {
             NodeData nData = n.getNodeData();
             ForceAtlas2LayoutData nLayout = nData.getLayoutData();
             nLayout.mass = 1 + graph.getDegree(n);
+            nLayout.index = i;
             nLayout.old_dx = nLayout.dx;
             nLayout.old_dy = nLayout.dy;
             nLayout.dx = 0;
             nLayout.dy = 0;
         }
 
+        // Incremental mode: place new nodes and only move the frontier around
+        // changes, except for regular full passes
+        Node[] movingNodes = nodes;
+        Edge[] movingEdges = null;
+        RegionTree pinned = null;
+        if (frontier != null) {
+            frontier.update(graph, incrementalDepth);
+            if (iterationsSinceFullPass >= fullPassInterval) {
+                iterationsSinceFullPass = 0;
+                frontier.clear();
+            } else {
+                iterationsSinceFullPass++;
+                movingNodes = getFrontierNodes(nodes);
+                if (movingNodes.length == 0) {
+                    graph.readUnlockAll();
+                    return;
+                }
+                movingEdges = frontier.getEdges(graph, movingNodes);
+                pinned = getPinnedRegion(nodes);
+            }
+        }
+        if (movingEdges == null) {
+            movingEdges = graph.getEdgesAndMetaEdges().toArray();
+        }
+
         // If Barnes Hut active, initialize root region
         if (isBarnesHutOptimize()) {
-            rootRegion = new Region(nodes);
-            rootRegion.buildSubRegions();
+            if (rootRegion == null) {
+                rootRegion = new RegionTree();
+            }
+            rootRegion.build(movingNodes, pool, currentThreadCount);
         }
 
         // If outboundAttractionDistribution active, compensate.
@@ -175,55 +249,103 @@ public class ForceAtlas2 implements Layout {
         }
 
         // Repulsion (and gravity)
-        // NB: Muti-threaded
-        RepulsionForce Repulsion = ForceFactory.builder.buildRepulsion(isAdjustSizes(), getScalingRatio());
-
-        int taskCount = 8 * currentThreadCount;  // The threadPool Executor Service will manage the fetching of tasks and threads.
-        // We make more tasks than threads because some tasks may need more time to compute.
-        ArrayList<Future> threads = new ArrayList();
-        for (int t = taskCount; t > 0; t--) {
-            int from = (int) Math.floor(nodes.length * (t - 1) / taskCount);
-            int to = (int) Math.floor(nodes.length * t / taskCount);
-            Future future = pool.submit(new NodesThread(nodes, from, to, isBarnesHutOptimize(), getBarnesHutTheta(), getGravity(), (isStrongGravityMode()) ? (ForceFactory.builder.getStrongGravity(getScalingRatio())) : (Repulsion), getScalingRatio(), rootRegion, Repulsion));
-            threads.add(future);
-        }
-        for (Future future : threads) {
-            try {
-                future.get();
-            } catch (InterruptedException ex) {
-                Exceptions.printStackTrace(ex);
-            } catch (ExecutionException ex) {
-                Exceptions.printStackTrace(ex);
+        // NB: Muti-threaded, forces between two nodes are added in a buffer
+        // per task, so there is one task per buffer with a fixed range of
+        // nodes: results only depend on the number of threads and of nodes.
+        // NB: Anti-collision between overlapping nodes is applied afterwards
+        RepulsionForce Repulsion = ForceFactory.builder.buildRepulsion(isAdjustSizes(), getScalingRatio(), true);
+        RepulsionForce Gravity = (isStrongGravityMode()) ? (ForceFactory.builder.getStrongGravity(getScalingRatio())) : (Repulsion);
+        int bufferCount = ensureBuffers(nodes.length);
+
+        List<Runnable> tasks = new ArrayList<Runnable>(currentThreadCount);
+        for (int t = 0; t < bufferCount; t++) {
+            int from, to;
+            if (isBarnesHutOptimize()) {
+                from = getBound(movingNodes.length, t, bufferCount);
+                to = getBound(movingNodes.length, t + 1, bufferCount);
+            } else {
+                // Node i is repulsed by the i previous nodes, ranges have as many pairs
+                from = (int) (movingNodes.length * Math.sqrt((double) t / bufferCount));
+                to = (t + 1 == bufferCount) ? (movingNodes.length) : ((int) (movingNodes.length * Math.sqrt((double) (t + 1) / bufferCount)));
             }
+            tasks.add(new NodesThread(movingNodes, from, to, isBarnesHutOptimize(), getBarnesHutTheta(), getGravity(), Gravity, getScalingRatio(), rootRegion, pinned, Repulsion, buffers[t]));
         }
+        runTasks(tasks);
 
         // Attraction
+        // NB: Muti-threaded, in the same buffers
         AttractionForce Attraction = ForceFactory.builder.buildAttraction(isLinLogMode(), isOutboundAttractionDistribution(), isAdjustSizes(), 1 * ((isOutboundAttractionDistribution()) ? (outboundAttCompensation) : (1)));
-        if (getEdgeWeightInfluence() == 0) {
-            for (Edge e : edges) {
-                Attraction.apply(e.getSource(), e.getTarget(), 1);
-            }
-        } else if (getEdgeWeightInfluence() == 1) {
-            for (Edge e : edges) {
-                Attraction.apply(e.getSource(), e.getTarget(), getWeight(e));
-            }
-        } else {
-            for (Edge e : edges) {
-                Attraction.apply(e.getSource(), e.getTarget(), Math.pow(getWeight(e), getEdgeWeightInfluence()));
-            }
+        tasks.clear();
+        for (int t = 0; t < bufferCount; t++) {
+            tasks.add(new EdgesThread(movingEdges, getBound(movingEdges.length, t, bufferCount), getBound(movingEdges.length, t + 1, bufferCount), Attraction, getEdgeWeightInfluence(), timeInterval, buffers[t]));
+        }
+        runTasks(tasks);
+
+        // Sum buffers in layout data, always in the same order. Pinned nodes
+        // are summed too, to empty the buffers
+        final Node[] finalNodes = nodes;
+        tasks.clear();
+        for (int t = 0; t < currentThreadCount; t++) {
+            final int from = getBound(nodes.length, t);
+            final int to = getBound(nodes.length, t + 1);
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = from; i < to; i++) {
+                        ForceAtlas2LayoutData nLayout = finalNodes[i].getNodeData().getLayoutData();
+                        for (ForceBuffer buffer : buffers) {
+                            nLayout.dx += buffer.dx[i];
+                            nLayout.dy += buffer.dy[i];
+                            buffer.dx[i] = 0;
+                            buffer.dy[i] = 0;
+                        }
+                    }
+                }
+            });
+        }
+        runTasks(tasks);
+
+        // Anti-collision, only between overlapping nodes found with the grid
+        if (isAdjustSizes()) {
+            applyOverlaps(nodes);
         }
 
         // Auto adjust speed
+        final Node[] finalMovingNodes = movingNodes;
+        final double[] swingings = new double[currentThreadCount];
+        final double[] tractions = new double[currentThreadCount];
+        tasks.clear();
+        for (int t = 0; t < currentThreadCount; t++) {
+            final int task = t;
+            final int from = getBound(movingNodes.length, t);
+            final int to = getBound(movingNodes.length, t + 1);
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    double swingingSum = 0d;
+                    double tractionSum = 0d;
+                    for (int i = from; i < to; i++) {
+                        NodeData nData = finalMovingNodes[i].getNodeData();
+                        ForceAtlas2LayoutData nLayout = nData.getLayoutData();
+                        if (!nData.isFixed()) {
+                            double swinging = Math.sqrt(Math.pow(nLayout.old_dx - nLayout.dx, 2) + Math.pow(nLayout.old_dy - nLayout.dy, 2));
+                            swingingSum += nLayout.mass * swinging;   // If the node has a burst change of direction, then it's not converging.
+                            tractionSum += nLayout.mass * 0.5 * Math.sqrt(Math.pow(nLayout.old_dx + nLayout.dx, 2) + Math.pow(nLayout.old_dy + nLayout.dy, 2));
+                        }
+                    }
+                    swingings[task] = swingingSum;
+                    tractions[task] = tractionSum;
+                }
+            });
+        }
+        runTasks(tasks);
         double totalSwinging = 0d;  // How much irregular movement
         double totalEffectiveTraction = 0d;  // Hom much useful movement
-        for (Node n : nodes) {
-            NodeData nData = n.getNodeData();
-            ForceAtlas2LayoutData nLayout = nData.getLayoutData();
-            if (!nData.isFixed()) {
-                double swinging = Math.sqrt(Math.pow(nLayout.old_dx - nLayout.dx, 2) + Math.pow(nLayout.old_dy - nLayout.dy, 2));
-                totalSwinging += nLayout.mass * swinging;   // If the node has a burst change of direction, then it's not converging.
-                totalEffectiveTraction += nLayout.mass * 0.5 * Math.sqrt(Math.pow(nLayout.old_dx + nLayout.dx, 2) + Math.pow(nLayout.old_dy + nLayout.dy, 2));
-            }
+        for (int t = 0; t < currentThreadCount; t++) {
+            totalSwinging += swingings[t];
+            totalEffectiveTraction += tractions[t];
         }
         // We want that swingingMovement < tolerance * convergenceMovement
         double targetSpeed = getJitterTolerance() * getJitterTolerance() * totalEffectiveTraction / totalSwinging;
@@ -232,50 +354,231 @@ public class ForceAtlas2 implements Layout {
         double maxRise = 0.5;   // Max rise: 50%
         speed = speed + Math.min(targetSpeed - speed, maxRise * speed);
 
-        // Apply forces
-        if (isAdjustSizes()) {
-            // If nodes overlap prevention is active, it's not possible to trust the swinging mesure.
-            for (Node n : nodes) {
-                NodeData nData = n.getNodeData();
-                ForceAtlas2LayoutData nLayout = nData.getLayoutData();
-                if (!nData.isFixed()) {
-
-                    // Adaptive auto-speed: the speed of each node is lowered
-                    // when the node swings.
-                    double swinging = Math.sqrt((nLayout.old_dx - nLayout.dx) * (nLayout.old_dx - nLayout.dx) + (nLayout.old_dy - nLayout.dy) * (nLayout.old_dy - nLayout.dy));
-                    double factor = 0.1 * speed / (1f + speed * Math.sqrt(swinging));
-
-                    double df = Math.sqrt(Math.pow(nLayout.dx, 2) + Math.pow(nLayout.dy, 2));
-                    factor = Math.min(factor * df, 10.) / df;
-
-                    double x = nData.x() + nLayout.dx * factor;
-                    double y = nData.y() + nLayout.dy * factor;
+        // Apply forces, and sum how much nodes moved
+        final double currentSpeed = speed;
+        final boolean adjust = isAdjustSizes();
+        final double[] displacements = new double[currentThreadCount];
+        final double[][] bounds = new double[currentThreadCount][];
+        tasks.clear();
+        for (int t = 0; t < currentThreadCount; t++) {
+            final int task = t;
+            final int from = getBound(movingNodes.length, t);
+            final int to = getBound(movingNodes.length, t + 1);
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    double displacementSum = 0d;
+                    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+                    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                    for (int i = from; i < to; i++) {
+                        NodeData nData = finalMovingNodes[i].getNodeData();
+                        ForceAtlas2LayoutData nLayout = nData.getLayoutData();
+                        if (!nData.isFixed()) {
+
+                            // Adaptive auto-speed: the speed of each node is lowered
+                            // when the node swings.
+                            double swinging = Math.sqrt((nLayout.old_dx - nLayout.dx) * (nLayout.old_dx - nLayout.dx) + (nLayout.old_dy - nLayout.dy) * (nLayout.old_dy - nLayout.dy));
+                            double factor;
+                            if (adjust) {
+                                // If nodes overlap prevention is active, it's not possible to trust the swinging mesure.
+                                factor = 0.1 * currentSpeed / (1f + currentSpeed * Math.sqrt(swinging));
+
+                                double df = Math.sqrt(Math.pow(nLayout.dx, 2) + Math.pow(nLayout.dy, 2));
+                                factor = Math.min(factor * df, 10.) / df;
+                            } else {
+                                factor = currentSpeed / (1f + currentSpeed * Math.sqrt(swinging));
+                            }
+
+                            double x = nData.x() + nLayout.dx * factor;
+                            double y = nData.y() + nLayout.dy * factor;
+
+                            nData.setX((float) x);
+                            nData.setY((float) y);
+                            displacementSum += Math.sqrt(Math.pow(nLayout.dx * factor, 2) + Math.pow(nLayout.dy * factor, 2));
+                        }
+                        minX = Math.min(minX, nData.x());
+                        minY = Math.min(minY, nData.y());
+                        maxX = Math.max(maxX, nData.x());
+                        maxY = Math.max(maxY, nData.y());
+                    }
+                    displacements[task] = displacementSum;
+                    bounds[task] = new double[]{minX, minY, maxX, maxY};
+                }
+            });
+        }
+        runTasks(tasks);
+        double totalDisplacement = 0d;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int t = 0; t < currentThreadCount; t++) {
+            totalDisplacement += displacements[t];
+            minX = Math.min(minX, bounds[t][0]);
+            minY = Math.min(minY, bounds[t][1]);
+            maxX = Math.max(maxX, bounds[t][2]);
+            maxY = Math.max(maxY, bounds[t][3]);
+        }
+        displacement = LayoutMonitor.getRelativeDisplacement(totalDisplacement, movingNodes.length, minX, minY, maxX, maxY);
+        graph.readUnlockAll();
+    }
 
-                    nData.setX((float) x);
-                    nData.setY((float) y);
+    /**
+     * Returns the nodes of the frontier which are in <code>nodes</code>, the
+     * frontier may still contain nodes just removed from the graph.
+     */
+    private Node[] getFrontierNodes(Node[] nodes) {
+        Node[] frontierNodes = frontier.getNodes();
+        List<Node> movingNodes = new ArrayList<Node>(frontierNodes.length);
+        for (Node n : frontierNodes) {
+            if (n.getNodeData().getLayoutData() instanceof ForceAtlas2LayoutData) {
+                ForceAtlas2LayoutData nLayout = n.getNodeData().getLayoutData();
+                if (nLayout.index < nodes.length && nodes[nLayout.index] == n) {
+                    movingNodes.add(n);
                 }
             }
-        } else {
+        }
+        return movingNodes.toArray(new Node[movingNodes.size()]);
+    }
+
+    /**
+     * Returns the region tree of the nodes outside the frontier. The layout
+     * doesn't move pinned nodes, so it is only built again when the frontier
+     * or the nodes of the graph have changed, or when a pinned node has been
+     * moved by someone else.
+     */
+    private RegionTree getPinnedRegion(Node[] nodes) {
+        int nodeVersion = graph.getNodeVersion();
+        if (pinnedRegion == null || pinnedFrontierVersion != frontier.getVersion() || pinnedNodeVersion != nodeVersion) {
+            List<Node> pinned = new ArrayList<Node>(nodes.length);
             for (Node n : nodes) {
-                NodeData nData = n.getNodeData();
-                ForceAtlas2LayoutData nLayout = nData.getLayoutData();
-                if (!nData.isFixed()) {
+                if (!frontier.contains(n)) {
+                    pinned.add(n);
+                }
+            }
+            pinnedNodes = pinned.toArray(new Node[pinned.size()]);
+            pinnedPositions = new float[2 * pinnedNodes.length];
+            pinnedFrontierVersion = frontier.getVersion();
+            pinnedNodeVersion = nodeVersion;
+        } else if (!pinnedMoved()) {
+            return pinnedRegion;
+        }
+        for (int i = 0; i < pinnedNodes.length; i++) {
+            NodeData nData = pinnedNodes[i].getNodeData();
+            pinnedPositions[2 * i] = nData.x();
+            pinnedPositions[2 * i + 1] = nData.y();
+        }
+        if (pinnedRegion == null) {
+            pinnedRegion = new RegionTree();
+        }
+        pinnedRegion.build(pinnedNodes, pool, currentThreadCount);
+        return pinnedRegion;
+    }
+
+    private boolean pinnedMoved() {
+        for (int i = 0; i < pinnedNodes.length; i++) {
+            NodeData nData = pinnedNodes[i].getNodeData();
+            if (pinnedPositions[2 * i] != nData.x() || pinnedPositions[2 * i + 1] != nData.y()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the anti-collision force between overlapping nodes. Each node
+     * is pushed by the nodes overlapping it, so threads only modify the layout
+     * data of their own nodes.
+     */
+    private void applyOverlaps(final Node[] nodes) {
+        if (overlapMinX.length < nodes.length) {
+            overlapMinX = new float[nodes.length];
+            overlapMinY = new float[nodes.length];
+            overlapMaxX = new float[nodes.length];
+            overlapMaxY = new float[nodes.length];
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            NodeData nData = nodes[i].getNodeData();
+            float size = nData.getSize();
+            overlapMinX[i] = nData.x() - size;
+            overlapMinY[i] = nData.y() - size;
+            overlapMaxX[i] = nData.x() + size;
+            overlapMaxY[i] = nData.y() + size;
+        }
+        collisionGrid.build(overlapMinX, overlapMinY, overlapMaxX, overlapMaxY, nodes.length);
+        final double coefficient = getScalingRatio();
+        collisionGrid.visit(new CollisionGrid.Collision() {
 
-                    // Adaptive auto-speed: the speed of each node is lowered
-                    // when the node swings.
-                    double swinging = Math.sqrt((nLayout.old_dx - nLayout.dx) * (nLayout.old_dx - nLayout.dx) + (nLayout.old_dy - nLayout.dy) * (nLayout.old_dy - nLayout.dy));
-                    //double factor = speed / (1f + Math.sqrt(speed * swinging));
-                    double factor = speed / (1f + speed * Math.sqrt(swinging));
+            @Override
+            public boolean collide(int i, int j) {
+                return ForceFactory.builder.applyOverlap(nodes[i], nodes[j], coefficient);
+            }
+        }, pool, currentThreadCount);
+    }
 
-                    double x = nData.x() + nLayout.dx * factor;
-                    double y = nData.y() + nLayout.dy * factor;
+    /**
+     * Returns the start of the range of the given task, when <code>count</code>
+     * elements are split in one task per thread.
+     */
+    private int getBound(int count, int task) {
+        return getBound(count, task, currentThreadCount);
+    }
 
-                    nData.setX((float) x);
-                    nData.setY((float) y);
-                }
+    private int getBound(int count, int task, int taskCount) {
+        return (int) ((long) count * task / taskCount);
+    }
+
+    /**
+     * Allocates the force buffers, which are empty between steps, and returns
+     * their count. There is one buffer per thread, unless they would take
+     * more than <code>MAX_BUFFER_BYTES</code>: pair forces of large graphs are
+     * then computed by fewer tasks than threads.
+     */
+    private int ensureBuffers(int size) {
+        int count = (int) Math.max(1, Math.min(currentThreadCount, MAX_BUFFER_BYTES / (16L * Math.max(1, size))));
+        if (buffers == null || buffers.length != count || buffers[0].size() < size) {
+            buffers = new ForceBuffer[count];
+            for (int t = 0; t < count; t++) {
+                buffers[t] = new ForceBuffer(size);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs the tasks in the pool and waits for them. When a task fails, the
+     * others are cancelled and the failure is thrown before any force is
+     * applied by the next tasks. The read lock taken by <code>goAlgo()</code>
+     * is released, and buffers are dropped as they may not be empty.
+     */
+    private void runTasks(List<Runnable> tasks) {
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+        for (Runnable task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw fail(futures, ex);
+        } catch (ExecutionException ex) {
+            throw fail(futures, ex.getCause());
         }
+    }
+
+    private RuntimeException fail(List<Future<?>> futures, Throwable cause) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+        buffers = null;
         graph.readUnlockAll();
+        return new RuntimeException("ForceAtlas2 step failed", cause);
+    }
+
+    @Override
+    public double getDisplacement() {
+        return displacement;
     }
 
     @Override
@@ -289,6 +592,19 @@ public class ForceAtlas2 implements Layout {
             n.getNodeData().setLayoutData(null);
         }
         pool.shutdown();
+        buffers = null;
+        rootRegion = null;
+        if (frontier != null) {
+            graphModel.removeGraphListener(frontier);
+            frontier = null;
+        }
+        pinnedRegion = null;
+        pinnedNodes = new Node[0];
+        pinnedPositions = new float[0];
+        overlapMinX = new float[0];
+        overlapMinY = new float[0];
+        overlapMaxX = new float[0];
+        overlapMaxY = new float[0];
         graph.readUnlockAll();
     }
 
@@ -299,6 +615,7 @@ public class ForceAtlas2 implements Layout {
         final String FORCEATLAS2_BEHAVIOR = NbBundle.getMessage(getClass(), "ForceAtlas2.behavior");
         final String FORCEATLAS2_PERFORMANCE = NbBundle.getMessage(getClass(), "ForceAtlas2.performance");
         final String FORCEATLAS2_THREADS = NbBundle.getMessage(getClass(), "ForceAtlas2.threads");
+        final String FORCEATLAS2_INCREMENTAL = NbBundle.getMessage(getClass(), "ForceAtlas2.incremental");
 
         try {
             properties.add(LayoutProperty.createProperty(
@@ -389,6 +706,30 @@ public class ForceAtlas2 implements Layout {
                     NbBundle.getMessage(getClass(), "ForceAtlas2.threads.desc"),
                     "getThreadsCount", "setThreadsCount"));
 
+            properties.add(LayoutProperty.createProperty(
+                    this, Boolean.class,
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.incrementalMode.name"),
+                    FORCEATLAS2_INCREMENTAL,
+                    "ForceAtlas2.incrementalMode.name",
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.incrementalMode.desc"),
+                    "isIncremental", "setIncremental"));
+
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.incrementalDepth.name"),
+                    FORCEATLAS2_INCREMENTAL,
+                    "ForceAtlas2.incrementalDepth.name",
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.incrementalDepth.desc"),
+                    "getIncrementalDepth", "setIncrementalDepth"));
+
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.fullPassInterval.name"),
+                    FORCEATLAS2_INCREMENTAL,
+                    "ForceAtlas2.fullPassInterval.name",
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.fullPassInterval.desc"),
+                    "getFullPassInterval", "setFullPassInterval"));
+
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -434,6 +775,11 @@ public class ForceAtlas2 implements Layout {
         }
         setBarnesHutTheta(1.2);
         setThreadsCount(2);
+
+        // Incremental
+        setIncremental(false);
+        setIncrementalDepth(2);
+        setFullPassInterval(100);
     }
 
     @Override
@@ -545,6 +891,30 @@ public class ForceAtlas2 implements Layout {
         this.barnesHutOptimize = barnesHutOptimize;
     }
 
+    public Boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(Boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public Integer getIncrementalDepth() {
+        return incrementalDepth;
+    }
+
+    public void setIncrementalDepth(Integer incrementalDepth) {
+        this.incrementalDepth = Math.max(0, incrementalDepth);
+    }
+
+    public Integer getFullPassInterval() {
+        return fullPassInterval;
+    }
+
+    public void setFullPassInterval(Integer fullPassInterval) {
+        this.fullPassInterval = Math.max(1, fullPassInterval);
+    }
+
     private float getWeight(Edge edge) {
         if (timeInterval != null) {
             return edge.getWeight(timeInterval.getLow(), timeInterval.getHigh());
@@ -58,13 +58,47 @@ public class ForceFactory {
     ;
 
     public RepulsionForce buildRepulsion(boolean adjustBySize, double coefficient) {
+        return buildRepulsion(adjustBySize, coefficient, false);
+    }
+
+    /**
+     * Builds the repulsion force. If <code>skipOverlaps</code> is set, the
+     * anti-collision force between overlapping nodes isn't applied by the
+     * repulsion and has to be applied with <code>applyOverlap()</code>.
+     */
+    public RepulsionForce buildRepulsion(boolean adjustBySize, double coefficient, boolean skipOverlaps) {
         if (adjustBySize) {
-            return new linRepulsion_antiCollision(coefficient);
+            return new linRepulsion_antiCollision(coefficient, skipOverlaps);
         } else {
             return new linRepulsion(coefficient);
         }
     }
 
+    /**
+     * Applies on <code>n1</code> the anti-collision force of <code>n2</code>
+     * if they overlap, only modifying the layout data of <code>n1</code>.
+     * @return <code>true</code> if nodes overlap
+     */
+    public boolean applyOverlap(Node n1, Node n2, double coefficient) {
+        NodeData n1Data = n1.getNodeData();
+        ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
+        NodeData n2Data = n2.getNodeData();
+        ForceAtlas2LayoutData n2Layout = n2Data.getLayoutData();
+
+        double xDist = n1Data.x() - n2Data.x();
+        double yDist = n1Data.y() - n2Data.y();
+        double distance = Math.sqrt(xDist * xDist + yDist * yDist) - n1Data.getSize() - n2Data.getSize();
+
+        if (distance < 0) {
+            double factor = 100 * coefficient * n1Layout.mass * n2Layout.mass;
+
+            n1Layout.dx += xDist * factor;
+            n1Layout.dy += yDist * factor;
+            return true;
+        }
+        return false;
+    }
+
     public RepulsionForce getStrongGravity(double coefficient) {
         return new strongGravity(coefficient);
     }
@@ -103,14 +137,22 @@ public class ForceFactory {
 
     public abstract class AttractionForce {
 
-        public abstract void apply(Node n1, Node n2, double e); // Model for node-node attraction (e is for edge weight if needed)
+        public void apply(Node n1, Node n2, double e) {         // Model for node-node attraction (e is for edge weight if needed)
+            apply(n1, n2, e, ForceBuffer.DIRECT);
+        }
+
+        public abstract void apply(Node n1, Node n2, double e, ForceBuffer buffer);
     }
 
     public abstract class RepulsionForce {
 
-        public abstract void apply(Node n1, Node n2);           // Model for node-node repulsion
+        public void apply(Node n1, Node n2) {                   // Model for node-node repulsion
+            apply(n1, n2, ForceBuffer.DIRECT);
+        }
+
+        public abstract void apply(Node n1, Node n2, ForceBuffer buffer);
 
-        public abstract void apply(Node n, Region r);           // Model for Barnes Hut approximation
+        public abstract void apply(Node n, double mass, double massCenterX, double massCenterY);    // Model for Barnes Hut approximation
 
         public abstract void apply(Node n, double g);           // Model for gravitation (anti-repulsion)
     }
@@ -127,7 +169,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2) {
+        public void apply(Node n1, Node n2, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -142,27 +184,24 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = coefficient * n1Layout.mass * n2Layout.mass / distance / distance;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
 
         @Override
-        public void apply(Node n, Region r) {
+        public void apply(Node n, double mass, double massCenterX, double massCenterY) {
             NodeData nData = n.getNodeData();
             ForceAtlas2LayoutData nLayout = nData.getLayoutData();
 
             // Get the distance
-            double xDist = nData.x() - r.getMassCenterX();
-            double yDist = nData.y() - r.getMassCenterY();
+            double xDist = nData.x() - massCenterX;
+            double yDist = nData.y() - massCenterY;
             double distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
 
             if (distance > 0) {
                 // NB: factor = force / distance
-                double factor = coefficient * nLayout.mass * r.getMass() / distance / distance;
+                double factor = coefficient * nLayout.mass * mass / distance / distance;
 
                 nLayout.dx += xDist * factor;
                 nLayout.dy += yDist * factor;
@@ -195,13 +234,15 @@ public class ForceFactory {
     private class linRepulsion_antiCollision extends RepulsionForce {
 
         private double coefficient;
+        private boolean skipOverlaps;
 
-        public linRepulsion_antiCollision(double c) {
+        public linRepulsion_antiCollision(double c, boolean skipOverlaps) {
             coefficient = c;
+            this.skipOverlaps = skipOverlaps;
         }
 
         @Override
-        public void apply(Node n1, Node n2) {
+        public void apply(Node n1, Node n2, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -216,41 +257,35 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = coefficient * n1Layout.mass * n2Layout.mass / distance / distance;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
 
-            } else if (distance < 0) {
+            } else if (distance < 0 && !skipOverlaps) {
                 double factor = 100 * coefficient * n1Layout.mass * n2Layout.mass;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
 
         @Override
-        public void apply(Node n, Region r) {
+        public void apply(Node n, double mass, double massCenterX, double massCenterY) {
             NodeData nData = n.getNodeData();
             ForceAtlas2LayoutData nLayout = nData.getLayoutData();
 
             // Get the distance
-            double xDist = nData.x() - r.getMassCenterX();
-            double yDist = nData.y() - r.getMassCenterY();
+            double xDist = nData.x() - massCenterX;
+            double yDist = nData.y() - massCenterY;
             double distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
 
             if (distance > 0) {
                 // NB: factor = force / distance
-                double factor = coefficient * nLayout.mass * r.getMass() / distance / distance;
+                double factor = coefficient * nLayout.mass * mass / distance / distance;
 
                 nLayout.dx += xDist * factor;
                 nLayout.dy += yDist * factor;
             } else if (distance < 0) {
-                double factor = -coefficient * nLayout.mass * r.getMass() / distance;
+                double factor = -coefficient * nLayout.mass * mass / distance;
 
                 nLayout.dx += xDist * factor;
                 nLayout.dy += yDist * factor;
@@ -286,12 +321,12 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2) {
+        public void apply(Node n1, Node n2, ForceBuffer buffer) {
             // Not Relevant
         }
 
         @Override
-        public void apply(Node n, Region r) {
+        public void apply(Node n, double mass, double massCenterX, double massCenterY) {
             // Not Relevant
         }
 
@@ -327,7 +362,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -340,11 +375,8 @@ public class ForceFactory {
             // NB: factor = force / distance
             double factor = -coefficient * e;
 
-            n1Layout.dx += xDist * factor;
-            n1Layout.dy += yDist * factor;
-
-            n2Layout.dx -= xDist * factor;
-            n2Layout.dy -= yDist * factor;
+            buffer.add(n1Layout, xDist * factor, yDist * factor);
+            buffer.add(n2Layout, -xDist * factor, -yDist * factor);
         }
     }
 
@@ -360,7 +392,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -373,11 +405,8 @@ public class ForceFactory {
             // NB: factor = force / distance
             double factor = -coefficient * e / n1Layout.mass;
 
-            n1Layout.dx += xDist * factor;
-            n1Layout.dy += yDist * factor;
-
-            n2Layout.dx -= xDist * factor;
-            n2Layout.dy -= yDist * factor;
+            buffer.add(n1Layout, xDist * factor, yDist * factor);
+            buffer.add(n2Layout, -xDist * factor, -yDist * factor);
         }
     }
 
@@ -393,7 +422,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -409,11 +438,8 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = -coefficient * e * Math.log(1 + distance) / distance;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
     }
@@ -430,7 +456,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -446,11 +472,8 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = -coefficient * e * Math.log(1 + distance) / distance / n1Layout.mass;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
     }
@@ -467,7 +490,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -482,11 +505,8 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = -coefficient * e;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
     }
@@ -503,7 +523,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -518,11 +538,8 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = -coefficient * e / n1Layout.mass;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
     }
@@ -539,7 +556,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -555,11 +572,8 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = -coefficient * e * Math.log(1 + distance) / distance;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
     }
@@ -576,7 +590,7 @@ public class ForceFactory {
         }
 
         @Override
-        public void apply(Node n1, Node n2, double e) {
+        public void apply(Node n1, Node n2, double e, ForceBuffer buffer) {
             NodeData n1Data = n1.getNodeData();
             ForceAtlas2LayoutData n1Layout = n1Data.getLayoutData();
             NodeData n2Data = n2.getNodeData();
@@ -592,11 +606,8 @@ public class ForceFactory {
                 // NB: factor = force / distance
                 double factor = -coefficient * e * Math.log(1 + distance) / distance / n1Layout.mass;
 
-                n1Layout.dx += xDist * factor;
-                n1Layout.dy += yDist * factor;
-
-                n2Layout.dx -= xDist * factor;
-                n2Layout.dy -= yDist * factor;
+                buffer.add(n1Layout, xDist * factor, yDist * factor);
+                buffer.add(n2Layout, -xDist * factor, -yDist * factor);
             }
         }
     }
@@ -53,25 +53,47 @@ public class NodesThread implements Runnable {
     private Node[] nodes;
     private int from;
     private int to;
-    private Region rootRegion;
+    private RegionTree rootRegion;
+    private RegionTree pinnedRegion;
     private boolean barnesHutOptimize;
     private RepulsionForce Repulsion;
     private double barnesHutTheta;
     private double gravity;
     private RepulsionForce GravityForce;
     private double scaling;
+    private ForceBuffer buffer;
 
-    public NodesThread(Node[] nodes, int from, int to, boolean barnesHutOptimize, double barnesHutTheta, double gravity, RepulsionForce GravityForce, double scaling, Region rootRegion, RepulsionForce Repulsion) {
+    public NodesThread(Node[] nodes, int from, int to, boolean barnesHutOptimize, double barnesHutTheta, double gravity, RepulsionForce GravityForce, double scaling, RegionTree rootRegion, RepulsionForce Repulsion) {
+        this(nodes, from, to, barnesHutOptimize, barnesHutTheta, gravity, GravityForce, scaling, rootRegion, Repulsion, ForceBuffer.DIRECT);
+    }
+
+    /**
+     * Repulsion between two nodes is added in <code>buffer</code>, other
+     * forces only move nodes from <code>from</code> to <code>to</code> and are
+     * added in their layout data.
+     */
+    public NodesThread(Node[] nodes, int from, int to, boolean barnesHutOptimize, double barnesHutTheta, double gravity, RepulsionForce GravityForce, double scaling, RegionTree rootRegion, RepulsionForce Repulsion, ForceBuffer buffer) {
+        this(nodes, from, to, barnesHutOptimize, barnesHutTheta, gravity, GravityForce, scaling, rootRegion, null, Repulsion, buffer);
+    }
+
+    /**
+     * Same as above, nodes are also repulsed by the nodes of
+     * <code>pinnedRegion</code>, which aren't in <code>nodes</code> and
+     * don't move, when <code>pinnedRegion</code> isn't <code>null</code>.
+     */
+    public NodesThread(Node[] nodes, int from, int to, boolean barnesHutOptimize, double barnesHutTheta, double gravity, RepulsionForce GravityForce, double scaling, RegionTree rootRegion, RegionTree pinnedRegion, RepulsionForce Repulsion, ForceBuffer buffer) {
         this.nodes = nodes;
         this.from = from;
         this.to = to;
         this.rootRegion = rootRegion;
+        this.pinnedRegion = pinnedRegion;
         this.barnesHutOptimize = barnesHutOptimize;
         this.Repulsion = Repulsion;
         this.barnesHutTheta = barnesHutTheta;
         this.gravity = gravity;
         this.GravityForce = GravityForce;
         this.scaling = scaling;
+        this.buffer = buffer;
     }
 
     @Override
@@ -80,18 +102,28 @@ public class NodesThread implements Runnable {
         if (barnesHutOptimize) {
             for (int nIndex = from; nIndex < to; nIndex++) {
                 Node n = nodes[nIndex];
-                rootRegion.applyForce(n, Repulsion, barnesHutTheta);
+                rootRegion.applyForce(n, Repulsion, barnesHutTheta, buffer);
             }
         } else {
             for (int n1Index = from; n1Index < to; n1Index++) {
                 Node n1 = nodes[n1Index];
                 for (int n2Index = 0; n2Index < n1Index; n2Index++) {
                     Node n2 = nodes[n2Index];
-                    Repulsion.apply(n1, n2);
+                    Repulsion.apply(n1, n2, buffer);
                 }
             }
         }
 
+        // Repulsion of pinned nodes. Without Barnes Hut, a zero theta opens
+        // every region down to the nodes, so the repulsion is exact
+        if (pinnedRegion != null) {
+            double theta = barnesHutOptimize ? barnesHutTheta : 0;
+            for (int nIndex = from; nIndex < to; nIndex++) {
+                Node n = nodes[nIndex];
+                pinnedRegion.applyForce(n, Repulsion, theta, buffer);
+            }
+        }
+
         // Gravity
         for (int nIndex = from; nIndex < to; nIndex++) {
             Node n = nodes[nIndex];
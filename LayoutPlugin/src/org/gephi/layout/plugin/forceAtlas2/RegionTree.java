@@ -0,0 +1,357 @@
+/*
+Copyright 2008-2011 Gephi
+Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.gephi.layout.plugin.forceAtlas2.ForceFactory.RepulsionForce;
+import org.openide.util.Exceptions;
+
+/**
+ * Barnes Hut optimization. Nodes are split in quadrants as the former
+ * recursive <code>Region</code> did, but regions are stored in arrays which
+ * are reused from one build to another.
+ * <p>
+ * Nodes are referred by their index in the array given to <code>build()</code>
+ * and sorted in place so that nodes of a region are contiguous. Regions are
+ * referred by their index in the region arrays, the root region is
+ * <code>0</code> and the sub regions of a region are contiguous. Upper levels
+ * are split by the calling thread, and sub trees below are built in parallel.
+ */
+public class RegionTree {
+
+    private static final int PARALLEL_THRESHOLD = 10000;
+    private Node[] nodes;
+    private int nodeCount;
+    //Nodes
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private float[] nodeX = new float[0];
+    private float[] nodeY = new float[0];
+    private double[] nodeMass = new double[0];
+    //Regions
+    private final AtomicInteger regionCount = new AtomicInteger();
+    private int[] start = new int[0];
+    private int[] end = new int[0];
+    private int[] firstSubregion = new int[0];
+    private int[] subregionCount = new int[0];
+    private double[] mass = new double[0];
+    private double[] massCenterX = new double[0];
+    private double[] massCenterY = new double[0];
+    private double[] size = new double[0];
+
+    /**
+     * Builds regions of <code>nodes</code>, which must have a
+     * <code>ForceAtlas2LayoutData</code>.
+     * @param nodes the nodes
+     * @param pool the pool sub trees are built in, or <code>null</code>
+     * @param threadCount the number of threads of <code>pool</code>
+     */
+    public void build(Node[] nodes, ExecutorService pool, int threadCount) {
+        this.nodes = nodes;
+        this.nodeCount = nodes.length;
+        ensureCapacity(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            NodeData nData = nodes[i].getNodeData();
+            ForceAtlas2LayoutData nLayout = nData.getLayoutData();
+            order[i] = i;
+            nodeX[i] = nData.x();
+            nodeY[i] = nData.y();
+            nodeMass[i] = nLayout.mass;
+        }
+        regionCount.set(0);
+        if (nodeCount == 0) {
+            return;
+        }
+        int root = regionCount.getAndIncrement();
+        start[root] = 0;
+        end[root] = nodeCount;
+        updateMassAndGeometry(root);
+
+        if (pool == null || threadCount < 2 || nodeCount < PARALLEL_THRESHOLD) {
+            buildSubRegions(root);
+        } else {
+            //Split upper levels until there are enough sub trees for all threads
+            List<Integer> regions = new ArrayList<Integer>();
+            regions.add(root);
+            while (!regions.isEmpty() && regions.size() < 4 * threadCount) {
+                List<Integer> nextRegions = new ArrayList<Integer>();
+                for (Integer region : regions) {
+                    split(region);
+                    for (int r = firstSubregion[region]; r < firstSubregion[region] + subregionCount[region]; r++) {
+                        if (end[r] - start[r] > 1) {
+                            nextRegions.add(r);
+                        }
+                    }
+                }
+                regions = nextRegions;
+            }
+            List<Future<?>> futures = new ArrayList<Future<?>>(regions.size());
+            for (final Integer region : regions) {
+                futures.add(pool.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        buildSubRegions(region);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException ex) {
+                    Exceptions.printStackTrace(ex);
+                } catch (ExecutionException ex) {
+                    Exceptions.printStackTrace(ex);
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (order.length < count) {
+            order = new int[count];
+            scratch = new int[count];
+            nodeX = new float[count];
+            nodeY = new float[count];
+            nodeMass = new double[count];
+        }
+        // Each region which isn't a leaf has at least two sub regions and
+        // there is one leaf per node, so there are less than 2 * count regions
+        int regions = Math.max(1, 2 * count);
+        if (start.length < regions) {
+            start = new int[regions];
+            end = new int[regions];
+            firstSubregion = new int[regions];
+            subregionCount = new int[regions];
+            mass = new double[regions];
+            massCenterX = new double[regions];
+            massCenterY = new double[regions];
+            size = new double[regions];
+        }
+    }
+
+    private void updateMassAndGeometry(int region) {
+        int from = start[region];
+        int to = end[region];
+        subregionCount[region] = 0;
+        if (to - from > 1) {
+            // Compute Mass
+            double regionMass = 0;
+            double massSumX = 0;
+            double massSumY = 0;
+            for (int i = from; i < to; i++) {
+                int n = order[i];
+                regionMass += nodeMass[n];
+                massSumX += nodeX[n] * nodeMass[n];
+                massSumY += nodeY[n] * nodeMass[n];
+            }
+            double centerX = massSumX / regionMass;
+            double centerY = massSumY / regionMass;
+
+            // Compute size
+            double regionSize = Double.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int n = order[i];
+                double distance = Math.sqrt((nodeX[n] - centerX) * (nodeX[n] - centerX) + (nodeY[n] - centerY) * (nodeY[n] - centerY));
+                regionSize = Math.max(regionSize, 2 * distance);
+            }
+            mass[region] = regionMass;
+            massCenterX[region] = centerX;
+            massCenterY[region] = centerY;
+            size[region] = regionSize;
+        } else {
+            mass[region] = 0;
+            massCenterX[region] = 0;
+            massCenterY[region] = 0;
+            size[region] = 0;
+        }
+    }
+
+    private void buildSubRegions(int region) {
+        if (end[region] - start[region] > 1) {
+            split(region);
+            for (int r = firstSubregion[region]; r < firstSubregion[region] + subregionCount[region]; r++) {
+                buildSubRegions(r);
+            }
+        }
+    }
+
+    /**
+     * Sorts nodes of <code>region</code> by quadrant, in the order of
+     * <code>Region</code> and keeping their relative order, and creates the
+     * sub regions.
+     */
+    private void split(int region) {
+        int from = start[region];
+        int to = end[region];
+        double centerX = massCenterX[region];
+        double centerY = massCenterY[region];
+
+        // Quadrants are top left, bottom left, bottom right and top right
+        int topLeft = 0;
+        int bottomLeft = 0;
+        int bottomRight = 0;
+        for (int i = from; i < to; i++) {
+            switch (quadrant(order[i], centerX, centerY)) {
+                case 0:
+                    topLeft++;
+                    break;
+                case 1:
+                    bottomLeft++;
+                    break;
+                case 2:
+                    bottomRight++;
+                    break;
+            }
+        }
+        int topRight = to - from - topLeft - bottomLeft - bottomRight;
+        int topLeftOffset = from;
+        int bottomLeftOffset = topLeftOffset + topLeft;
+        int bottomRightOffset = bottomLeftOffset + bottomLeft;
+        int topRightOffset = bottomRightOffset + bottomRight;
+        for (int i = from; i < to; i++) {
+            int n = order[i];
+            switch (quadrant(n, centerX, centerY)) {
+                case 0:
+                    scratch[topLeftOffset++] = n;
+                    break;
+                case 1:
+                    scratch[bottomLeftOffset++] = n;
+                    break;
+                case 2:
+                    scratch[bottomRightOffset++] = n;
+                    break;
+                default:
+                    scratch[topRightOffset++] = n;
+            }
+        }
+        System.arraycopy(scratch, from, order, from, to - from);
+
+        int count = to - from;
+        if (topLeft == count || bottomLeft == count || bottomRight == count || topRight == count) {
+            // All nodes in the same quadrant, one region per node
+            int first = regionCount.getAndAdd(count);
+            firstSubregion[region] = first;
+            subregionCount[region] = count;
+            for (int i = 0; i < count; i++) {
+                start[first + i] = from + i;
+                end[first + i] = from + i + 1;
+                updateMassAndGeometry(first + i);
+            }
+        } else {
+            int subregions = (topLeft > 0 ? 1 : 0) + (bottomLeft > 0 ? 1 : 0) + (bottomRight > 0 ? 1 : 0) + (topRight > 0 ? 1 : 0);
+            int first = regionCount.getAndAdd(subregions);
+            firstSubregion[region] = first;
+            subregionCount[region] = subregions;
+            int r = first;
+            r = addSubregion(r, from, topLeft);
+            r = addSubregion(r, from + topLeft, bottomLeft);
+            r = addSubregion(r, from + topLeft + bottomLeft, bottomRight);
+            addSubregion(r, from + topLeft + bottomLeft + bottomRight, topRight);
+        }
+    }
+
+    private int addSubregion(int region, int from, int count) {
+        if (count == 0) {
+            return region;
+        }
+        start[region] = from;
+        end[region] = from + count;
+        updateMassAndGeometry(region);
+        return region + 1;
+    }
+
+    private int quadrant(int n, double centerX, double centerY) {
+        if (nodeX[n] < centerX) {
+            return (nodeY[n] < centerY) ? 0 : 1;
+        } else {
+            return (nodeY[n] < centerY) ? 3 : 2;
+        }
+    }
+
+    public void applyForce(Node n, RepulsionForce Force, double theta, ForceBuffer buffer) {
+        if (nodeCount > 0) {
+            applyForce(0, n, Force, theta, buffer);
+        }
+    }
+
+    private void applyForce(int region, Node n, RepulsionForce Force, double theta, ForceBuffer buffer) {
+        NodeData nData = n.getNodeData();
+        if (end[region] - start[region] < 2) {
+            Node regionNode = nodes[order[start[region]]];
+            Force.apply(n, regionNode, buffer);
+        } else {
+            double distance = Math.sqrt((nData.x() - massCenterX[region]) * (nData.x() - massCenterX[region]) + (nData.y() - massCenterY[region]) * (nData.y() - massCenterY[region]));
+            if (distance * theta > size[region]) {
+                Force.apply(n, mass[region], massCenterX[region], massCenterY[region]);
+            } else {
+                int first = firstSubregion[region];
+                for (int r = first; r < first + subregionCount[region]; r++) {
+                    applyForce(r, n, Force, theta, buffer);
+                }
+            }
+        }
+    }
+
+    public int getRegionCount() {
+        return regionCount.get();
+    }
+
+    public double getMass() {
+        return nodeCount > 1 ? mass[0] : 0;
+    }
+
+    public double getMassCenterX() {
+        return nodeCount > 1 ? massCenterX[0] : 0;
+    }
+
+    public double getMassCenterY() {
+        return nodeCount > 1 ? massCenterY[0] : 0;
+    }
+}
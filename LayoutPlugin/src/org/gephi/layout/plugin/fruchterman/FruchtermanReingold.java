@@ -43,32 +43,49 @@ package org.gephi.layout.plugin.fruchterman;
 
 import java.util.ArrayList;
 import java.util.List;
-import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.Graph;
-import org.gephi.graph.api.HierarchicalGraph;
-import org.gephi.graph.api.Node;
-import org.gephi.graph.api.NodeData;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.gephi.layout.plugin.AbstractLayout;
-import org.gephi.layout.plugin.ForceVectorNodeLayoutData;
 import org.gephi.layout.spi.Layout;
 import org.gephi.layout.spi.LayoutBuilder;
 import org.gephi.layout.spi.LayoutProperty;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.openide.util.Exceptions;
 import org.openide.util.NbBundle;
 
 /**
- *
+ * Fruchterman Reingold layout. Repulsion is computed between all pairs of
+ * nodes, or with the grid variant of the original paper: nodes are put in a
+ * uniform grid of cells as large as the <code>2k</code> cutoff radius, so only
+ * nodes of neighbor cells repulse each other. The grid variant is
+ * multithreaded, and must be enabled by the user as it ignores the repulsion
+ * of distant nodes.
+ * <p>
+ * The layout iterates on the arrays of a {@link LayoutWorkingSet}, positions
+ * are published in the graph by the layout controller.
  * @author Mathieu Jacomy
  */
 public class FruchtermanReingold extends AbstractLayout implements Layout {
 
     private static final float SPEED_DIVISOR = 800;
     private static final float AREA_MULTIPLICATOR = 10000;
-    //Graph
-    protected HierarchicalGraph graph;
     //Properties
     private float area;
     private double gravity;
     private double speed;
+    private boolean grid;
+    private int threadCount;
+    //Working set
+    private ExecutorService pool;
+    private float[] x = new float[0];
+    private float[] y = new float[0];
+    private float[] dx = new float[0];
+    private float[] dy = new float[0];
+    private int[] cellNodes = new int[0];
+    private int[] cellStart = new int[0];
+    private int[] nodeCell = new int[0];
 
     public FruchtermanReingold(LayoutBuilder layoutBuilder) {
         super(layoutBuilder);
@@ -78,105 +95,230 @@ public class FruchtermanReingold extends AbstractLayout implements Layout {
         speed = 1;
         area = 10000;
         gravity = 10;
+        grid = false;
+        threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
     }
 
     public void initAlgo() {
-        this.graph = graphModel.getHierarchicalGraphVisible();
-        for (Node n : graph.getNodes()) {
-            n.getNodeData().setLayoutData(new ForceVectorNodeLayoutData());
-        }
+        pool = Executors.newFixedThreadPool(threadCount);
     }
 
     public void goAlgo() {
-        this.graph = graphModel.getHierarchicalGraphVisible();
-        graph.readLock();
-        Node[] nodes = graph.getNodes().toArray();
-        Edge[] edges = graph.getEdgesAndMetaEdges().toArray();
-
-        for (Node n : nodes) {
-            if (n.getNodeData().getLayoutData() == null || !(n.getNodeData().getLayoutData() instanceof ForceVectorNodeLayoutData)) {
-                n.getNodeData().setLayoutData(new ForceVectorNodeLayoutData());
-            }
-            ForceVectorNodeLayoutData layoutData = n.getNodeData().getLayoutData();
-            layoutData.dx = 0;
-            layoutData.dy = 0;
+        LayoutWorkingSet workingSet = updateWorkingSet();
+        int count = workingSet.getNodeCount();
+        x = workingSet.getX();
+        y = workingSet.getY();
+        if (dx.length != count) {
+            dx = new float[count];
+            dy = new float[count];
         }
 
         float maxDisplace = (float) (Math.sqrt(AREA_MULTIPLICATOR * area) / 10f);					// Déplacement limite : on peut le calibrer...
-        float k = (float) Math.sqrt((AREA_MULTIPLICATOR * area) / (1f + nodes.length));		// La variable k, l'idée principale du layout.
-
-        for (Node N1 : nodes) {
-            for (Node N2 : nodes) {	// On fait toutes les paires de noeuds
-                if (N1 != N2) {
-                    float xDist = N1.getNodeData().x() - N2.getNodeData().x();	// distance en x entre les deux noeuds
-                    float yDist = N1.getNodeData().y() - N2.getNodeData().y();
-                    float dist = (float) Math.sqrt(xDist * xDist + yDist * yDist);	// distance tout court
-
-                    if (dist > 0) {
-                        float repulsiveF = k * k / dist;			// Force de répulsion
-                        ForceVectorNodeLayoutData layoutData = N1.getNodeData().getLayoutData();
-                        layoutData.dx += xDist / dist * repulsiveF;		// on l'applique...
-                        layoutData.dy += yDist / dist * repulsiveF;
+        float k = (float) Math.sqrt((AREA_MULTIPLICATOR * area) / (1f + count));		// La variable k, l'idée principale du layout.
+
+        if (grid) {
+            applyGridRepulsion(count, k);
+        } else {
+            for (int i = 0; i < count; i++) {
+                dx[i] = 0;
+                dy[i] = 0;
+                for (int j = 0; j < count; j++) {	// On fait toutes les paires de noeuds
+                    if (i != j) {
+                        float xDist = x[i] - x[j];	// distance en x entre les deux noeuds
+                        float yDist = y[i] - y[j];
+                        float dist = (float) Math.sqrt(xDist * xDist + yDist * yDist);	// distance tout court
+
+                        if (dist > 0) {
+                            float repulsiveF = k * k / dist;			// Force de répulsion
+                            dx[i] += xDist / dist * repulsiveF;		// on l'applique...
+                            dy[i] += yDist / dist * repulsiveF;
+                        }
                     }
                 }
             }
         }
-        for (Edge E : edges) {
+        int[] sources = workingSet.getEdgeSources();
+        int[] targets = workingSet.getEdgeTargets();
+        for (int e = 0; e < sources.length; e++) {
             // Idem, pour tous les noeuds on applique la force d'attraction
 
-            Node Nf = E.getSource();
-            Node Nt = E.getTarget();
+            int f = sources[e];
+            int t = targets[e];
 
-            float xDist = Nf.getNodeData().x() - Nt.getNodeData().x();
-            float yDist = Nf.getNodeData().y() - Nt.getNodeData().y();
+            float xDist = x[f] - x[t];
+            float yDist = y[f] - y[t];
             float dist = (float) Math.sqrt(xDist * xDist + yDist * yDist);
 
             float attractiveF = dist * dist / k;
 
             if (dist > 0) {
-                ForceVectorNodeLayoutData sourceLayoutData = Nf.getNodeData().getLayoutData();
-                ForceVectorNodeLayoutData targetLayoutData = Nt.getNodeData().getLayoutData();
-                sourceLayoutData.dx -= xDist / dist * attractiveF;
-                sourceLayoutData.dy -= yDist / dist * attractiveF;
-                targetLayoutData.dx += xDist / dist * attractiveF;
-                targetLayoutData.dy += yDist / dist * attractiveF;
+                dx[f] -= xDist / dist * attractiveF;
+                dy[f] -= yDist / dist * attractiveF;
+                dx[t] += xDist / dist * attractiveF;
+                dy[t] += yDist / dist * attractiveF;
             }
         }
         // gravity
-        for (Node n : nodes) {
-            NodeData nodeData = n.getNodeData();
-            ForceVectorNodeLayoutData layoutData = nodeData.getLayoutData();
-            float d = (float) Math.sqrt(nodeData.x() * nodeData.x() + nodeData.y() * nodeData.y());
+        for (int i = 0; i < count; i++) {
+            float d = (float) Math.sqrt(x[i] * x[i] + y[i] * y[i]);
             float gf = 0.01f * k * (float) gravity * d;
-            layoutData.dx -= gf * nodeData.x() / d;
-            layoutData.dy -= gf * nodeData.y() / d;
+            dx[i] -= gf * x[i] / d;
+            dy[i] -= gf * y[i] / d;
         }
         // speed
-        for (Node n : nodes) {
-            ForceVectorNodeLayoutData layoutData = n.getNodeData().getLayoutData();
-            layoutData.dx *= speed / SPEED_DIVISOR;
-            layoutData.dy *= speed / SPEED_DIVISOR;
+        for (int i = 0; i < count; i++) {
+            dx[i] *= speed / SPEED_DIVISOR;
+            dy[i] *= speed / SPEED_DIVISOR;
         }
-        for (Node n : nodes) {
+        for (int i = 0; i < count; i++) {
             // Maintenant on applique le déplacement calculé sur les noeuds.
             // nb : le déplacement à chaque passe "instantanné" correspond à la force : c'est une sorte d'accélération.
-            ForceVectorNodeLayoutData layoutData = n.getNodeData().getLayoutData();
-            float xDist = layoutData.dx;
-            float yDist = layoutData.dy;
-            float dist = (float) Math.sqrt(layoutData.dx * layoutData.dx + layoutData.dy * layoutData.dy);
-            if (dist > 0 && !n.getNodeData().isFixed()) {
+            float xDist = dx[i];
+            float yDist = dy[i];
+            float dist = (float) Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+            if (dist > 0 && !workingSet.isFixed(i)) {
                 float limitedDist = Math.min(maxDisplace * ((float) speed / SPEED_DIVISOR), dist);
-                n.getNodeData().setX(n.getNodeData().x() + xDist / dist * limitedDist);
-                n.getNodeData().setY(n.getNodeData().y() + yDist / dist * limitedDist);
+                x[i] += xDist / dist * limitedDist;
+                y[i] += yDist / dist * limitedDist;
+            }
+        }
+    }
+
+    /**
+     * Sets the repulsion between nodes closer than <code>2k</code> in
+     * <code>dx</code> and <code>dy</code>. Nodes are sorted by cell and each
+     * thread computes the repulsion of a range of nodes, from nodes of the 9
+     * cells around.
+     */
+    private void applyGridRepulsion(final int count, final float k) {
+        if (count == 0) {
+            return;
+        }
+        if (cellNodes.length != count) {
+            cellNodes = new int[count];
+            nodeCell = new int[count];
+        }
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        // Cells are at least as large as the cutoff radius, and larger if
+        // there would be more cells than nodes
+        float size = 2 * k;
+        int columns = (int) ((maxX - minX) / size) + 1;
+        int rows = (int) ((maxY - minY) / size) + 1;
+        while ((long) columns * rows > count) {
+            size *= 2;
+            columns = (int) ((maxX - minX) / size) + 1;
+            rows = (int) ((maxY - minY) / size) + 1;
+        }
+        final float cellSize = size;
+        final float originX = minX;
+        final float originY = minY;
+        final int gridColumns = columns;
+        final int gridRows = rows;
+
+        // Counting sort of nodes by cell
+        int cellCount = columns * rows;
+        if (cellStart.length < cellCount + 1) {
+            cellStart = new int[cellCount + 1];
+        } else {
+            for (int c = 0; c <= cellCount; c++) {
+                cellStart[c] = 0;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int column = (int) ((x[i] - minX) / cellSize);
+            int row = (int) ((y[i] - minY) / cellSize);
+            nodeCell[i] = row * columns + column;
+            cellStart[nodeCell[i] + 1]++;
+        }
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        for (int i = 0; i < count; i++) {
+            cellNodes[cellStart[nodeCell[i]]++] = i;
+        }
+        for (int c = cellCount; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+
+        final float cutoff = 2 * k;
+        int taskCount = Math.max(1, Math.min(threadCount, count / 1000));
+        List<Future<?>> futures = new ArrayList<Future<?>>(taskCount);
+        for (int t = 0; t < taskCount; t++) {
+            final int from = (int) ((long) count * t / taskCount);
+            final int to = (int) ((long) count * (t + 1) / taskCount);
+            Runnable task = new Runnable() {
+
+                public void run() {
+                    for (int i = from; i < to; i++) {
+                        int column = (int) ((x[i] - originX) / cellSize);
+                        int row = (int) ((y[i] - originY) / cellSize);
+                        float repulsionX = 0;
+                        float repulsionY = 0;
+                        for (int r = Math.max(0, row - 1); r <= Math.min(gridRows - 1, row + 1); r++) {
+                            for (int c = Math.max(0, column - 1); c <= Math.min(gridColumns - 1, column + 1); c++) {
+                                int cell = r * gridColumns + c;
+                                for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+                                    int other = cellNodes[j];
+                                    if (other != i) {
+                                        float xDist = x[i] - x[other];
+                                        float yDist = y[i] - y[other];
+                                        float dist = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+
+                                        if (dist > 0 && dist < cutoff) {
+                                            float repulsiveF = k * k / dist;
+                                            repulsionX += xDist / dist * repulsiveF;
+                                            repulsionY += yDist / dist * repulsiveF;
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                        dx[i] = repulsionX;
+                        dy[i] = repulsionY;
+                    }
+                }
+            };
+            if (taskCount == 1 || pool == null) {
+                task.run();
+            } else {
+                futures.add(pool.submit(task));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Exceptions.printStackTrace(ex);
+            } catch (ExecutionException ex) {
+                Exceptions.printStackTrace(ex);
             }
         }
-        graph.readUnlock();
     }
 
     public void endAlgo() {
-        for (Node n : graph.getNodes()) {
-            n.getNodeData().setLayoutData(null);
+        releaseWorkingSet();
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
         }
+        x = new float[0];
+        y = new float[0];
+        dx = new float[0];
+        dy = new float[0];
+        cellNodes = new int[0];
+        cellStart = new int[0];
+        nodeCell = new int[0];
     }
 
     @Override
@@ -210,6 +352,20 @@ public class FruchtermanReingold extends AbstractLayout implements Layout {
                     "fruchtermanReingold.speed.name",
                     NbBundle.getMessage(FruchtermanReingold.class, "fruchtermanReingold.speed.desc"),
                     "getSpeed", "setSpeed"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Boolean.class,
+                    NbBundle.getMessage(FruchtermanReingold.class, "fruchtermanReingold.grid.name"),
+                    FRUCHTERMAN_REINGOLD,
+                    "fruchtermanReingold.grid.name",
+                    NbBundle.getMessage(FruchtermanReingold.class, "fruchtermanReingold.grid.desc"),
+                    "isGrid", "setGrid"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(FruchtermanReingold.class, "fruchtermanReingold.threads.name"),
+                    FRUCHTERMAN_REINGOLD,
+                    "fruchtermanReingold.threads.name",
+                    NbBundle.getMessage(FruchtermanReingold.class, "fruchtermanReingold.threads.desc"),
+                    "getThreadsCount", "setThreadsCount"));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -252,4 +408,25 @@ public class FruchtermanReingold extends AbstractLayout implements Layout {
     public void setSpeed(Double speed) {
         this.speed = speed;
     }
+
+    public Boolean isGrid() {
+        return grid;
+    }
+
+    public void setGrid(Boolean grid) {
+        this.grid = grid;
+    }
+
+    public Integer getThreadsCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sets the number of threads of the grid variant, which is used at the
+     * next start of the layout.
+     * @param threadCount the number of threads
+     */
+    public void setThreadsCount(Integer threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
 }
@@ -43,16 +43,22 @@ package org.gephi.layout.plugin.labelAdjust;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
 import org.gephi.layout.plugin.AbstractLayout;
+import org.gephi.layout.plugin.CollisionGrid;
 import org.gephi.layout.spi.Layout;
 import org.gephi.layout.spi.LayoutBuilder;
 import org.gephi.layout.spi.LayoutProperty;
 import org.openide.util.NbBundle;
 
 /**
- *
+ * Label Adjust layout, pushes apart nodes whose labels or disks overlap.
+ * Overlapping nodes are found with a {@link CollisionGrid}, in parallel.
  * @author Mathieu Jacomy
  */
 public class LabelAdjust extends AbstractLayout implements Layout {
@@ -63,11 +69,17 @@ public class LabelAdjust extends AbstractLayout implements Layout {
     private double speed = 1;
     private boolean adjustBySize = true;
     private float radiusScale = 1.1f;
-    //Graph size
-    private float xmin;
-    private float xmax;
-    private float ymin;
-    private float ymax;
+    private int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    //Collisions
+    private final CollisionGrid collisionGrid = new CollisionGrid();
+    private ExecutorService pool;
+    private float[] minX = new float[0];
+    private float[] minY = new float[0];
+    private float[] maxX = new float[0];
+    private float[] maxY = new float[0];
+    //Jitter, drawn per pass so the parallel phase doesn't share a generator
+    private Random random = new Random(42);
+    private long jitterSeed;
 
     public LabelAdjust(LayoutBuilder layoutBuilder) {
         super(layoutBuilder);
@@ -77,16 +89,19 @@ public class LabelAdjust extends AbstractLayout implements Layout {
         speed = 1;
         radiusScale = 1.1f;
         adjustBySize = true;
+        threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
     }
 
     public void initAlgo() {
         setConverged(false);
+        random = new Random(42);
+        pool = Executors.newFixedThreadPool(threadCount);
     }
 
     public void goAlgo() {
         this.graph = graphModel.getGraphVisible();
         graph.readLock();
-        Node[] nodes = graph.getNodes().toArray();
+        final Node[] nodes = graph.getNodes().toArray();
 
         //Reset Layout Data
         for (Node n : nodes) {
@@ -94,80 +109,65 @@ public class LabelAdjust extends AbstractLayout implements Layout {
                 n.getNodeData().setLayoutData(new LabelAdjustLayoutData());
             }
             LabelAdjustLayoutData layoutData = n.getNodeData().getLayoutData();
-            layoutData.freeze = 0;
             layoutData.dx = 0;
             layoutData.dy = 0;
         }
 
-        // Get xmin, xmax, ymin, ymax
-        xmin = Float.MAX_VALUE;
-        xmax = Float.MIN_VALUE;
-        ymin = Float.MAX_VALUE;
-        ymax = Float.MIN_VALUE;
-
-        List<Node> correctNodes = new ArrayList<Node>();
-        for (Node n : nodes) {
-            float x = n.getNodeData().x();
-            float y = n.getNodeData().y();
-            float w = n.getNodeData().getTextData().getWidth();
-            float h = n.getNodeData().getTextData().getHeight();
-            float radius = n.getNodeData().getRadius();
+        // Get the rectangle occupied by each node (size + label), nodes
+        // without label are ignored
+        if (minX.length < nodes.length) {
+            minX = new float[nodes.length];
+            minY = new float[nodes.length];
+            maxX = new float[nodes.length];
+            maxY = new float[nodes.length];
+        }
+        boolean someLabel = false;
+        for (int i = 0; i < nodes.length; i++) {
+            NodeData nodeData = nodes[i].getNodeData();
+            float x = nodeData.x();
+            float y = nodeData.y();
+            float w = nodeData.getTextData().getWidth();
+            float h = nodeData.getTextData().getHeight();
+            float radius = nodeData.getRadius() * radiusScale;
 
             if (w > 0 && h > 0) {
-                // Get the rectangle occupied by the node (size + label)
-                float nxmin = Math.min(x - w / 2, x - radius);
-                float nxmax = Math.max(x + w / 2, x + radius);
-                float nymin = Math.min(y - h / 2, y - radius);
-                float nymax = Math.max(y + h / 2, y + radius);
-
-                // Update global boundaries
-                xmin = Math.min(this.xmin, nxmin);
-                xmax = Math.max(this.xmax, nxmax);
-                ymin = Math.min(this.ymin, nymin);
-                ymax = Math.max(this.ymax, nymax);
-
-                correctNodes.add(n);
+                minX[i] = Math.min(x - w / 2, x - radius);
+                maxX[i] = Math.max(x + w / 2, x + radius);
+                minY[i] = Math.min(y - h / 2, y - radius);
+                maxY[i] = Math.max(y + h / 2, y + radius);
+                someLabel = true;
+            } else {
+                minX[i] = Float.NaN;
+                minY[i] = Float.NaN;
+                maxX[i] = Float.NaN;
+                maxY[i] = Float.NaN;
             }
         }
 
-        if (correctNodes.isEmpty() || xmin == xmax || ymin == ymax) {
+        if (!someLabel) {
             graph.readUnlock();
             return;
         }
 
-        long timeStamp = 1;
-        boolean someCollision = false;
-
-        //Add all nodes in the quadtree
-        QuadTree quadTree = new QuadTree(correctNodes.size(), (xmax - xmin) / (ymax - ymin));
-        for (Node n : correctNodes) {
-            quadTree.add(n);
-        }
+        //Compute repulsion - with overlapping nodes only, each node is pushed
+        //by others so threads only modify their own nodes
+        collisionGrid.build(minX, minY, maxX, maxY, nodes.length);
+        jitterSeed = random.nextLong();
+        int collisions = collisionGrid.visit(new CollisionGrid.Collision() {
 
-        //Compute repulsion - with neighbours in the 8 quadnodes around the node
-        for (Node n : correctNodes) {
-            timeStamp++;
-            LabelAdjustLayoutData layoutData = n.getNodeData().getLayoutData();
-            QuadNode quad = quadTree.getQuadNode(layoutData.labelAdjustQuadNode);
-
-            //Repulse with adjacent quad - but only one per pair of nodes, timestamp is guaranteeing that
-            for (Node neighbour : quadTree.getAdjacentNodes(quad.row, quad.col)) {
-                LabelAdjustLayoutData neighborLayoutData = neighbour.getNodeData().getLayoutData();
-                if (neighbour != n && neighborLayoutData.freeze < timeStamp) {
-                    boolean collision = repulse(n, neighbour);
-                    someCollision = someCollision || collision;
-                }
-                neighborLayoutData.freeze = timeStamp; //Use the existing freeze float variable to set timestamp
+            public boolean collide(int i, int j) {
+                return repulse(nodes[j], nodes[i]);
             }
-        }
+        }, pool, threadCount);
 
-        if (!someCollision) {
+        if (collisions == 0) {
             setConverged(true);
         } else {
             // apply forces
-            for (Node n : correctNodes) {
+            for (int i = 0; i < nodes.length; i++) {
+                Node n = nodes[i];
                 LabelAdjustLayoutData layoutData = n.getNodeData().getLayoutData();
-                if (!n.getNodeData().isFixed()) {
+                if (!Float.isNaN(minX[i]) && !n.getNodeData().isFixed()) {
                     layoutData.dx *= speed;
                     layoutData.dy *= speed;
                     float x = n.getNodeData().x() + layoutData.dx;
@@ -215,8 +215,8 @@ public class LabelAdjust extends AbstractLayout implements Layout {
                     n2Data.dx = (float) (n2Data.dx + xDist / dist * f);
                     n2Data.dy = (float) (n2Data.dy + yDist / dist * f);
                 } else {
-                    n2Data.dx = (float) (n2Data.dx + 0.01 * (0.5 - Math.random()));
-                    n2Data.dy = (float) (n2Data.dy + 0.01 * (0.5 - Math.random()));
+                    n2Data.dx = (float) (n2Data.dx + 0.01 * (0.5 - jitter(n1, n2, 0)));
+                    n2Data.dy = (float) (n2Data.dy + 0.01 * (0.5 - jitter(n1, n2, 1)));
                 }
                 collision = true;
             }
@@ -231,20 +231,20 @@ public class LabelAdjust extends AbstractLayout implements Layout {
             if (labelCollisionXleft > 0 && labelCollisionXright > 0) {// Collision
                 if (upDifferential > downDifferential) {
                     // N1 pushes N2 up
-                    n2Data.dy = (float) (n2Data.dy - 0.02 * n1h * (0.8 + 0.4 * Math.random()));
+                    n2Data.dy = (float) (n2Data.dy - 0.02 * n1h * (0.8 + 0.4 * jitter(n1, n2, 2)));
                     collision = true;
                 } else {
                     // N1 pushes N2 down
-                    n2Data.dy = (float) (n2Data.dy + 0.02 * n1h * (0.8 + 0.4 * Math.random()));
+                    n2Data.dy = (float) (n2Data.dy + 0.02 * n1h * (0.8 + 0.4 * jitter(n1, n2, 2)));
                     collision = true;
                 }
                 if (labelCollisionXleft > labelCollisionXright) {
                     // N1 pushes N2 right
-                    n2Data.dx = (float) (n2Data.dx + 0.01 * (n1h * 2) * (0.8 + 0.4 * Math.random()));
+                    n2Data.dx = (float) (n2Data.dx + 0.01 * (n1h * 2) * (0.8 + 0.4 * jitter(n1, n2, 3)));
                     collision = true;
                 } else {
                     // N1 pushes N2 left
-                    n2Data.dx = (float) (n2Data.dx - 0.01 * (n1h * 2) * (0.8 + 0.4 * Math.random()));
+                    n2Data.dx = (float) (n2Data.dx - 0.01 * (n1h * 2) * (0.8 + 0.4 * jitter(n1, n2, 3)));
                     collision = true;
                 }
             }
@@ -253,10 +253,31 @@ public class LabelAdjust extends AbstractLayout implements Layout {
         return collision;
     }
 
+    /**
+     * Returns a pseudo-random value in [0, 1) derived from the pass seed and
+     * the node pair, so the result doesn't depend on the thread scheduling.
+     */
+    private double jitter(Node n1, Node n2, int salt) {
+        long h = jitterSeed ^ (((long) n1.getId() << 32) | (n2.getId() & 0xFFFFFFFFL));
+        h += (salt + 1) * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (h >>> 11) / (double) (1L << 53);
+    }
+
     public void endAlgo() {
         for (Node n : graph.getNodes()) {
             n.getNodeData().setLayoutData(null);
         }
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        minX = new float[0];
+        minY = new float[0];
+        maxX = new float[0];
+        maxY = new float[0];
     }
 
     public LayoutProperty[] getProperties() {
@@ -277,6 +298,13 @@ public class LabelAdjust extends AbstractLayout implements Layout {
                     "LabelAdjust.adjustBySize.name",
                     NbBundle.getMessage(getClass(), "LabelAdjust.adjustBySize.desc"),
                     "isAdjustBySize", "setAdjustBySize"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(getClass(), "LabelAdjust.threads.name"),
+                    LABELADJUST_CATEGORY,
+                    "LabelAdjust.threads.name",
+                    NbBundle.getMessage(getClass(), "LabelAdjust.threads.desc"),
+                    "getThreadsCount", "setThreadsCount"));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -299,106 +327,15 @@ public class LabelAdjust extends AbstractLayout implements Layout {
         this.adjustBySize = adjustBySize;
     }
 
-    private static class QuadNode {
-
-        private final int index;
-        private final int row;
-        private final int col;
-        private final List<Node> nodes;
-
-        public QuadNode(int index, int row, int col) {
-            this.index = index;
-            this.row = row;
-            this.col = col;
-            this.nodes = new ArrayList<Node>();
-        }
-
-        public List<Node> getNodes() {
-            return nodes;
-        }
-
-        public void add(Node n) {
-            nodes.add(n);
-        }
+    public Integer getThreadsCount() {
+        return threadCount;
     }
 
-    private class QuadTree {
-
-        private final QuadNode[] quads;
-        private final int COLUMNS;
-        private final int ROWS;
-
-        public QuadTree(int numberNodes, float aspectRatio) {
-            if (aspectRatio > 0) {
-                COLUMNS = (int) Math.ceil(numberNodes / 50f);
-                ROWS = (int) Math.ceil(COLUMNS / aspectRatio);
-            } else {
-                ROWS = (int) Math.ceil(numberNodes / 50f);
-                COLUMNS = (int) Math.ceil(ROWS / aspectRatio);
-            }
-            quads = new QuadNode[COLUMNS * ROWS];
-            for (int row = 0; row < ROWS; row++) {
-                for (int col = 0; col < COLUMNS; col++) {
-                    quads[row * COLUMNS + col] = new QuadNode(row * COLUMNS + col, row, col);
-                }
-            }
-        }
-
-        public void add(Node node) {
-            float x = node.getNodeData().x();
-            float y = node.getNodeData().y();
-            float w = node.getNodeData().getTextData().getWidth();
-            float h = node.getNodeData().getTextData().getHeight();
-            float radius = node.getNodeData().getRadius();
-
-            // Get the rectangle occupied by the node (size + label)
-            float nxmin = Math.min(x - w / 2, x - radius);
-            float nxmax = Math.max(x + w / 2, x + radius);
-            float nymin = Math.min(y - h / 2, y - radius);
-            float nymax = Math.max(y + h / 2, y + radius);
-
-            // Get the rectangle as boxes
-            int minXbox = (int) Math.floor((COLUMNS - 1) * (nxmin - xmin) / (xmax - xmin));
-            int maxXbox = (int) Math.floor((COLUMNS - 1) * (nxmax - xmin) / (xmax - xmin));
-            int minYbox = (int) Math.floor((ROWS - 1) * (((ymax - ymin) - (nymax - ymin)) / (ymax - ymin)));
-            int maxYbox = (int) Math.floor((ROWS - 1) * (((ymax - ymin) - (nymin - ymin)) / (ymax - ymin)));
-            for (int col = minXbox; col <= maxXbox && col < COLUMNS && col >= 0; col++) {
-                for (int row = minYbox; row <= maxYbox && row < ROWS && row >= 0; row++) {
-                    quads[row * COLUMNS + col].add(node);
-                }
-            }
-
-            //Get the node center
-            int centerX = (int) Math.floor((COLUMNS - 1) * (x - xmin) / (xmax - xmin));
-            int centerY = (int) Math.floor((ROWS - 1) * (((ymax - ymin) - (y - ymin)) / (ymax - ymin)));
-            LabelAdjustLayoutData layoutData = node.getNodeData().getLayoutData();
-            layoutData.labelAdjustQuadNode = quads[centerY * COLUMNS + centerX].index;
-        }
-
-        public List<Node> get(int row, int col) {
-            return quads[row * ROWS + col].getNodes();
-        }
-
-        public List<Node> getAdjacentNodes(int row, int col) {
-            if (quads.length == 1) {
-                return quads[0].getNodes();
-            }
-
-            List<Node> adjNodes = new ArrayList<Node>();
-            int left = Math.max(0, col - 1);
-            int top = Math.max(0, row - 1);
-            int right = Math.min(COLUMNS - 1, col + 1);
-            int bottom = Math.min(ROWS - 1, row + 1);
-            for (int i = left; i <= right; i++) {
-                for (int j = top; j <= bottom; j++) {
-                    adjNodes.addAll(quads[j * COLUMNS + i].getNodes());
-                }
-            }
-            return adjNodes;
-        }
-
-        public QuadNode getQuadNode(int index) {
-            return quads[index];
+    public void setThreadsCount(Integer threadCount) {
+        if (threadCount < 1) {
+            setThreadsCount(1);
+        } else {
+            this.threadCount = threadCount;
         }
     }
 }
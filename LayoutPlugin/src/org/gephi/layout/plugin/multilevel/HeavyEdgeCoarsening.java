@@ -0,0 +1,262 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.multilevel;
+
+import java.util.Arrays;
+
+/**
+ * Coarsens a {@link LevelGraph} with a heavy-edge matching, without touching
+ * the graph hierarchy.
+ * <p>
+ * Nodes are visited by increasing degree and each unmatched node is matched
+ * with its unmatched neighbor of heaviest edge, the edge weight being divided
+ * by the neighbor mass to keep coarse nodes balanced. Nodes whose neighbors are
+ * all matched join the coarse node of their heaviest neighbor, so stars and
+ * trees coarsen as well, and isolated nodes are grouped by pairs.
+ */
+public class HeavyEdgeCoarsening {
+
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    /**
+     * Builds the coarse level of <code>fine</code>, and sets the parent array
+     * of <code>fine</code>. Coarse positions are the mass centers of their
+     * children.
+     * @param fine the level to coarsen
+     * @return the coarse level
+     */
+    public LevelGraph coarsen(LevelGraph fine) {
+        int count = fine.count;
+        int[] offsets = fine.offsets;
+        int[] neighbors = fine.neighbors;
+        float[] weights = fine.weights;
+        float[] mass = fine.mass;
+
+        //Counting sort by degree
+        int maxDegree = 0;
+        for (int i = 0; i < count; i++) {
+            maxDegree = Math.max(maxDegree, offsets[i + 1] - offsets[i]);
+        }
+        int[] degreeStart = new int[maxDegree + 2];
+        for (int i = 0; i < count; i++) {
+            degreeStart[offsets[i + 1] - offsets[i] + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            degreeStart[d + 1] += degreeStart[d];
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[degreeStart[offsets[i + 1] - offsets[i]]++] = i;
+        }
+
+        //Matching
+        int[] parent = new int[count];
+        Arrays.fill(parent, -1);
+        int coarseCount = 0;
+        int isolated = -1;
+        boolean deferred = false;
+        for (int k = 0; k < count; k++) {
+            int u = order[k];
+            if (parent[u] != -1) {
+                continue;
+            }
+            if (offsets[u] == offsets[u + 1]) {
+                if (isolated == -1) {
+                    parent[u] = coarseCount++;
+                    isolated = u;
+                } else {
+                    parent[u] = parent[isolated];
+                    isolated = -1;
+                }
+                continue;
+            }
+            int best = -1;
+            float bestScore = 0;
+            for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                int v = neighbors[j];
+                if (parent[v] == -1) {
+                    float score = weights[j] / mass[v];
+                    if (best == -1 || score > bestScore) {
+                        best = v;
+                        bestScore = score;
+                    }
+                }
+            }
+            if (best != -1) {
+                parent[u] = coarseCount;
+                parent[best] = coarseCount;
+                coarseCount++;
+            } else {
+                deferred = true;
+            }
+        }
+
+        float[] coarseMass = new float[coarseCount];
+        for (int i = 0; i < count; i++) {
+            if (parent[i] != -1) {
+                coarseMass[parent[i]] += mass[i];
+            }
+        }
+        if (deferred) {
+            for (int k = 0; k < count; k++) {
+                int u = order[k];
+                if (parent[u] != -1) {
+                    continue;
+                }
+                int best = -1;
+                float bestScore = 0;
+                for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                    int v = neighbors[j];
+                    if (parent[v] != -1) {
+                        float score = weights[j] / coarseMass[parent[v]];
+                        if (best == -1 || score > bestScore) {
+                            best = v;
+                            bestScore = score;
+                        }
+                    }
+                }
+                parent[u] = parent[best];
+                coarseMass[parent[u]] += mass[u];
+            }
+        }
+        fine.parent = parent;
+
+        //Children of each coarse node
+        int[] childStart = new int[coarseCount + 1];
+        for (int i = 0; i < count; i++) {
+            childStart[parent[i] + 1]++;
+        }
+        for (int c = 0; c < coarseCount; c++) {
+            childStart[c + 1] += childStart[c];
+        }
+        int[] children = new int[count];
+        int[] fill = new int[coarseCount];
+        System.arraycopy(childStart, 0, fill, 0, coarseCount);
+        for (int i = 0; i < count; i++) {
+            children[fill[parent[i]]++] = i;
+        }
+
+        //Coarse edges, weights of merged edges are summed
+        int[] coarseOffsets = new int[coarseCount + 1];
+        int[] coarseNeighbors = new int[neighbors.length];
+        float[] coarseWeights = new float[neighbors.length];
+        int[] position = new int[coarseCount];
+        Arrays.fill(position, -1);
+        int size = 0;
+        for (int c = 0; c < coarseCount; c++) {
+            coarseOffsets[c] = size;
+            for (int k = childStart[c]; k < childStart[c + 1]; k++) {
+                int u = children[k];
+                for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                    int pc = parent[neighbors[j]];
+                    if (pc == c) {
+                        continue;
+                    }
+                    if (position[pc] >= coarseOffsets[c]) {
+                        coarseWeights[position[pc]] += weights[j];
+                    } else {
+                        position[pc] = size;
+                        coarseNeighbors[size] = pc;
+                        coarseWeights[size] = weights[j];
+                        size++;
+                    }
+                }
+            }
+        }
+        coarseOffsets[coarseCount] = size;
+
+        LevelGraph coarse = new LevelGraph(coarseCount, coarseOffsets,
+                LevelGraph.trim(coarseNeighbors, size), LevelGraph.trim(coarseWeights, size), coarseMass);
+        restrict(fine, coarse);
+        return coarse;
+    }
+
+    /**
+     * Sets coarse positions to the mass center of their children.
+     * @param fine the fine level, with its parent array set
+     * @param coarse the coarse level
+     */
+    public void restrict(LevelGraph fine, LevelGraph coarse) {
+        Arrays.fill(coarse.x, 0f);
+        Arrays.fill(coarse.y, 0f);
+        for (int i = 0; i < fine.count; i++) {
+            int c = fine.parent[i];
+            coarse.x[c] += fine.x[i] * fine.mass[i];
+            coarse.y[c] += fine.y[i] * fine.mass[i];
+        }
+        for (int c = 0; c < coarse.count; c++) {
+            coarse.x[c] /= coarse.mass[c];
+            coarse.y[c] /= coarse.mass[c];
+        }
+    }
+
+    /**
+     * Sets fine positions from their coarse node position. A node alone in its
+     * coarse node takes its position, otherwise children are spread on a
+     * circle of radius <code>spacing * sqrt(children) / 2</code> around it.
+     * The circle phase changes from one coarse node to another so that
+     * neighbor groups don't align.
+     * @param coarse the coarse level
+     * @param fine the fine level, with its parent array set
+     * @param spacing the distance between children
+     */
+    public void prolongate(LevelGraph coarse, LevelGraph fine, float spacing) {
+        int[] childCount = new int[coarse.count];
+        for (int i = 0; i < fine.count; i++) {
+            childCount[fine.parent[i]]++;
+        }
+        int[] rank = new int[coarse.count];
+        for (int i = 0; i < fine.count; i++) {
+            int c = fine.parent[i];
+            int k = childCount[c];
+            if (k == 1) {
+                fine.x[i] = coarse.x[c];
+                fine.y[i] = coarse.y[c];
+            } else {
+                double radius = spacing * Math.sqrt(k) / 2;
+                double angle = c * GOLDEN_ANGLE + 2 * Math.PI * rank[c]++ / k;
+                fine.x[i] = coarse.x[c] + (float) (radius * Math.cos(angle));
+                fine.y[i] = coarse.y[c] + (float) (radius * Math.sin(angle));
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.multilevel;
+
+import java.util.Arrays;
+
+/**
+ * One level of a multilevel hierarchy built in side arrays. The undirected
+ * adjacency is stored in compressed rows: neighbors of node <code>i</code>
+ * are <code>neighbors[offsets[i]]</code> to
+ * <code>neighbors[offsets[i + 1] - 1]</code>, each edge being present in both
+ * rows.
+ * <p>
+ * Nodes of a coarse level are groups of nodes of the finer level. The
+ * <code>mass</code> of a node is the number of original nodes it contains and
+ * the <code>weights</code> of an edge the number of original edges it
+ * contains. <code>parent</code> maps each node to its coarse node, and is
+ * <code>null</code> on the coarsest level.
+ * @see HeavyEdgeCoarsening
+ */
+public class LevelGraph {
+
+    final int count;
+    final int[] offsets;
+    final int[] neighbors;
+    final float[] weights;
+    final float[] mass;
+    float[] x;
+    float[] y;
+    int[] parent;
+
+    LevelGraph(int count, int[] offsets, int[] neighbors, float[] weights, float[] mass) {
+        this.count = count;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+        this.mass = mass;
+        this.x = new float[count];
+        this.y = new float[count];
+    }
+
+    /**
+     * Creates the finest level from an edge list. Self-loops are ignored and
+     * parallel edges are merged.
+     * @param count the number of nodes
+     * @param sources edges source index
+     * @param targets edges target index
+     * @return the level, with positions set to zero
+     */
+    public static LevelGraph fromEdges(int count, int[] sources, int[] targets) {
+        int[] degrees = new int[count + 1];
+        for (int e = 0; e < sources.length; e++) {
+            if (sources[e] != targets[e]) {
+                degrees[sources[e] + 1]++;
+                degrees[targets[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            degrees[i + 1] += degrees[i];
+        }
+        int[] rows = new int[degrees[count]];
+        int[] fill = new int[count];
+        System.arraycopy(degrees, 0, fill, 0, count);
+        for (int e = 0; e < sources.length; e++) {
+            if (sources[e] != targets[e]) {
+                rows[fill[sources[e]]++] = targets[e];
+                rows[fill[targets[e]]++] = sources[e];
+            }
+        }
+
+        //Merge parallel edges
+        int[] offsets = new int[count + 1];
+        int[] neighbors = new int[rows.length];
+        float[] weights = new float[rows.length];
+        int[] position = new int[count];
+        Arrays.fill(position, -1);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = size;
+            for (int j = degrees[i]; j < degrees[i + 1]; j++) {
+                int neighbor = rows[j];
+                if (position[neighbor] >= offsets[i]) {
+                    weights[position[neighbor]]++;
+                } else {
+                    position[neighbor] = size;
+                    neighbors[size] = neighbor;
+                    weights[size] = 1f;
+                    size++;
+                }
+            }
+        }
+        offsets[count] = size;
+
+        float[] mass = new float[count];
+        Arrays.fill(mass, 1f);
+        return new LevelGraph(count, offsets, trim(neighbors, size), trim(weights, size), mass);
+    }
+
+    static int[] trim(int[] array, int length) {
+        if (array.length == length) {
+            return array;
+        }
+        int[] trimmed = new int[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    static float[] trim(float[] array, int length) {
+        if (array.length == length) {
+            return array;
+        }
+        float[] trimmed = new float[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    public int getNodeCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of edges, each edge being counted once.
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return offsets[count] / 2;
+    }
+
+    public float[] getX() {
+        return x;
+    }
+
+    public float[] getY() {
+        return y;
+    }
+
+    public float[] getMass() {
+        return mass;
+    }
+
+    /**
+     * Returns the map of nodes to coarse nodes, or <code>null</code> if this
+     * level is the coarsest.
+     * @return the parent array or <code>null</code>
+     */
+    public int[] getParent() {
+        return parent;
+    }
+}
@@ -41,6 +41,10 @@ Portions Copyrighted 2011 Gephi Consortium.
 */
 package org.gephi.layout.plugin.multilevel;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
@@ -53,33 +57,40 @@ public class MaximalMatchingCoarsening implements MultiLevelLayout.CoarseningStr
 
     public void coarsen(HierarchicalGraph g) {
         HierarchicalGraph graph = g;
-        int retract = 0;
-        int count = 0;
+        //Match leaves with the same parent, then group all pairs at once
+        Set<Node> matched = new HashSet<Node>();
+        List<Node[]> pairs = new ArrayList<Node[]>();
         for (Edge e : graph.getEdgesAndMetaEdges().toArray()) {
             Node a = e.getSource();
             Node b = e.getTarget();
-            count++;
-            if (graph.getParent(a) == graph.getParent(b) && graph.getLevel(a) == 0) {
-                float x = (a.getNodeData().x() + b.getNodeData().x()) / 2;
-                float y = (a.getNodeData().y() + b.getNodeData().y()) / 2;
-
-                Node parent = graph.groupNodes(new Node[]{a, b});
-                parent.getNodeData().setX(x);
-                parent.getNodeData().setY(y);
-                graph.retract(parent);
-                retract++;
+            if (a != b && !matched.contains(a) && !matched.contains(b)
+                    && graph.getParent(a) == graph.getParent(b) && graph.getLevel(a) == 0) {
+                matched.add(a);
+                matched.add(b);
+                pairs.add(new Node[]{a, b});
             }
         }
+        if (pairs.isEmpty()) {
+            return;
+        }
+
+        //Groups are created retracted
+        Node[][] groups = pairs.toArray(new Node[pairs.size()][]);
+        Node[] parents = graph.groupNodes(groups);
+        for (int i = 0; i < parents.length; i++) {
+            Node a = groups[i][0];
+            Node b = groups[i][1];
+            parents[i].getNodeData().setX((a.getNodeData().x() + b.getNodeData().x()) / 2);
+            parents[i].getNodeData().setY((a.getNodeData().y() + b.getNodeData().y()) / 2);
+        }
     }
 
     public void refine(HierarchicalGraph graph) {
         double r = 10;
-        int count = 0;
-        int refined = 0;
+        List<Node> refined = new ArrayList<Node>();
         for (Node node : graph.getTopNodes().toArray()) {
-            count++;
             if (graph.getChildrenCount(node) == 2) {
-                refined++;
+                refined.add(node);
                 float x = node.getNodeData().x();
                 float y = node.getNodeData().y();
 
@@ -88,10 +99,10 @@ public class MaximalMatchingCoarsening implements MultiLevelLayout.CoarseningStr
                     child.getNodeData().setX((float) (x + r * Math.cos(t)));
                     child.getNodeData().setY((float) (y + r * Math.sin(t)));
                 }
-                graph.ungroupNodes(node);
             }
         }
-        //System.out.println("COUNT = " + count);
-        //System.out.println("REFINED = " + refined);
+        if (!refined.isEmpty()) {
+            graph.ungroupNodes(refined.toArray(new Node[refined.size()]));
+        }
     }
 }
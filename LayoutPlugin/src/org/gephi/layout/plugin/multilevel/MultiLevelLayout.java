@@ -48,6 +48,7 @@ import org.gephi.layout.plugin.AbstractLayout;
 import org.gephi.layout.spi.Layout;
 import org.gephi.layout.spi.LayoutBuilder;
 import org.gephi.layout.spi.LayoutProperty;
+import org.gephi.layout.spi.LayoutWorkingSet;
 import org.gephi.layout.plugin.force.yifanHu.YifanHuLayout;
 import org.gephi.layout.plugin.force.yifanHu.YifanHuProportional;
 import org.gephi.layout.plugin.random.RandomLayout;
@@ -122,7 +123,6 @@ public class MultiLevelLayout extends AbstractLayout implements Layout {
         HierarchicalGraph newGraph = graphModel.getHierarchicalGraphVisible();
         if(newGraph.getView().getViewId()!=initedView) {
             setConverged(true);
-            layout.endAlgo();
             endAlgo();
             return;
         }
@@ -143,7 +143,20 @@ public class MultiLevelLayout extends AbstractLayout implements Layout {
         }
     }
 
+    /**
+     * Returns the working set of the Yifan Hu layout of the current level, so
+     * its positions are published while it runs.
+     */
+    @Override
+    public LayoutWorkingSet getWorkingSet() {
+        return layout != null ? layout.getWorkingSet() : null;
+    }
+
     public void endAlgo() {
+        if (layout != null) {
+            layout.endAlgo();
+            layout = null;
+        }
         while (level > 0) {
             coarseningStrategy.refine(graph);
             level--;
@@ -0,0 +1,478 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.multilevel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.gephi.graph.api.AdjacencySnapshot;
+import org.gephi.graph.api.NodeData;
+import org.gephi.layout.plugin.AbstractLayout;
+import org.gephi.layout.plugin.force.quadtree.ArrayQuadTree;
+import org.gephi.layout.spi.Layout;
+import org.gephi.layout.spi.LayoutBuilder;
+import org.gephi.layout.spi.LayoutProperty;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.openide.util.Exceptions;
+import org.openide.util.NbBundle;
+
+/**
+ * Multilevel layout for very large graphs. Unlike {@link MultiLevelLayout},
+ * the coarsening hierarchy is built in side arrays with
+ * {@link HeavyEdgeCoarsening} and the graph hierarchy is never modified.
+ * <p>
+ * The coarsest level is laid out from random positions, then each level is
+ * laid out with Yifan Hu's spring-electrical model, repulsion being computed
+ * in parallel with a Barnes-Hut {@link ArrayQuadTree}, and its positions
+ * prolongated to the finer level. Positions of the original graph are those of
+ * the layout {@link LayoutWorkingSet}.
+ */
+public class ScalableMultiLevelLayout extends AbstractLayout implements Layout {
+
+    private static final float INITIAL_STEP = 0.2f;
+    private static final float REFINE_STEP = 0.1f;
+    private static final float MIN_STEP = 0.01f;
+    private static final float CONVERGENCE_THRESHOLD = 1e-4f;
+    private static final int MIN_TASK_SIZE = 1000;
+    //Properties
+    private int minSize;
+    private double minCoarseningRate;
+    private float stepRatio;
+    private float optimalDistance;
+    private float relativeStrength;
+    private int quadTreeMaxLevel;
+    private float barnesHutTheta;
+    private int threadCount;
+    //Hierarchy
+    private final HeavyEdgeCoarsening coarsening = new HeavyEdgeCoarsening();
+    private List<LevelGraph> levels;
+    private AdjacencySnapshot snapshot;
+    private boolean[] fixed = new boolean[0];
+    private int level;
+    //Level
+    private final ArrayQuadTree tree = new ArrayQuadTree();
+    private ExecutorService pool;
+    private float[] forceX = new float[0];
+    private float[] forceY = new float[0];
+    private float step;
+    private double energy;
+    private double energy0;
+
+    public ScalableMultiLevelLayout(LayoutBuilder layoutBuilder) {
+        super(layoutBuilder);
+    }
+
+    public void initAlgo() {
+        setConverged(false);
+        pool = Executors.newFixedThreadPool(threadCount);
+        LayoutWorkingSet workingSet = updateWorkingSet();
+        buildLevels(workingSet);
+
+        //Start from the coarsest level
+        level = levels.size() - 1;
+        LevelGraph coarsest = levels.get(level);
+        Random random = new Random(42);
+        float side = optimalDistance * (float) Math.sqrt(coarsest.count);
+        for (int i = 0; i < coarsest.count; i++) {
+            coarsest.x[i] = (random.nextFloat() - 0.5f) * side;
+            coarsest.y[i] = (random.nextFloat() - 0.5f) * side;
+        }
+        startLevel(INITIAL_STEP);
+    }
+
+    private void buildLevels(LayoutWorkingSet workingSet) {
+        snapshot = workingSet.getSnapshot();
+        int count = workingSet.getNodeCount();
+        LevelGraph finest = LevelGraph.fromEdges(count, workingSet.getEdgeSources(), workingSet.getEdgeTargets());
+        finest.x = workingSet.getX();
+        finest.y = workingSet.getY();
+        fixed = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            fixed[i] = workingSet.isFixed(i);
+        }
+
+        levels = new ArrayList<LevelGraph>();
+        levels.add(finest);
+        LevelGraph current = finest;
+        while (current.count >= minSize) {
+            LevelGraph coarse = coarsening.coarsen(current);
+            if (coarse.count > current.count * minCoarseningRate) {
+                current.parent = null;
+                break;
+            }
+            levels.add(coarse);
+            current = coarse;
+        }
+    }
+
+    private void startLevel(float initialStep) {
+        LevelGraph graph = levels.get(level);
+        step = optimalDistance * initialStep;
+        energy = Double.POSITIVE_INFINITY;
+        if (forceX.length < graph.count) {
+            forceX = new float[graph.count];
+            forceY = new float[graph.count];
+        }
+    }
+
+    public void goAlgo() {
+        LayoutWorkingSet workingSet = updateWorkingSet();
+        if (workingSet.getSnapshot() != snapshot) {
+            //The graph changed, refine current positions on the new graph
+            buildLevels(workingSet);
+            level = 0;
+            startLevel(REFINE_STEP);
+        }
+
+        LevelGraph graph = levels.get(level);
+        iterate(graph);
+        step *= stepRatio;
+        if (step < optimalDistance * MIN_STEP || Math.abs((energy - energy0) / energy) < CONVERGENCE_THRESHOLD) {
+            if (level > 0) {
+                prolongate(level);
+                level--;
+                startLevel(REFINE_STEP);
+            } else {
+                setConverged(true);
+            }
+        }
+    }
+
+    /**
+     * Prolongates positions of <code>from</code> down to the original graph,
+     * so the current state of the layout is visible.
+     */
+    private void prolongate(int from) {
+        for (int l = from; l > 0; l--) {
+            coarsening.prolongate(levels.get(l), levels.get(l - 1), optimalDistance);
+        }
+        LevelGraph finest = levels.get(0);
+        LayoutWorkingSet workingSet = getWorkingSet();
+        for (int i = 0; i < finest.count; i++) {
+            if (fixed[i]) {
+                NodeData nodeData = workingSet.getNode(i).getNodeData();
+                finest.x[i] = nodeData.x();
+                finest.y[i] = nodeData.y();
+            }
+        }
+    }
+
+    private void iterate(final LevelGraph graph) {
+        final int count = graph.count;
+        tree.build(graph.x, graph.y, graph.mass, count, quadTreeMaxLevel);
+
+        final float constant = relativeStrength * optimalDistance * optimalDistance;
+        int taskCount = Math.max(1, Math.min(threadCount, count / MIN_TASK_SIZE));
+        final double[] energies = new double[taskCount];
+        Runnable[] forceTasks = new Runnable[taskCount];
+        for (int t = 0; t < taskCount; t++) {
+            final int task = t;
+            final int from = (int) ((long) count * t / taskCount);
+            final int to = (int) ((long) count * (t + 1) / taskCount);
+            forceTasks[t] = new Runnable() {
+
+                public void run() {
+                    float[] repulsion = new float[2];
+                    double taskEnergy = 0;
+                    for (int i = from; i < to; i++) {
+                        //Electrical force, scaled by the mass of both nodes
+                        tree.computeRepulsion(i, barnesHutTheta, constant, repulsion);
+                        float fx = repulsion[0] * graph.mass[i];
+                        float fy = repulsion[1] * graph.mass[i];
+
+                        //Spring force, scaled by the number of merged edges
+                        for (int j = graph.offsets[i]; j < graph.offsets[i + 1]; j++) {
+                            int neighbor = graph.neighbors[j];
+                            float xDist = graph.x[neighbor] - graph.x[i];
+                            float yDist = graph.y[neighbor] - graph.y[i];
+                            float distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+                            float scale = graph.weights[j] * distance / optimalDistance;
+                            fx += xDist * scale;
+                            fy += yDist * scale;
+                        }
+                        forceX[i] = fx;
+                        forceY[i] = fy;
+                        taskEnergy += Math.sqrt(fx * fx + fy * fy);
+                    }
+                    energies[task] = taskEnergy;
+                }
+            };
+        }
+        run(forceTasks);
+
+        energy0 = energy;
+        energy = 0;
+        for (int t = 0; t < taskCount; t++) {
+            energy += energies[t];
+        }
+
+        final boolean checkFixed = graph == levels.get(0);
+        final float stepSize = step;
+        Runnable[] moveTasks = new Runnable[taskCount];
+        for (int t = 0; t < taskCount; t++) {
+            final int from = (int) ((long) count * t / taskCount);
+            final int to = (int) ((long) count * (t + 1) / taskCount);
+            moveTasks[t] = new Runnable() {
+
+                public void run() {
+                    for (int i = from; i < to; i++) {
+                        float norm = (float) Math.sqrt(forceX[i] * forceX[i] + forceY[i] * forceY[i]);
+                        if (norm > 0 && !Float.isInfinite(norm) && !(checkFixed && fixed[i])) {
+                            graph.x[i] += forceX[i] / norm * stepSize;
+                            graph.y[i] += forceY[i] / norm * stepSize;
+                        }
+                    }
+                }
+            };
+        }
+        run(moveTasks);
+    }
+
+    private void run(Runnable[] tasks) {
+        if (tasks.length == 1 || pool == null) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks.length);
+        for (Runnable task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Exceptions.printStackTrace(ex);
+            } catch (ExecutionException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }
+    }
+
+    public void endAlgo() {
+        if (levels != null && level > 0) {
+            prolongate(level);
+        }
+        releaseWorkingSet();
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        levels = null;
+        snapshot = null;
+        fixed = new boolean[0];
+        forceX = new float[0];
+        forceY = new float[0];
+    }
+
+    public void resetPropertiesValues() {
+        setMinSize(10);
+        setMinCoarseningRate(0.75d);
+        setStepRatio(0.97f);
+        setOptimalDistance(100f);
+        setRelativeStrength(0.2f);
+        setQuadTreeMaxLevel(10);
+        setBarnesHutTheta(1.2f);
+        setThreadsCount(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public LayoutProperty[] getProperties() {
+        List<LayoutProperty> properties = new ArrayList<LayoutProperty>();
+        final String MULTILEVEL_CATEGORY = "Multi-level";
+        final String YIFANHU_CATEGORY = "Yifan Hu's properties";
+        final String BARNESHUT_CATEGORY = "Barnes-Hut's properties";
+
+        try {
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.minimumLevelSize.name"),
+                    MULTILEVEL_CATEGORY,
+                    "YifanHuMultiLevel.minimumLevelSize.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.minimumLevelSize.desc"),
+                    "getMinSize", "setMinSize"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Double.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.minimumCoarseningRate.name"),
+                    MULTILEVEL_CATEGORY,
+                    "YifanHuMultiLevel.minimumCoarseningRate.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.minimumCoarseningRate.desc"),
+                    "getMinCoarseningRate", "setMinCoarseningRate"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "ScalableMultiLevel.threads.name"),
+                    MULTILEVEL_CATEGORY,
+                    "ScalableMultiLevel.threads.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "ScalableMultiLevel.threads.desc"),
+                    "getThreadsCount", "setThreadsCount"));
+
+            properties.add(LayoutProperty.createProperty(
+                    this, Float.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.stepRatio.name"),
+                    YIFANHU_CATEGORY,
+                    "YifanHuMultiLevel.stepRatio.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.stepRatio.desc"),
+                    "getStepRatio", "setStepRatio"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Float.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.optimalDistance.name"),
+                    YIFANHU_CATEGORY,
+                    "YifanHuMultiLevel.optimalDistance.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.optimalDistance.desc"),
+                    "getOptimalDistance", "setOptimalDistance"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Float.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "ScalableMultiLevel.relativeStrength.name"),
+                    YIFANHU_CATEGORY,
+                    "ScalableMultiLevel.relativeStrength.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "ScalableMultiLevel.relativeStrength.desc"),
+                    "getRelativeStrength", "setRelativeStrength"));
+
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.quadtreeMaxLevel.name"),
+                    BARNESHUT_CATEGORY,
+                    "YifanHuMultiLevel.quadtreeMaxLevel.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.quadtreeMaxLevel.desc"),
+                    "getQuadTreeMaxLevel", "setQuadTreeMaxLevel"));
+            properties.add(LayoutProperty.createProperty(
+                    this, Float.class,
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.theta.name"),
+                    BARNESHUT_CATEGORY,
+                    "YifanHuMultiLevel.theta.name",
+                    NbBundle.getMessage(ScalableMultiLevelLayout.class, "YifanHuMultiLevel.theta.desc"),
+                    "getBarnesHutTheta", "setBarnesHutTheta"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return properties.toArray(new LayoutProperty[0]);
+    }
+
+    /**
+     * Returns the current level, <code>0</code> being the original graph.
+     * @return the current level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the number of levels of the hierarchy, including the original
+     * graph, or <code>0</code> if the layout isn't running.
+     * @return the number of levels
+     */
+    public int getLevelCount() {
+        return levels != null ? levels.size() : 0;
+    }
+
+    public Integer getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(Integer minSize) {
+        this.minSize = minSize;
+    }
+
+    public Double getMinCoarseningRate() {
+        return minCoarseningRate;
+    }
+
+    public void setMinCoarseningRate(Double minCoarseningRate) {
+        this.minCoarseningRate = minCoarseningRate;
+    }
+
+    public Float getStepRatio() {
+        return stepRatio;
+    }
+
+    public void setStepRatio(Float stepRatio) {
+        this.stepRatio = stepRatio;
+    }
+
+    public Float getOptimalDistance() {
+        return optimalDistance;
+    }
+
+    public void setOptimalDistance(Float optimalDistance) {
+        this.optimalDistance = optimalDistance;
+    }
+
+    public Float getRelativeStrength() {
+        return relativeStrength;
+    }
+
+    public void setRelativeStrength(Float relativeStrength) {
+        this.relativeStrength = relativeStrength;
+    }
+
+    public Integer getQuadTreeMaxLevel() {
+        return quadTreeMaxLevel;
+    }
+
+    public void setQuadTreeMaxLevel(Integer quadTreeMaxLevel) {
+        this.quadTreeMaxLevel = quadTreeMaxLevel;
+    }
+
+    public Float getBarnesHutTheta() {
+        return barnesHutTheta;
+    }
+
+    public void setBarnesHutTheta(Float barnesHutTheta) {
+        this.barnesHutTheta = barnesHutTheta;
+    }
+
+    public Integer getThreadsCount() {
+        return threadCount;
+    }
+
+    public void setThreadsCount(Integer threadCount) {
+        if (threadCount < 1) {
+            setThreadsCount(1);
+        } else {
+            this.threadCount = threadCount;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the grid with a brute force search, and checks that the visit
+ * order does not depend on the number of threads.
+ */
+public class CollisionGridTest {
+
+    @Test
+    public void testSameAsBruteForce() {
+        int count = 3000;
+        Random random = new Random(3);
+        float[] minX = new float[count];
+        float[] minY = new float[count];
+        float[] maxX = new float[count];
+        float[] maxY = new float[count];
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * 1000f;
+            float y = random.nextFloat() * 1000f;
+            //A few large boxes span many cells
+            float w = i % 100 == 0 ? 200f : random.nextFloat() * 20f;
+            float h = random.nextFloat() * 10f;
+            minX[i] = x - w / 2;
+            maxX[i] = x + w / 2;
+            minY[i] = y - h / 2;
+            maxY[i] = y + h / 2;
+        }
+        minX[7] = Float.NaN;
+
+        List<Long> expected = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < count; j++) {
+                if (i != j && minX[i] <= maxX[j] && minX[j] <= maxX[i]
+                        && minY[i] <= maxY[j] && minY[j] <= maxY[i]) {
+                    expected.add((long) i * count + j);
+                }
+            }
+        }
+
+        CollisionGrid grid = new CollisionGrid();
+        grid.build(minX, minY, maxX, maxY, count);
+        final List<Long> pairs = Collections.synchronizedList(new ArrayList<Long>());
+        final int boxCount = count;
+        int collisions = grid.visit(new CollisionGrid.Collision() {
+
+            public boolean collide(int i, int j) {
+                pairs.add((long) i * boxCount + j);
+                return true;
+            }
+        }, null, 1);
+        Collections.sort(pairs);
+        assertEquals(expected, pairs);
+        assertEquals(expected.size(), collisions);
+    }
+
+    @Test
+    public void testThreadsVisitSameOrder() {
+        int count = 5000;
+        Random random = new Random(5);
+        float[] minX = new float[count];
+        float[] minY = new float[count];
+        float[] maxX = new float[count];
+        float[] maxY = new float[count];
+        for (int i = 0; i < count; i++) {
+            minX[i] = random.nextFloat() * 500f;
+            minY[i] = random.nextFloat() * 500f;
+            maxX[i] = minX[i] + 5f;
+            maxY[i] = minY[i] + 5f;
+        }
+        CollisionGrid grid = new CollisionGrid();
+        grid.build(minX, minY, maxX, maxY, count);
+
+        final double[] single = new double[count];
+        grid.visit(new CollisionGrid.Collision() {
+
+            public boolean collide(int i, int j) {
+                single[i] = single[i] * 31 + j;
+                return true;
+            }
+        }, null, 1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        final double[] multi = new double[count];
+        grid.visit(new CollisionGrid.Collision() {
+
+            public boolean collide(int i, int j) {
+                multi[i] = multi[i] * 31 + j;
+                return true;
+            }
+        }, pool, 4);
+        pool.shutdown();
+        assertArrayEquals(single, multi, 0.0);
+    }
+}
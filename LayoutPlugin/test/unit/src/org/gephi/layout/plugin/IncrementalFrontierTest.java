@@ -0,0 +1,190 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin;
+
+import java.util.Random;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.GraphEvent.EventType;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2;
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2Builder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Placement and extension of the frontier, and ForceAtlas 2 only moving
+ * the frontier while the graph grows.
+ */
+public class IncrementalFrontierTest {
+
+    @Test
+    public void testPlaceAndExtend() {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Node[] path = new Node[5];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = factory.newNode();
+            path[i].getNodeData().setX(i * 100f);
+            path[i].getNodeData().setY(0f);
+            path[i].getNodeData().setSize(1f);
+            graph.addNode(path[i]);
+            if (i > 0) {
+                graph.addEdge(factory.newEdge(path[i - 1], path[i]));
+            }
+        }
+
+        flushEvents(dhns);
+        IncrementalFrontier frontier = new IncrementalFrontier();
+        dhns.addGraphListener(frontier, null, EventType.ADD_NODES_AND_EDGES);
+        Node added = factory.newNode();
+        added.getNodeData().setX(5000f);
+        graph.addNode(added);
+        graph.addEdge(factory.newEdge(added, path[0]));
+        graph.addEdge(factory.newEdge(added, path[1]));
+        assertTrue(frontier.awaitChanges(5000));
+
+        HierarchicalGraph hgraph = dhns.getHierarchicalGraphVisible();
+        assertEquals(3, frontier.update(hgraph, 1));
+        assertFalse(frontier.hasChanges());
+
+        //Barycenter of path[0] and path[1], within the jitter radius
+        assertEquals(50f, added.getNodeData().x(), 1.01f);
+        assertEquals(0f, added.getNodeData().y(), 1.01f);
+
+        //Changes and their neighbors
+        assertTrue(frontier.contains(added));
+        assertTrue(frontier.contains(path[1]));
+        assertTrue(frontier.contains(path[2]));
+        assertFalse(frontier.contains(path[3]));
+        assertEquals(4, frontier.getNodes().length);
+        //Edges inside the frontier and to pinned path[3]
+        assertEquals(5, frontier.getEdges(hgraph, frontier.getNodes()).length);
+
+        int version = frontier.getVersion();
+        frontier.clear();
+        assertTrue(frontier.isEmpty());
+        assertTrue(frontier.getVersion() != version);
+        dhns.removeGraphListener(frontier);
+    }
+
+    @Test
+    public void testForceAtlas2Incremental() {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Random random = new Random(7);
+        int count = 2000;
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = factory.newNode();
+            nodes[i].getNodeData().setX((random.nextFloat() - 0.5f) * 1000f);
+            nodes[i].getNodeData().setY((random.nextFloat() - 0.5f) * 1000f);
+            graph.addNode(nodes[i]);
+        }
+        for (int i = 1; i < count; i++) {
+            graph.addEdge(factory.newEdge(nodes[i], nodes[random.nextInt(i)]));
+        }
+
+        flushEvents(dhns);
+        ForceAtlas2 layout = new ForceAtlas2Builder().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.resetPropertiesValues();
+        layout.setIncremental(true);
+        layout.setIncrementalDepth(0);
+        layout.setFullPassInterval(1000);
+        layout.initAlgo();
+        layout.goAlgo();
+
+        //Nothing changes until the graph grows
+        float[] x = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = nodes[i].getNodeData().x();
+        }
+        layout.goAlgo();
+        for (int i = 0; i < count; i++) {
+            assertEquals(x[i], nodes[i].getNodeData().x(), 0f);
+        }
+
+        Node added = factory.newNode();
+        added.getNodeData().setX(1e6f);
+        graph.addNode(added);
+        graph.addEdge(factory.newEdge(added, nodes[0]));
+        for (int i = 0; i < 100 && added.getNodeData().x() == 1e6f; i++) {
+            layout.goAlgo();
+        }
+        for (int i = 0; i < 10; i++) {
+            layout.goAlgo();
+        }
+        assertTrue(Math.abs(added.getNodeData().x() - nodes[0].getNodeData().x()) < 1000f);
+
+        //Only the added node and its neighbor moved
+        int moved = 0;
+        for (int i = 0; i < count; i++) {
+            if (x[i] != nodes[i].getNodeData().x()) {
+                moved++;
+            }
+        }
+        assertEquals(1, moved);
+        assertTrue(x[0] != nodes[0].getNodeData().x());
+        layout.endAlgo();
+    }
+
+    /**
+     * Waits until events of the graph creation are dispatched, so they are
+     * not received by listeners added afterwards.
+     */
+    private static void flushEvents(Dhns dhns) {
+        try {
+            for (int i = 0; i < 500 && dhns.getEventMetrics().getQueueDepth() > 0; i++) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin;
+
+import java.io.File;
+import java.util.Random;
+import org.gephi.data.attributes.api.AttributeController;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphController;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.gephi.layout.api.LayoutCheckpoint;
+import org.gephi.layout.api.LayoutMonitor;
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2;
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2Builder;
+import org.gephi.layout.plugin.fruchterman.FruchtermanReingold;
+import org.gephi.layout.plugin.fruchterman.FruchtermanReingoldBuilder;
+import org.gephi.layout.spi.Layout;
+import org.gephi.project.api.ProjectController;
+import org.junit.Test;
+import org.openide.util.Lookup;
+import static org.junit.Assert.*;
+
+/**
+ * Convergence and time budget of the layout monitor, and layout checkpoints.
+ */
+public class LayoutMonitorTest {
+
+    @Test
+    public void testRelativeDisplacement() {
+        assertEquals(0.0, LayoutMonitor.getRelativeDisplacement(0, 0, 0, 0, 0, 0), 0.0);
+        assertEquals(0.0, LayoutMonitor.getRelativeDisplacement(0, 3, 1, 1, 1, 1), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, LayoutMonitor.getRelativeDisplacement(1, 3, 1, 1, 1, 1), 0.0);
+        //Average of 2 over a 3-4-5 box
+        assertEquals(0.4, LayoutMonitor.getRelativeDisplacement(20, 10, 0, 0, 3, 4), 1e-9);
+    }
+
+    @Test
+    public void testForceAtlas2Converges() {
+        Dhns dhns = createGraph(200, 1);
+        ForceAtlas2 layout = new ForceAtlas2Builder().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.resetPropertiesValues();
+        layout.setThreadsCount(2);
+
+        LayoutMonitor monitor = run(layout, 1e-3, 0, 5000);
+        assertTrue(monitor.isConverged());
+        assertFalse(monitor.isTimeBudgetSpent());
+        assertTrue(monitor.getDisplacement() < 1e-3);
+        assertTrue(monitor.getIterations() >= LayoutMonitor.STABLE_ITERATIONS);
+        assertTrue(monitor.getIterations() < 5000);
+    }
+
+    @Test
+    public void testWorkingSetDisplacement() {
+        Dhns dhns = createGraph(100, 2);
+        FruchtermanReingold layout = new FruchtermanReingoldBuilder().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.resetPropertiesValues();
+
+        //Nodes are moving at first, the threshold is never reached
+        LayoutMonitor monitor = run(layout, 1e-12, 0, 5);
+        assertEquals(5, monitor.getIterations());
+        assertFalse(monitor.isConverged());
+        assertFalse(Double.isNaN(monitor.getDisplacement()));
+        assertTrue(monitor.getDisplacement() > 0);
+    }
+
+    @Test
+    public void testTimeBudget() {
+        Dhns dhns = createGraph(200, 3);
+        FruchtermanReingold layout = new FruchtermanReingoldBuilder().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.resetPropertiesValues();
+
+        LayoutMonitor monitor = run(layout, 0, 200, Integer.MAX_VALUE);
+        assertTrue(monitor.isTimeBudgetSpent());
+        assertFalse(monitor.isConverged());
+        assertTrue(monitor.getElapsedTime() >= 200);
+        assertTrue(monitor.getIterationRate() > 0);
+        //Convergence isn't monitored
+        assertTrue(Double.isNaN(monitor.getDisplacement()));
+    }
+
+    @Test
+    public void testCheckpoint() throws Exception {
+        //Nodes need attributes to have an identifier
+        ProjectController pc = Lookup.getDefault().lookup(ProjectController.class);
+        pc.newProject();
+        Lookup.getDefault().lookup(AttributeController.class).getModel();
+        GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getModel();
+        Graph graph = graphModel.getDirectedGraph();
+        Random random = new Random(4);
+        Node[] nodes = new Node[50];
+        float[] x = new float[nodes.length];
+        float[] y = new float[nodes.length];
+        //Some identifiers need to be escaped
+        String[] ids = {"line\nbreak", "back\\slash", "back\\nslash", "tab\tulated", "end\\"};
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = i < ids.length ? graphModel.factory().newNode(ids[i]) : graphModel.factory().newNode();
+            x[i] = random.nextFloat() * 1000f;
+            y[i] = random.nextFloat() * 1000f;
+            nodes[i].getNodeData().setX(x[i]);
+            nodes[i].getNodeData().setY(y[i]);
+            graph.addNode(nodes[i]);
+        }
+
+        File file = File.createTempFile("layout", ".checkpoint");
+        try {
+            LayoutCheckpoint.write(graph, file);
+            //A second write replaces the first
+            LayoutCheckpoint.write(graph, file);
+            for (Node n : nodes) {
+                n.getNodeData().setX(0f);
+                n.getNodeData().setY(0f);
+            }
+            assertEquals(nodes.length, LayoutCheckpoint.read(graph, file));
+            for (int i = 0; i < nodes.length; i++) {
+                assertEquals(x[i], nodes[i].getNodeData().x(), 0f);
+                assertEquals(y[i], nodes[i].getNodeData().y(), 0f);
+            }
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+
+            //Interrupted while the previous checkpoint was set aside
+            File backup = new File(file.getPath() + ".bak");
+            assertTrue(file.renameTo(backup));
+            assertEquals(nodes.length, LayoutCheckpoint.read(graph, file));
+        } finally {
+            file.delete();
+            new File(file.getPath() + ".bak").delete();
+            pc.closeCurrentProject();
+        }
+    }
+
+    private static LayoutMonitor run(Layout layout, double threshold, long timeBudget, int maxIterations) {
+        LayoutMonitor monitor = new LayoutMonitor(layout, threshold, timeBudget);
+        layout.initAlgo();
+        monitor.start();
+        for (int i = 0; i < maxIterations && layout.canAlgo(); i++) {
+            layout.goAlgo();
+            if (monitor.iterate()) {
+                break;
+            }
+        }
+        layout.endAlgo();
+        return monitor;
+    }
+
+    private static Dhns createGraph(int count, long seed) {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Random random = new Random(seed);
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = factory.newNode();
+            nodes[i].getNodeData().setX((random.nextFloat() - 0.5f) * 1000f);
+            nodes[i].getNodeData().setY((random.nextFloat() - 0.5f) * 1000f);
+            graph.addNode(nodes[i]);
+        }
+        for (int i = 1; i < count; i++) {
+            graph.addEdge(factory.newEdge(nodes[i], nodes[random.nextInt(i)]));
+        }
+        return dhns;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.benchmark;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.TextData;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.gephi.graph.dhns.node.NodeDataImpl;
+
+/**
+ * Graphs of the layout benchmark, generated or read from edge list files.
+ * Nodes are placed at random in a square whose area grows with the number
+ * of nodes, have the same size and a label, so label adjustment can run
+ * without the visualization module.
+ */
+public class BenchmarkGraphs {
+
+    public static final float NODE_SIZE = 10f;
+    public static final float LABEL_SIZE = 12f;
+    private final Dhns dhns;
+    private final GraphFactoryImpl factory;
+    private final DirectedGraph graph;
+    private final Random random;
+    private final float extent;
+
+    private BenchmarkGraphs(int nodeCount, long seed) {
+        dhns = new Dhns(new DhnsGraphController(), null);
+        factory = dhns.factory();
+        graph = dhns.getDirectedGraph();
+        random = new Random(seed);
+        extent = (float) (NODE_SIZE * 4 * Math.sqrt(Math.max(1, nodeCount)));
+    }
+
+    /**
+     * Creates a random graph where each pair of nodes is connected with
+     * <code>wiringProbability</code>, like the <i>Random Graph</i> generator.
+     * Pairs without edge are skipped at once, so the time is linear with the
+     * number of edges.
+     * @param nodeCount the number of nodes
+     * @param wiringProbability the probability of each edge
+     * @param seed the random seed
+     * @return the graph model
+     */
+    public static Dhns random(int nodeCount, double wiringProbability, long seed) {
+        BenchmarkGraphs graphs = new BenchmarkGraphs(nodeCount, seed);
+        Node[] nodes = graphs.addNodes(nodeCount);
+        if (wiringProbability <= 0) {
+            return graphs.dhns;
+        }
+        //Geometric skips over the pairs (i, j) with j < i
+        double logSkip = Math.log(1 - Math.min(wiringProbability, 1 - 1e-12));
+        int i = 1;
+        int j = -1;
+        while (i < nodeCount) {
+            j += 1 + (int) Math.floor(Math.log(1 - graphs.random.nextDouble()) / logSkip);
+            while (j >= i && i < nodeCount) {
+                j -= i;
+                i++;
+            }
+            if (i < nodeCount) {
+                graphs.addEdge(nodes[i], nodes[j]);
+            }
+        }
+        return graphs.dhns;
+    }
+
+    /**
+     * Creates a scale-free graph by preferential attachment: each new node is
+     * connected to <code>edgesPerNode</code> existing nodes chosen with a
+     * probability proportional to their degree.
+     * @param nodeCount the number of nodes
+     * @param edgesPerNode the number of edges of each new node
+     * @param seed the random seed
+     * @return the graph model
+     */
+    public static Dhns scaleFree(int nodeCount, int edgesPerNode, long seed) {
+        BenchmarkGraphs graphs = new BenchmarkGraphs(nodeCount, seed);
+        Node[] nodes = graphs.addNodes(nodeCount);
+        int[] endpoints = new int[2 * nodeCount * edgesPerNode];
+        int endpointCount = 0;
+        for (int i = 1; i < nodeCount; i++) {
+            int targets = Math.min(i, edgesPerNode);
+            for (int k = 0; k < targets; k++) {
+                int j = endpointCount == 0 ? 0 : endpoints[graphs.random.nextInt(endpointCount)];
+                if (graphs.addEdge(nodes[i], nodes[j])) {
+                    endpoints[endpointCount++] = i;
+                    endpoints[endpointCount++] = j;
+                }
+            }
+        }
+        return graphs.dhns;
+    }
+
+    /**
+     * Creates a square grid of <code>side * side</code> nodes.
+     * @param side the number of nodes on each side
+     * @param seed the random seed of initial positions
+     * @return the graph model
+     */
+    public static Dhns grid(int side, long seed) {
+        BenchmarkGraphs graphs = new BenchmarkGraphs(side * side, seed);
+        Node[] nodes = graphs.addNodes(side * side);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    graphs.addEdge(nodes[r * side + c], nodes[r * side + c + 1]);
+                }
+                if (r + 1 < side) {
+                    graphs.addEdge(nodes[r * side + c], nodes[(r + 1) * side + c]);
+                }
+            }
+        }
+        return graphs.dhns;
+    }
+
+    /**
+     * Reads a reference dataset from an edge list file. Each line contains
+     * the source and target identifiers and optionally the weight, separated
+     * by spaces, tabs or commas. Lines starting with <code>#</code> or
+     * <code>%</code> are comments.
+     * @param file the edge list file
+     * @param seed the random seed of initial positions
+     * @return the graph model
+     * @throws IOException if the file can't be read
+     */
+    public static Dhns read(File file, long seed) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            Map<String, Node> nodes = new HashMap<String, Node>();
+            List<String[]> lines = new ArrayList<String[]>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("%")) {
+                    continue;
+                }
+                String[] fields = line.split("[\\s,;]+");
+                if (fields.length >= 2) {
+                    lines.add(fields);
+                    nodes.put(fields[0], null);
+                    nodes.put(fields[1], null);
+                }
+            }
+            BenchmarkGraphs graphs = new BenchmarkGraphs(nodes.size(), seed);
+            for (String[] fields : lines) {
+                Node source = graphs.getNode(nodes, fields[0]);
+                Node target = graphs.getNode(nodes, fields[1]);
+                float weight = 1f;
+                if (fields.length > 2) {
+                    try {
+                        weight = Float.parseFloat(fields[2]);
+                    } catch (NumberFormatException e) {
+                        //Not a weight, keep the default
+                    }
+                }
+                if (source != target && !graphs.graph.isAdjacent(source, target)) {
+                    graphs.graph.addEdge(graphs.factory.newEdge(source, target, weight, true));
+                }
+            }
+            return graphs.dhns;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Node getNode(Map<String, Node> nodes, String id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            node = newNode(id);
+            nodes.put(id, node);
+        }
+        return node;
+    }
+
+    private Node[] addNodes(int count) {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = newNode(String.valueOf(i));
+        }
+        return nodes;
+    }
+
+    private Node newNode(String id) {
+        Node node = factory.newNode(id);
+        node.getNodeData().setX((random.nextFloat() - 0.5f) * extent);
+        node.getNodeData().setY((random.nextFloat() - 0.5f) * extent);
+        node.getNodeData().setSize(NODE_SIZE);
+        node.getNodeData().setLabel(id);
+        ((NodeDataImpl) node.getNodeData()).setTextData(new BenchmarkTextData(id));
+        graph.addNode(node);
+        return node;
+    }
+
+    private boolean addEdge(Node source, Node target) {
+        if (source == target || graph.isAdjacent(source, target)) {
+            return false;
+        }
+        return graph.addEdge(factory.newEdge(source, target));
+    }
+
+    /**
+     * Label bounds estimated from the number of characters, as there is no
+     * font to measure the text.
+     */
+    private static class BenchmarkTextData implements TextData {
+
+        private String text;
+        private float size = LABEL_SIZE;
+        private float r = -1f, g, b, alpha = 1f;
+        private boolean visible = true;
+
+        public BenchmarkTextData(String text) {
+            this.text = text;
+        }
+
+        public float getWidth() {
+            return text != null ? text.length() * size * 0.6f : 0f;
+        }
+
+        public float getHeight() {
+            return text != null ? size : 0f;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public float getSize() {
+            return size;
+        }
+
+        public float getR() {
+            return r;
+        }
+
+        public float getG() {
+            return g;
+        }
+
+        public float getB() {
+            return b;
+        }
+
+        public float getAlpha() {
+            return alpha;
+        }
+
+        public boolean isVisible() {
+            return visible;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public void setColor(float r, float g, float b, float alpha) {
+            this.r = r;
+            this.g = g;
+            this.b = b;
+            this.alpha = alpha;
+        }
+
+        public void setColor(Color color) {
+            setColor(color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f, color.getAlpha() / 255f);
+        }
+
+        public void setSize(float size) {
+            this.size = size;
+        }
+
+        public void setVisible(boolean visible) {
+            this.visible = visible;
+        }
+    }
+}
@@ -0,0 +1,533 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.gephi.graph.api.AdjacencySnapshot;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.NodeData;
+import org.gephi.layout.plugin.force.yifanHu.YifanHu;
+import org.gephi.layout.plugin.force.yifanHu.YifanHuProportional;
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2Builder;
+import org.gephi.layout.plugin.fruchterman.FruchtermanReingoldBuilder;
+import org.gephi.layout.plugin.labelAdjust.LabelAdjustBuilder;
+import org.gephi.layout.plugin.multilevel.ScalableMultiLevel;
+import org.gephi.layout.spi.Layout;
+import org.gephi.layout.spi.LayoutBuilder;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.gephi.layout.spi.WorkingSetLayout;
+
+/**
+ * Headless benchmark of layout algorithms. Runs a {@link LayoutBuilder} on a
+ * graph model within an iteration and a time budget, the same way the layout
+ * controller does, and measures speed, memory and the quality of the result.
+ * <p>
+ * The run stops when the layout can't iterate anymore, when the budget is
+ * spent or when it has converged, that is when the average node displacement
+ * of an iteration is below the convergence ratio of the layout extent.
+ * <p>
+ * Results are written as CSV or JSON, one record per layout and graph, to
+ * track regressions. Run with the <code>benchmark</code> Ant target of this
+ * module, or directly with the following options:
+ * <ul><li><code>-layouts forceatlas2,yifanhu</code>: layouts, among
+ * <code>forceatlas2</code>, <code>yifanhu</code>, <code>yifanhuproportional</code>,
+ * <code>fruchtermanreingold</code>, <code>labeladjust</code> and
+ * <code>scalablemultilevel</code></li>
+ * <li><code>-graphs random:1000:0.005,grid:50</code>: graphs, as
+ * <code>random:nodes:probability</code>, <code>scalefree:nodes:edgesPerNode</code>,
+ * <code>grid:side</code> or <code>file:path</code> to an edge list</li>
+ * <li><code>-iterations n</code> and <code>-time ms</code>: budget of each run</li>
+ * <li><code>-convergence ratio</code>: average displacement ratio considered converged</li>
+ * <li><code>-seed n</code></li>
+ * <li><code>-csv file</code>: CSV file, standard output if neither this nor
+ * <code>-json</code> is set</li>
+ * <li><code>-json file</code>: JSON file</li></ul>
+ */
+public class LayoutBenchmark {
+
+    public static final double DEFAULT_CONVERGENCE_RATIO = 1e-4;
+    public static final int STRESS_PIVOTS = 50;
+    public static final long CROSSING_SAMPLES = 1000000;
+    private final int iterationBudget;
+    private final long timeBudget;
+    private double convergenceRatio = DEFAULT_CONVERGENCE_RATIO;
+    private long seed = 42;
+
+    /**
+     * Creates a benchmark.
+     * @param iterationBudget the maximum number of iterations of each run
+     * @param timeBudget the maximum time of each run, in milliseconds
+     */
+    public LayoutBenchmark(int iterationBudget, long timeBudget) {
+        this.iterationBudget = iterationBudget;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Runs the layout built by <code>builder</code> on the visible graph of
+     * <code>graphModel</code> and measures the result.
+     * @param builder the layout builder
+     * @param graphName the name of the graph, written in the result
+     * @param graphModel the graph model, whose node positions are modified
+     * @return the benchmark result
+     */
+    public Result run(LayoutBuilder builder, String graphName, GraphModel graphModel) {
+        HierarchicalGraph graph = graphModel.getHierarchicalGraphVisible();
+        AdjacencySnapshot snapshot = graph.getAdjacencySnapshot();
+        int nodeCount = snapshot.getNodeCount();
+        float[] x = new float[nodeCount];
+        float[] y = new float[nodeCount];
+        float[] previousX = new float[nodeCount];
+        float[] previousY = new float[nodeCount];
+
+        Layout layout = builder.buildLayout();
+        layout.setGraphModel(graphModel);
+        layout.resetPropertiesValues();
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        Result result = new Result();
+        result.layout = builder.getName();
+        result.graph = graphName;
+        result.nodes = nodeCount;
+        result.edges = graph.getEdgeCount();
+        readPositions(layout, snapshot, previousX, previousY);
+
+        long start = System.nanoTime();
+        long budget = timeBudget * 1000000L;
+        long elapsed = 0;
+        layout.initAlgo();
+        elapsed += System.nanoTime() - start;
+        while (result.iterations < iterationBudget && elapsed < budget) {
+            if (!layout.canAlgo()) {
+                //The layout stopped by itself
+                result.converged = true;
+                break;
+            }
+            long iterationStart = System.nanoTime();
+            layout.goAlgo();
+            publish(layout, false);
+            elapsed += System.nanoTime() - iterationStart;
+            result.iterations++;
+
+            //Convergence check, not timed
+            readPositions(layout, snapshot, x, y);
+            if (displacement(previousX, previousY, x, y) < convergenceRatio) {
+                result.converged = true;
+                break;
+            }
+            float[] swap = previousX;
+            previousX = x;
+            x = swap;
+            swap = previousY;
+            previousY = y;
+            y = swap;
+        }
+        long endStart = System.nanoTime();
+        publish(layout, true);
+        layout.endAlgo();
+        elapsed += System.nanoTime() - endStart;
+
+        result.wallTime = elapsed / 1000000.0;
+        result.iterationsPerSecond = elapsed > 0 ? result.iterations * 1e9 / elapsed : 0;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        result.peakHeap = peak / (1024.0 * 1024.0);
+        measure(graph.getAdjacencySnapshot(), result);
+        return result;
+    }
+
+    private void measure(AdjacencySnapshot snapshot, Result result) {
+        int nodeCount = snapshot.getNodeCount();
+        float[] x = new float[nodeCount];
+        float[] y = new float[nodeCount];
+        float[] radius = new float[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            NodeData nodeData = snapshot.getNode(i).getNodeData();
+            x[i] = nodeData.x();
+            y[i] = nodeData.y();
+            radius[i] = nodeData.getRadius();
+        }
+
+        //Edges, without self loops, and the undirected adjacency
+        int[] outOffsets = snapshot.getOutOffsets();
+        int[] outNeighbors = snapshot.getOutNeighbors();
+        int[] inOffsets = snapshot.getInOffsets();
+        int[] inNeighbors = snapshot.getInNeighbors();
+        boolean undirected = outNeighbors == inNeighbors;
+        int[] sources = new int[outNeighbors.length];
+        int[] targets = new int[outNeighbors.length];
+        int edgeCount = 0;
+        int[] offsets = new int[nodeCount + 1];
+        int[] neighbors = new int[outNeighbors.length + (undirected ? 0 : inNeighbors.length)];
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] = offsets[i];
+            for (int k = outOffsets[i]; k < outOffsets[i + 1]; k++) {
+                int j = outNeighbors[k];
+                neighbors[offsets[i + 1]++] = j;
+                if (j != i && (!undirected || i < j)) {
+                    sources[edgeCount] = i;
+                    targets[edgeCount++] = j;
+                }
+            }
+            if (!undirected) {
+                for (int k = inOffsets[i]; k < inOffsets[i + 1]; k++) {
+                    neighbors[offsets[i + 1]++] = inNeighbors[k];
+                }
+            }
+        }
+
+        Random random = new Random(seed);
+        result.stress = LayoutQuality.stress(x, y, offsets, neighbors, nodeCount, STRESS_PIVOTS, random);
+        result.edgeLengthVariance = LayoutQuality.edgeLengthVariance(x, y, sources, targets, edgeCount);
+        result.overlaps = LayoutQuality.overlapCount(x, y, radius, nodeCount);
+        result.crossings = LayoutQuality.crossings(x, y, sources, targets, edgeCount, CROSSING_SAMPLES, random);
+    }
+
+    private static void publish(Layout layout, boolean force) {
+        if (layout instanceof WorkingSetLayout) {
+            LayoutWorkingSet workingSet = ((WorkingSetLayout) layout).getWorkingSet();
+            if (workingSet != null) {
+                if (force) {
+                    workingSet.publish();
+                } else {
+                    workingSet.publishIfDue();
+                }
+            }
+        }
+    }
+
+    private static void readPositions(Layout layout, AdjacencySnapshot snapshot, float[] x, float[] y) {
+        LayoutWorkingSet workingSet = null;
+        if (layout instanceof WorkingSetLayout) {
+            workingSet = ((WorkingSetLayout) layout).getWorkingSet();
+        }
+        if (workingSet != null && workingSet.getSnapshot() == snapshot) {
+            System.arraycopy(workingSet.getX(), 0, x, 0, x.length);
+            System.arraycopy(workingSet.getY(), 0, y, 0, y.length);
+        } else {
+            for (int i = 0; i < x.length; i++) {
+                NodeData nodeData = snapshot.getNode(i).getNodeData();
+                x[i] = nodeData.x();
+                y[i] = nodeData.y();
+            }
+        }
+    }
+
+    /**
+     * Returns the average displacement between the two positions, relative to
+     * the diagonal of the new positions bounding box.
+     */
+    private static double displacement(float[] previousX, float[] previousY, float[] x, float[] y) {
+        int count = x.length;
+        if (count == 0) {
+            return 0;
+        }
+        double sum = 0;
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double dx = x[i] - previousX[i];
+            double dy = y[i] - previousY[i];
+            sum += Math.sqrt(dx * dx + dy * dy);
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double extent = Math.sqrt((double) (maxX - minX) * (maxX - minX) + (double) (maxY - minY) * (maxY - minY));
+        if (extent == 0) {
+            return sum > 0 ? Double.POSITIVE_INFINITY : 0;
+        }
+        return sum / count / extent;
+    }
+
+    public double getConvergenceRatio() {
+        return convergenceRatio;
+    }
+
+    public void setConvergenceRatio(double convergenceRatio) {
+        this.convergenceRatio = convergenceRatio;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Measures of a benchmark run. Times are in milliseconds and the peak heap
+     * in megabytes.
+     */
+    public static class Result {
+
+        private static final String[] COLUMNS = {"layout", "graph", "nodes", "edges", "iterations", "converged",
+            "wallTime", "iterationsPerSecond", "peakHeap", "stress", "edgeLengthVariance", "overlaps", "crossings"};
+        public String layout;
+        public String graph;
+        public int nodes;
+        public int edges;
+        public int iterations;
+        public boolean converged;
+        public double wallTime;
+        public double iterationsPerSecond;
+        public double peakHeap;
+        public double stress;
+        public double edgeLengthVariance;
+        public int overlaps;
+        public double crossings;
+
+        private Object[] values() {
+            return new Object[]{layout, graph, nodes, edges, iterations, converged,
+                        wallTime, iterationsPerSecond, peakHeap, stress, edgeLengthVariance, overlaps, crossings};
+        }
+
+        private static String format(Object value) {
+            if (value instanceof Double) {
+                return String.format(Locale.US, "%.6g", (Double) value);
+            }
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * Writes results as CSV, with a header line.
+     * @param results the results to write
+     * @param writer the destination
+     */
+    public static void writeCsv(List<Result> results, Writer writer) {
+        PrintWriter printer = new PrintWriter(writer);
+        printer.println(join(Result.COLUMNS, ","));
+        for (Result result : results) {
+            Object[] values = result.values();
+            String[] fields = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                String field = Result.format(values[i]);
+                if (values[i] instanceof String && (field.indexOf(',') != -1 || field.indexOf('"') != -1)) {
+                    field = "\"" + field.replace("\"", "\"\"") + "\"";
+                }
+                fields[i] = field;
+            }
+            printer.println(join(fields, ","));
+        }
+        printer.flush();
+    }
+
+    /**
+     * Writes results as a JSON array of objects.
+     * @param results the results to write
+     * @param writer the destination
+     */
+    public static void writeJson(List<Result> results, Writer writer) {
+        PrintWriter printer = new PrintWriter(writer);
+        printer.println("[");
+        for (int r = 0; r < results.size(); r++) {
+            Object[] values = results.get(r).values();
+            String[] fields = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                String value = Result.format(values[i]);
+                if (values[i] instanceof String) {
+                    value = "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+                } else if (value.equals("NaN") || value.equals("Infinity")) {
+                    value = "null";
+                }
+                fields[i] = "\"" + Result.COLUMNS[i] + "\": " + value;
+            }
+            printer.println("  {" + join(fields, ", ") + (r < results.size() - 1 ? "}," : "}"));
+        }
+        printer.println("]");
+        printer.flush();
+    }
+
+    private static String join(String[] values, String separator) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(values[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the builders of the benchmarked layouts, by short name.
+     */
+    public static Map<String, LayoutBuilder> getBuilders() {
+        Map<String, LayoutBuilder> builders = new LinkedHashMap<String, LayoutBuilder>();
+        builders.put("forceatlas2", new ForceAtlas2Builder());
+        builders.put("yifanhu", new YifanHu());
+        builders.put("yifanhuproportional", new YifanHuProportional());
+        builders.put("fruchtermanreingold", new FruchtermanReingoldBuilder());
+        builders.put("scalablemultilevel", new ScalableMultiLevel());
+        builders.put("labeladjust", new LabelAdjustBuilder());
+        return builders;
+    }
+
+    /**
+     * Creates the graph described by <code>spec</code>, one of
+     * <code>random:nodes:probability</code>, <code>scalefree:nodes:edgesPerNode</code>,
+     * <code>grid:side</code> or <code>file:path</code>.
+     */
+    public static GraphModel createGraph(String spec, long seed) throws IOException {
+        String[] parts = spec.split(":", 3);
+        if (parts[0].equals("random") && parts.length == 3) {
+            return BenchmarkGraphs.random(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]), seed);
+        } else if (parts[0].equals("scalefree") && parts.length == 3) {
+            return BenchmarkGraphs.scaleFree(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), seed);
+        } else if (parts[0].equals("grid") && parts.length == 2) {
+            return BenchmarkGraphs.grid(Integer.parseInt(parts[1]), seed);
+        } else if (parts[0].equals("file") && parts.length >= 2) {
+            return BenchmarkGraphs.read(new File(spec.substring("file:".length())), seed);
+        }
+        throw new IllegalArgumentException("Unknown graph: " + spec);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String layouts = "forceatlas2,yifanhu,fruchtermanreingold,labeladjust";
+        String graphs = "random:1000:0.005,scalefree:10000:2,grid:50";
+        int iterations = 500;
+        long time = 60000;
+        double convergence = DEFAULT_CONVERGENCE_RATIO;
+        long seed = 42;
+        String csv = null;
+        String json = null;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            if (option.equals("-layouts")) {
+                layouts = value;
+            } else if (option.equals("-graphs")) {
+                graphs = value;
+            } else if (option.equals("-iterations")) {
+                iterations = Integer.parseInt(value);
+            } else if (option.equals("-time")) {
+                time = Long.parseLong(value);
+            } else if (option.equals("-convergence")) {
+                convergence = Double.parseDouble(value);
+            } else if (option.equals("-seed")) {
+                seed = Long.parseLong(value);
+            } else if (option.equals("-csv")) {
+                csv = value;
+            } else if (option.equals("-json")) {
+                json = value;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+
+        Map<String, LayoutBuilder> builders = getBuilders();
+        LayoutBenchmark benchmark = new LayoutBenchmark(iterations, time);
+        benchmark.setConvergenceRatio(convergence);
+        benchmark.setSeed(seed);
+        List<Result> results = new ArrayList<Result>();
+        for (String graph : graphs.split(",")) {
+            for (String name : layouts.split(",")) {
+                LayoutBuilder builder = builders.get(name.trim().toLowerCase());
+                if (builder == null) {
+                    throw new IllegalArgumentException("Unknown layout: " + name);
+                }
+                //A new graph for each layout, so all start from the same positions
+                GraphModel graphModel = createGraph(graph.trim(), seed);
+                Result result = benchmark.run(builder, graph.trim(), graphModel);
+                Logger.getLogger(LayoutBenchmark.class.getName()).log(Level.INFO, String.format(Locale.US,
+                        "%s on %s: %d iterations in %.0f ms", result.layout, result.graph, result.iterations, result.wallTime));
+                results.add(result);
+            }
+        }
+
+        if (json != null) {
+            File file = new File(json);
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            Writer writer = new FileWriter(file);
+            try {
+                writeJson(results, writer);
+            } finally {
+                writer.close();
+            }
+        }
+        if (csv != null) {
+            Writer writer = new FileWriter(csv);
+            try {
+                writeCsv(results, writer);
+            } finally {
+                writer.close();
+            }
+        } else if (json == null) {
+            writeCsv(results, new OutputStreamWriter(System.out));
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.gephi.layout.plugin.CollisionGrid;
+
+/**
+ * Quality metrics of a layout, computed on node positions and on the graph
+ * structure in the CSR format. Metrics are independent of the layout scale.
+ */
+public class LayoutQuality {
+
+    private LayoutQuality() {
+    }
+
+    /**
+     * Returns the normalized stress of the layout, sampled from
+     * <code>pivotCount</code> random sources. Graph distances are hop counts,
+     * and euclidean distances are first scaled by the factor minimizing the
+     * stress, weighted by <code>1 / d²</code>. The result is between
+     * <code>0</code>, when euclidean distances are proportional to graph
+     * distances, and <code>1</code>.
+     * @param x nodes x position
+     * @param y nodes y position
+     * @param offsets the CSR offsets of the undirected adjacency
+     * @param neighbors the CSR neighbors of the undirected adjacency
+     * @param count the number of nodes
+     * @param pivotCount the number of sources, all nodes are used if greater
+     * than <code>count</code>
+     * @param random the random used to choose sources
+     * @return the normalized stress
+     */
+    public static double stress(float[] x, float[] y, int[] offsets, int[] neighbors, int count, int pivotCount, Random random) {
+        int[] distances = new int[count];
+        int[] queue = new int[count];
+        double sumRatio = 0;        //sum of e / d
+        double sumSquaredRatio = 0; //sum of e² / d²
+        long pairs = 0;
+        boolean all = pivotCount >= count;
+        for (int p = 0; p < Math.min(pivotCount, count); p++) {
+            int source = all ? p : random.nextInt(count);
+            Arrays.fill(distances, -1);
+            distances[source] = 0;
+            queue[0] = source;
+            int head = 0, tail = 1;
+            while (head < tail) {
+                int node = queue[head++];
+                for (int k = offsets[node]; k < offsets[node + 1]; k++) {
+                    int neighbor = neighbors[k];
+                    if (distances[neighbor] < 0) {
+                        distances[neighbor] = distances[node] + 1;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            for (int k = 1; k < tail; k++) {
+                int node = queue[k];
+                double dx = x[node] - x[source];
+                double dy = y[node] - y[source];
+                double ratio = Math.sqrt(dx * dx + dy * dy) / distances[node];
+                sumRatio += ratio;
+                sumSquaredRatio += ratio * ratio;
+                pairs++;
+            }
+        }
+        if (pairs == 0) {
+            return 0;
+        }
+        if (sumSquaredRatio == 0) {
+            return 1;
+        }
+        //With the optimal scale s = sumRatio / sumSquaredRatio, the sum of
+        //(s * e - d)² / d² is pairs - sumRatio² / sumSquaredRatio
+        return Math.max(0, 1 - sumRatio * sumRatio / (sumSquaredRatio * pairs));
+    }
+
+    /**
+     * Returns the variance of the edges length divided by the squared mean
+     * length, that is the squared coefficient of variation.
+     * @param x nodes x position
+     * @param y nodes y position
+     * @param sources edges source index
+     * @param targets edges target index
+     * @param edgeCount the number of edges
+     * @return the normalized variance of the edges length
+     */
+    public static double edgeLengthVariance(float[] x, float[] y, int[] sources, int[] targets, int edgeCount) {
+        double sum = 0;
+        double sumSquares = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            double dx = x[targets[e]] - x[sources[e]];
+            double dy = y[targets[e]] - y[sources[e]];
+            double squaredLength = dx * dx + dy * dy;
+            sum += Math.sqrt(squaredLength);
+            sumSquares += squaredLength;
+        }
+        if (edgeCount == 0 || sum == 0) {
+            return 0;
+        }
+        double mean = sum / edgeCount;
+        return Math.max(0, sumSquares / edgeCount - mean * mean) / (mean * mean);
+    }
+
+    /**
+     * Returns the number of pairs of overlapping nodes, seen as disks.
+     * @param x nodes x position
+     * @param y nodes y position
+     * @param radius nodes radius
+     * @param count the number of nodes
+     * @return the number of overlapping pairs
+     */
+    public static int overlapCount(final float[] x, final float[] y, final float[] radius, int count) {
+        float[] minX = new float[count];
+        float[] minY = new float[count];
+        float[] maxX = new float[count];
+        float[] maxY = new float[count];
+        for (int i = 0; i < count; i++) {
+            minX[i] = x[i] - radius[i];
+            minY[i] = y[i] - radius[i];
+            maxX[i] = x[i] + radius[i];
+            maxY[i] = y[i] + radius[i];
+        }
+        CollisionGrid grid = new CollisionGrid();
+        grid.build(minX, minY, maxX, maxY, count);
+        return grid.visit(new CollisionGrid.Collision() {
+
+            public boolean collide(int i, int j) {
+                if (i > j) {
+                    return false;
+                }
+                float dx = x[j] - x[i];
+                float dy = y[j] - y[i];
+                float r = radius[i] + radius[j];
+                return dx * dx + dy * dy < r * r;
+            }
+        }, null, 1);
+    }
+
+    /**
+     * Returns the number of edge crossings. Edges sharing an endpoint never
+     * cross. When there are more than <code>maxSamples</code> pairs of edges,
+     * the number is estimated from <code>maxSamples</code> random pairs.
+     * @param x nodes x position
+     * @param y nodes y position
+     * @param sources edges source index
+     * @param targets edges target index
+     * @param edgeCount the number of edges
+     * @param maxSamples the maximum number of pairs to test
+     * @param random the random used to sample pairs
+     * @return the number, or the estimated number, of crossings
+     */
+    public static double crossings(float[] x, float[] y, int[] sources, int[] targets, int edgeCount, long maxSamples, Random random) {
+        long pairs = (long) edgeCount * (edgeCount - 1) / 2;
+        if (pairs <= maxSamples) {
+            long crossings = 0;
+            for (int e = 0; e < edgeCount; e++) {
+                for (int f = e + 1; f < edgeCount; f++) {
+                    if (cross(x, y, sources[e], targets[e], sources[f], targets[f])) {
+                        crossings++;
+                    }
+                }
+            }
+            return crossings;
+        }
+        long crossings = 0;
+        long samples = 0;
+        while (samples < maxSamples) {
+            int e = random.nextInt(edgeCount);
+            int f = random.nextInt(edgeCount);
+            if (e != f) {
+                if (cross(x, y, sources[e], targets[e], sources[f], targets[f])) {
+                    crossings++;
+                }
+                samples++;
+            }
+        }
+        return (double) crossings / samples * pairs;
+    }
+
+    private static boolean cross(float[] x, float[] y, int a, int b, int c, int d) {
+        if (a == c || a == d || b == c || b == d) {
+            return false;
+        }
+        double abc = orientation(x, y, a, b, c);
+        double abd = orientation(x, y, a, b, d);
+        double cda = orientation(x, y, c, d, a);
+        double cdb = orientation(x, y, c, d, b);
+        return ((abc > 0 && abd < 0) || (abc < 0 && abd > 0))
+                && ((cda > 0 && cdb < 0) || (cda < 0 && cdb > 0));
+    }
+
+    private static double orientation(float[] x, float[] y, int a, int b, int c) {
+        return ((double) x[b] - x[a]) * ((double) y[c] - y[a]) - ((double) y[b] - y[a]) * ((double) x[c] - x[a]);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.benchmark;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.gephi.layout.spi.LayoutBuilder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the metrics of {@link LayoutQuality} on layouts whose values are known.
+ */
+public class LayoutQualityTest {
+
+    @Test
+    public void testStressOfPath() {
+        //A straight path has distances proportional to hops, at any scale
+        int count = 10;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = i * 3.5f;
+        }
+        int[][] csr = path(count);
+        assertEquals(0.0, LayoutQuality.stress(x, y, csr[0], csr[1], count, count, new Random(1)), 1e-9);
+
+        //Folding the path increases the stress
+        x[count - 1] = x[1];
+        y[count - 1] = 1f;
+        assertTrue(LayoutQuality.stress(x, y, csr[0], csr[1], count, count, new Random(1)) > 0.01);
+    }
+
+    @Test
+    public void testEdgeLengthVariance() {
+        float[] x = {0f, 1f, 2f, 4f};
+        float[] y = new float[4];
+        int[] sources = {0, 1, 2};
+        int[] targets = {1, 2, 3};
+        assertEquals(0.0, LayoutQuality.edgeLengthVariance(x, y, sources, targets, 2), 1e-9);
+
+        //Lengths 1, 1 and 2: mean 4/3, variance 2/9
+        assertEquals((2.0 / 9.0) / (16.0 / 9.0), LayoutQuality.edgeLengthVariance(x, y, sources, targets, 3), 1e-6);
+    }
+
+    @Test
+    public void testOverlapCount() {
+        float[] x = {0f, 1.5f, 10f, 10f};
+        float[] y = {0f, 0f, 0f, 1f};
+        float[] radius = {1f, 1f, 1f, 1f};
+        assertEquals(2, LayoutQuality.overlapCount(x, y, radius, 4));
+
+        //Boxes overlap but disks don't
+        float[] diagonalX = {0f, 1.5f};
+        float[] diagonalY = {0f, 1.5f};
+        assertEquals(0, LayoutQuality.overlapCount(diagonalX, diagonalY, radius, 2));
+    }
+
+    @Test
+    public void testCrossings() {
+        //Square with its two diagonals and a shared endpoint
+        float[] x = {0f, 1f, 1f, 0f};
+        float[] y = {0f, 0f, 1f, 1f};
+        int[] sources = {0, 1, 0};
+        int[] targets = {2, 3, 1};
+        assertEquals(1.0, LayoutQuality.crossings(x, y, sources, targets, 3, 100, new Random(1)), 0.0);
+
+        //Sampled estimate on a random layout is close to the exact count
+        Random random = new Random(3);
+        int count = 300;
+        float[] rx = new float[count];
+        float[] ry = new float[count];
+        for (int i = 0; i < count; i++) {
+            rx[i] = random.nextFloat();
+            ry[i] = random.nextFloat();
+        }
+        int edgeCount = 600;
+        int[] s = new int[edgeCount];
+        int[] t = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            s[e] = random.nextInt(count);
+            t[e] = random.nextInt(count);
+        }
+        double exact = LayoutQuality.crossings(rx, ry, s, t, edgeCount, Long.MAX_VALUE, random);
+        double estimate = LayoutQuality.crossings(rx, ry, s, t, edgeCount, 50000, random);
+        assertEquals(exact, estimate, exact * 0.05);
+    }
+
+    @Test
+    public void testBenchmarkAllLayouts() throws Exception {
+        LayoutBenchmark benchmark = new LayoutBenchmark(20, 10000);
+        List<LayoutBenchmark.Result> results = new ArrayList<LayoutBenchmark.Result>();
+        for (Map.Entry<String, LayoutBuilder> entry : LayoutBenchmark.getBuilders().entrySet()) {
+            LayoutBenchmark.Result result = benchmark.run(entry.getValue(), "scalefree:300:2",
+                    LayoutBenchmark.createGraph("scalefree:300:2", 42));
+            assertEquals(300, result.nodes);
+            assertTrue(entry.getKey(), result.iterations > 0);
+            assertTrue(entry.getKey(), result.stress >= 0 && result.stress <= 1);
+            results.add(result);
+        }
+
+        StringWriter csv = new StringWriter();
+        LayoutBenchmark.writeCsv(results, csv);
+        assertEquals(results.size() + 1, csv.toString().split("\n").length);
+        assertTrue(csv.toString().startsWith("layout,graph,nodes,edges,"));
+        StringWriter json = new StringWriter();
+        LayoutBenchmark.writeJson(results, json);
+        assertTrue(json.toString().contains("\"graph\": \"scalefree:300:2\""));
+    }
+
+    private static int[][] path(int count) {
+        int[] offsets = new int[count + 1];
+        int[] neighbors = new int[2 * (count - 1)];
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = k;
+            if (i > 0) {
+                neighbors[k++] = i - 1;
+            }
+            if (i + 1 < count) {
+                neighbors[k++] = i + 1;
+            }
+        }
+        offsets[count] = k;
+        return new int[][]{offsets, neighbors};
+    }
+}
@@ -0,0 +1,108 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.force.yifanHu;
+
+import java.util.Random;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the array based Yifan Hu gives the same positions with any
+ * number of threads, and that it converges.
+ */
+public class YifanHuLayoutTest {
+
+    @Test
+    public void testThreads() {
+        float[] single = run(new YifanHu(), 3000, 1, 20);
+        float[] multi = run(new YifanHu(), 3000, 4, 20);
+        assertArrayEquals(single, multi, 0f);
+    }
+
+    @Test
+    public void testConverges() {
+        float[] positions = run(new YifanHuProportional(), 300, 2, 5000);
+        for (float p : positions) {
+            assertFalse(Float.isNaN(p));
+        }
+    }
+
+    private float[] run(Object builder, int nodeCount, int threads, int maxIterations) {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Random random = new Random(11);
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = factory.newNode();
+            nodes[i].getNodeData().setX(random.nextFloat() * 1000f);
+            nodes[i].getNodeData().setY(random.nextFloat() * 1000f);
+            graph.addNode(nodes[i]);
+        }
+        for (int i = 1; i < nodeCount; i++) {
+            graph.addEdge(factory.newEdge(nodes[i], nodes[random.nextInt(i)]));
+        }
+
+        YifanHuLayout layout = builder instanceof YifanHu ? ((YifanHu) builder).buildLayout() : ((YifanHuProportional) builder).buildLayout();
+        layout.setGraphModel(dhns);
+        layout.resetPropertiesValues();
+        layout.setThreadsCount(threads);
+        layout.initAlgo();
+        for (int i = 0; i < maxIterations && layout.canAlgo(); i++) {
+            layout.goAlgo();
+        }
+        assertTrue(maxIterations < 100 || !layout.canAlgo());
+        layout.endAlgo();
+
+        float[] positions = new float[nodeCount * 2];
+        for (int i = 0; i < nodeCount; i++) {
+            positions[2 * i] = nodes[i].getNodeData().x();
+            positions[2 * i + 1] = nodes[i].getNodeData().y();
+        }
+        return positions;
+    }
+}
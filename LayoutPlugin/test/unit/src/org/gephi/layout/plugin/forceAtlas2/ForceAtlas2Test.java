@@ -0,0 +1,106 @@
+/*
+Copyright 2008-2011 Gephi
+Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import java.util.Random;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the same steps twice with the same number of threads, positions must
+ * be exactly the same.
+ */
+public class ForceAtlas2Test {
+
+    @Test
+    public void testBarnesHutReproducible() {
+        float[] first = run(2000, true, 4, 20);
+        float[] second = run(2000, true, 4, 20);
+        assertArrayEquals(first, second, 0f);
+    }
+
+    @Test
+    public void testExactReproducible() {
+        float[] first = run(500, false, 3, 20);
+        float[] second = run(500, false, 3, 20);
+        assertArrayEquals(first, second, 0f);
+    }
+
+    private float[] run(int nodeCount, boolean barnesHut, int threads, int iterations) {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Random random = new Random(42);
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = factory.newNode();
+            nodes[i].getNodeData().setX(random.nextFloat() * 1000f);
+            nodes[i].getNodeData().setY(random.nextFloat() * 1000f);
+            graph.addNode(nodes[i]);
+        }
+        for (int i = 1; i < nodeCount; i++) {
+            graph.addEdge(factory.newEdge(nodes[i], nodes[random.nextInt(i)]));
+        }
+
+        ForceAtlas2 layout = new ForceAtlas2Builder().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.setBarnesHutOptimize(barnesHut);
+        layout.setThreadsCount(threads);
+        layout.initAlgo();
+        for (int i = 0; i < iterations; i++) {
+            layout.goAlgo();
+        }
+        layout.endAlgo();
+
+        float[] positions = new float[nodeCount * 2];
+        for (int i = 0; i < nodeCount; i++) {
+            positions[2 * i] = nodes[i].getNodeData().x();
+            positions[2 * i + 1] = nodes[i].getNodeData().y();
+        }
+        return positions;
+    }
+}
@@ -49,7 +49,8 @@ import org.gephi.graph.api.NodeData;
 import org.gephi.layout.plugin.forceAtlas2.ForceFactory.RepulsionForce;
 
 /**
- * Barnes Hut optimization
+ * Barnes Hut optimization, as it was before {@link RegionTree}. It is kept
+ * as the reference of the tests and of the benchmark.
  * @author Mathieu Jacomy
  */
 public class Region {
@@ -191,7 +192,7 @@ public class Region {
         } else {
             double distance = Math.sqrt((nData.x() - massCenterX) * (nData.x() - massCenterX) + (nData.y() - massCenterY) * (nData.y() - massCenterY));
             if (distance * theta > size) {
-                Force.apply(n, this);
+                Force.apply(n, mass, massCenterX, massCenterY);
             } else {
                 for (Region subregion : subregions) {
                     subregion.applyForce(n, Force, theta);
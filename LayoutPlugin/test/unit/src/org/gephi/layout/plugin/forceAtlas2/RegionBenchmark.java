@@ -0,0 +1,120 @@
+/*
+Copyright 2008-2011 Gephi
+Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.gephi.graph.api.Node;
+import org.gephi.layout.plugin.forceAtlas2.ForceFactory.RepulsionForce;
+
+/**
+ * Compares the build and the repulsion of <code>Region</code> and
+ * <code>RegionTree</code>, on random nodes. Run with the node counts as
+ * arguments, for instance <code>100000 1000000</code>.
+ */
+public class RegionBenchmark {
+
+    private static final double THETA = 1.2;
+    private final int warmupIterations;
+    private final int iterations;
+    private final int threadCount;
+
+    public RegionBenchmark(int warmupIterations, int iterations, int threadCount) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Returns the average times, in milliseconds: <code>Region</code> build,
+     * <code>RegionTree</code> build, <code>Region</code> repulsion and
+     * <code>RegionTree</code> repulsion.
+     */
+    public double[] run(int nodeCount) {
+        Node[] nodes = RegionTreeTest.createNodes(nodeCount, 42);
+        RepulsionForce repulsion = ForceFactory.builder.buildRepulsion(false, 2.0);
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        RegionTree tree = new RegionTree();
+        double[] times = new double[4];
+        try {
+            for (int i = -warmupIterations; i < iterations; i++) {
+                long start = System.nanoTime();
+                Region region = new Region(nodes);
+                region.buildSubRegions();
+                long regionBuilt = System.nanoTime();
+                tree.build(nodes, pool, threadCount);
+                long treeBuilt = System.nanoTime();
+                for (Node n : nodes) {
+                    region.applyForce(n, repulsion, THETA);
+                }
+                long regionApplied = System.nanoTime();
+                for (Node n : nodes) {
+                    tree.applyForce(n, repulsion, THETA, ForceBuffer.DIRECT);
+                }
+                long treeApplied = System.nanoTime();
+                if (i >= 0) {
+                    times[0] += regionBuilt - start;
+                    times[1] += treeBuilt - regionBuilt;
+                    times[2] += regionApplied - treeBuilt;
+                    times[3] += treeApplied - regionApplied;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < times.length; i++) {
+            times[i] /= Math.max(1, iterations) * 1000000.0;
+        }
+        return times;
+    }
+
+    public static void main(String[] args) {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        RegionBenchmark benchmark = new RegionBenchmark(3, 5, threads);
+        String[] counts = args.length > 0 ? args : new String[]{"10000", "100000", "1000000"};
+        System.out.println("nodes\tRegion build\tRegionTree build\tRegion repulsion\tRegionTree repulsion (ms, " + threads + " threads)");
+        for (String count : counts) {
+            double[] times = benchmark.run(Integer.parseInt(count));
+            System.out.println(String.format("%s\t%.1f\t%.1f\t%.1f\t%.1f", count, times[0], times[1], times[2], times[3]));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+Copyright 2008-2011 Gephi
+Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.gephi.layout.plugin.forceAtlas2.ForceFactory.RepulsionForce;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the array based tree against the recursive <code>Region</code> kept
+ * in the test sources, and the parallel build against the serial one.
+ */
+public class RegionTreeTest {
+
+    @Test
+    public void testSameForcesAsRegion() {
+        Node[] nodes = createNodes(3000, 1);
+        //Some nodes at the same position
+        for (int i = 0; i < 10; i++) {
+            nodes[i].getNodeData().setX(5f);
+            nodes[i].getNodeData().setY(5f);
+        }
+        RepulsionForce repulsion = ForceFactory.builder.buildRepulsion(false, 2.0);
+
+        double[] expected = new double[nodes.length * 2];
+        Region region = new Region(nodes);
+        region.buildSubRegions();
+        for (int i = 0; i < nodes.length; i++) {
+            region.applyForce(nodes[i], repulsion, 1.2);
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            ForceAtlas2LayoutData layoutData = nodes[i].getNodeData().getLayoutData();
+            expected[2 * i] = layoutData.dx;
+            expected[2 * i + 1] = layoutData.dy;
+            layoutData.dx = 0;
+            layoutData.dy = 0;
+        }
+
+        RegionTree tree = new RegionTree();
+        tree.build(nodes, null, 1);
+        assertEquals(region.getMass(), tree.getMass(), 0.0);
+        assertEquals(region.getMassCenterX(), tree.getMassCenterX(), 0.0);
+        assertEquals(region.getMassCenterY(), tree.getMassCenterY(), 0.0);
+        for (int i = 0; i < nodes.length; i++) {
+            tree.applyForce(nodes[i], repulsion, 1.2, ForceBuffer.DIRECT);
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            ForceAtlas2LayoutData layoutData = nodes[i].getNodeData().getLayoutData();
+            assertEquals(expected[2 * i], layoutData.dx, 0.0);
+            assertEquals(expected[2 * i + 1], layoutData.dy, 0.0);
+        }
+    }
+
+    @Test
+    public void testParallelBuild() {
+        Node[] nodes = createNodes(50000, 2);
+        RegionTree tree = new RegionTree();
+        tree.build(nodes, null, 1);
+        int regionCount = tree.getRegionCount();
+        assertTrue(regionCount < 2 * nodes.length);
+        double massCenterX = tree.getMassCenterX();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            //Rebuilt in the same arrays
+            tree.build(nodes, pool, 4);
+            assertEquals(regionCount, tree.getRegionCount());
+            assertEquals(massCenterX, tree.getMassCenterX(), 0.0);
+        } finally {
+            pool.shutdown();
+        }
+
+        tree.build(new Node[0], null, 1);
+        assertEquals(0, tree.getRegionCount());
+    }
+
+    @Test
+    public void testBenchmark() {
+        double[] times = new RegionBenchmark(0, 1, 2).run(1000);
+        assertEquals(4, times.length);
+    }
+
+    static Node[] createNodes(int count, long seed) {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        Random random = new Random(seed);
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = factory.newNode();
+            nodes[i].getNodeData().setX((float) random.nextGaussian() * 1000f);
+            nodes[i].getNodeData().setY((float) random.nextGaussian() * 1000f);
+            ForceAtlas2LayoutData layoutData = new ForceAtlas2LayoutData();
+            layoutData.mass = 1 + random.nextInt(10);
+            nodes[i].getNodeData().setLayoutData(layoutData);
+        }
+        return nodes;
+    }
+}
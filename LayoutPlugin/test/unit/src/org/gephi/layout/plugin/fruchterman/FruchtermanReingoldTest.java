@@ -0,0 +1,155 @@
+/*
+Copyright 2008-2011 Gephi
+Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.fruchterman;
+
+import java.util.Random;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.gephi.layout.spi.LayoutWorkingSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares grid repulsion with exact repulsion within the cutoff distance,
+ * with one and several threads, and checks positions reach the working set.
+ */
+public class FruchtermanReingoldTest {
+
+    @Test
+    public void testGridSameAsExactWithinCutoff() {
+        //All nodes are closer than the cutoff radius
+        float[] exact = run(200, 100f, false, 1);
+        float[] grid = run(200, 100f, true, 1);
+        for (int i = 0; i < exact.length; i++) {
+            assertEquals(exact[i], grid[i], 1e-2);
+        }
+    }
+
+    @Test
+    public void testGridThreads() {
+        float[] single = run(5000, 20000f, true, 1);
+        float[] multi = run(5000, 20000f, true, 4);
+        assertArrayEquals(single, multi, 0f);
+    }
+
+    @Test
+    public void testWorkingSetPublish() {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Node n1 = factory.newNode();
+        Node n2 = factory.newNode();
+        n1.getNodeData().setX(-10f);
+        n2.getNodeData().setX(10f);
+        graph.addNode(n1);
+        graph.addNode(n2);
+        graph.addEdge(factory.newEdge(n1, n2));
+
+        FruchtermanReingold layout = new FruchtermanReingoldBuilder().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.resetPropertiesValues();
+        layout.initAlgo();
+        layout.goAlgo();
+        LayoutWorkingSet workingSet = layout.getWorkingSet();
+        int i1 = workingSet.getSnapshot().getIndex(n1);
+
+        //Positions are not published until asked
+        assertEquals(-10f, n1.getNodeData().x(), 0f);
+        assertTrue(workingSet.getX()[i1] != -10f);
+        workingSet.publish();
+        assertEquals(workingSet.getX()[i1], n1.getNodeData().x(), 0f);
+
+        //A node moved in the graph wins over the working set
+        n1.getNodeData().setX(100f);
+        layout.goAlgo();
+        workingSet.publish();
+        assertEquals(100f, n1.getNodeData().x(), 0f);
+        assertEquals(100f, workingSet.getX()[i1], 0f);
+
+        //Structure changes reload the working set
+        Node n3 = factory.newNode();
+        graph.addNode(n3);
+        layout.goAlgo();
+        assertEquals(3, workingSet.getNodeCount());
+
+        layout.endAlgo();
+        assertNull(layout.getWorkingSet());
+    }
+
+    private float[] run(int nodeCount, float extent, boolean grid, int threads) {
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Random random = new Random(7);
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = factory.newNode();
+            nodes[i].getNodeData().setX(random.nextFloat() * extent);
+            nodes[i].getNodeData().setY(random.nextFloat() * extent);
+            graph.addNode(nodes[i]);
+        }
+        for (int i = 1; i < nodeCount; i++) {
+            graph.addEdge(factory.newEdge(nodes[i], nodes[random.nextInt(i)]));
+        }
+
+        FruchtermanReingold layout = new FruchtermanReingoldBuilder().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.resetPropertiesValues();
+        layout.setGrid(grid);
+        layout.setThreadsCount(threads);
+        layout.initAlgo();
+        for (int i = 0; i < 3; i++) {
+            layout.goAlgo();
+        }
+        layout.endAlgo();
+
+        float[] positions = new float[nodeCount * 2];
+        for (int i = 0; i < nodeCount; i++) {
+            positions[2 * i] = nodes[i].getNodeData().x();
+            positions[2 * i + 1] = nodes[i].getNodeData().y();
+        }
+        return positions;
+    }
+}
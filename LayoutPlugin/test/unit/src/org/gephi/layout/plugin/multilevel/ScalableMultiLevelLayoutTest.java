@@ -0,0 +1,174 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.multilevel;
+
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.dhns.DhnsGraphController;
+import org.gephi.graph.dhns.core.Dhns;
+import org.gephi.graph.dhns.core.GraphFactoryImpl;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Coarsening and prolongation on small graphs, and a full run on a grid.
+ */
+public class ScalableMultiLevelLayoutTest {
+
+    @Test
+    public void testCoarsenPath() {
+        int count = 100;
+        int[] sources = new int[count - 1];
+        int[] targets = new int[count - 1];
+        for (int i = 0; i < count - 1; i++) {
+            sources[i] = i;
+            targets[i] = i + 1;
+        }
+        LevelGraph fine = LevelGraph.fromEdges(count, sources, targets);
+        assertEquals(count - 1, fine.getEdgeCount());
+
+        LevelGraph coarse = new HeavyEdgeCoarsening().coarsen(fine);
+        assertTrue(coarse.getNodeCount() <= count / 2 + 1);
+        float mass = 0;
+        for (int c = 0; c < coarse.getNodeCount(); c++) {
+            mass += coarse.getMass()[c];
+        }
+        assertEquals(count, mass, 0f);
+
+        //Edges between pairs are merged, all others are kept
+        float weight = 0;
+        for (int j = 0; j < coarse.offsets[coarse.count]; j++) {
+            weight += coarse.weights[j];
+        }
+        assertEquals(2 * (count - 1 - count / 2), weight, 0f);
+    }
+
+    @Test
+    public void testCoarsenStar() {
+        int count = 1000;
+        int[] sources = new int[count - 1];
+        int[] targets = new int[count - 1];
+        for (int i = 1; i < count; i++) {
+            targets[i - 1] = i;
+        }
+        LevelGraph fine = LevelGraph.fromEdges(count, sources, targets);
+        LevelGraph coarse = new HeavyEdgeCoarsening().coarsen(fine);
+        assertEquals(1, coarse.getNodeCount());
+        assertEquals(0, coarse.getEdgeCount());
+    }
+
+    @Test
+    public void testProlongate() {
+        LevelGraph fine = LevelGraph.fromEdges(4, new int[]{0, 2}, new int[]{1, 3});
+        HeavyEdgeCoarsening coarsening = new HeavyEdgeCoarsening();
+        LevelGraph coarse = coarsening.coarsen(fine);
+        assertEquals(2, coarse.getNodeCount());
+        coarse.x[0] = 100f;
+        coarsening.prolongate(coarse, fine, 10f);
+        int[] parent = fine.getParent();
+        for (int i = 0; i < 4; i++) {
+            float xDist = fine.x[i] - coarse.x[parent[i]];
+            float yDist = fine.y[i] - coarse.y[parent[i]];
+            assertEquals(10f * Math.sqrt(2) / 2, Math.sqrt(xDist * xDist + yDist * yDist), 1e-3);
+        }
+    }
+
+    @Test
+    public void testLayoutGrid() {
+        int side = 30;
+        Dhns dhns = new Dhns(new DhnsGraphController(), null);
+        GraphFactoryImpl factory = dhns.factory();
+        DirectedGraph graph = dhns.getDirectedGraph();
+        Node[] nodes = new Node[side * side];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = factory.newNode();
+            graph.addNode(nodes[i]);
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    graph.addEdge(factory.newEdge(nodes[r * side + c], nodes[r * side + c + 1]));
+                }
+                if (r + 1 < side) {
+                    graph.addEdge(factory.newEdge(nodes[r * side + c], nodes[(r + 1) * side + c]));
+                }
+            }
+        }
+
+        ScalableMultiLevelLayout layout = new ScalableMultiLevel().buildLayout();
+        layout.setGraphModel(dhns);
+        layout.setThreadsCount(2);
+        layout.initAlgo();
+        assertTrue(layout.getLevelCount() > 3);
+        int iterations = 0;
+        while (layout.canAlgo() && iterations < 10000) {
+            layout.goAlgo();
+            iterations++;
+        }
+        assertEquals(0, layout.getLevel());
+        layout.endAlgo();
+
+        //Neighbors are much closer than the average pair
+        double edgeLength = 0;
+        int edgeCount = 0;
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c + 1 < side; c++) {
+                edgeLength += distance(nodes[r * side + c], nodes[r * side + c + 1]);
+                edgeCount++;
+            }
+        }
+        edgeLength /= edgeCount;
+        double pairLength = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            assertFalse(Float.isNaN(nodes[i].getNodeData().x()));
+            pairLength += distance(nodes[i], nodes[(i * 7919) % nodes.length]);
+        }
+        pairLength /= nodes.length;
+        assertTrue(edgeLength * 5 < pairLength);
+    }
+
+    private static double distance(Node n1, Node n2) {
+        double xDist = n1.getNodeData().x() - n2.getNodeData().x();
+        double yDist = n1.getNodeData().y() - n2.getNodeData().y();
+        return Math.sqrt(xDist * xDist + yDist * yDist);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.quadtree;
+
+import java.util.Random;
+import org.gephi.layout.plugin.force.quadtree.ArrayQuadTree;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the quadtree repulsion with the exact one, before and after a
+ * refit.
+ */
+public class ArrayQuadTreeTest {
+
+    @Test
+    public void testExactWithZeroTheta() {
+        int count = 500;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        randomPositions(x, y, new Random(1));
+        ArrayQuadTree tree = new ArrayQuadTree();
+        tree.build(x, y, null, count, 10);
+        assertEquals(count, tree.getMass(), 1e-3);
+        checkRepulsion(tree, x, y, 0f, 1e-3);
+    }
+
+    @Test
+    public void testApproximation() {
+        int count = 2000;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        randomPositions(x, y, new Random(2));
+        ArrayQuadTree tree = new ArrayQuadTree();
+        tree.build(x, y, null, count, 10);
+        checkRepulsion(tree, x, y, 1.2f, 0.1);
+    }
+
+    @Test
+    public void testRefit() {
+        int count = 500;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        Random random = new Random(3);
+        randomPositions(x, y, random);
+        ArrayQuadTree tree = new ArrayQuadTree();
+        tree.build(x, y, null, count, 10);
+        assertTrue(tree.refit() <= 1f);
+
+        //Refitted trees stay exact with a zero theta
+        for (int i = 0; i < count; i++) {
+            x[i] += (random.nextFloat() - 0.5f) * 200f;
+            y[i] += (random.nextFloat() - 0.5f) * 200f;
+        }
+        assertTrue(tree.refit() > 1f);
+        checkRepulsion(tree, x, y, 0f, 1e-3);
+
+        //And close to a new tree otherwise
+        checkRepulsion(tree, x, y, 1.2f, 0.1);
+    }
+
+    private void randomPositions(float[] x, float[] y, Random random) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextFloat() * 1000f;
+            y[i] = random.nextFloat() * 1000f;
+        }
+    }
+
+    /**
+     * Checks the sum of errors is less than <code>tolerance</code> times the
+     * sum of forces.
+     */
+    private void checkRepulsion(ArrayQuadTree tree, float[] x, float[] y, float theta, double tolerance) {
+        float[] result = new float[2];
+        double totalNorm = 0;
+        double totalError = 0;
+        for (int i = 0; i < x.length; i++) {
+            double fx = 0;
+            double fy = 0;
+            for (int j = 0; j < x.length; j++) {
+                if (i != j) {
+                    double xDist = x[i] - x[j];
+                    double yDist = y[i] - y[j];
+                    double squaredDistance = xDist * xDist + yDist * yDist;
+                    fx += xDist / squaredDistance;
+                    fy += yDist / squaredDistance;
+                }
+            }
+            tree.computeRepulsion(i, theta, 1f, result);
+            totalNorm += Math.sqrt(fx * fx + fy * fy);
+            totalError += Math.sqrt((result[0] - fx) * (result[0] - fx) + (result[1] - fy) * (result[1] - fy));
+        }
+        assertTrue("Error " + totalError / totalNorm, totalError <= tolerance * totalNorm);
+    }
+}
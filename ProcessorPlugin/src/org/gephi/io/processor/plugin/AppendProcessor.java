@@ -123,31 +123,39 @@ public class AppendProcessor extends AbstractProcessor implements Processor {
             dynamicController.setTimeFormat(container.getTimeFormat());
         }
 
-        //Index existing graph
+        //Index existing graph labels, ids are resolved by the graph
         Map<String, Node> map = new HashMap<String, Node>();
         for (Node n : graph.getNodes()) {
-            String id = n.getNodeData().getId();
-            if (id != null && !id.equalsIgnoreCase(String.valueOf(n.getId()))) {
-                map.put(id, n);
-            }
             if (n.getNodeData().getLabel() != null && !n.getNodeData().getLabel().isEmpty()) {
                 map.put(n.getNodeData().getLabel(), n);
             }
         }
+        NodeDraftGetter[] draftNodes = container.getNodes().toArray(new NodeDraftGetter[0]);
+        String[] draftIds = new String[draftNodes.length];
+        for (int i = 0; i < draftNodes.length; i++) {
+            if (!draftNodes[i].isAutoId()) {
+                draftIds[i] = draftNodes[i].getId();
+            }
+        }
+        Node[] existingNodes = graph.getNodes(draftIds);
 
         int nodeCount = 0;
         //Create all nodes
-        for (NodeDraftGetter draftNode : container.getNodes()) {
-            Node n;
-            String id = draftNode.getId();
+        for (int i = 0; i < draftNodes.length; i++) {
+            NodeDraftGetter draftNode = draftNodes[i];
+            Node n = existingNodes[i];
+            String id = draftIds[i];
             String label = draftNode.getLabel();
-            if (!draftNode.isAutoId() && id != null && map.get(id) != null) {
-                n = map.get(id);
-            } else if (label != null && map.get(label) != null) {
-                n = map.get(label);
-            } else {
-                n = factory.newNode(draftNode.isAutoId()?null:id);
-                nodeCount++;
+            if (n == null || id.equalsIgnoreCase(String.valueOf(n.getId()))) {
+                //Not found, or generated ids which are not matched
+                if (id != null && map.get(id) != null) {
+                    n = map.get(id);
+                } else if (label != null && map.get(label) != null) {
+                    n = map.get(label);
+                } else {
+                    n = factory.newNode(draftNode.isAutoId()?null:id);
+                    nodeCount++;
+                }
             }
             flushToNode(draftNode, n);
             draftNode.setNode(n);
@@ -167,7 +175,8 @@ public class AppendProcessor extends AbstractProcessor implements Processor {
             }
         }
 
-        //Create all edges and push to data structure
+        //Create all edges and push to data structure. Endpoints were resolved
+        //with the nodes above, only existing edges are looked up one by one
         int edgeCount = 0;
         for (EdgeDraftGetter edge : container.getEdges()) {
             Node source = edge.getSource().getNode();
@@ -41,6 +41,8 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.io.processor.plugin;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.gephi.data.attributes.api.AttributeController;
 import org.gephi.dynamic.api.DynamicController;
 import org.gephi.graph.api.Edge;
@@ -123,21 +125,25 @@ public class DefaultProcessor extends AbstractProcessor implements Processor {
             nodeCount++;
         }
 
-        //Push nodes in data structure
+        //Collect nodes and their parents
+        List<Node> nodes = new ArrayList<Node>(nodeCount);
+        List<Node> parentNodes = new ArrayList<Node>(nodeCount);
         for (NodeDraftGetter draftNode : container.getNodes()) {
             Node n = draftNode.getNode();
             NodeDraftGetter[] parents = draftNode.getParents();
             if (parents != null) {
                 for (int i = 0; i < parents.length; i++) {
-                    Node parent = parents[i].getNode();
-                    graph.addNode(n, parent);
+                    nodes.add(n);
+                    parentNodes.add(parents[i].getNode());
                 }
             } else {
-                graph.addNode(n);
+                nodes.add(n);
+                parentNodes.add(null);
             }
         }
 
-        //Create all edges and push to data structure
+        //Create all edges
+        List<Edge> edges = new ArrayList<Edge>();
         int edgeCount = 0;
         for (EdgeDraftGetter edge : container.getEdges()) {
             Node source = edge.getSource().getNode();
@@ -157,9 +163,12 @@ public class DefaultProcessor extends AbstractProcessor implements Processor {
 
             flushToEdge(edge, e);
             edgeCount++;
-            graph.addEdge(e);
+            edges.add(e);
         }
 
+        //Push nodes and edges in data structure at once
+        graph.bulkLoad(nodes.toArray(new Node[nodes.size()]), parentNodes.toArray(new Node[parentNodes.size()]), edges.toArray(new Edge[edges.size()]));
+
         System.out.println("# Nodes loaded: " + nodeCount + "\n# Edges loaded: " + edgeCount);
         workspace = null;
     }
@@ -41,8 +41,15 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.project.io;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.InflaterInputStream;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.XMLEvent;
 import org.gephi.project.impl.ProjectImpl;
@@ -53,7 +60,9 @@ import org.gephi.project.api.Workspace;
 import org.gephi.project.impl.ProjectControllerImpl;
 import org.gephi.workspace.impl.WorkspaceImpl;
 import org.gephi.workspace.impl.WorkspaceInformationImpl;
+import org.gephi.project.spi.WorkspaceBytesPersistenceProvider;
 import org.gephi.project.spi.WorkspacePersistenceProvider;
+import org.openide.filesystems.FileObject;
 import org.openide.util.Cancellable;
 import org.openide.util.Lookup;
 
@@ -67,8 +76,21 @@ public class GephiReader implements Cancellable {
     private boolean cancel = false;
     private Map<String, WorkspacePersistenceProvider> providers;
     private WorkspacePersistenceProvider currentProvider;
+    private FileObject archiveRoot;
+    private File file;
 
     public GephiReader() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a reader which can resolve sections from the given archive root,
+     * as returned by <code>FileUtil.getArchiveRoot()</code>. Sections read from
+     * <code>file</code> are recorded so the next save can be incremental.
+     */
+    public GephiReader(FileObject archiveRoot, File file) {
+        this.archiveRoot = archiveRoot;
+        this.file = file;
         providers = new LinkedHashMap<String, WorkspacePersistenceProvider>();
         for (WorkspacePersistenceProvider w : Lookup.getDefault().lookupAll(WorkspacePersistenceProvider.class)) {
             try {
@@ -163,8 +185,16 @@ public class GephiReader implements Cancellable {
                 WorkspacePersistenceProvider pp = providers.get(name);
                 if (pp != null) {
                     currentProvider = pp;
+                    String binaryEntry = reader.getAttributeValue(null, "binary");
+                    String xmlEntry = reader.getAttributeValue(null, "xml");
                     try {
-                        pp.readXML(reader, workspace);
+                        if (binaryEntry != null && pp instanceof WorkspaceBytesPersistenceProvider) {
+                            readBinarySection((WorkspaceBytesPersistenceProvider) pp, binaryEntry, workspace);
+                        } else if (xmlEntry != null) {
+                            readXMLSection(pp, xmlEntry, workspace);
+                        } else {
+                            pp.readXML(reader, workspace);
+                        }
                     } catch (UnsupportedOperationException e) {
                     }
                 }
@@ -176,4 +206,56 @@ public class GephiReader implements Cancellable {
             }
         }
     }
+
+    private void readBinarySection(WorkspaceBytesPersistenceProvider pp, String entryName, Workspace workspace) throws Exception {
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(openSection(pp, entryName)));
+        try {
+            pp.readBytes(stream, workspace);
+        } finally {
+            stream.close();
+        }
+        recordSection(workspace, pp, entryName, pp.getStamp(workspace));
+    }
+
+    private void readXMLSection(WorkspacePersistenceProvider pp, String entryName, Workspace workspace) throws Exception {
+        InputStreamReader isReader = new InputStreamReader(new BufferedInputStream(openSection(pp, entryName)), "UTF-8");
+        try {
+            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+            if (inputFactory.isPropertySupported("javax.xml.stream.isValidating")) {
+                inputFactory.setProperty("javax.xml.stream.isValidating", Boolean.FALSE);
+            }
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(new LoadTask.Xml10FilterReader(isReader));
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamReader.START_ELEMENT && pp.getIdentifier().equals(reader.getLocalName())) {
+                    pp.readXML(reader, workspace);
+                    break;
+                }
+            }
+            reader.close();
+        } finally {
+            isReader.close();
+        }
+        recordSection(workspace, pp, entryName, null);
+    }
+
+    private InputStream openSection(WorkspacePersistenceProvider pp, String entryName) throws Exception {
+        FileObject entry = archiveRoot != null ? archiveRoot.getFileObject(entryName) : null;
+        if (entry == null) {
+            throw new GephiFormatException("The '" + pp.getIdentifier() + "' section '" + entryName + "' can't be found.");
+        }
+        return new InflaterInputStream(entry.getInputStream());
+    }
+
+    private void recordSection(Workspace workspace, WorkspacePersistenceProvider pp, String entryName, String stamp) {
+        if (file == null || !(workspace instanceof WorkspaceImpl)) {
+            return;
+        }
+        SavedSections savedSections = workspace.getLookup().lookup(SavedSections.class);
+        if (savedSections == null) {
+            savedSections = new SavedSections();
+            savedSections.reset(file);
+            ((WorkspaceImpl) workspace).add(savedSections);
+        }
+        savedSections.putRecord(pp.getIdentifier(), entryName, stamp);
+    }
 }
@@ -41,10 +41,35 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.project.io;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamWriter;
 import org.gephi.project.impl.WorkspaceProviderImpl;
 import org.gephi.project.api.Project;
@@ -52,7 +77,10 @@ import org.gephi.project.api.ProjectInformation;
 import org.gephi.project.api.ProjectMetaData;
 import org.gephi.project.api.Workspace;
 import org.gephi.project.api.WorkspaceInformation;
+import org.gephi.project.spi.WorkspaceBytesPersistenceProvider;
+import org.gephi.project.spi.WorkspaceConcurrentPersistenceProvider;
 import org.gephi.project.spi.WorkspacePersistenceProvider;
+import org.gephi.workspace.impl.WorkspaceImpl;
 import org.openide.util.Cancellable;
 import org.openide.util.Lookup;
 
@@ -62,8 +90,11 @@ import org.openide.util.Lookup;
  */
 public class GephiWriter implements Cancellable {
 
+    static final String SECTION_ELEMENT = "section";
     private int tasks = 0;
     private Map<String, WorkspacePersistenceProvider> providers;
+    private final List<Section> sections = new ArrayList<Section>();
+    private int workspaceIndex = 0;
 
     public GephiWriter() {
         providers = new LinkedHashMap<String, WorkspacePersistenceProvider>();
@@ -162,19 +193,264 @@ public class GephiWriter implements Cancellable {
         writeWorkspaceChildren(writer, workspace);
 
         writer.writeEndElement();
+        workspaceIndex++;
     }
 
     public void writeWorkspaceChildren(XMLStreamWriter writer, Workspace workspace) throws Exception {
         for (WorkspacePersistenceProvider pp : providers.values()) {
+            //Only reference the section, written later in its own entry
+            String entryName = "Workspace_" + workspaceIndex + "_" + pp.getIdentifier();
+            writer.writeComment("Persistence from " + pp.getClass().getName());
+            writer.writeEmptyElement(pp.getIdentifier());
+            writer.writeAttribute(pp instanceof WorkspaceBytesPersistenceProvider ? "binary" : "xml", entryName);
+            sections.add(new Section(entryName, pp, workspace));
+        }
+    }
+
+    /**
+     * Writes the sections referenced by the project XML, each one in its own
+     * zip entry. Must be called after <code>writeAll()</code>, once the project
+     * entry has been closed.
+     * <p>
+     * Sections are written in order. Those of providers implementing
+     * {@link WorkspaceConcurrentPersistenceProvider} are serialized and
+     * compressed ahead by <code>threads</code> workers, the others on the
+     * calling thread when their turn comes. At most <code>threads</code>
+     * sections are held in memory at once. Entries are stored, the content
+     * being already deflated at <code>level</code>. If <code>previousFile</code>
+     * is not <code>null</code>, sections whose stamp or content didn't change
+     * since this file was saved or loaded are copied from it verbatim.
+     */
+    public void writeSections(ZipOutputStream zipOut, File previousFile, int level, int threads) throws Exception {
+        ZipFile previousZip = null;
+        if (previousFile != null && previousFile.exists()) {
             try {
-                writer.writeComment("Persistence from " + pp.getClass().getName());
-                pp.writeXML(writer, workspace);
-            } catch (UnsupportedOperationException e) {
+                previousZip = new ZipFile(previousFile);
+            } catch (IOException ex) {
+                //Not a valid previous file, write everything
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Project Save Worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            int window = Math.max(1, threads);
+            List<SectionTask> tasks = new ArrayList<SectionTask>(sections.size());
+            for (Section section : sections) {
+                SavedSections.Record record = null;
+                if (previousZip != null) {
+                    SavedSections savedSections = section.workspace.getLookup().lookup(SavedSections.class);
+                    if (savedSections != null) {
+                        record = savedSections.getRecord(previousFile, section.provider.getIdentifier());
+                    }
+                }
+                tasks.add(new SectionTask(section, record, previousZip, level));
+            }
+
+            Map<Integer, Future<SectionData>> futures = new HashMap<Integer, Future<SectionData>>();
+            int next = 0;
+            byte[] buffer = new byte[8192];
+            for (int i = 0; i < tasks.size(); i++) {
+                //Submit concurrent sections ahead, within the window of buffered sections
+                for (; next < tasks.size() && next < i + window; next++) {
+                    if (sections.get(next).provider instanceof WorkspaceConcurrentPersistenceProvider) {
+                        futures.put(next, executor.submit(tasks.get(next)));
+                    }
+                }
+                SectionData data;
+                Future<SectionData> future = futures.remove(i);
+                if (future == null) {
+                    data = tasks.get(i).call();
+                } else {
+                    try {
+                        data = future.get();
+                    } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof Exception) {
+                            throw (Exception) ex.getCause();
+                        }
+                        throw ex;
+                    }
+                }
+                Section section = sections.get(i);
+                ZipEntry entry = new ZipEntry(section.entryName);
+                entry.setMethod(ZipEntry.STORED);
+                if (data.bytes != null) {
+                    entry.setSize(data.bytes.length);
+                    entry.setCompressedSize(data.bytes.length);
+                    entry.setCrc(data.crc);
+                    zipOut.putNextEntry(entry);
+                    zipOut.write(data.bytes);
+                } else {
+                    //Copy from previous file
+                    ZipEntry previousEntry = previousZip.getEntry(data.copyFrom);
+                    entry.setSize(previousEntry.getSize());
+                    entry.setCompressedSize(previousEntry.getSize());
+                    entry.setCrc(previousEntry.getCrc());
+                    zipOut.putNextEntry(entry);
+                    InputStream inputStream = previousZip.getInputStream(previousEntry);
+                    try {
+                        int read;
+                        while ((read = inputStream.read(buffer)) != -1) {
+                            zipOut.write(buffer, 0, read);
+                        }
+                    } finally {
+                        inputStream.close();
+                    }
+                }
+                zipOut.closeEntry();
+                section.stamp = data.stamp;
+            }
+        } finally {
+            executor.shutdownNow();
+            if (previousZip != null) {
+                previousZip.close();
+            }
+        }
+    }
+
+    /**
+     * Records where each section has been written, once the project file is
+     * complete, so the next save to the same <code>file</code> can be incremental.
+     */
+    public void commitSections(File file) {
+        Set<Workspace> resetWorkspaces = new HashSet<Workspace>();
+        for (Section section : sections) {
+            Workspace workspace = section.workspace;
+            SavedSections savedSections = workspace.getLookup().lookup(SavedSections.class);
+            if (savedSections == null && workspace instanceof WorkspaceImpl) {
+                savedSections = new SavedSections();
+                ((WorkspaceImpl) workspace).add(savedSections);
+            }
+            if (savedSections != null) {
+                if (resetWorkspaces.add(workspace)) {
+                    savedSections.reset(file);
+                }
+                savedSections.putRecord(section.provider.getIdentifier(), section.entryName, section.stamp);
             }
         }
+        sections.clear();
     }
 
     public boolean cancel() {
         return true;
     }
+
+    private static class Section {
+
+        private final String entryName;
+        private final WorkspacePersistenceProvider provider;
+        private final Workspace workspace;
+        private String stamp;
+
+        public Section(String entryName, WorkspacePersistenceProvider provider, Workspace workspace) {
+            this.entryName = entryName;
+            this.provider = provider;
+            this.workspace = workspace;
+        }
+    }
+
+    private static class SectionData {
+
+        private byte[] bytes;
+        private long crc;
+        private String copyFrom;
+        private String stamp;
+    }
+
+    private static class SectionTask implements Callable<SectionData> {
+
+        private final Section section;
+        private final SavedSections.Record record;
+        private final ZipFile previousZip;
+        private final int level;
+
+        public SectionTask(Section section, SavedSections.Record record, ZipFile previousZip, int level) {
+            this.section = section;
+            this.record = record;
+            this.previousZip = previousZip;
+            this.level = level;
+        }
+
+        public SectionData call() throws Exception {
+            SectionData data = new SectionData();
+            WorkspacePersistenceProvider pp = section.provider;
+            if (pp instanceof WorkspaceBytesPersistenceProvider) {
+                data.stamp = ((WorkspaceBytesPersistenceProvider) pp).getStamp(section.workspace);
+            }
+            boolean hasPrevious = record != null && previousZip.getEntry(record.getEntryName()) != null;
+            if (hasPrevious && data.stamp != null && data.stamp.equals(record.getStamp())) {
+                data.copyFrom = record.getEntryName();
+                return data;
+            }
+
+            //Serialize
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            if (pp instanceof WorkspaceBytesPersistenceProvider) {
+                DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(byteStream));
+                ((WorkspaceBytesPersistenceProvider) pp).writeBytes(stream, section.workspace);
+                stream.close();
+            } else {
+                XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+                outputFactory.setProperty("javax.xml.stream.isRepairingNamespaces", Boolean.FALSE);
+                XMLStreamWriter writer = outputFactory.createXMLStreamWriter(byteStream, "UTF-8");
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement(SECTION_ELEMENT);
+                try {
+                    pp.writeXML(writer, section.workspace);
+                } catch (UnsupportedOperationException e) {
+                }
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.close();
+            }
+            byte[] bytes = byteStream.toByteArray();
+            if (hasPrevious && sameContent(record.getEntryName(), bytes)) {
+                data.copyFrom = record.getEntryName();
+                return data;
+            }
+
+            //Compress
+            byteStream = new ByteArrayOutputStream(Math.max(32, bytes.length / 4));
+            Deflater deflater = new Deflater(level);
+            DeflaterOutputStream deflaterStream = new DeflaterOutputStream(byteStream, deflater);
+            deflaterStream.write(bytes);
+            deflaterStream.close();
+            deflater.end();
+            data.bytes = byteStream.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(data.bytes);
+            data.crc = crc.getValue();
+            return data;
+        }
+
+        private boolean sameContent(String entryName, byte[] bytes) throws IOException {
+            InputStream inputStream = new InflaterInputStream(previousZip.getInputStream(previousZip.getEntry(entryName)));
+            try {
+                byte[] buffer = new byte[8192];
+                int offset = 0;
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    if (offset + read > bytes.length) {
+                        return false;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] != bytes[offset + i]) {
+                            return false;
+                        }
+                    }
+                    offset += read;
+                }
+                return offset == bytes.length;
+            } catch (IOException ex) {
+                return false;
+            } finally {
+                inputStream.close();
+            }
+        }
+    }
 }
@@ -84,9 +84,12 @@ public class LoadTask implements LongTask, Runnable {
             Progress.start(progressTicket);
             Progress.setDisplayName(progressTicket, NbBundle.getMessage(LoadTask.class, "LoadTask.name"));
             FileObject fileObject = FileUtil.toFileObject(file);
+            FileObject archiveRoot = null;
             if (FileUtil.isArchiveFile(fileObject)) {
-                //Unzip
-                fileObject = FileUtil.getArchiveRoot(fileObject).getChildren()[0];
+                //Unzip, the project entry may be followed by binary sections
+                archiveRoot = FileUtil.getArchiveRoot(fileObject);
+                FileObject projectEntry = archiveRoot.getFileObject("Project");
+                fileObject = projectEntry != null ? projectEntry : archiveRoot.getChildren()[0];
             }
 
             XMLInputFactory inputFactory = XMLInputFactory.newInstance();
@@ -110,7 +113,7 @@ public class LoadTask implements LongTask, Runnable {
                 project.getLookup().lookup(ProjectInformationImpl.class).setFile(file);
 
                 //GephiReader
-                gephiReader = new GephiReader();
+                gephiReader = new GephiReader(archiveRoot, archiveRoot != null ? file : null);
                 project = gephiReader.readAll(reader, project);
 
                 //Add project
@@ -150,7 +153,7 @@ public class LoadTask implements LongTask, Runnable {
      * <p>
      * More details on the <a href="http://info.tsachev.org/2009/05/skipping-invalid-xml-character-with.html">blog</a>
      */
-    public class Xml10FilterReader extends FilterReader {
+    public static class Xml10FilterReader extends FilterReader {
 
         /**
          * Creates filter reader which skips invalid xml characters.
@@ -67,6 +67,8 @@ import org.openide.util.NbPreferences;
 public class SaveTask implements LongTask, Runnable {
 
     private static final String ZIP_LEVEL_PREFERENCE = "ProjectIO_Save_ZipLevel_0_TO_9";
+    private static final String THREADS_PREFERENCE = "ProjectIO_Save_Threads";
+    private static final String INCREMENTAL_PREFERENCE = "ProjectIO_Save_Incremental";
     private File file;
     private Project project;
     private GephiWriter gephiWriter;
@@ -111,9 +113,15 @@ public class SaveTask implements LongTask, Runnable {
             XMLStreamWriter writer = outputFactory.createXMLStreamWriter(bufferedOutputStream, "UTF-8");
             gephiWriter.writeAll(project, writer);
             writer.close();
+            bufferedOutputStream.flush();
+            zipOut.closeEntry();
+
+            //Sections
+            int threads = NbPreferences.forModule(SaveTask.class).getInt(THREADS_PREFERENCE, Runtime.getRuntime().availableProcessors());
+            boolean incremental = NbPreferences.forModule(SaveTask.class).getBoolean(INCREMENTAL_PREFERENCE, true);
+            gephiWriter.writeSections(zipOut, incremental && useTempFile ? file : null, zipLevel, threads);
 
             //Close
-            zipOut.closeEntry();
             zipOut.finish();
             bufferedOutputStream.close();
 
@@ -132,7 +140,10 @@ public class SaveTask implements LongTask, Runnable {
                 FileLock lock = tempFileObject.lock();
                 tempFileObject.rename(lock, name, ext);
                 lock.releaseLock();
-            } else if (cancel) {
+            }
+            if (!cancel) {
+                gephiWriter.commitSections(file);
+            } else {
                 //Delete temp file
                 FileObject tempFileObject = FileUtil.toFileObject(writeFile);
                 tempFileObject.delete();
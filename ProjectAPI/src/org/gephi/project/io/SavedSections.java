@@ -0,0 +1,102 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.project.io;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers, for one workspace, in which entries of the last saved or loaded
+ * project file each persistence provider section was, with the stamp the
+ * provider returned at that time. Used by incremental save to copy unchanged
+ * sections from the previous file. Kept in the workspace lookup.
+ */
+public class SavedSections {
+
+    private File file;
+    private long fileLastModified;
+    private long fileLength;
+    private final Map<String, Record> records = new HashMap<String, Record>();
+
+    /**
+     * Returns the record of the given provider section, only if
+     * <code>file</code> is still the file the record was made for.
+     */
+    public synchronized Record getRecord(File file, String identifier) {
+        if (this.file == null || !this.file.equals(file)
+                || file.lastModified() != fileLastModified || file.length() != fileLength) {
+            return null;
+        }
+        return records.get(identifier);
+    }
+
+    public synchronized void reset(File file) {
+        this.file = file;
+        this.fileLastModified = file.lastModified();
+        this.fileLength = file.length();
+        records.clear();
+    }
+
+    public synchronized void putRecord(String identifier, String entryName, String stamp) {
+        records.put(identifier, new Record(entryName, stamp));
+    }
+
+    public static class Record {
+
+        private final String entryName;
+        private final String stamp;
+
+        public Record(String entryName, String stamp) {
+            this.entryName = entryName;
+            this.stamp = stamp;
+        }
+
+        public String getEntryName() {
+            return entryName;
+        }
+
+        public String getStamp() {
+            return stamp;
+        }
+    }
+}
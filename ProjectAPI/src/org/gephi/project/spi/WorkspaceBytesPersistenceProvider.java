@@ -0,0 +1,85 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.project.spi;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.gephi.project.api.Workspace;
+
+/**
+ * Persistence provider which writes its workspace data as a binary section
+ * instead of an XML element. It is meant for providers that handle large
+ * volumes of data, like the graph structure or attribute rows.
+ * <p>
+ * When saving, the project XML only contains an empty element named after
+ * <code>getIdentifier()</code> which references the section. The section itself
+ * is written by <code>writeBytes()</code> in a separate entry of the project
+ * archive. When loading, the section is given to <code>readBytes()</code> at
+ * the position of this element, so the order of providers is kept. Older
+ * project files, where the element contains XML data, are still given to
+ * <code>readXML()</code>.
+ * <p>
+ * Implementations are responsible for versioning their section format, see
+ * {@link BinaryPersistenceUtils} for varint and string encoding helpers.
+ * <p>
+ * When a project is saved again to the same file, sections whose stamp
+ * returned by <code>getStamp()</code> didn't change are copied from the previous
+ * file without calling <code>writeBytes()</code>.
+ * @see WorkspacePersistenceProvider
+ */
+public interface WorkspaceBytesPersistenceProvider extends WorkspacePersistenceProvider {
+
+    public void writeBytes(DataOutputStream stream, Workspace workspace) throws IOException;
+
+    public void readBytes(DataInputStream stream, Workspace workspace) throws IOException;
+
+    /**
+     * Returns a token which changes whenever the data written by
+     * <code>writeBytes()</code> changes, for instance built from model versions.
+     * Returns <code>null</code> if unknown, the section is then always written.
+     *
+     * @param workspace the workspace to be saved
+     * @return a stamp of the current workspace data, or <code>null</code>
+     */
+    public String getStamp(Workspace workspace);
+}
@@ -42,13 +42,17 @@ Portions Copyrighted 2011 Gephi Consortium.
 package org.gephi.statistics.plugin;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.graph.api.*;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeModel;
@@ -97,9 +101,11 @@ public class GraphDistance implements Statistics, LongTask {
     /** */
     private ProgressTicket progress;
     /** */
-    private boolean isCanceled;
+    private volatile boolean isCanceled;
     private int shortestPaths;
     private boolean isNormalized;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private int progressCount;
 
     public GraphDistance() {
         GraphController graphController = Lookup.getDefault().lookup(GraphController.class);
@@ -152,7 +158,8 @@ public class GraphDistance implements Statistics, LongTask {
 
         hgraph.readLock();
 
-        N = hgraph.getNodeCount();
+        AdjacencySnapshot snapshot = hgraph.getAdjacencySnapshot();
+        N = snapshot.getNodeCount();
 
         betweenness = new double[N];
         eccentricity = new double[N];
@@ -161,113 +168,76 @@ public class GraphDistance implements Statistics, LongTask {
         avgDist = 0;
         shortestPaths = 0;
         radius = Integer.MAX_VALUE;
-        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>();
-        int index = 0;
-        for (Node s : hgraph.getNodes()) {
-            indicies.put(s, index);
-            index++;
-        }
-
-        Progress.start(progress, hgraph.getNodeCount());
-        int count = 0;
-        for (Node s : hgraph.getNodes()) {
-            Stack<Node> S = new Stack<Node>();
-
-            LinkedList<Node>[] P = new LinkedList[N];
-            double[] theta = new double[N];
-            int[] d = new int[N];
-            for (int j = 0; j < N; j++) {
-                P[j] = new LinkedList<Node>();
-                theta[j] = 0;
-                d[j] = -1;
-            }
-
-            int s_index = indicies.get(s);
-
-            theta[s_index] = 1;
-            d[s_index] = 0;
-
-            LinkedList<Node> Q = new LinkedList<Node>();
-            Q.addLast(s);
-            while (!Q.isEmpty()) {
-                Node v = Q.removeFirst();
-                S.push(v);
-                int v_index = indicies.get(v);
 
-                EdgeIterable edgeIter = null;
-                if (isDirected) {
-                    edgeIter = ((HierarchicalDirectedGraph) hgraph).getOutEdgesAndMetaOutEdges(v);
-                } else {
-                    edgeIter = hgraph.getEdgesAndMetaEdges(v);
-                }
-
-                for (Edge edge : edgeIter) {
-                    Node reachable = hgraph.getOpposite(v, edge);
+        //Paths follow outgoing edges if directed, all edges otherwise
+        int[] offsets = snapshot.getOutOffsets();
+        int[] neighbors = snapshot.getOutNeighbors();
+        int[] inOffsets = snapshot.getInOffsets();
+        int[] inNeighbors = snapshot.getInNeighbors();
+        if (!isDirected && neighbors != inNeighbors) {
+            offsets = new int[N + 1];
+            neighbors = mergeAdjacency(snapshot, offsets);
+            inOffsets = offsets;
+            inNeighbors = neighbors;
+        }
 
-                    int r_index = indicies.get(reachable);
-                    if (d[r_index] < 0) {
-                        Q.addLast(reachable);
-                        d[r_index] = d[v_index] + 1;
-                    }
-                    if (d[r_index] == (d[v_index] + 1)) {
-                        theta[r_index] = theta[r_index] + theta[v_index];
-                        P[r_index].addLast(v);
-                    }
-                }
+        //Sources are shared by threads, each has its own work arrays
+        Progress.start(progress, N);
+        progressCount = 0;
+        int threads = Math.max(1, Math.min(threadCount, N));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BrandesTask[] tasks = new BrandesTask[threads];
+        List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+        Throwable failure = null;
+        try {
+            for (int t = 0; t < threads; t++) {
+                tasks[t] = new BrandesTask(t, threads, offsets, neighbors, inOffsets, inNeighbors);
+                futures.add(pool.submit(tasks[t]));
             }
-            double reachable = 0;
-            for (int i = 0; i < N; i++) {
-                if (d[i] > 0) {
-                    avgDist += d[i];
-                    eccentricity[s_index] = (int) Math.max(eccentricity[s_index], d[i]);
-                    closeness[s_index] += d[i];
-                    diameter = Math.max(diameter, d[i]);
-                    reachable++;
-                }
+            for (Future<?> future : futures) {
+                future.get();
             }
-
-            radius = (int) Math.min(eccentricity[s_index], radius);
-
-            if (reachable != 0) {
-                closeness[s_index] /= reachable;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            isCanceled = true;
+        } catch (ExecutionException ex) {
+            //Results would be incomplete, stop the other tasks
+            isCanceled = true;
+            failure = ex.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+        if (isCanceled) {
+            hgraph.readUnlockAll();
+            if (failure != null) {
+                throw new RuntimeException(failure);
             }
+            return;
+        }
 
-            shortestPaths += reachable;
-
-            double[] delta = new double[N];
-            while (!S.empty()) {
-                Node w = S.pop();
-                int w_index = indicies.get(w);
-                ListIterator<Node> iter1 = P[w_index].listIterator();
-                while (iter1.hasNext()) {
-                    Node u = iter1.next();
-                    int u_index = indicies.get(u);
-                    delta[u_index] += (theta[u_index] / theta[w_index]) * (1 + delta[w_index]);
-                }
-                if (w != s) {
-                    betweenness[w_index] += delta[w_index];
-                }
-            }
-            count++;
-            if (isCanceled) {
-                hgraph.readUnlockAll();
-                return;
+        //Reduce threads results
+        for (BrandesTask task : tasks) {
+            for (int i = 0; i < N; i++) {
+                betweenness[i] += task.betweenness[i];
             }
-            Progress.progress(progress, count);
+            avgDist += task.distanceSum;
+            shortestPaths += task.shortestPaths;
+            diameter = Math.max(diameter, task.diameter);
+            radius = Math.min(radius, task.radius);
         }
 
         avgDist /= shortestPaths;//mN * (mN - 1.0f);
 
-        for (Node s : hgraph.getNodes()) {
+        for (int s_index = 0; s_index < N; s_index++) {
+            Node s = snapshot.getNode(s_index);
             AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
-            int s_index = indicies.get(s);
 
             if (!isDirected) {
                 betweenness[s_index] /= 2;
             }
             if (isNormalized) {
                 closeness[s_index] = (closeness[s_index] == 0) ? 0 : 1.0 / closeness[s_index];
-                betweenness[s_index] /= isDirected ? (N - 1) * (N - 2) : (N - 1) * (N - 2) / 2;
+                betweenness[s_index] /= isDirected ? (N - 1.0) * (N - 2) : (N - 1.0) * (N - 2) / 2;
             }
             row.setValue(eccentricityCol, eccentricity[s_index]);
             row.setValue(closenessCol, closeness[s_index]);
@@ -276,6 +246,138 @@ public class GraphDistance implements Statistics, LongTask {
         hgraph.readUnlock();
     }
 
+    /**
+     * Returns the adjacency of both outgoing and incoming edges, to see a
+     * directed graph as undirected, and fills <code>offsets</code>.
+     */
+    private int[] mergeAdjacency(AdjacencySnapshot snapshot, int[] offsets) {
+        int[] outOffsets = snapshot.getOutOffsets();
+        int[] outNeighbors = snapshot.getOutNeighbors();
+        int[] inOffsets = snapshot.getInOffsets();
+        int[] inNeighbors = snapshot.getInNeighbors();
+        int[] neighbors = new int[outNeighbors.length + inNeighbors.length];
+        int k = 0;
+        for (int i = 0; i < N; i++) {
+            offsets[i] = k;
+            for (int j = outOffsets[i]; j < outOffsets[i + 1]; j++) {
+                neighbors[k++] = outNeighbors[j];
+            }
+            for (int j = inOffsets[i]; j < inOffsets[i + 1]; j++) {
+                neighbors[k++] = inNeighbors[j];
+            }
+        }
+        offsets[N] = k;
+        return neighbors;
+    }
+
+    private void progress() {
+        synchronized (this) {
+            Progress.progress(progress, ++progressCount);
+        }
+    }
+
+    /**
+     * Runs Brandes from the sources of a thread, every <code>step</code>
+     * nodes from <code>first</code>. Closeness and eccentricity are written
+     * in place, as each source is done by one thread, betweenness and
+     * global values are summed by the thread and reduced at the end.
+     */
+    private class BrandesTask implements Runnable {
+
+        private final int first;
+        private final int step;
+        private final int[] offsets;
+        private final int[] neighbors;
+        private final int[] inOffsets;
+        private final int[] inNeighbors;
+        //Results
+        private final double[] betweenness = new double[N];
+        private double distanceSum;
+        private int shortestPaths;
+        private int diameter;
+        private int radius = Integer.MAX_VALUE;
+
+        public BrandesTask(int first, int step, int[] offsets, int[] neighbors, int[] inOffsets, int[] inNeighbors) {
+            this.first = first;
+            this.step = step;
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+            this.inOffsets = inOffsets;
+            this.inNeighbors = inNeighbors;
+        }
+
+        public void run() {
+            //Reused for all sources, only visited nodes are reset
+            int[] d = new int[N];
+            double[] theta = new double[N];
+            double[] delta = new double[N];
+            int[] order = new int[N];
+            Arrays.fill(d, -1);
+
+            for (int s_index = first; s_index < N && !isCanceled; s_index += step) {
+                theta[s_index] = 1;
+                d[s_index] = 0;
+
+                //Breadth-first search, visit order is also the stack
+                order[0] = s_index;
+                int head = 0;
+                int tail = 1;
+                while (head < tail) {
+                    int v_index = order[head++];
+                    for (int j = offsets[v_index]; j < offsets[v_index + 1]; j++) {
+                        int r_index = neighbors[j];
+                        if (d[r_index] < 0) {
+                            order[tail++] = r_index;
+                            d[r_index] = d[v_index] + 1;
+                        }
+                        if (d[r_index] == (d[v_index] + 1)) {
+                            theta[r_index] = theta[r_index] + theta[v_index];
+                        }
+                    }
+                }
+
+                int reachable = tail - 1;
+                for (int k = 1; k < tail; k++) {
+                    int dist = d[order[k]];
+                    distanceSum += dist;
+                    eccentricity[s_index] = (int) Math.max(eccentricity[s_index], dist);
+                    closeness[s_index] += dist;
+                    diameter = Math.max(diameter, dist);
+                }
+
+                radius = (int) Math.min(eccentricity[s_index], radius);
+
+                if (reachable != 0) {
+                    closeness[s_index] /= reachable;
+                }
+
+                shortestPaths += reachable;
+
+                //Predecessors of w are the neighbors one step closer
+                for (int k = tail - 1; k >= 0; k--) {
+                    int w_index = order[k];
+                    for (int j = inOffsets[w_index]; j < inOffsets[w_index + 1]; j++) {
+                        int u_index = inNeighbors[j];
+                        if (d[u_index] == d[w_index] - 1) {
+                            delta[u_index] += (theta[u_index] / theta[w_index]) * (1 + delta[w_index]);
+                        }
+                    }
+                    if (w_index != s_index) {
+                        betweenness[w_index] += delta[w_index];
+                    }
+                }
+
+                for (int k = 0; k < tail; k++) {
+                    int v_index = order[k];
+                    d[v_index] = -1;
+                    theta[v_index] = 0;
+                    delta[v_index] = 0;
+                }
+                progress();
+            }
+        }
+    }
+
     public void setNormalized(boolean isNormalized) {
         this.isNormalized = isNormalized;
     }
@@ -292,6 +394,17 @@ public class GraphDistance implements Statistics, LongTask {
         return isDirected;
     }
 
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
     private String createImageFile(TempDir tempDir, double[] pVals, String pName, String pX, String pY) {
         //distribution of values
         Map<Double, Integer> dist = new HashMap<Double, Integer>();
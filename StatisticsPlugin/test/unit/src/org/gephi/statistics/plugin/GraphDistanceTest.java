@@ -0,0 +1,305 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Mathieu Bastian <mathieu.bastian@gephi.org>
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.plugin;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+import java.util.Stack;
+import org.gephi.data.attributes.api.AttributeController;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphController;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.HierarchicalDirectedGraph;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.project.api.ProjectController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openide.util.Lookup;
+import static org.junit.Assert.*;
+
+/**
+ * Compares <code>GraphDistance</code> with a straightforward Brandes on the
+ * graph API, and the parallel run with the serial one.
+ */
+public class GraphDistanceTest {
+
+    private GraphModel graphModel;
+    private AttributeModel attributeModel;
+
+    @Before
+    public void setUp() {
+        ProjectController projectController = Lookup.getDefault().lookup(ProjectController.class);
+        projectController.newProject();
+        attributeModel = Lookup.getDefault().lookup(AttributeController.class).getModel();
+        graphModel = Lookup.getDefault().lookup(GraphController.class).getModel();
+    }
+
+    @After
+    public void tearDown() {
+        Lookup.getDefault().lookup(ProjectController.class).closeCurrentProject();
+        graphModel = null;
+        attributeModel = null;
+    }
+
+    @Test
+    public void testPath() {
+        DirectedGraph graph = graphModel.getDirectedGraph();
+        Node[] nodes = new Node[4];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = graphModel.factory().newNode();
+            graph.addNode(nodes[i]);
+            if (i > 0) {
+                graph.addEdge(graphModel.factory().newEdge(nodes[i - 1], nodes[i]));
+            }
+        }
+
+        GraphDistance distance = new GraphDistance();
+        distance.setDirected(false);
+        distance.execute(graphModel.getHierarchicalUndirectedGraphVisible(), attributeModel);
+        assertEquals(3.0, distance.getDiameter(), 0.0);
+        assertEquals(20.0 / 12.0, distance.getPathLength(), 1e-12);
+        assertEquals(0.0, getValue(nodes[0], GraphDistance.BETWEENNESS), 0.0);
+        assertEquals(2.0, getValue(nodes[1], GraphDistance.BETWEENNESS), 0.0);
+        assertEquals(2.0, getValue(nodes[2], GraphDistance.BETWEENNESS), 0.0);
+        assertEquals(3.0, getValue(nodes[0], GraphDistance.ECCENTRICITY), 0.0);
+        assertEquals(2.0, getValue(nodes[1], GraphDistance.ECCENTRICITY), 0.0);
+        assertEquals(2.0, getValue(nodes[0], GraphDistance.CLOSENESS), 0.0);
+    }
+
+    @Test
+    public void testParallelSameAsSerial() {
+        //Two triangles joined by a bridge, with a tail
+        int[][] edges = {{0, 1}, {1, 2}, {2, 0}, {2, 3}, {3, 4}, {4, 5}, {5, 3}, {5, 6}, {6, 7}};
+        DirectedGraph graph = graphModel.getDirectedGraph();
+        Node[] nodes = new Node[8];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = graphModel.factory().newNode();
+            graph.addNode(nodes[i]);
+        }
+        for (int[] edge : edges) {
+            graph.addEdge(graphModel.factory().newEdge(nodes[edge[0]], nodes[edge[1]]));
+        }
+
+        for (boolean directed : new boolean[]{true, false}) {
+            HierarchicalGraph hgraph = directed ? graphModel.getHierarchicalDirectedGraphVisible() : graphModel.getHierarchicalUndirectedGraphVisible();
+            GraphDistance serial = new GraphDistance();
+            serial.setDirected(directed);
+            serial.setThreadCount(1);
+            serial.execute(hgraph, attributeModel);
+            double[] expected = new double[nodes.length * 3];
+            for (int i = 0; i < nodes.length; i++) {
+                expected[3 * i] = getValue(nodes[i], GraphDistance.BETWEENNESS);
+                expected[3 * i + 1] = getValue(nodes[i], GraphDistance.CLOSENESS);
+                expected[3 * i + 2] = getValue(nodes[i], GraphDistance.ECCENTRICITY);
+            }
+
+            GraphDistance parallel = new GraphDistance();
+            parallel.setDirected(directed);
+            parallel.setThreadCount(3);
+            parallel.execute(hgraph, attributeModel);
+            assertEquals(serial.getDiameter(), parallel.getDiameter(), 0.0);
+            assertEquals(serial.getPathLength(), parallel.getPathLength(), 0.0);
+            for (int i = 0; i < nodes.length; i++) {
+                assertEquals(expected[3 * i], getValue(nodes[i], GraphDistance.BETWEENNESS), 0.0);
+                assertEquals(expected[3 * i + 1], getValue(nodes[i], GraphDistance.CLOSENESS), 0.0);
+                assertEquals(expected[3 * i + 2], getValue(nodes[i], GraphDistance.ECCENTRICITY), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testDirectedSameAsReference() {
+        createRandomGraph(300, 900, 1);
+        check(graphModel.getHierarchicalDirectedGraphVisible(), true);
+    }
+
+    @Test
+    public void testUndirectedSameAsReference() {
+        createRandomGraph(300, 600, 2);
+        check(graphModel.getHierarchicalUndirectedGraphVisible(), false);
+    }
+
+    private void check(HierarchicalGraph graph, boolean directed) {
+        Reference reference = new Reference(graph, directed);
+        for (int threads : new int[]{1, 4}) {
+            GraphDistance distance = new GraphDistance();
+            distance.setDirected(directed);
+            distance.setThreadCount(threads);
+            distance.execute(graph, attributeModel);
+
+            assertEquals(reference.diameter, distance.getDiameter(), 0.0);
+            assertEquals(reference.avgDist, distance.getPathLength(), 0.0);
+            for (Node n : graph.getNodes()) {
+                int index = reference.indices.get(n);
+                assertEquals(reference.eccentricity[index], getValue(n, GraphDistance.ECCENTRICITY), 0.0);
+                assertEquals(reference.closeness[index], getValue(n, GraphDistance.CLOSENESS), 0.0);
+                //Only the order of the sum over sources depends on threads
+                double expected = reference.betweenness[index];
+                double delta = threads == 1 ? 0.0 : 1e-9 * Math.max(1.0, expected);
+                assertEquals(expected, getValue(n, GraphDistance.BETWEENNESS), delta);
+            }
+        }
+    }
+
+    private double getValue(Node node, String column) {
+        AttributeRow row = (AttributeRow) node.getNodeData().getAttributes();
+        return (Double) row.getValue(column);
+    }
+
+    private void createRandomGraph(int nodeCount, int edgeCount, long seed) {
+        DirectedGraph graph = graphModel.getDirectedGraph();
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graphModel.factory().newNode();
+            graph.addNode(nodes[i]);
+        }
+        Random random = new Random(seed);
+        int j = 0;
+        while (j < edgeCount) {
+            Node source = nodes[random.nextInt(nodeCount)];
+            Node target = nodes[random.nextInt(nodeCount)];
+            if (source != target && graph.getEdge(source, target) == null) {
+                graph.addEdge(graphModel.factory().newEdge(source, target));
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Brandes with a queue, a stack and predecessor lists, one source at a
+     * time, as in the paper.
+     */
+    private static class Reference {
+
+        private final Map<Node, Integer> indices = new HashMap<Node, Integer>();
+        private final double[] betweenness;
+        private final double[] closeness;
+        private final double[] eccentricity;
+        private int diameter;
+        private double avgDist;
+
+        public Reference(HierarchicalGraph graph, boolean directed) {
+            int n = graph.getNodeCount();
+            betweenness = new double[n];
+            closeness = new double[n];
+            eccentricity = new double[n];
+            for (Node s : graph.getNodes()) {
+                indices.put(s, indices.size());
+            }
+            int shortestPaths = 0;
+            for (Node s : graph.getNodes()) {
+                Stack<Node> stack = new Stack<Node>();
+                LinkedList<Node>[] predecessors = new LinkedList[n];
+                double[] theta = new double[n];
+                int[] d = new int[n];
+                for (int j = 0; j < n; j++) {
+                    predecessors[j] = new LinkedList<Node>();
+                    d[j] = -1;
+                }
+                int sIndex = indices.get(s);
+                theta[sIndex] = 1;
+                d[sIndex] = 0;
+
+                LinkedList<Node> queue = new LinkedList<Node>();
+                queue.addLast(s);
+                while (!queue.isEmpty()) {
+                    Node v = queue.removeFirst();
+                    stack.push(v);
+                    int vIndex = indices.get(v);
+                    Iterable<Edge> edges = directed ? ((HierarchicalDirectedGraph) graph).getOutEdgesAndMetaOutEdges(v) : graph.getEdgesAndMetaEdges(v);
+                    for (Edge edge : edges) {
+                        Node r = graph.getOpposite(v, edge);
+                        int rIndex = indices.get(r);
+                        if (d[rIndex] < 0) {
+                            queue.addLast(r);
+                            d[rIndex] = d[vIndex] + 1;
+                        }
+                        if (d[rIndex] == d[vIndex] + 1) {
+                            theta[rIndex] += theta[vIndex];
+                            predecessors[rIndex].addLast(v);
+                        }
+                    }
+                }
+                int reachable = 0;
+                for (int i = 0; i < n; i++) {
+                    if (d[i] > 0) {
+                        avgDist += d[i];
+                        eccentricity[sIndex] = Math.max(eccentricity[sIndex], d[i]);
+                        closeness[sIndex] += d[i];
+                        diameter = Math.max(diameter, d[i]);
+                        reachable++;
+                    }
+                }
+                if (reachable != 0) {
+                    closeness[sIndex] /= reachable;
+                }
+                shortestPaths += reachable;
+
+                double[] delta = new double[n];
+                while (!stack.empty()) {
+                    Node w = stack.pop();
+                    int wIndex = indices.get(w);
+                    for (Node u : predecessors[wIndex]) {
+                        int uIndex = indices.get(u);
+                        delta[uIndex] += (theta[uIndex] / theta[wIndex]) * (1 + delta[wIndex]);
+                    }
+                    if (w != s) {
+                        betweenness[wIndex] += delta[wIndex];
+                    }
+                }
+            }
+            avgDist /= shortestPaths;
+            if (!directed) {
+                for (int i = 0; i < n; i++) {
+                    betweenness[i] /= 2;
+                }
+            }
+        }
+    }
+}
@@ -144,18 +144,27 @@ public class DHNSDataBridge implements DataBridge, VizArchitecture, DynamicModel
         graphView = graph.getView().getViewId();
 
         ModelClass[] object3dClasses = engine.getModelClasses();
+        ModelClass nodeClass = object3dClasses[AbstractEngine.CLASS_NODE];
+        ModelClass edgeClass = object3dClasses[AbstractEngine.CLASS_EDGE];
+        ModelClass potatoClass = object3dClasses[AbstractEngine.CLASS_POTATO];
 
-        graph.readLock();
-
+        //Versions are read without lock, skip locking when nothing changed
+        boolean nodesChanged = graph.getNodeVersion() > nodeVersion || modeManager.requireModeChange();
+        boolean edgesChanged = graph.getEdgeVersion() > edgeVersion || modeManager.requireModeChange();
+        if (!(nodeClass.isEnabled() && nodesChanged)
+                && !(edgeClass.isEnabled() && edgesChanged)
+                && !(potatoClass.isEnabled() && nodesChanged)) {
+            engine.worldUpdated(cacheMarker);
+            return;
+        }
 
+        graph.readLock();
 
-        ModelClass nodeClass = object3dClasses[AbstractEngine.CLASS_NODE];
         if (nodeClass.isEnabled() && (graph.getNodeVersion() > nodeVersion || modeManager.requireModeChange())) {
             updateNodes(graph);
             nodeClass.setCacheMarker(cacheMarker);
         }
 
-        ModelClass edgeClass = object3dClasses[AbstractEngine.CLASS_EDGE];
         if (edgeClass.isEnabled() && (graph.getEdgeVersion() > edgeVersion || modeManager.requireModeChange())) {
             updateEdges(graph);
             updateMetaEdges(graph);
@@ -165,7 +174,6 @@ public class DHNSDataBridge implements DataBridge, VizArchitecture, DynamicModel
             }
         }
 
-        ModelClass potatoClass = object3dClasses[AbstractEngine.CLASS_POTATO];
         if (potatoClass.isEnabled() && (graph.getNodeVersion() > nodeVersion || modeManager.requireModeChange())) {
             updatePotatoes(graph);
             potatoClass.setCacheMarker(cacheMarker);